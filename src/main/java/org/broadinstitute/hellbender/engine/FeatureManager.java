@@ -20,6 +20,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 import org.broadinstitute.hellbender.utils.config.GATKConfig;
+import org.broadinstitute.hellbender.utils.io.InflatedBlockCache;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.ParameterizedType;
@@ -91,6 +92,11 @@ public final class FeatureManager implements AutoCloseable {
      */
     private final Map<FeatureInput<? extends Feature>, FeatureDataSource<? extends Feature>> featureSources;
 
+    /**
+     * Cache of inflated blocks shared by the data sources for local .bci inputs, or null to read them as streams
+     */
+    private final InflatedBlockCache bciBlockCache;
+
     /**
      * Create a FeatureManager given a CommandLineProgram tool instance, discovering all FeatureInput
      * arguments in the tool and creating query-able FeatureDataSources for them. Uses the default
@@ -149,8 +155,29 @@ public final class FeatureManager implements AutoCloseable {
      *
      */
     public FeatureManager(final CommandLineProgram toolInstance, final int featureQueryLookahead, final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final GenomicsDBOptions gdbOptions) {
+        this(toolInstance, featureQueryLookahead, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, gdbOptions, null);
+    }
+
+    /**
+     * Create a FeatureManager given a CommandLineProgram tool instance, discovering all FeatureInput
+     * arguments in the tool and creating query-able FeatureDataSources for them. Allows control over
+     * how much caching is performed by each {@link FeatureDataSource}.
+     *  @param toolInstance Instance of the tool to be run (potentially containing one or more FeatureInput arguments)
+     *                     Must have undergone command-line argument parsing and argument value injection already.
+     * @param featureQueryLookahead When querying FeatureDataSources, cache this many extra bases of context beyond
+     *                              the end of query intervals in anticipation of future queries (>= 0).
+     * @param cloudPrefetchBuffer MB size of caching/prefetching wrapper for the data, if on Google Cloud (0 to disable).
+     * @param cloudIndexPrefetchBuffer MB size of caching/prefetching wrapper for the index, if on Google Cloud (0 to disable).
+     * @param gdbOptions settings for GenomicsDB to use when reading from a GenomicsDB workspace
+     * @param bciBlockCache cache of inflated blocks shared by the data sources for local .bci inputs, which are then
+     *                      memory-mapped; null to read .bci inputs as streams
+     *
+     */
+    public FeatureManager(final CommandLineProgram toolInstance, final int featureQueryLookahead, final int cloudPrefetchBuffer, final int cloudIndexPrefetchBuffer, final GenomicsDBOptions gdbOptions,
+                          final InflatedBlockCache bciBlockCache) {
         this.toolInstanceSimpleClassName = toolInstance.getClass().getSimpleName();
         this.featureSources = new LinkedHashMap<>();
+        this.bciBlockCache = bciBlockCache;
 
         initializeFeatureSources(featureQueryLookahead, toolInstance, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, gdbOptions);
     }
@@ -175,6 +202,7 @@ public final class FeatureManager implements AutoCloseable {
 
         this.toolInstanceSimpleClassName = toolInstanceName;
         this.featureSources = new LinkedHashMap<>();
+        this.bciBlockCache = null;
         Utils.nonNull(featureInputsToTypeMap);
         featureInputsToTypeMap.forEach((k,v) -> addToFeatureSources(featureQueryLookahead, k, v, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, reference));
     }
@@ -222,7 +250,7 @@ public final class FeatureManager implements AutoCloseable {
                              final Class<? extends Feature> featureType, final int cloudPrefetchBuffer,
                              final int cloudIndexPrefetchBuffer, final Path reference) {
         // Create a new FeatureDataSource for this file, and add it to our query pool
-        featureSources.put(featureInput, new FeatureDataSource<>(featureInput, featureQueryLookahead, featureType, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, new GenomicsDBOptions(reference)));
+        featureSources.put(featureInput, new FeatureDataSource<>(featureInput, featureQueryLookahead, featureType, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, new GenomicsDBOptions(reference), false, bciBlockCache));
     }
 
     /**
@@ -242,7 +270,7 @@ public final class FeatureManager implements AutoCloseable {
                              final Class<? extends Feature> featureType, final int cloudPrefetchBuffer,
                              final int cloudIndexPrefetchBuffer, final GenomicsDBOptions genomicsDBOptions) {
         // Create a new FeatureDataSource for this file, and add it to our query pool
-        featureSources.put(featureInput, new FeatureDataSource<>(featureInput, featureQueryLookahead, featureType, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, genomicsDBOptions));
+        featureSources.put(featureInput, new FeatureDataSource<>(featureInput, featureQueryLookahead, featureType, cloudPrefetchBuffer, cloudIndexPrefetchBuffer, genomicsDBOptions, false, bciBlockCache));
     }
 
     <F extends Feature> void addToFeatureSources (final FeatureInput<F> featureInput,
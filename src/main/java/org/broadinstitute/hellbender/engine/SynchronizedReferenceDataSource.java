@@ -0,0 +1,60 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Iterator;
+
+/**
+ * A {@link ReferenceDataSource} that serializes all queries to another {@link ReferenceDataSource},
+ * so that a single (non-thread-safe) reference can be shared by multiple threads.
+ *
+ * Queries return prefetched bases, so callers hold the lock only for the duration of a single query.
+ */
+public final class SynchronizedReferenceDataSource implements ReferenceDataSource {
+
+    private final ReferenceDataSource delegate;
+
+    /**
+     * @param delegate the {@link ReferenceDataSource} to which to delegate queries.  Must not be {@code null}.
+     */
+    public SynchronizedReferenceDataSource(final ReferenceDataSource delegate) {
+        this.delegate = Utils.nonNull(delegate);
+    }
+
+    @Override
+    public synchronized ReferenceSequence queryAndPrefetch(final SimpleInterval interval) {
+        return delegate.queryAndPrefetch(interval);
+    }
+
+    @Override
+    public synchronized ReferenceSequence queryAndPrefetch(final String contig, final long start, final long stop) {
+        return delegate.queryAndPrefetch(contig, start, stop);
+    }
+
+    /**
+     * Note that the bases for the query are fetched eagerly, so that the returned iterator is safe to use
+     * without holding the lock.
+     */
+    @Override
+    public Iterator<Byte> query(final SimpleInterval interval) {
+        return ReferenceDataSource.super.query(interval);
+    }
+
+    @Override
+    public synchronized Iterator<Byte> iterator() {
+        return delegate.iterator();
+    }
+
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return delegate.getSequenceDictionary();
+    }
+
+    @Override
+    public synchronized void close() {
+        delegate.close();
+    }
+}
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.engine.spark;
 
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 
 import java.io.Serializable;
@@ -9,10 +10,25 @@ public class AssemblyRegionReadShardArgumentCollection implements Serializable {
 
     public static final int DEFAULT_READSHARD_SIZE = 5000;
     public static final int DEFAULT_READSHARD_PADDING_SIZE = 100;
+    public static final double DEFAULT_ADAPTIVE_READ_SHARD_SAMPLE_FRACTION = 0.01;
+
+    public static final String ADAPTIVE_READ_SHARDS_LONG_NAME = "adaptive-read-shards";
+    public static final String ADAPTIVE_READ_SHARD_SAMPLE_FRACTION_LONG_NAME = "adaptive-read-shard-sample-fraction";
 
     @Argument(fullName="read-shard-size", shortName="read-shard-size", doc = "Maximum size of each read shard, in bases. For good performance, this should be much larger than the maximum assembly region size.", optional = true)
     public int readShardSize = DEFAULT_READSHARD_SIZE;
 
     @Argument(fullName="read-shard-padding", shortName="read-shard-padding", doc = "Each read shard has this many bases of extra context on each side. Read shards must have as much or more padding than assembly regions.", optional = true)
     public int readShardPadding = DEFAULT_READSHARD_PADDING_SIZE;
+
+    @Advanced
+    @Argument(fullName=ADAPTIVE_READ_SHARDS_LONG_NAME, doc = "Size read shards to hold equal numbers of reads (as estimated from a sample of the reads) rather than equal numbers of bases, " +
+            "and spread them evenly across partitions. This splits shards over regions of very high depth and merges shards with few reads, to avoid straggler tasks, " +
+            "at the cost of an extra pass over the reads and a shuffle.", optional = true)
+    public boolean adaptiveReadShards = false;
+
+    @Advanced
+    @Argument(fullName=ADAPTIVE_READ_SHARD_SAMPLE_FRACTION_LONG_NAME, doc = "Fraction of the reads sampled to estimate read depth when using --" + ADAPTIVE_READ_SHARDS_LONG_NAME + ".",
+            optional = true, minValue = Double.MIN_VALUE, maxValue = 1.0)
+    public double adaptiveReadShardSampleFraction = DEFAULT_ADAPTIVE_READ_SHARD_SAMPLE_FRACTION;
 }
@@ -74,6 +74,7 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
         return ctx.broadcast(supplier);
     }
 
+    private List<SimpleInterval> shardedIntervals;
     private List<ShardBoundary> intervalShards;
 
     /**
@@ -83,6 +84,7 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
     protected List<SimpleInterval> editIntervals(List<SimpleInterval> rawIntervals) {
         SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
         List<SimpleInterval> intervals = rawIntervals == null ? IntervalUtils.getAllIntervalsForReference(sequenceDictionary) : rawIntervals;
+        shardedIntervals = intervals;
         intervalShards = intervals.stream()
                 .flatMap(interval -> Shard.divideIntervalIntoShards(interval, shardingArgs.readShardSize, shardingArgs.readShardPadding, sequenceDictionary).stream())
                 .collect(Collectors.toList());
@@ -100,6 +102,10 @@ public abstract class AssemblyRegionWalkerSpark extends GATKSparkTool {
      */
     protected JavaRDD<AssemblyRegionWalkerContext> getAssemblyRegions(JavaSparkContext ctx) {
         SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
+        if (shardingArgs.adaptiveReadShards) {
+            intervalShards = SparkSharder.adaptiveShardBoundaries(getReads(), shardedIntervals, shardingArgs.readShardSize,
+                    shardingArgs.readShardPadding, shardingArgs.adaptiveReadShardSampleFraction, sequenceDictionary);
+        }
         if (strict) {
             return FindAssemblyRegionsSpark.getAssemblyRegionsStrict(ctx, getReads(), getHeaderForReads(), sequenceDictionary, referenceFileName, features,
                     intervalShards, assemblyRegionEvaluatorSupplierBroadcast(ctx), shardingArgs, assemblyRegionArgs,
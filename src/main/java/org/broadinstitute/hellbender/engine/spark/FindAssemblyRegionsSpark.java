@@ -66,6 +66,9 @@ public class FindAssemblyRegionsSpark {
             final boolean shuffle,
             final boolean trackPileups) {
         JavaRDD<Shard<GATKRead>> shardedReads = SparkSharder.shard(ctx, reads, GATKRead.class, sequenceDictionary, intervalShards, shardingArgs.readShardSize, shuffle);
+        if (shardingArgs.adaptiveReadShards) {
+            shardedReads = SparkSharder.rebalanceShards(ctx, shardedReads, intervalShards, sequenceDictionary);
+        }
         Broadcast<FeatureManager> bFeatureManager = features == null ? null : ctx.broadcast(features);
         return shardedReads.mapPartitions(getAssemblyRegionsFunctionFast(referenceFileName, bFeatureManager, header,
                 assemblyRegionEvaluatorSupplierBroadcast, assemblyRegionArgs, trackPileups));
@@ -5,7 +5,6 @@ import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SBIIndexWriter;
 import htsjdk.samtools.SamFileHeaderMerger;
 import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
-import htsjdk.samtools.util.FileExtensions;
 import htsjdk.samtools.util.GZIIndex;
 import htsjdk.variant.vcf.VCFHeaderLine;
 import org.apache.spark.api.java.JavaRDD;
@@ -34,7 +33,6 @@ import org.broadinstitute.hellbender.tools.walkers.annotator.Annotation;
 import org.broadinstitute.hellbender.utils.*;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
-import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadsWriteFormat;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
@@ -44,7 +42,6 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 /**
  * Base class for GATK spark tools that accept standard kinds of inputs (reads, reference, and/or intervals).
@@ -691,31 +688,6 @@ public abstract class GATKSparkTool extends SparkCommandLineProgram {
         return referencePath.getFileName().toString();
     }
 
-    /**
-     * Register the VCF file (and associated index) to be downloaded to every node using Spark's copying mechanism
-     * ({@code SparkContext#addFile()}).
-     * @param ctx the Spark context
-     * @param vcfFileNames the VCF files, can be local files or remote paths
-     * @return the reference file name; the absolute path of the file can be found by a Spark task using {@code SparkFiles#get()}
-     */
-    protected static List<String> addVCFsForSpark(JavaSparkContext ctx, List<String> vcfFileNames) {
-        for (String vcfFileName : vcfFileNames) {
-            String vcfIndexFileName;
-            if (vcfFileName.endsWith(FileExtensions.VCF)) {
-                vcfIndexFileName = vcfFileName + FileExtensions.VCF_INDEX;
-            } else if (vcfFileName.endsWith(FileExtensions.COMPRESSED_VCF)) {
-                vcfIndexFileName = vcfFileName + FileExtensions.COMPRESSED_VCF_INDEX;
-            } else {
-                throw new IllegalArgumentException("Unrecognized known sites file extension. Must be .vcf or .vcf.gz");
-            }
-            ctx.addFile(vcfFileName);
-            if (Files.exists(IOUtils.getPath(vcfIndexFileName))) {
-                ctx.addFile(vcfIndexFileName);
-            }
-        }
-        return vcfFileNames.stream().map(name -> IOUtils.getPath(name).getFileName().toString()).collect(Collectors.toList());
-    }
-
     /**
      * Runs the tool itself after initializing and validating inputs. Must be implemented by subclasses.
      *
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.engine.spark;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Function;
 import com.google.common.collect.*;
 import htsjdk.samtools.SAMSequenceDictionary;
@@ -133,6 +134,169 @@ public class SparkSharder {
                 });
     }
 
+    /**
+     * Number of density bins per shard of the requested size when sharding adaptively; this sets the granularity at which
+     * dense windows are split.
+     */
+    public static final int ADAPTIVE_SHARD_BINS_PER_SHARD = 4;
+
+    /**
+     * Maximum number of shards of the requested size that are merged into one shard when sharding adaptively.
+     */
+    public static final int ADAPTIVE_SHARD_MAX_MERGED_SHARDS = 16;
+
+    /**
+     * Divide intervals into {@link ShardBoundary} objects expected to contain equal numbers of locatables, rather than
+     * equal numbers of bases as {@link Shard#divideIntervalIntoShards} does.
+     *
+     * The density of the locatables is estimated from a sample of them, counted in bins of
+     * <code>shardSize / {@link #ADAPTIVE_SHARD_BINS_PER_SHARD}</code> bases. The intervals are then cut into as many shards as
+     * {@link Shard#divideIntervalIntoShards} would make, but of (roughly) equal estimated content: dense windows are
+     * split down to a single bin, and sparse ones are merged up to {@link #ADAPTIVE_SHARD_MAX_MERGED_SHARDS} times
+     * <code>shardSize</code>. Shards never span two intervals.
+     *
+     * Note that this evaluates the locatables RDD an extra time to take the sample, so it should be cached if it is expensive to compute.
+     *
+     * @param locatables the RDD of {@link Locatable}; locatables on no contig (such as unmapped reads) are ignored
+     * @param intervals the intervals to shard, must be coordinate sorted and non-overlapping
+     * @param shardSize the size in bases of the shards that would be made without adaptive sharding
+     * @param shardPadding number of bases of padding on each side of each shard
+     * @param sampleFraction fraction of the locatables sampled to estimate their density, in (0, 1]
+     * @param sequenceDictionary the sequence dictionary to use to find contig lengths
+     * @param <L> the {@link Locatable} type
+     * @return the coordinate sorted shard boundaries
+     */
+    public static <L extends Locatable> List<ShardBoundary> adaptiveShardBoundaries(JavaRDD<L> locatables, List<SimpleInterval> intervals,
+                                                                                   int shardSize, int shardPadding, double sampleFraction,
+                                                                                   SAMSequenceDictionary sequenceDictionary) {
+        Utils.validateArg(shardSize >= 1, "shardSize must be >= 1");
+        Utils.validateArg(sampleFraction > 0 && sampleFraction <= 1, "sampleFraction must be in (0, 1]");
+        final int binSize = Math.max(1, shardSize / ADAPTIVE_SHARD_BINS_PER_SHARD);
+        final JavaRDD<L> sample = sampleFraction < 1 ? locatables.sample(false, sampleFraction, 0L) : locatables;
+        final Map<Long, Long> binCounts = sample
+                .filter(locatable -> locatable.getContig() != null && sequenceDictionary.getSequenceIndex(locatable.getContig()) != -1)
+                .map(locatable -> adaptiveShardBinKey(sequenceDictionary.getSequenceIndex(locatable.getContig()), locatable.getStart(), binSize))
+                .countByValue();
+        return adaptiveShardBoundaries(binCounts, binSize, intervals, shardSize, shardPadding, sequenceDictionary);
+    }
+
+    /**
+     * Divide intervals into shards of equal estimated content, given counts of locatables per bin
+     * (see {@link #adaptiveShardBoundaries(JavaRDD, List, int, int, double, SAMSequenceDictionary)}).
+     * @param binCounts number of locatables starting in each bin, keyed by {@link #adaptiveShardBinKey}; missing bins are empty
+     */
+    @VisibleForTesting
+    static List<ShardBoundary> adaptiveShardBoundaries(Map<Long, Long> binCounts, int binSize, List<SimpleInterval> intervals,
+                                                       int shardSize, int shardPadding, SAMSequenceDictionary sequenceDictionary) {
+        final long maxShardLength = (long) shardSize * ADAPTIVE_SHARD_MAX_MERGED_SHARDS;
+
+        // aim for as many shards as fixed-size sharding would make
+        long numFixedShards = 0;
+        long totalCount = 0;
+        for (final SimpleInterval interval : intervals) {
+            numFixedShards += (interval.getLengthOnReference() + shardSize - 1) / shardSize;
+            final int contigIndex = sequenceDictionary.getSequenceIndex(interval.getContig());
+            for (int pos = interval.getStart(); pos <= interval.getEnd(); pos = adaptiveShardBinEnd(pos, binSize, interval) + 1) {
+                totalCount += binCounts.getOrDefault(adaptiveShardBinKey(contigIndex, pos, binSize), 0L);
+            }
+        }
+        final double targetCount = Math.max(1.0, (double) totalCount / Math.max(1, numFixedShards));
+
+        final List<ShardBoundary> shards = new ArrayList<>();
+        for (final SimpleInterval interval : intervals) {
+            final int contigIndex = sequenceDictionary.getSequenceIndex(interval.getContig());
+            int shardStart = interval.getStart();
+            long shardCount = 0;
+            for (int pos = interval.getStart(); pos <= interval.getEnd(); ) {
+                final int binEnd = adaptiveShardBinEnd(pos, binSize, interval);
+                final long binCount = binCounts.getOrDefault(adaptiveShardBinKey(contigIndex, pos, binSize), 0L);
+                if (pos > shardStart && (shardCount + binCount > targetCount || binEnd - shardStart + 1 > maxShardLength)) {
+                    shards.add(newShardBoundary(interval.getContig(), shardStart, pos - 1, shardPadding, sequenceDictionary));
+                    shardStart = pos;
+                    shardCount = 0;
+                }
+                shardCount += binCount;
+                pos = binEnd + 1;
+            }
+            shards.add(newShardBoundary(interval.getContig(), shardStart, interval.getEnd(), shardPadding, sequenceDictionary));
+        }
+        return shards;
+    }
+
+    @VisibleForTesting
+    static long adaptiveShardBinKey(int contigIndex, int position, int binSize) {
+        return ((long) contigIndex << 32) | ((position - 1) / binSize);
+    }
+
+    // the last position of the bin containing pos, clipped to the interval
+    private static int adaptiveShardBinEnd(int pos, int binSize, SimpleInterval interval) {
+        return (int) Math.min(((long) (pos - 1) / binSize + 1) * binSize, interval.getEnd());
+    }
+
+    private static ShardBoundary newShardBoundary(String contig, int start, int end, int shardPadding, SAMSequenceDictionary sequenceDictionary) {
+        final SimpleInterval shardInterval = new SimpleInterval(contig, start, end);
+        return new ShardBoundary(shardInterval, shardInterval.expandWithinContig(shardPadding, sequenceDictionary));
+    }
+
+    /**
+     * Redistribute shards among the partitions of an RDD so that each partition holds a run of consecutive shards, with
+     * the same number of shards in every partition (up to rounding). This balances the work of the partitions when the
+     * shards hold equal amounts of work, such as those made by
+     * {@link #adaptiveShardBoundaries(JavaRDD, List, int, int, double, SAMSequenceDictionary)}, at the cost of a shuffle.
+     * The coordinate order of the shards is preserved.
+     * @param ctx the Spark Context
+     * @param shards the RDD of shards, as returned by {@link #shard}
+     * @param boundaries the boundaries the shards were made from, must be coordinate sorted
+     * @param sequenceDictionary the sequence dictionary used to order the shards
+     * @param <L> the {@link Locatable} type
+     * @return an RDD with the same shards and number of partitions
+     */
+    public static <L extends Locatable> JavaRDD<Shard<L>> rebalanceShards(JavaSparkContext ctx, JavaRDD<Shard<L>> shards, List<? extends ShardBoundary> boundaries,
+                                                                         SAMSequenceDictionary sequenceDictionary) {
+        final long[] shardStarts = boundaries.stream()
+                .mapToLong(boundary -> shardStartKey(boundary, sequenceDictionary))
+                .toArray();
+        final Broadcast<long[]> shardStartsBroadcast = ctx.broadcast(shardStarts);
+        return shards
+                .mapToPair(shard -> {
+                    final int index = Arrays.binarySearch(shardStartsBroadcast.getValue(), shardStartKey(shard, sequenceDictionary));
+                    Utils.validate(index >= 0, () -> "Shard " + shard.getInterval() + " is not one of the shard boundaries");
+                    return new Tuple2<>(index, shard);
+                })
+                .repartitionAndSortWithinPartitions(new ShardIndexPartitioner(shards.getNumPartitions(), shardStarts.length))
+                .values();
+    }
+
+    // orders shards by contig index, then start
+    private static long shardStartKey(Locatable shard, SAMSequenceDictionary sequenceDictionary) {
+        return ((long) sequenceDictionary.getSequenceIndex(shard.getContig()) << 32) | shard.getStart();
+    }
+
+    /**
+     * Assigns runs of consecutive shard indexes to partitions.
+     */
+    private static class ShardIndexPartitioner extends Partitioner {
+        private static final long serialVersionUID = 1L;
+
+        private final int numPartitions;
+        private final int numShards;
+
+        public ShardIndexPartitioner(int numPartitions, int numShards) {
+            this.numPartitions = numPartitions;
+            this.numShards = Math.max(1, numShards);
+        }
+
+        @Override
+        public int numPartitions() {
+            return numPartitions;
+        }
+
+        @Override
+        public int getPartition(Object key) {
+            return (int) ((long) (Integer) key * numPartitions / numShards);
+        }
+    }
+
     /**
      * Join an RDD of locatables with a set of intervals, and apply a function to process the locatables that overlap each interval.
      * @param ctx the Spark Context
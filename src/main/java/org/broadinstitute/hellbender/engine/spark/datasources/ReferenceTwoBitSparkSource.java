@@ -4,27 +4,36 @@ import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.reference.ReferenceSequence;
 import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 import org.broadinstitute.hellbender.utils.reference.TwoBitReference;
+import org.broadinstitute.hellbender.utils.spark.NodeLocalFileCache;
 
 import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.Files;
 
 
 /**
- * A ReferenceSource impl that is backed by a .2bit representation of a reference genome.  This loads an entire .2bit
- * file into a byte array that is encapsulated by this object.  This is particularly useful for fast reference queries
- * if the entire reference can fit into memory.
+ * A ReferenceSource impl that is backed by a .2bit representation of a reference genome.  When the .2bit file is on
+ * remote storage readable from the executors, it is copied once per node into the {@link NodeLocalFileCache} and
+ * memory-mapped, so that fast reference queries do not require each executor to hold its own copy of the reference.
+ * Only the path and fingerprint of the file are then serialized, so this object is cheap to broadcast or to capture in
+ * closures.  A .2bit file on a local path, which the executors may not be able to read, is loaded on the driver and
+ * serialized with this object instead.
  */
 public class ReferenceTwoBitSparkSource implements ReferenceSparkSource, Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     public static final String TWO_BIT_EXTENSION = ".2bit";
 
     private final String referenceURL;
-    private final TwoBitReference twoBitFile;
+    private final String fingerprint; // null unless the file is read through the node-local cache
+    private final TwoBitReference localTwoBitFile; // serialized with this object unless the file is read through the node-local cache
+    private transient TwoBitReference twoBitFile;
 
     public ReferenceTwoBitSparkSource( GATKPath referencePathSpecifier) throws IOException {
         // It would simplify this class if we could cache the GATKPath, but ReferenceFileSparkSource
@@ -32,7 +41,31 @@ public class ReferenceTwoBitSparkSource implements ReferenceSparkSource, Seriali
         // issue during broadcast with the Java 11 GATK build. See https://issues.apache.org/jira/browse/SPARK-26963.
         this.referenceURL = referencePathSpecifier.getRawInputString();
         Utils.validateArg(isTwoBit(referencePathSpecifier), "ReferenceTwoBitSource can only take .2bit files");
-        this.twoBitFile = new TwoBitReference(new GATKPath(referenceURL));
+        if (BucketUtils.isRemoteStorageUrl(referenceURL)) {
+            this.fingerprint = NodeLocalFileCache.fingerprint(referenceURL);
+            this.localTwoBitFile = null;
+            this.twoBitFile = getTwoBitReference();
+        } else {
+            this.fingerprint = null;
+            this.localTwoBitFile = new TwoBitReference(new GATKPath(referenceURL));
+        }
+    }
+
+    // opens the memory-mapped reference lazily after deserialization, once per JVM
+    private TwoBitReference getTwoBitReference() {
+        if (localTwoBitFile != null) {
+            return localTwoBitFile;
+        }
+        if (twoBitFile == null) {
+            twoBitFile = NodeLocalFileCache.open(referenceURL, fingerprint, localFile -> {
+                try {
+                    return new TwoBitReference(new GATKPath(referenceURL), NodeLocalFileCache.map(localFile, 0, Files.size(localFile)), false);
+                } catch (final IOException e) {
+                    throw new UserException.CouldNotReadInputFile(localFile, "Error while checking the size of the 2bit reference file", e);
+                }
+            });
+        }
+        return twoBitFile;
     }
 
     /**
@@ -46,13 +79,13 @@ public class ReferenceTwoBitSparkSource implements ReferenceSparkSource, Seriali
     @Override
     public ReferenceBases getReferenceBases(SimpleInterval interval) throws IOException {
         final SimpleInterval queryInterval = cropIntervalAtContigEnd(interval);
-        final ReferenceSequence result = twoBitFile.getReferenceBases(queryInterval);
+        final ReferenceSequence result = getTwoBitReference().getReferenceBases(queryInterval);
         return new ReferenceBases(result.getBases(), queryInterval);
     }
 
     @Override
     public SAMSequenceDictionary getReferenceSequenceDictionary(SAMSequenceDictionary optReadSequenceDictionaryToMatch) throws IOException {
-        return twoBitFile.getSequenceDictionary();
+        return getTwoBitReference().getSequenceDictionary();
     }
 
     public static boolean isTwoBit(final GATKPath referenceSpecifier) {
@@ -62,7 +95,7 @@ public class ReferenceTwoBitSparkSource implements ReferenceSparkSource, Seriali
     private SimpleInterval cropIntervalAtContigEnd( final SimpleInterval interval ) {
         // The 2bit query API does not support queries beyond the ends of contigs, so we need
         // to truncate our interval at the contig end if necessary.
-        final SAMSequenceRecord contigRecord = twoBitFile.getSequenceDictionary().getSequence(interval.getContig());
+        final SAMSequenceRecord contigRecord = getTwoBitReference().getSequenceDictionary().getSequence(interval.getContig());
         Utils.nonNull(contigRecord, () -> "Contig " + interval.getContig() + " not found in reference dictionary");
         return new SimpleInterval(interval.getContig(), interval.getStart(), Math.min(interval.getEnd(), contigRecord.getSequenceLength()));
     }
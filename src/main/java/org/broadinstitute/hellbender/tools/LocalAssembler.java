@@ -12,6 +12,8 @@ import org.broadinstitute.hellbender.cmdline.programgroups.CoverageAnalysisProgr
 import org.broadinstitute.hellbender.engine.GATKPath;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.utils.LongIterator;
+import org.broadinstitute.hellbender.tools.spark.utils.LongLongHopscotchMap;
 import org.broadinstitute.hellbender.tools.walkers.PairWalker;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.collections.HopscotchSet;
@@ -22,6 +24,11 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.zip.GZIPOutputStream;
 
@@ -80,6 +87,12 @@ public class LocalAssembler extends PairWalker {
     @Argument(fullName="no-scaffolding", doc="turn off scaffolding -- write traversals instead", optional=true)
     private boolean noScaffolding = false;
 
+    public static final int THREADS_DEFAULT = 1;
+    @Argument(fullName="threads",
+            doc="Number of threads for counting kmers and for traversing independent parts of the assembly graph.",
+            optional=true, minValue=1)
+    private int nThreads = THREADS_DEFAULT;
+
     private final List<GATKRead> reads = new ArrayList<>();
 
     @Override public boolean requiresIntervals() { return true; }
@@ -106,7 +119,7 @@ public class LocalAssembler extends PairWalker {
 
         final int regionSize = getTraversalIntervals().stream().mapToInt(SimpleInterval::size).sum();
         final KmerSet<KmerAdjacency> kmerAdjacencySet = new KmerSet<>(10 * regionSize);
-        kmerizeReads(reads, qMin, kmerAdjacencySet);
+        kmerizeReads(reads, qMin, nThreads, kmerAdjacencySet);
 
         List<ContigImpl> contigs = createAssembly(kmerAdjacencySet, minThinObs);
         if ( fillGaps(kmerAdjacencySet, minGapfillCount, reads) ) {
@@ -120,7 +133,7 @@ public class LocalAssembler extends PairWalker {
                 collectTransitPairCounts(contigs, readPaths);
         try {
             final List<Traversal> allTraversals = new ArrayList<>(
-                    traverseAllPaths(contigs, readPaths, tooManyTraversals, contigTransitsMap));
+                    traverseAllPaths(contigs, readPaths, tooManyTraversals, contigTransitsMap, nThreads));
             contigs.sort(Comparator.comparingInt(ContigImpl::getId));
             writeGFA(gfaFile, contigs, allTraversals);
             if ( noScaffolding ) {
@@ -218,11 +231,236 @@ public class LocalAssembler extends PairWalker {
     static void kmerizeReads( final List<GATKRead> reads,
                               final byte qMin,
                               final KmerSet<KmerAdjacency> kmerAdjacencySet ) {
-        for ( final GATKRead read : reads ) {
-            final byte[] calls = read.getBasesNoCopy();
-            final byte[] quals = read.getBaseQualitiesNoCopy();
-            KmerAdjacency.kmerize(calls, quals, qMin, kmerAdjacencySet);
+        kmerizeReads(reads, qMin, 1, kmerAdjacencySet);
+    }
+
+    /**
+     * Add the kmers of the reads to a KmerSet.
+     * With a single thread, the reads are kmerized one at a time, directly into KmerAdjacencies.
+     * Otherwise, batches of reads are kmerized in parallel into tables of kmer counts and adjacency masks
+     * (see countKmers), and the KmerAdjacencies are created afterwards from the combined tables, in order of kmer
+     * value, so that the result doesn't depend on how many threads are used or how they're scheduled.
+     * The parallel path may still produce different contig IDs and contig order than the single-threaded one.
+     */
+    @VisibleForTesting
+    static void kmerizeReads( final List<GATKRead> reads,
+                              final byte qMin,
+                              final int nThreads,
+                              final KmerSet<KmerAdjacency> kmerAdjacencySet ) {
+        if ( nThreads == 1 ) {
+            for ( final GATKRead read : reads ) {
+                final byte[] calls = read.getBasesNoCopy();
+                final byte[] quals = read.getBaseQualitiesNoCopy();
+                KmerAdjacency.kmerize(calls, quals, qMin, kmerAdjacencySet);
+            }
+            return;
+        }
+        final LongLongHopscotchMap[] kmerCounts = countKmers(reads, qMin, nThreads);
+
+        int nKmers = 0;
+        for ( final LongLongHopscotchMap stripe : kmerCounts ) {
+            nKmers += stripe.size();
+        }
+        final long[] kVals = new long[nKmers];
+        int kmerIdx = 0;
+        for ( final LongLongHopscotchMap stripe : kmerCounts ) {
+            final LongIterator itr = stripe.keyIterator();
+            while ( itr.hasNext() ) {
+                kVals[kmerIdx++] = itr.next();
+            }
+        }
+        Arrays.sort(kVals);
+
+        for ( final long kVal : kVals ) {
+            final long counts = kmerCounts[getStripe(kVal, kmerCounts.length)].get(kVal, 0L);
+            KmerAdjacency.findOrAdd(kVal, kmerAdjacencySet).canonical()
+                    .addObservations(unpackPredecessorMask(counts), unpackSuccessorMask(counts), unpackNObservations(counts));
+        }
+        // now that all the kmers are present, the sole predecessors and successors can be found
+        for ( final long kVal : kVals ) {
+            KmerAdjacency.find(kVal, kmerAdjacencySet).canonical().findSoleNeighbors(kmerAdjacencySet);
+        }
+    }
+
+    // The counts tables are keyed by canonical kmer value.  Each value packs the number of observations
+    // (in the high-order bits) with the predecessor and successor masks (in the low-order byte).
+    private static final int COUNTS_SHIFT = 8;
+    private static final long MASKS_MASK = (1L << COUNTS_SHIFT) - 1L;
+
+    private static long packCounts( final int predecessorMask, final int successorMask, final long nObservations ) {
+        return (nObservations << COUNTS_SHIFT) | ((long)successorMask << 4) | predecessorMask;
+    }
+    private static int unpackPredecessorMask( final long counts ) { return (int)counts & 0xf; }
+    private static int unpackSuccessorMask( final long counts ) { return (int)(counts >> 4) & 0xf; }
+    private static int unpackNObservations( final long counts ) { return Math.toIntExact(counts >>> COUNTS_SHIFT); }
+    private static long combineCounts( final long counts1, final long counts2 ) {
+        return (((counts1 >>> COUNTS_SHIFT) + (counts2 >>> COUNTS_SHIFT)) << COUNTS_SHIFT) |
+                ((counts1 | counts2) & MASKS_MASK);
+    }
+
+    // kmers are assigned to stripes using the high-order bits of a multiplicative hash, so as not to disturb the
+    // distribution of kmers over the buckets of each stripe, which depends on the low-order bits of another hash
+    private static final long STRIPE_SPREADER = 0x9E3779B97F4A7C15L;
+    private static int getStripe( final long kVal, final int nStripes ) {
+        return (int)(((STRIPE_SPREADER * kVal) >>> 32) % nStripes);
+    }
+
+    /**
+     * Count the kmers in the reads, and note their adjacencies, in tables of primitives rather than KmerAdjacencies.
+     * Each thread counts a batch of reads into its own tables, one per stripe of kmers, and then the tables of
+     * each stripe are combined by a thread of their own.
+     */
+    private static LongLongHopscotchMap[] countKmers( final List<GATKRead> reads,
+                                                      final byte qMin,
+                                                      final int nThreads ) {
+        final int nStripes = nThreads;
+        final int nReads = reads.size();
+        final List<Callable<LongLongHopscotchMap[]>> countTasks = new ArrayList<>(nThreads);
+        for ( int batchIdx = 0; batchIdx != nThreads; ++batchIdx ) {
+            final List<GATKRead> batch =
+                    reads.subList((int)((long)batchIdx * nReads / nThreads), (int)((long)(batchIdx + 1) * nReads / nThreads));
+            countTasks.add(() -> {
+                final LongLongHopscotchMap[] batchCounts = new LongLongHopscotchMap[nStripes];
+                for ( int stripeIdx = 0; stripeIdx != nStripes; ++stripeIdx ) {
+                    batchCounts[stripeIdx] = new LongLongHopscotchMap();
+                }
+                for ( final GATKRead read : batch ) {
+                    countKmers(read.getBasesNoCopy(), read.getBaseQualitiesNoCopy(), qMin, batchCounts);
+                }
+                return batchCounts;
+            });
+        }
+        final List<LongLongHopscotchMap[]> allBatchCounts = runTasks(countTasks, nThreads);
+
+        final List<Callable<LongLongHopscotchMap>> combineTasks = new ArrayList<>(nStripes);
+        for ( int stripeIdx = 0; stripeIdx != nStripes; ++stripeIdx ) {
+            final int stripe = stripeIdx;
+            combineTasks.add(() -> {
+                final LongLongHopscotchMap stripeCounts = allBatchCounts.get(0)[stripe];
+                for ( int batchIdx = 1; batchIdx < allBatchCounts.size(); ++batchIdx ) {
+                    final LongLongHopscotchMap.EntryIterator itr = allBatchCounts.get(batchIdx)[stripe].iterator();
+                    while ( itr.hasNext() ) {
+                        final long kVal = itr.next();
+                        stripeCounts.put(kVal, combineCounts(stripeCounts.get(kVal, 0L), itr.getValue()));
+                    }
+                }
+                return stripeCounts;
+            });
+        }
+        return runTasks(combineTasks, nThreads).toArray(new LongLongHopscotchMap[0]);
+    }
+
+    /**
+     * Count the kmers in a read.  This does just what KmerAdjacency.kmerize does, except that the observations
+     * are tallied in tables of primitives.
+     */
+    private static void countKmers( final byte[] calls,
+                                    final byte[] quals,
+                                    final byte qMin,
+                                    final LongLongHopscotchMap[] kmerCounts ) {
+        int currentCount = 0; // number of calls loaded into currentKVal
+        long currentKVal = 0;
+        long prevKmer = -1L; // -1 means there's no such kmer
+        long currentKmer = -1L;
+        for ( int idx = 0; idx < calls.length; ++idx ) {
+            if ( quals[idx] < qMin ) { // if we encounter a low-quality call
+                // take care of the most recent valid kmer, if any
+                if ( currentKmer != -1L ) {
+                    countKmer(prevKmer, currentKmer, -1L, kmerCounts);
+                }
+                // ready ourselves to accumulate calls afresh
+                currentCount = 0;
+                currentKmer = prevKmer = -1L;
+                continue;
+            }
+            currentKVal <<= 2;
+            switch ( calls[idx] ) {
+                case 'A': case 'a': break;
+                case 'C': case 'c': currentKVal += 1; break;
+                case 'G': case 'g': currentKVal += 2; break;
+                case 'T': case 't': currentKVal += 3; break;
+                default:
+                    if ( currentKmer != -1L ) {
+                        countKmer(prevKmer, currentKmer, -1L, kmerCounts);
+                    }
+                    currentCount = 0;
+                    currentKmer = prevKmer = -1L;
+                    continue;
+            }
+            if ( ++currentCount >= Kmer.KSIZE ) { // if we've loaded enough calls to make a complete kmer
+                final long nextKmer = currentKVal & Kmer.KMASK;
+                if ( currentKmer != -1L ) {
+                    countKmer(prevKmer, currentKmer, nextKmer, kmerCounts);
+                }
+                prevKmer = currentKmer;
+                currentKmer = nextKmer;
+            }
+        }
+        if ( currentKmer != -1L ) {
+            countKmer(prevKmer, currentKmer, -1L, kmerCounts);
+        }
+    }
+
+    /** Tally an observation of a kmer and its predecessor and successor (which are -1 if there are none). */
+    private static void countKmer( final long predecessor,
+                                   final long kmer,
+                                   final long successor,
+                                   final LongLongHopscotchMap[] kmerCounts ) {
+        final long kVal;
+        int predecessorMask = 0;
+        int successorMask = 0;
+        final int predecessorInitialCall = (int)(predecessor >> (Kmer.KSIZE*2 - 2)) & 3;
+        final int successorFinalCall = (int)successor & 3;
+        if ( Kmer.isCanonical(kmer) ) {
+            kVal = kmer;
+            if ( predecessor != -1L ) predecessorMask = 1 << predecessorInitialCall;
+            if ( successor != -1L ) successorMask = 1 << successorFinalCall;
+        } else {
+            // the predecessor of the canonical kmer is the RC of the successor, and vice versa
+            kVal = KmerAdjacency.reverseComplement(kmer);
+            if ( successor != -1L ) predecessorMask = 1 << (3 - successorFinalCall);
+            if ( predecessor != -1L ) successorMask = 1 << (3 - predecessorInitialCall);
+        }
+        final LongLongHopscotchMap stripe = kmerCounts[getStripe(kVal, kmerCounts.length)];
+        stripe.put(kVal, combineCounts(stripe.get(kVal, 0L), packCounts(predecessorMask, successorMask, 1L)));
+    }
+
+    /** Run tasks on a pool of threads (or on this one, if there's just one thread), returning their results in order. */
+    private static <T> List<T> runTasks( final List<Callable<T>> tasks, final int nThreads ) {
+        final List<T> results = new ArrayList<>(tasks.size());
+        if ( nThreads == 1 ) {
+            for ( final Callable<T> task : tasks ) {
+                try {
+                    results.add(task.call());
+                } catch ( final RuntimeException e ) {
+                    throw e;
+                } catch ( final Exception e ) {
+                    throw new GATKException("Local assembly task failed", e);
+                }
+            }
+            return results;
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(nThreads);
+        try {
+            final List<Future<T>> futures = new ArrayList<>(tasks.size());
+            for ( final Callable<T> task : tasks ) {
+                futures.add(executor.submit(task));
+            }
+            for ( final Future<T> future : futures ) {
+                results.add(future.get());
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted during local assembly", e);
+        } catch ( final ExecutionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new GATKException("Local assembly task failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
         }
+        return results;
     }
 
     /** gather unbranched strings of kmers into contigs */
@@ -721,6 +959,106 @@ public class LocalAssembler extends PairWalker {
             final List<Path> readPaths,
             final int tooManyTraversals,
             final Map<Contig, List<TransitPairCount>> contigTransitsMap ) {
+        return traverseAllPaths(contigs, readPaths, tooManyTraversals, contigTransitsMap, 1);
+    }
+
+    /**
+     * Traverse the connected components of the assembly graph in parallel.
+     * A traversal never leaves the component (contigs and their RCs) in which it starts, and it reads and resets
+     * only the transit pair counts of that component, so each component can be traversed on its own just as
+     * it would be as part of the whole graph.
+     * The traversals are returned by component, in the order of the components' first contigs, and sorted within
+     * each component, so that their order doesn't depend on the scheduling of the threads.
+     */
+    @VisibleForTesting
+    static Set<Traversal> traverseAllPaths(
+            final List<ContigImpl> contigs,
+            final List<Path> readPaths,
+            final int tooManyTraversals,
+            final Map<Contig, List<TransitPairCount>> contigTransitsMap,
+            final int nThreads ) {
+        if ( nThreads == 1 ) {
+            return traverseComponent(contigs, readPaths, tooManyTraversals, contigTransitsMap);
+        }
+        final Map<ContigImpl, Integer> componentIds = findComponents(contigs);
+        final int nComponents = new HashSet<>(componentIds.values()).size();
+        if ( nComponents <= 1 ) {
+            return traverseComponent(contigs, readPaths, tooManyTraversals, contigTransitsMap);
+        }
+
+        // split the contigs and the transits by component, keeping them in the same order
+        final List<List<ContigImpl>> componentContigs = new ArrayList<>(nComponents);
+        final List<Map<Contig, List<TransitPairCount>>> componentTransits = new ArrayList<>(nComponents);
+        for ( int componentId = 0; componentId != nComponents; ++componentId ) {
+            componentContigs.add(new ArrayList<>());
+            componentTransits.add(new LinkedHashMap<>());
+        }
+        for ( final ContigImpl contig : contigs ) {
+            componentContigs.get(componentIds.get(contig)).add(contig);
+        }
+        for ( final Map.Entry<Contig, List<TransitPairCount>> entry : contigTransitsMap.entrySet() ) {
+            final Integer componentId = componentIds.get(entry.getKey().canonical());
+            if ( componentId == null ) {
+                throw new GATKException("transits for a contig that isn't in the assembly graph");
+            }
+            componentTransits.get(componentId).put(entry.getKey(), entry.getValue());
+        }
+
+        final List<Callable<Set<Traversal>>> tasks = new ArrayList<>(nComponents);
+        for ( int componentId = 0; componentId != nComponents; ++componentId ) {
+            final List<ContigImpl> tigs = componentContigs.get(componentId);
+            final Map<Contig, List<TransitPairCount>> transits = componentTransits.get(componentId);
+            tasks.add(() -> traverseComponent(tigs, readPaths, tooManyTraversals, transits));
+        }
+        // the TraversalSet checks for RCs and for too many traversals, and the LinkedHashSet keeps the order
+        final TraversalSet traversalSet = new TraversalSet(tooManyTraversals);
+        final Set<Traversal> orderedTraversals = new LinkedHashSet<>();
+        final Comparator<Traversal> comparator = new TraversalEndpointComparator();
+        for ( final Set<Traversal> componentTraversals : runTasks(tasks, nThreads) ) {
+            final List<Traversal> sortedTraversals = new ArrayList<>(componentTraversals);
+            sortedTraversals.sort(comparator);
+            for ( final Traversal traversal : sortedTraversals ) {
+                if ( traversalSet.add(traversal) ) {
+                    orderedTraversals.add(traversal);
+                }
+            }
+        }
+        return orderedTraversals;
+    }
+
+    /** number the connected components of the assembly graph (a contig and its RC are in the same component) */
+    private static Map<ContigImpl, Integer> findComponents( final List<ContigImpl> contigs ) {
+        final Map<ContigImpl, Integer> componentIds = new HashMap<>(3 * contigs.size());
+        final Deque<ContigImpl> deque = new ArrayDeque<>();
+        int nComponents = 0;
+        for ( final ContigImpl contig : contigs ) {
+            if ( componentIds.containsKey(contig) ) {
+                continue;
+            }
+            final int componentId = nComponents++;
+            componentIds.put(contig, componentId);
+            deque.add(contig);
+            while ( !deque.isEmpty() ) {
+                final ContigImpl tig = deque.removeFirst();
+                for ( final List<Contig> neighbors : Arrays.asList(tig.getPredecessors(), tig.getSuccessors()) ) {
+                    for ( final Contig neighbor : neighbors ) {
+                        final ContigImpl canonicalNeighbor = neighbor.canonical();
+                        if ( !componentIds.containsKey(canonicalNeighbor) ) {
+                            componentIds.put(canonicalNeighbor, componentId);
+                            deque.add(canonicalNeighbor);
+                        }
+                    }
+                }
+            }
+        }
+        return componentIds;
+    }
+
+    private static Set<Traversal> traverseComponent(
+            final List<ContigImpl> contigs,
+            final List<Path> readPaths,
+            final int tooManyTraversals,
+            final Map<Contig, List<TransitPairCount>> contigTransitsMap ) {
         final TraversalSet traversalSet = new TraversalSet(tooManyTraversals);
         final List<Contig> contigsList = new ArrayList<>();
         // build traversals from untransited contigs
@@ -1544,6 +1882,10 @@ public class LocalAssembler extends PairWalker {
         public void removePredecessor( final int callToRemove,
                                        final KmerSet<KmerAdjacency> kmerAdjacencySet ) {
             predecessorMask &= ~(1 << callToRemove);
+            findSolePredecessor(kmerAdjacencySet);
+        }
+
+        private void findSolePredecessor( final KmerSet<KmerAdjacency> kmerAdjacencySet ) {
             solePredecessor = null;
             if ( getPredecessorCount() == 1 ) {
                 for ( int call = 0; call != 4; ++call ) {
@@ -1562,6 +1904,10 @@ public class LocalAssembler extends PairWalker {
         public void removeSuccessor( final int callToRemove,
                                      final KmerSet<KmerAdjacency> kmerAdjacencySet ) {
             successorMask &= ~(1 << callToRemove);
+            findSoleSuccessor(kmerAdjacencySet);
+        }
+
+        private void findSoleSuccessor( final KmerSet<KmerAdjacency> kmerAdjacencySet ) {
             soleSuccessor = null;
             if ( getSuccessorCount() == 1 ) {
                 for ( int call = 0; call != 4; ++call ) {
@@ -1625,6 +1971,23 @@ public class LocalAssembler extends PairWalker {
             }
             nObservations += count;
         }
+
+        /**
+         * Add observations that were tallied elsewhere as masks of predecessors and successors.
+         * The sole predecessor and successor are left alone until findSoleNeighbors is called, because the
+         * neighboring kmers may not be in the KmerSet yet.
+         */
+        public void addObservations( final int predecessorMask, final int successorMask, final int count ) {
+            this.predecessorMask |= predecessorMask;
+            this.successorMask |= successorMask;
+            nObservations += count;
+        }
+
+        /** Look up the sole predecessor and successor, if any, once all the neighboring kmers are in the KmerSet. */
+        public void findSoleNeighbors( final KmerSet<KmerAdjacency> kmerAdjacencySet ) {
+            findSolePredecessor(kmerAdjacencySet);
+            findSoleSuccessor(kmerAdjacencySet);
+        }
     }
 
     /**
@@ -0,0 +1,231 @@
+package org.broadinstitute.hellbender.tools.funcotator;
+
+import com.google.common.annotations.VisibleForTesting;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.funcotator.dataSources.DataSourceUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable.XsvTableFeature;
+import org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable.XsvTableFeatureBCICodec;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Writer;
+import picard.cmdline.programgroups.VariantEvaluationProgramGroup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+/**
+ * {@link CompileFuncotatorDataSources} is a tool to compile the data sources of <b><i>{@link Funcotator}</i></b> into a binary format
+ * that is faster to query.
+ *
+ * <h3>General Information</h3>
+ * <p>
+ * Locatable XSV data sources are plain text tables that must be parsed every time they are queried.
+ * This tool writes a compiled copy of the data file of each such data source next to the data file itself
+ * (with the extension {@value XsvTableFeatureBCICodec#XSV_BCI_FILE_EXTENSION} appended to its name).
+ * The compiled copy is a block-compressed, indexed, binary version of the table, which Funcotator memory-maps
+ * and decodes without parsing any text.
+ * </p>
+ * <p>
+ * Funcotator uses the compiled copy of a data file automatically whenever it is at least as new as both the data file and
+ * the config file of its data source, and the config file has not changed since it was compiled.
+ * Data sources of other types are already indexed, and are left as they are.
+ * </p>
+ *
+ * <p>
+ * To compile the data sources in a data sources folder:
+ *     <pre>{@code ./gatk CompileFuncotatorDataSources --data-sources-path dataSourcesFolder/ --ref-version hg38}</pre>
+ * </p>
+ *
+ * <h3>Notes</h3>
+ * <ul>
+ *     <li>The rows of each data file must be sorted by position within each contig, and each contig must be contiguous.</li>
+ *     <li>By default {@link CompileFuncotatorDataSources} will not overwrite compiled data files if they already exist.</li>
+ * </ul>
+ */
+@CommandLineProgramProperties(
+        summary = "Compile the locatable XSV data sources for Funcotator into an indexed binary format that is faster to query.",
+        oneLineSummary = "Data source compiler for Funcotator.",
+        programGroup = VariantEvaluationProgramGroup.class
+)
+@DocumentedFeature
+public class CompileFuncotatorDataSources extends CommandLineProgram {
+
+    private static final Logger logger = LogManager.getLogger(CompileFuncotatorDataSources.class);
+
+    // Suffix of the file a compiled data file is written to before being moved into place:
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    //==================================================================================================================
+    // Public Static Members:
+
+    public static final String OVERWRITE_ARG_LONG_NAME = "overwrite-output-file";
+
+    //==================================================================================================================
+    // Private Members:
+
+    @Argument(
+            fullName =  FuncotatorArgumentDefinitions.DATA_SOURCES_PATH_LONG_NAME,
+            doc = "The path to a data source folder for Funcotator.  May be specified more than once to handle multiple data source folders."
+    )
+    private List<String> dataSourceDirectories;
+
+    @Argument(
+            fullName =  FuncotatorArgumentDefinitions.REFERENCE_VERSION_LONG_NAME,
+            doc = "The version of the Human Genome reference for which to compile the data sources (e.g. hg19, hg38, etc.)."
+    )
+    private String referenceVersion;
+
+    @Argument(fullName = OVERWRITE_ARG_LONG_NAME,
+            shortName = OVERWRITE_ARG_LONG_NAME,
+            doc = "Overwrite compiled data files if they exist already.",
+            optional = true)
+    private boolean overwriteOutputFile = false;
+
+    //==================================================================================================================
+    // Override Methods:
+
+    @Override
+    protected Object doWork() {
+        final Map<Path, Properties> configData =
+                DataSourceUtils.getAndValidateDataSourcesFromPaths(referenceVersion, dataSourceDirectories);
+
+        int numCompiled = 0;
+        for ( final Map.Entry<Path, Properties> entry : configData.entrySet() ) {
+            final Path configFilePath = entry.getKey();
+            final Properties properties = entry.getValue();
+            final String name = properties.getProperty(DataSourceUtils.CONFIG_FILE_FIELD_NAME_NAME);
+            final FuncotatorArgumentDefinitions.DataSourceType type =
+                    FuncotatorArgumentDefinitions.DataSourceType.getEnum(properties.getProperty(DataSourceUtils.CONFIG_FILE_FIELD_NAME_TYPE));
+
+            if ( type != FuncotatorArgumentDefinitions.DataSourceType.LOCATABLE_XSV ) {
+                logger.info("Data source " + name + " is of type " + type + " and will not be compiled.");
+                continue;
+            }
+
+            final Path dataFilePath = DataSourceUtils.resolveFilePathStringFromKnownPath(
+                    properties.getProperty(DataSourceUtils.CONFIG_FILE_FIELD_NAME_SRC_FILE), configFilePath);
+            final Path compiledDataFilePath = DataSourceUtils.getCompiledDataFilePath(dataFilePath);
+
+            if ( Files.exists(compiledDataFilePath) && !overwriteOutputFile ) {
+                logger.warn("Compiled data file already exists for data source " + name + " and will not be overwritten: " + compiledDataFilePath.toUri().toString());
+                continue;
+            }
+
+            logger.info("Compiling data source " + name + " to: " + compiledDataFilePath.toUri().toString());
+            if ( compileLocatableXsvDataSource(configFilePath, compiledDataFilePath) ) {
+                ++numCompiled;
+            }
+        }
+
+        logger.info("Compiled " + numCompiled + " data source(s).");
+        return numCompiled;
+    }
+
+    //==================================================================================================================
+    // Static Methods:
+
+    /**
+     * Compile the data file of a locatable XSV data source.
+     * The table is read twice:  once to validate its order and to build a sequence dictionary from its contigs,
+     * and once to write its rows.
+     * @param configFilePath {@link Path} to the config file of a locatable XSV data source.  Must not be {@code null}.
+     * @param outputPath {@link Path} to which to write the compiled data file.  Must not be {@code null}.
+     * @return {@code true} if the data source was compiled; {@code false} if it has no rows to compile.
+     */
+    @VisibleForTesting
+    static boolean compileLocatableXsvDataSource(final Path configFilePath, final Path outputPath) {
+        final String configFileUri = configFilePath.toUri().toString();
+        final String configFileMD5;
+        try {
+            configFileMD5 = Utils.calculatePathMD5(configFilePath);
+        }
+        catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(configFilePath, ex);
+        }
+
+        // The contigs of the table, in the order they appear, with the largest end position of each:
+        final Map<String, Integer> contigLengths = new LinkedHashMap<>();
+        List<String> layout = null;
+        try ( final FeatureDataSource<XsvTableFeature> dataSource = new FeatureDataSource<>(configFileUri) ) {
+            String previousContig = null;
+            int previousStart = 0;
+            for ( final XsvTableFeature feature : dataSource ) {
+                if ( layout == null ) {
+                    layout = XsvTableFeatureBCICodec.createLayout(feature, configFileMD5);
+                }
+                final String contig = feature.getContig();
+                if ( !contig.equals(previousContig) ) {
+                    if ( contigLengths.containsKey(contig) ) {
+                        throw new UserException.BadInput("Data source " + configFileUri + " is not sorted: rows for contig " + contig + " are not contiguous.");
+                    }
+                    previousContig = contig;
+                    previousStart = 0;
+                }
+                else if ( feature.getStart() < previousStart ) {
+                    throw new UserException.BadInput("Data source " + configFileUri + " is not sorted: row at " +
+                            contig + ":" + feature.getStart() + " follows a row starting at " + previousStart + ".");
+                }
+                previousStart = feature.getStart();
+                contigLengths.merge(contig, Math.max(feature.getEnd(), feature.getStart()), Math::max);
+            }
+        }
+
+        if ( layout == null ) {
+            logger.warn("Data source " + configFileUri + " has no rows and will not be compiled.");
+            return false;
+        }
+
+        final SAMSequenceDictionary dictionary = new SAMSequenceDictionary();
+        for ( final Map.Entry<String, Integer> entry : contigLengths.entrySet() ) {
+            dictionary.addSequence(new SAMSequenceRecord(entry.getKey(), entry.getValue()));
+        }
+
+        // Write next to the target and move it into place, so that an interrupted compilation never leaves a
+        // truncated data file where the data source would pick it up:
+        final Path tempPath = outputPath.resolveSibling(outputPath.getFileName() + TEMP_FILE_SUFFIX);
+        boolean succeeded = false;
+        try {
+            final Writer<XsvTableFeature> writer = new XsvTableFeatureBCICodec().makeSink(
+                    new GATKPath(tempPath.toUri().toString()), dictionary, layout, Writer.DEFAULT_COMPRESSION_LEVEL);
+            try ( final FeatureDataSource<XsvTableFeature> dataSource = new FeatureDataSource<>(configFileUri) ) {
+                for ( final XsvTableFeature feature : dataSource ) {
+                    writer.write(feature);
+                }
+            }
+            finally {
+                writer.close();
+            }
+            Files.move(tempPath, outputPath, StandardCopyOption.ATOMIC_MOVE);
+            succeeded = true;
+        }
+        catch (final IOException ex) {
+            throw new UserException.CouldNotCreateOutputFile(outputPath.toUri().toString(), "Could not move the compiled data file into place.", ex);
+        }
+        finally {
+            if ( !succeeded ) {
+                try {
+                    Files.deleteIfExists(tempPath);
+                }
+                catch (final IOException ex) {
+                    logger.warn("Could not delete partial compiled data file " + tempPath.toUri(), ex);
+                }
+            }
+        }
+        return true;
+    }
+}
@@ -158,6 +158,13 @@ public abstract class DataSourceFuncotationFactory implements Closeable {
     @VisibleForTesting
     public boolean requiresFeatures() { return true; }
 
+    /**
+     * @return {@code true} if {@link #createFuncotationsFromFeatures} can be called concurrently from multiple threads.
+     *         Calls to factories that are not thread-safe are serialized by the {@link FuncotatorEngine}.
+     *         Note that retrieving features from a {@link FeatureContext} is never thread-safe.
+     */
+    public boolean isThreadSafe() { return false; }
+
     /**
      * @return An ordered {@link LinkedHashSet} of the names of annotations that this Data Source supports.
      */
@@ -199,12 +206,32 @@ public abstract class DataSourceFuncotationFactory implements Closeable {
         Utils.nonNull(referenceContext);
         Utils.nonNull(featureContext);
 
-        final List<Funcotation> outputFuncotations;
-
         // Query this funcotation factory to get the list of overlapping features.
         // NOTE: This will only get features that are LOCATABLE!
         //       This corresponds to requiresFeatures() returning `True`.
-        final List<Feature> featureList = getFeaturesFromFeatureContext(featureContext);
+        return createFuncotationsFromFeatures(variant, referenceContext, getFeaturesFromFeatureContext(featureContext), gencodeFuncotations);
+    }
+
+    /**
+     * Creates a {@link List} of {@link Funcotation} for the given {@code variant}, {@code referenceContext}, {@code gencodeFuncotations},
+     * and the features from this factory's data source that were retrieved with {@link #getFeaturesFromFeatureContext}.
+     * This allows features to be retrieved (which must be done on the engine thread) separately from the creation of
+     * funcotations (which may be done on another thread if {@link #isThreadSafe()}).
+     * Accounts for override values passed into the constructor as well.
+     * @param variant {@link VariantContext} to annotate.  Never {@code null}.
+     * @param referenceContext {@link ReferenceContext} corresponding to the given {@code variant}.  Never {@code null}.
+     * @param featureList {@link List} of {@link Feature}s overlapping the variant, as given by {@link #getFeaturesFromFeatureContext}.  Never {@code null}.
+     * @param gencodeFuncotations {@link List} of {@link GencodeFuncotation} that have already been created for the given {@code variant}/{@code referenceContext}/{@code featureList}.
+     *   {@code null} is acceptable if there are no corresponding gencode funcotations.
+     * @return {@link List} of {@link Funcotation} given the {@code variant}, {@code referenceContext}, and {@code featureList}.  This should never be empty.
+     */
+    public List<Funcotation> createFuncotationsFromFeatures(final VariantContext variant, final ReferenceContext referenceContext, final List<Feature> featureList, final List<GencodeFuncotation> gencodeFuncotations) {
+
+        Utils.nonNull(variant);
+        Utils.nonNull(referenceContext);
+        Utils.nonNull(featureList);
+
+        final List<Funcotation> outputFuncotations;
 
         // If our featureList is compatible with this DataSourceFuncotationFactory, then we make our funcotations:
         if ( isFeatureListCompatible(featureList) ) {
@@ -224,7 +251,14 @@ public abstract class DataSourceFuncotationFactory implements Closeable {
         }
     }
 
-    private List<Feature> getFeaturesFromFeatureContext(final FeatureContext featureContext) {
+    /**
+     * Gets the features from this factory's data source that overlap the given {@code featureContext}.
+     * @param featureContext {@link FeatureContext} corresponding to a variant.  Never {@code null}.
+     * @return {@link List} of {@link Feature}s to use to create funcotations with {@link #createFuncotationsFromFeatures}.
+     *         Empty if this factory does not require features.
+     */
+    public List<Feature> getFeaturesFromFeatureContext(final FeatureContext featureContext) {
+        Utils.nonNull(featureContext);
         return requiresFeatures() ?
                     queryFeaturesFromFeatureContext(featureContext) :
                     Collections.emptyList();
@@ -286,10 +320,7 @@ public abstract class DataSourceFuncotationFactory implements Closeable {
      * @param featureContext the FeatureContext to query
      * @return Features from our FeatureInput {@link #mainSourceFileAsFeatureInput} queried from the FeatureContext
      */
-    @SuppressWarnings("unchecked")
     private List<Feature> queryFeaturesFromFeatureContext(final FeatureContext featureContext) {
-        final List<Feature> features;
-
         SimpleInterval queryInterval = featureContext.getInterval();
 
         // Do we need to do a fuzzy hg19 / b37 conversion for querying our features:
@@ -305,6 +336,22 @@ public abstract class DataSourceFuncotationFactory implements Closeable {
         // Perform extra transformations on the query interval:
         queryInterval = transformFeatureQueryInterval(queryInterval);
 
+        return queryFeatures(featureContext, queryInterval);
+    }
+
+    /**
+     * Gets the Features that overlap the given (already transformed) query interval.
+     * The default implementation gets them from our FeatureInput {@link #mainSourceFileAsFeatureInput} through the
+     * FeatureContext, but subclasses may override (for example, to read from a source the engine doesn't manage).
+     *
+     * @param featureContext the FeatureContext corresponding to a variant
+     * @param queryInterval the interval over which to query for Features
+     * @return Features that overlap {@code queryInterval}
+     */
+    @SuppressWarnings("unchecked")
+    protected List<Feature> queryFeatures(final FeatureContext featureContext, final SimpleInterval queryInterval) {
+        final List<Feature> features;
+
         // If the interval has not changed, we should use the original one:
         if ( queryInterval.equals(featureContext.getInterval() ) ) {    // Get the features:
             features = (List<Feature>) featureContext.getValues(mainSourceFileAsFeatureInput);
@@ -1,7 +1,9 @@
 package org.broadinstitute.hellbender.tools.funcotator;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.tribble.Feature;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.VCFHeader;
 import org.apache.logging.log4j.LogManager;
@@ -12,6 +14,7 @@ import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.*;
 import org.broadinstitute.hellbender.engine.filters.CountingVariantFilter;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.DataSourceUtils;
 import org.broadinstitute.hellbender.tools.funcotator.metadata.VcfFuncotationMetadata;
@@ -22,6 +25,10 @@ import picard.cmdline.programgroups.VariantEvaluationProgramGroup;
 
 import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Funcotator (FUNCtional annOTATOR) analyzes given variants for their function (as retrieved from a set of data sources) and produces the analysis in a specified output file.
@@ -729,6 +736,23 @@ public class Funcotator extends VariantWalker {
 
     protected FuncotatorEngine funcotatorEngine;
 
+    /**
+     * Executor with which to annotate variants when {@link FuncotatorVariantArgumentCollection#annotationThreads} > 1.
+     * {@code null} when annotating on the engine thread.
+     */
+    private ExecutorService annotationExecutor;
+
+    /**
+     * The engine reference, shared safely with the annotation threads.
+     * {@code null} when annotating on the engine thread.
+     */
+    private ReferenceDataSource annotationReference;
+
+    /**
+     * Variants that are being annotated by {@link #annotationExecutor}, in input order.
+     */
+    private final Deque<Future<AnnotatedVariant>> pendingAnnotations = new ArrayDeque<>();
+
     //==================================================================================================================
 
     /**
@@ -818,6 +842,13 @@ public class Funcotator extends VariantWalker {
                 getDefaultToolVCFHeaderLines(),
                 this
         );
+
+        if ( funcotatorArgs.annotationThreads > 1 ) {
+            logger.info("Annotating variants with " + funcotatorArgs.annotationThreads + " threads.");
+            annotationExecutor = Executors.newFixedThreadPool(funcotatorArgs.annotationThreads,
+                    new ThreadFactoryBuilder().setNameFormat("funcotator-thread-%d").setDaemon(true).build());
+            annotationReference = new SynchronizedReferenceDataSource(directlyAccessEngineReferenceDataSource());
+        }
     }
 
     /**
@@ -882,6 +913,9 @@ public class Funcotator extends VariantWalker {
     @Override
     public Object onTraversalSuccess() {
 
+        // Write out any variants that are still being annotated:
+        writePendingAnnotations(0);
+
         // If we only saw IGRs, we most likely have a configuration issue.
         // Make sure the user knows this by making a HUGE stink about it.
         if ( funcotatorEngine.onlyProducedIGRs() ) {
@@ -903,6 +937,10 @@ public class Funcotator extends VariantWalker {
 
     @Override
     public void closeTool() {
+        if ( annotationExecutor != null ) {
+            annotationExecutor.shutdownNow();
+        }
+
         if ( funcotatorEngine != null) {
             funcotatorEngine.close();
         }
@@ -922,13 +960,71 @@ public class Funcotator extends VariantWalker {
      */
     protected void enqueueAndHandleVariant(final VariantContext variant, final ReferenceContext referenceContext, final FeatureContext featureContext) {
 
-        final FuncotationMap funcotationMap = funcotatorEngine.createFuncotationMapForVariant(variant, referenceContext, featureContext);
+        if ( annotationExecutor == null ) {
+            final FuncotationMap funcotationMap = funcotatorEngine.createFuncotationMapForVariant(variant, referenceContext, featureContext);
+
+            // This is necessary because we want to revert the variant contig name change if it was applied in the FuncotatorEngine::getCorrectVariantContextForReference method before outputting the vcf.
+            // NOTE: this will only revert the variantContext if it was originally changed (only for B37 VCFs)
+            final VariantContext variantContextForOutput = funcotatorEngine.getCorrectVariantContextForOutput(variant);
 
-        // This is necessary because we want to revert the variant contig name change if it was applied in the FuncotatorEngine::getCorrectVariantContextForReference method before outputting the vcf.
-        // NOTE: this will only revert the variantContext if it was originally changed (only for B37 VCFs)
+            // At this point there is only one transcript ID in the funcotation map if canonical or best effect are selected
+            outputRenderer.write(variantContextForOutput, funcotationMap);
+            return;
+        }
+
+        // Features can only be retrieved on the engine thread, so we get them here and annotate with them
+        // on one of the annotation threads.  The reference context must use the shared reference so that
+        // its bases can be retrieved from any thread:
+        final Map<DataSourceFuncotationFactory, List<Feature>> featuresByFactory = funcotatorEngine.getFeaturesForVariant(featureContext);
+        final ReferenceContext annotationReferenceContext =
+                new ReferenceContext(annotationReference, referenceContext.getInterval(), referenceContext.getWindow());
         final VariantContext variantContextForOutput = funcotatorEngine.getCorrectVariantContextForOutput(variant);
 
-        // At this point there is only one transcript ID in the funcotation map if canonical or best effect are selected
-        outputRenderer.write(variantContextForOutput, funcotationMap);
+        pendingAnnotations.add(annotationExecutor.submit(() -> new AnnotatedVariant(
+                variantContextForOutput,
+                funcotatorEngine.createFuncotationMapForVariant(variant, annotationReferenceContext, featuresByFactory)
+        )));
+
+        writePendingAnnotations(funcotatorArgs.annotationBatchSize);
+    }
+
+    /**
+     * Writes out annotated variants in input order, waiting for them to be annotated if necessary,
+     * until no more than {@code maxPendingAnnotations} variants remain to be written.
+     * @param maxPendingAnnotations The maximum number of variants to leave pending.
+     */
+    private void writePendingAnnotations(final int maxPendingAnnotations) {
+        while ( pendingAnnotations.size() > maxPendingAnnotations ||
+                (!pendingAnnotations.isEmpty() && pendingAnnotations.peek().isDone()) ) {
+            final AnnotatedVariant annotatedVariant;
+            try {
+                annotatedVariant = pendingAnnotations.poll().get();
+            }
+            catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while annotating variants.", ex);
+            }
+            catch (final ExecutionException ex) {
+                // Rethrow runtime exceptions (including user errors) as-is, so that they are reported as such:
+                if ( ex.getCause() instanceof RuntimeException ) {
+                    throw (RuntimeException) ex.getCause();
+                }
+                throw new GATKException("Error while annotating variants.", ex.getCause());
+            }
+            outputRenderer.write(annotatedVariant.variant, annotatedVariant.funcotationMap);
+        }
+    }
+
+    /**
+     * A variant (as it should be output) and its annotations.
+     */
+    private static final class AnnotatedVariant {
+        private final VariantContext variant;
+        private final FuncotationMap funcotationMap;
+
+        private AnnotatedVariant(final VariantContext variant, final FuncotationMap funcotationMap) {
+            this.variant = variant;
+            this.funcotationMap = funcotationMap;
+        }
     }
 }
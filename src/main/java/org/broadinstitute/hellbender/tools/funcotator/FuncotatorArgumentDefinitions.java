@@ -73,6 +73,11 @@ public class FuncotatorArgumentDefinitions {
 
     public static final String SPLICE_SITE_WINDOW_SIZE = "splice-site-window-size";
 
+    public static final String ANNOTATION_THREADS_LONG_NAME = "annotation-threads";
+    public static final int ANNOTATION_THREADS_DEFAULT_VALUE = 1;
+    public static final String ANNOTATION_BATCH_SIZE_LONG_NAME = "annotation-batch-size";
+    public static final int ANNOTATION_BATCH_SIZE_DEFAULT_VALUE = 1000;
+
     // ------------------------------------------------------------
     // Helper Types:
 
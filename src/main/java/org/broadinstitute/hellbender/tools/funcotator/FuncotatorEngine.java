@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.funcotator;
 
 import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.tribble.Feature;
 import htsjdk.tribble.util.ParsingUtils;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
@@ -89,7 +90,7 @@ public final class FuncotatorEngine implements AutoCloseable {
      * Whether this {@link FuncotatorEngine} has only produced annotations on variants that have been labeled by the
      * {@link org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotationFactory} as {@link org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation.VariantClassification#IGR}.
      */
-    private boolean onlyProducedIGRs = true;
+    private volatile boolean onlyProducedIGRs = true;
 
     /**
      * Create a {@link FuncotatorEngine} using the given {@code metadata} and {@code funcotationFactories} representing
@@ -143,9 +144,47 @@ public final class FuncotatorEngine implements AutoCloseable {
                                                          final ReferenceContext referenceContext,
                                                          final FeatureContext featureContext) {
 
+        Utils.nonNull(featureContext);
+
+        return createFuncotationMapForVariant(variantContext, referenceContext, getFeaturesForVariant(featureContext));
+    }
+
+    /**
+     * Gets the features that each of our data sources needs to annotate the variant at the given {@code featureContext}.
+     * Features must be retrieved on the engine thread, but once retrieved may be used to create funcotations
+     * on any thread with {@link #createFuncotationMapForVariant(VariantContext, ReferenceContext, Map)}.
+     *
+     * @param featureContext {@link FeatureContext} corresponding to a variant.  Never {@code null}.
+     * @return A {@link Map} from each of our {@link DataSourceFuncotationFactory}s to the features it needs.
+     */
+    public Map<DataSourceFuncotationFactory, List<Feature>> getFeaturesForVariant(final FeatureContext featureContext) {
+        Utils.nonNull(featureContext);
+
+        final Map<DataSourceFuncotationFactory, List<Feature>> featuresByFactory = new IdentityHashMap<>(dataSourceFactories.size());
+        for ( final DataSourceFuncotationFactory funcotationFactory : dataSourceFactories ) {
+            featuresByFactory.put(funcotationFactory, funcotationFactory.getFeaturesFromFeatureContext(featureContext));
+        }
+        return featuresByFactory;
+    }
+
+    /**
+     * Creates a {@link FuncotationMap} for the given {@code variantContext} from features that have already been retrieved.
+     * This method may be called concurrently from multiple threads:  calls to {@link DataSourceFuncotationFactory}s
+     * that are not thread-safe are serialized.
+     *
+     * @param variantContext   {@link VariantContext} to annotate.  Never {@code null}.
+     * @param referenceContext {@link ReferenceContext} corresponding to the given {@code variantContext}.  Never {@code null}.
+     *                         Must be safe to use from the calling thread.
+     * @param featuresByFactory Features for the given {@code variantContext} as given by {@link #getFeaturesForVariant(FeatureContext)}.  Never {@code null}.
+     * @return an instance of FuncotationMap that maps transcript IDs to lists of funcotations for the given variantContext context.
+     */
+    public FuncotationMap createFuncotationMapForVariant(final VariantContext variantContext,
+                                                         final ReferenceContext referenceContext,
+                                                         final Map<DataSourceFuncotationFactory, List<Feature>> featuresByFactory) {
+
         Utils.nonNull(variantContext);
         Utils.nonNull(referenceContext);
-        Utils.nonNull(featureContext);
+        Utils.nonNull(featuresByFactory);
 
         //==============================================================================================================
         // First create only the transcript (Gencode) funcotations:
@@ -155,7 +194,7 @@ public final class FuncotatorEngine implements AutoCloseable {
         }
 
         final List<GencodeFuncotation> transcriptFuncotations = retrieveGencodeFuncotationFactoryStream()
-                .map(gf -> gf.createFuncotations(variantContext, referenceContext, featureContext))
+                .map(gf -> createFuncotations(gf, variantContext, referenceContext, featuresByFactory, null))
                 .flatMap(List::stream)
                 .map(f -> {
                         final GencodeFuncotation gf = (GencodeFuncotation) f;
@@ -181,8 +220,8 @@ public final class FuncotatorEngine implements AutoCloseable {
                 final List<String> txIds = funcotationMap.getTranscriptList();
 
                 for (final String txId: txIds) {
-                    funcotationMap.add(txId, funcotationFactory.createFuncotations(variantContext, referenceContext,
-                            featureContext, funcotationMap.getGencodeFuncotations(txId)));
+                    funcotationMap.add(txId, createFuncotations(funcotationFactory, variantContext, referenceContext,
+                            featuresByFactory, funcotationMap.getGencodeFuncotations(txId)));
                 }
             }
         }
@@ -199,6 +238,22 @@ public final class FuncotatorEngine implements AutoCloseable {
         return funcotationMap;
     }
 
+    private static List<Funcotation> createFuncotations(final DataSourceFuncotationFactory funcotationFactory,
+                                                        final VariantContext variantContext,
+                                                        final ReferenceContext referenceContext,
+                                                        final Map<DataSourceFuncotationFactory, List<Feature>> featuresByFactory,
+                                                        final List<GencodeFuncotation> gencodeFuncotations) {
+        final List<Feature> features = featuresByFactory.get(funcotationFactory);
+        Utils.nonNull(features, () -> "No features were retrieved for data source " + funcotationFactory.getName());
+
+        if ( funcotationFactory.isThreadSafe() ) {
+            return funcotationFactory.createFuncotationsFromFeatures(variantContext, referenceContext, features, gencodeFuncotations);
+        }
+        synchronized ( funcotationFactory ) {
+            return funcotationFactory.createFuncotationsFromFeatures(variantContext, referenceContext, features, gencodeFuncotations);
+        }
+    }
+
     /**
      * Creates a {@link FuncotationMap} for the given {@code variantContext} using the datasources initialized with this
      *  engine.
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.funcotator;
 
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation;
@@ -53,4 +54,21 @@ public class FuncotatorVariantArgumentCollection extends BaseFuncotatorArgumentC
             doc = "When input VCF has already been annotated, still annotate again."
     )
     public boolean reannotateVCF = false;
+
+    @Argument(
+            fullName = FuncotatorArgumentDefinitions.ANNOTATION_THREADS_LONG_NAME,
+            optional = true,
+            minValue = 1,
+            doc = "Number of threads with which to annotate variants.  Features are still retrieved on a single thread, the annotation threads read reference bases concurrently through a synchronized reference, and output is written in input order."
+    )
+    public int annotationThreads = FuncotatorArgumentDefinitions.ANNOTATION_THREADS_DEFAULT_VALUE;
+
+    @Advanced
+    @Argument(
+            fullName = FuncotatorArgumentDefinitions.ANNOTATION_BATCH_SIZE_LONG_NAME,
+            optional = true,
+            minValue = 1,
+            doc = "When annotating with more than one thread, the maximum number of variants that may be awaiting annotation at once.  Larger values use more memory but keep the annotation threads busier."
+    )
+    public int annotationBatchSize = FuncotatorArgumentDefinitions.ANNOTATION_BATCH_SIZE_DEFAULT_VALUE;
 }
@@ -11,18 +11,22 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.funcotator.*;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.cosmic.CosmicFuncotationFactory;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotationFactory;
+import org.broadinstitute.hellbender.tools.funcotator.dataSources.vcf.VcfFuncotationCache;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.vcf.VcfFuncotationFactory;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.xsv.LocatableXsvFuncotationFactory;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.xsv.SimpleKeyXsvFuncotationFactory;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.codecs.gtf.GencodeGtfFeature;
 import org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable.XsvTableFeature;
+import org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable.XsvTableFeatureBCICodec;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
 import java.time.LocalDate;
 import java.time.Month;
 import java.util.*;
@@ -352,6 +356,9 @@ final public class DataSourceUtils {
 
         final List<DataSourceFuncotationFactory> dataSourceFactories = new ArrayList<>(dataSourceMetaData.size());
 
+        // All VCF data sources share one cache, so that its size is bounded no matter how many there are:
+        final VcfFuncotationCache vcfFuncotationCache = new VcfFuncotationCache();
+
         // Now we know we have unique and valid data.
         // Now we must instantiate our data sources:
         for ( final Map.Entry<Path, Properties> entry : dataSourceMetaData.entrySet() ) {
@@ -369,8 +376,15 @@ final public class DataSourceUtils {
             final FeatureInput<? extends Feature> featureInput;
             switch ( FuncotatorArgumentDefinitions.DataSourceType.getEnum(stringType) ) {
                 case LOCATABLE_XSV:
-                    featureInput = createAndRegisterFeatureInputs(path, properties, gatkToolInstance, lookaheadFeatureCachingInBp, XsvTableFeature.class, true);
-                    funcotationFactory = DataSourceUtils.createLocatableXsvDataSource(path, properties, annotationOverridesMap, featureInput, minBasesForValidSegment);
+                    final Path compiledDataFile = getUpToDateCompiledDataFile(path, properties);
+                    if ( compiledDataFile != null ) {
+                        // The factory reads the compiled data file itself, so it isn't registered with the engine:
+                        funcotationFactory = DataSourceUtils.createCompiledLocatableXsvDataSource(path, properties, annotationOverridesMap, minBasesForValidSegment, compiledDataFile);
+                    }
+                    else {
+                        featureInput = createAndRegisterFeatureInputs(path, properties, gatkToolInstance, lookaheadFeatureCachingInBp, XsvTableFeature.class, true);
+                        funcotationFactory = DataSourceUtils.createLocatableXsvDataSource(path, properties, annotationOverridesMap, featureInput, minBasesForValidSegment);
+                    }
                     break;
                 case SIMPLE_XSV:
                     funcotationFactory = DataSourceUtils.createSimpleXsvDataSource(path, properties, annotationOverridesMap, minBasesForValidSegment);
@@ -385,7 +399,7 @@ final public class DataSourceUtils {
                     break;
                 case VCF:
                     featureInput = createAndRegisterFeatureInputs(path, properties, gatkToolInstance, lookaheadFeatureCachingInBp, VariantContext.class, false);
-                    funcotationFactory = DataSourceUtils.createVcfDataSource(path, properties, annotationOverridesMap, featureInput, minBasesForValidSegment);
+                    funcotationFactory = DataSourceUtils.createVcfDataSource(path, properties, annotationOverridesMap, featureInput, minBasesForValidSegment, vcfFuncotationCache);
                     break;
                 default:
                     throw new GATKException("Unknown type of DataSourceFuncotationFactory encountered: " + stringType );
@@ -464,6 +478,109 @@ final public class DataSourceUtils {
         return locatableXsvFuncotationFactory;
     }
 
+    /**
+     * Create a {@link LocatableXsvFuncotationFactory} that reads a compiled version of its data source
+     * (as made by {@link org.broadinstitute.hellbender.tools.funcotator.CompileFuncotatorDataSources}).
+     * @param dataSourceFile {@link Path} to the data source config file.  Must not be {@code null}.
+     * @param dataSourceProperties {@link Properties} consisting of the contents of the config file for the data source.  Must not be {@code null}.
+     * @param annotationOverridesMap {@link LinkedHashMap}{@code <String->String>} containing any annotation overrides to be included in the resulting data source.  Must not be {@code null}.
+     * @param minBasesForValidSegment The minimum number of bases for a segment to be considered valid.
+     * @param compiledDataFile {@link Path} to the compiled data file.  Must not be {@code null}.
+     * @return A new {@link LocatableXsvFuncotationFactory} based on the given compiled data file and field overrides.
+     */
+    private static LocatableXsvFuncotationFactory createCompiledLocatableXsvDataSource(final Path dataSourceFile,
+                                                                                       final Properties dataSourceProperties,
+                                                                                       final LinkedHashMap<String, String> annotationOverridesMap,
+                                                                                       final int minBasesForValidSegment,
+                                                                                       final Path compiledDataFile) {
+        Utils.nonNull(dataSourceFile);
+        Utils.nonNull(dataSourceProperties);
+        Utils.nonNull(annotationOverridesMap);
+        Utils.nonNull(compiledDataFile);
+
+        final String name      = dataSourceProperties.getProperty(CONFIG_FILE_FIELD_NAME_NAME);
+        final String version   = dataSourceProperties.getProperty(CONFIG_FILE_FIELD_NAME_VERSION);
+        final boolean isB37    = getIsB37PropertyValue(dataSourceProperties);
+        final FeatureInput<XsvTableFeature> featureInput = new FeatureInput<>(compiledDataFile.toUri().toString(), name, new HashMap<>());
+
+        final LocatableXsvFuncotationFactory locatableXsvFuncotationFactory =
+                new LocatableXsvFuncotationFactory(
+                        name,
+                        version,
+                        annotationOverridesMap,
+                        featureInput,
+                        isB37,
+                        minBasesForValidSegment
+                );
+
+        // The supported fields are the columns in the header of the compiled file:
+        locatableXsvFuncotationFactory.openCompiledDataFile(featureInput);
+
+        return locatableXsvFuncotationFactory;
+    }
+
+    /**
+     * Get the path at which the compiled version of a data file is written by
+     * {@link org.broadinstitute.hellbender.tools.funcotator.CompileFuncotatorDataSources}.
+     * @param dataFilePath {@link Path} to the data file of a data source.  Must not be {@code null}.
+     * @return The {@link Path} to the compiled version of the given data file.
+     */
+    public static Path getCompiledDataFilePath(final Path dataFilePath) {
+        Utils.nonNull(dataFilePath);
+        return dataFilePath.resolveSibling(dataFilePath.getFileName().toString() + XsvTableFeatureBCICodec.XSV_BCI_FILE_EXTENSION);
+    }
+
+    /**
+     * Get the compiled version of the data file of the given data source, if it is up to date:  it must be at least as new
+     * as both the data file and the config file, and must have been compiled from a config file with the same contents
+     * as the current one.
+     * @param configFilePath {@link Path} to the config file of the data source.  Must not be {@code null}.
+     * @param dataSourceProperties {@link Properties} consisting of the contents of the config file for the data source.  Must not be {@code null}.
+     * @return The {@link Path} to the compiled data file, or {@code null} if there is no usable compiled data file.
+     */
+    private static Path getUpToDateCompiledDataFile(final Path configFilePath, final Properties dataSourceProperties) {
+        final Path dataFilePath = resolveFilePathStringFromKnownPath(dataSourceProperties.getProperty(CONFIG_FILE_FIELD_NAME_SRC_FILE), configFilePath);
+        final Path compiledDataFilePath = getCompiledDataFilePath(dataFilePath);
+        if ( !Files.exists(compiledDataFilePath) ) {
+            return null;
+        }
+        final String compiledDataFileUri = compiledDataFilePath.toUri().toString();
+        final String configFileMD5;
+        try {
+            final FileTime compiledTime = Files.getLastModifiedTime(compiledDataFilePath);
+            if ( compiledTime.compareTo(Files.getLastModifiedTime(dataFilePath)) < 0 ||
+                    compiledTime.compareTo(Files.getLastModifiedTime(configFilePath)) < 0 ) {
+                logger.warn("Ignoring compiled data file " + compiledDataFileUri + " because it is older than its data file or config file.  Recompile the data source to use it.");
+                return null;
+            }
+        }
+        catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(compiledDataFilePath, ex);
+        }
+        try {
+            configFileMD5 = Utils.calculatePathMD5(configFilePath);
+        }
+        catch (final IOException ex) {
+            throw new UserException.CouldNotReadInputFile(configFilePath, ex);
+        }
+
+        // A config file can change without its modification time moving forward (e.g. when it's copied with its timestamp),
+        // so the compiled data file must also have been made from a config file with the same contents:
+        try ( final BlockCompressedIntervalStream.Reader<XsvTableFeature> reader =
+                      new BlockCompressedIntervalStream.Reader<>(new FeatureInput<>(compiledDataFileUri, compiledDataFileUri, new HashMap<>()), new XsvTableFeatureBCICodec()) ) {
+            if ( !XsvTableFeatureBCICodec.BCI_VERSION.equals(reader.getVersion()) ) {
+                logger.warn("Ignoring compiled data file " + compiledDataFileUri + " because it was written in an old format.  Recompile the data source to use it.");
+                return null;
+            }
+            if ( !configFileMD5.equals(XsvTableFeatureBCICodec.getConfigFileMD5(reader)) ) {
+                logger.warn("Ignoring compiled data file " + compiledDataFileUri + " because its config file has changed.  Recompile the data source to use it.");
+                return null;
+            }
+        }
+        logger.info("Using compiled data file for data source " + dataSourceProperties.getProperty(CONFIG_FILE_FIELD_NAME_NAME) + ": " + compiledDataFileUri);
+        return compiledDataFilePath;
+    }
+
     /**
      * Get if the properties has specified the `isB37` field {@link #CONFIG_FILE_FIELD_NAME_IS_B37_DATA_SOURCE} as true.
      * If it is absent, it will default to {@code false}.
@@ -641,13 +758,15 @@ final public class DataSourceUtils {
      * @param annotationOverridesMap {@link LinkedHashMap}{@code <String->String>} containing any annotation overrides to be included in the resulting data source.  Must not be {@code null}.
      * @param featureInput The {@link FeatureInput<? extends Feature>} object for the VCF data source we are creating.
      * @param minBasesForValidSegment The minimum number of bases for a segment to be considered valid.
+     * @param vcfFuncotationCache The {@link VcfFuncotationCache} shared by all VCF data sources.  Must not be {@code null}.
      * @return A new {@link GencodeFuncotationFactory} based on the given data source file information, field overrides map, and transcript information.
      */
     private static VcfFuncotationFactory createVcfDataSource(final Path dataSourceFile,
                                                              final Properties dataSourceProperties,
                                                              final LinkedHashMap<String, String> annotationOverridesMap,
                                                              final FeatureInput<? extends Feature> featureInput,
-                                                             final int minBasesForValidSegment) {
+                                                             final int minBasesForValidSegment,
+                                                             final VcfFuncotationCache vcfFuncotationCache) {
 
         Utils.nonNull(dataSourceFile);
         Utils.nonNull(dataSourceProperties);
@@ -667,7 +786,8 @@ final public class DataSourceUtils {
                 annotationOverridesMap,
                 featureInput,
                 isB37,
-                minBasesForValidSegment
+                minBasesForValidSegment,
+                vcfFuncotationCache
         );
     }
 
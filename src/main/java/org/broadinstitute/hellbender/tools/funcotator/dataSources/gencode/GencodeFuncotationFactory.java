@@ -17,6 +17,7 @@ import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.engine.FeatureInput;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
 import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.engine.SynchronizedReferenceDataSource;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.copynumber.utils.annotatedinterval.AnnotatedInterval;
@@ -181,6 +182,7 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
 
     /**
      * ReferenceSequenceFile for the transcript reference file.
+     * Synchronized so that this factory can be used by multiple threads.
      */
     private final ReferenceDataSource transcriptFastaReferenceDataSource;
 
@@ -190,6 +192,12 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
      */
     private final Map<String, MappedTranscriptIdInfo> transcriptIdMap;
 
+    /**
+     * Cache of the coding regions and coding sequences of the transcripts we have annotated, so that we need not
+     * recompute them (and re-read the transcript FASTA file) for every variant in a transcript.
+     */
+    private final GencodeTranscriptModelCache transcriptModelCache = new GencodeTranscriptModelCache(GencodeTranscriptModelCache.DEFAULT_MAX_BYTES);
+
     /**
      * The mode to select the "best" transcript (i.e. the transcript with detailed information) from the list of
      * possible transcripts.
@@ -401,7 +409,7 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         this.flankSettings = flankSettings;
 
         // Initialize our transcript data source and ID map:
-        transcriptFastaReferenceDataSource = ReferenceDataSource.of(gencodeTranscriptFastaFile);
+        transcriptFastaReferenceDataSource = new SynchronizedReferenceDataSource(ReferenceDataSource.of(gencodeTranscriptFastaFile));
         transcriptIdMap = createTranscriptIdMap(transcriptFastaReferenceDataSource);
 
         this.transcriptSelectionMode = transcriptSelectionMode;
@@ -492,8 +500,16 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         return getName() + " " + getVersion() + " " + transcriptSelectionMode.toString();
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public void close() {
+        logger.debug("Transcript model cache for " + getName() + ": " + transcriptModelCache.getNumHits() + " hits, " +
+                transcriptModelCache.getNumMisses() + " misses, " + transcriptModelCache.size() + " transcripts (~" +
+                transcriptModelCache.getEstimatedBytes() + " bytes) cached at close.");
         transcriptFastaReferenceDataSource.close();
     }
 
@@ -788,13 +804,11 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
      * @param transcriptId The ID of the transcript to get from the FASTA file.
      * @param transcriptIdMap A map from transcriptId to MappedTranscriptIdInfo, which tells us how to pull information for the given {@code transcriptId} out of the given {@code transcriptFastaReferenceDataSource}.
      * @param transcriptFastaReferenceDataSource A {@link ReferenceDataSource} for the GENCODE transcript FASTA file.
-     * @param transcriptTailPaddingBaseString Bases to add to the end of the transcript base string to enable processing variants that overrrun the end of the transcript.
      * @return The coding sequence for the given {@code transcriptId} as represented in the GENCODE transcript FASTA file.
      */
     private static String getCodingSequenceFromTranscriptFasta( final String transcriptId,
                                                                 final Map<String, MappedTranscriptIdInfo> transcriptIdMap,
-                                                                final ReferenceDataSource transcriptFastaReferenceDataSource,
-                                                                final String transcriptTailPaddingBaseString) {
+                                                                final ReferenceDataSource transcriptFastaReferenceDataSource) {
 
         final MappedTranscriptIdInfo transcriptMapIdAndMetadata = transcriptIdMap.get(transcriptId);
 
@@ -808,7 +822,21 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
                 transcriptMapIdAndMetadata.codingSequenceEnd
         );
 
-        return transcriptFastaReferenceDataSource.queryAndPrefetch( transcriptInterval ).getBaseString() + transcriptTailPaddingBaseString;
+        return transcriptFastaReferenceDataSource.queryAndPrefetch( transcriptInterval ).getBaseString();
+    }
+
+    /**
+     * Get the {@link GencodeTranscriptModelCache.TranscriptModel} for the given {@code transcript} from our cache,
+     * creating it if necessary.
+     * @param transcript The {@link GencodeGtfTranscriptFeature} for which to get the model.
+     * @return The {@link GencodeTranscriptModelCache.TranscriptModel} for the given {@code transcript}.
+     */
+    private GencodeTranscriptModelCache.TranscriptModel getTranscriptModel( final GencodeGtfTranscriptFeature transcript ) {
+        return transcriptModelCache.get(transcript,
+                tx -> transcriptIdMap.containsKey(tx.getTranscriptId()) ?
+                        getCodingSequenceFromTranscriptFasta(tx.getTranscriptId(), transcriptIdMap, transcriptFastaReferenceDataSource) :
+                        null
+        );
     }
 
     /**
@@ -1078,8 +1106,7 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         }
 
         // Make sure the sub-regions in the transcript actually contain the variant:
-        // TODO: this is slow, and repeats work that is done later in the process (we call getSortedCdsAndStartStopPositions when creating the sequence comparison)
-        final int startPosInTranscript =  FuncotatorUtils.getStartPositionInTranscript(variant, getSortedCdsAndStartStopPositions(transcript), transcript.getGenomicStrand() );
+        final int startPosInTranscript = getTranscriptModel(transcript).getStartPositionInCodingSequence(variant);
 
         if ( GencodeGtfExonFeature.class.isAssignableFrom(containingSubfeature.getClass()) ) {
 
@@ -1178,7 +1205,8 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
 
         // Get the list of exons by their locations so we can use them to determine our location in the transcript and get
         // the transcript code itself:
-        final List<? extends Locatable> exonPositionList = getSortedCdsAndStartStopPositions(transcript);
+        final GencodeTranscriptModelCache.TranscriptModel transcriptModel = getTranscriptModel(transcript);
+        final List<? extends Locatable> exonPositionList = transcriptModel.getSortedCodingRegions();
 
         // Setup the "trivial" fields of the gencodeFuncotation:
         final GencodeFuncotationBuilder gencodeFuncotationBuilder = createGencodeFuncotationBuilderWithTrivialFieldsPopulated(variant, altAllele, transcript);
@@ -1208,7 +1236,7 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
                 .setGcContent(calculateGcContent(variant.getReference(), altAllele, reference, gcContentWindowSizeBases))
                 .setcDnaChange(
                     FuncotatorUtils.getCodingSequenceChangeString(
-                        FuncotatorUtils.getStartPositionInTranscript(variant, exonPositionList, transcript.getGenomicStrand()),
+                        transcriptModel.getStartPositionInCodingSequence(variant),
                         (exon.getGenomicStrand() == Strand.FORWARD ? variant.getReference().getBaseString() : ReadUtils.getBasesReverseComplement(variant.getReference().getBases())),
                         (exon.getGenomicStrand() == Strand.FORWARD ? altAllele.getBaseString() : ReadUtils.getBasesReverseComplement(altAllele.getBases())),
                         exon.getGenomicStrand(),
@@ -1288,7 +1316,8 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
 
         // Get the list of exons by their locations so we can use them to determine our location in the transcript and get
         // the transcript code itself:
-        final List<? extends Locatable> exonPositionList = getSortedCdsAndStartStopPositions(transcript);
+        final GencodeTranscriptModelCache.TranscriptModel transcriptModel = getTranscriptModel(transcript);
+        final List<? extends Locatable> exonPositionList = transcriptModel.getSortedCodingRegions();
 
         // NOTE: Regardless of strandedness, we always report the alleles as if they appeared in the forward direction.
         final GencodeFuncotation.VariantType variantType =
@@ -1306,7 +1335,8 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
 
         // Set up our SequenceComparison object so we can calculate some useful fields more easily
         // These fields can all be set without knowing the alternate allele:
-        final SequenceComparison sequenceComparison = createSequenceComparison(variant, altAllele, reference, transcript, exonPositionList, transcriptIdMap, transcriptFastaReferenceDataSource, true);
+        final SequenceComparison sequenceComparison = createSequenceComparison(variant, altAllele, reference, transcript,
+                exonPositionList, transcriptModel.getStartPositionInCodingSequence(variant), transcriptModel.getCodingSequence(), true);
 
         // Set our transcript positions:
         setTranscriptPosition(variant, altAllele, sequenceComparison.getTranscriptAlleleStart(), gencodeFuncotationBuilder);
@@ -1378,11 +1408,20 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
     @VisibleForTesting
     static List<? extends Locatable> getSortedCdsAndStartStopPositions(final GencodeGtfTranscriptFeature transcript) {
 
-        // Sort by exon number first:
-        transcript.getExons().sort((lhs, rhs) -> lhs.getExonNumber() < rhs.getExonNumber() ? -1 : (lhs.getExonNumber() > rhs.getExonNumber() ) ? 1 : 0 );
+        // Sort by exon number first.
+        // Transcripts are shared between threads, so their exon list is never modified. Exons almost always come in
+        // exon number order already, so we only sort a copy when they do not:
+        final Comparator<GencodeGtfExonFeature> exonNumberComparator = Comparator.comparingInt(GencodeGtfExonFeature::getExonNumber);
+        final List<GencodeGtfExonFeature> exons;
+        if ( isSorted(transcript.getExons(), exonNumberComparator) ) {
+            exons = transcript.getExons();
+        } else {
+            exons = new ArrayList<>(transcript.getExons());
+            exons.sort(exonNumberComparator);
+        }
 
-        final List<GencodeGtfFeature> regionList = new ArrayList<>(transcript.getExons().size());
-        for ( final GencodeGtfExonFeature exon : transcript.getExons() ) {
+        final List<GencodeGtfFeature> regionList = new ArrayList<>(exons.size());
+        for ( final GencodeGtfExonFeature exon : exons ) {
 
             // Add in a CDS region:
             if ( exon.getCds() != null ) {
@@ -1425,6 +1464,15 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         return regionList;
     }
 
+    private static <T> boolean isSorted(final List<T> list, final Comparator<? super T> comparator) {
+        for ( int i = 1; i < list.size(); ++i ) {
+            if ( comparator.compare(list.get(i - 1), list.get(i)) > 0 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     /**
      * Gets the {@link org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation.VariantClassification} of the given {@code altAllele} for the given {@code variant}.
      * @param variant The {@link VariantContext} to classify.
@@ -1982,6 +2030,38 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
                                                        final ReferenceDataSource transcriptFastaReferenceDataSource,
                                                        final boolean processSequenceInformation) {
 
+        final String codingSequence = (processSequenceInformation && transcriptIdMap.containsKey(transcript.getTranscriptId())) ?
+                getCodingSequenceFromTranscriptFasta(transcript.getTranscriptId(), transcriptIdMap, transcriptFastaReferenceDataSource) :
+                null;
+
+        return createSequenceComparison(variant, alternateAllele, reference, transcript, exonPositionList,
+                FuncotatorUtils.getStartPositionInTranscript(variant, exonPositionList, transcript.getGenomicStrand()),
+                codingSequence, processSequenceInformation);
+    }
+
+    /**
+     * Creates a {@link org.broadinstitute.hellbender.tools.funcotator.SequenceComparison} object with the fields populated,
+     * given the precomputed position of the variant in the coding sequence and the coding sequence itself
+     * (e.g. from a {@link GencodeTranscriptModelCache.TranscriptModel}).
+     * @param variant The {@link VariantContext} for the current variant.
+     * @param alternateAllele The current alternate {@link Allele} for the variant.
+     * @param reference The {@link ReferenceContext} for the current sample set.
+     * @param transcript The {@link GencodeGtfTranscriptFeature} for the current gene feature / alt allele.
+     * @param exonPositionList A {@link List} of {@link htsjdk.samtools.util.Locatable} objects representing exon positions in the transcript.
+     * @param codingSequenceAlleleStart The position (1-based, inclusive) of the given {@code variant} in the coding sequence of the given {@code transcript}.
+     * @param codingSequence The coding sequence of the given {@code transcript}, or {@code null} if it is not available.
+     * @param processSequenceInformation If {@code true} will attempt to process and create sequence information for the given {@code variant}.
+     * @return A populated {@link org.broadinstitute.hellbender.tools.funcotator.SequenceComparison} object.
+     */
+    private static SequenceComparison createSequenceComparison(final VariantContext variant,
+                                                               final Allele alternateAllele,
+                                                               final ReferenceContext reference,
+                                                               final GencodeGtfTranscriptFeature transcript,
+                                                               final List<? extends htsjdk.samtools.util.Locatable> exonPositionList,
+                                                               final int codingSequenceAlleleStart,
+                                                               final String codingSequence,
+                                                               final boolean processSequenceInformation) {
+
         // TODO: Somewhere down the line we should adjust the positions at creation-time to account for the leading bases in VCF input files.  (issue 5349 - https://github.com/broadinstitute/gatk/issues/5349)
         // This will have ramifications down the line for all fields that get rendered.
 
@@ -2022,9 +2102,7 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         );
 
         // Get the coding region start position (in the above computed transcript coding region):
-        sequenceComparison.setCodingSequenceAlleleStart(
-                FuncotatorUtils.getStartPositionInTranscript(variant, exonPositionList, transcript.getGenomicStrand())
-        );
+        sequenceComparison.setCodingSequenceAlleleStart(codingSequenceAlleleStart);
 
         // Get the overlapping exon start / stop as an interval from the given variant:
         //TODO: See the overlap detector for this:
@@ -2081,18 +2159,11 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
         // Get the coding sequence for the transcript if we have a transcript sequence for this variant:
 
         if ( processSequenceInformation ) {
-            if ( transcriptIdMap.containsKey(transcript.getTranscriptId()) ) {
+            if ( codingSequence != null ) {
 
                 // Get padding bases just in case this variant is an indel and trails off the end of our transcript:
                 final String transcriptTailPaddingBaseString = getTranscriptEndPaddingBases(variant, altAllele, exonPositionList, reference);
-
-                // NOTE: This can't be null because of the Funcotator input args.
-                final String rawCodingSequence = getCodingSequenceFromTranscriptFasta(
-                        transcript.getTranscriptId(),
-                        transcriptIdMap,
-                        transcriptFastaReferenceDataSource,
-                        transcriptTailPaddingBaseString
-                );
+                final String rawCodingSequence = transcriptTailPaddingBaseString.isEmpty() ? codingSequence : codingSequence + transcriptTailPaddingBaseString;
 
                 // Now that we have our transcript sequence, we must make sure that our reference allele is in it
                 // correctly.
@@ -2104,6 +2175,10 @@ public class GencodeFuncotationFactory extends DataSourceFuncotationFactory {
                 if ( (sequenceComparison.getCodingSequenceAlleleStart() - 1 + refAllele.getBaseString().length()) > rawCodingSequence.length() ) {
                     throw new FuncotatorUtils.TranscriptCodingSequenceException("Reference allele runs off end of coding sequence.  Cannot yet handle this case.");
                 }
+                else if ( rawCodingSequence.startsWith(refAllele.getBaseString(), sequenceComparison.getCodingSequenceAlleleStart() - 1) ) {
+                    // The usual case - the reference allele already matches the coding sequence:
+                    correctedCodingSequence = rawCodingSequence;
+                }
                 else {
                     correctedCodingSequence = rawCodingSequence.substring(0, sequenceComparison.getCodingSequenceAlleleStart() - 1) +
                             refAllele.getBaseString() +
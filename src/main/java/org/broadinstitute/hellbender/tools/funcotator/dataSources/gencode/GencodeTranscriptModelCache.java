@@ -0,0 +1,226 @@
+package org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode;
+
+import htsjdk.samtools.util.Locatable;
+import htsjdk.tribble.annotation.Strand;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.codecs.gtf.GencodeGtfTranscriptFeature;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * A cache of the per-transcript information that {@link GencodeFuncotationFactory} needs for every variant that falls
+ * in a transcript: the coding regions of the transcript in transcript order, the position in the coding sequence at
+ * which each of those regions starts, and the spliced coding sequence itself.
+ *
+ * Without this cache all of this is recomputed (and the coding sequence re-read from the transcript FASTA file) for
+ * every variant and every transcript it overlaps.  With it, each transcript is modeled once per run (as long as it
+ * stays in the cache) and locating a variant in the coding sequence is just arithmetic on the cached offsets.
+ *
+ * The cache holds transcripts up to a maximum (estimated) number of bytes, evicting the least recently used
+ * transcripts first.  Since input variants are usually sorted, the transcripts in use at any time are few.
+ *
+ * This class is thread-safe.
+ */
+final class GencodeTranscriptModelCache {
+
+    /**
+     * Default maximum size of the cache in bytes.
+     * This comfortably holds every coding sequence of a typical GENCODE release.
+     */
+    static final long DEFAULT_MAX_BYTES = 256L * 1024L * 1024L;
+
+    // Rough size of a model, ignoring its coding regions and sequence:
+    private static final long MODEL_OVERHEAD_BYTES = 128L;
+    // Rough size of each coding region in a model (the list entry and the three ints):
+    private static final long BYTES_PER_CODING_REGION = 24L;
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, TranscriptModel> models = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes = 0L;
+    private long nHits = 0L;
+    private long nMisses = 0L;
+
+    /**
+     * @param maxBytes The maximum (estimated) size of the cache in bytes.  Must be > 0.
+     */
+    GencodeTranscriptModelCache(final long maxBytes) {
+        Utils.validateArg(maxBytes > 0, "maxBytes must be positive");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the {@link TranscriptModel} for the given {@code transcript}, creating it if it is not in the cache.
+     * @param transcript The {@link GencodeGtfTranscriptFeature} to model.  Must not be {@code null}.
+     * @param codingSequenceLoader Function to get the coding sequence of a transcript, which returns {@code null} if
+     *                             no sequence is available for the transcript.  Must not be {@code null}.
+     * @return The {@link TranscriptModel} for the given {@code transcript}.
+     */
+    synchronized TranscriptModel get(final GencodeGtfTranscriptFeature transcript,
+                                     final Function<GencodeGtfTranscriptFeature, String> codingSequenceLoader) {
+        Utils.nonNull(transcript);
+        Utils.nonNull(codingSequenceLoader);
+
+        final TranscriptModel cachedModel = models.get(transcript.getTranscriptId());
+        if ( cachedModel != null && cachedModel.isModelOf(transcript) ) {
+            ++nHits;
+            return cachedModel;
+        }
+        ++nMisses;
+
+        final TranscriptModel model = new TranscriptModel(transcript, codingSequenceLoader.apply(transcript));
+        final TranscriptModel replacedModel = models.put(transcript.getTranscriptId(), model);
+        if ( replacedModel != null ) {
+            currentBytes -= replacedModel.getEstimatedBytes();
+        }
+        currentBytes += model.getEstimatedBytes();
+
+        // Evict the least recently used models until we fit, but always keep the model we just made:
+        final Iterator<TranscriptModel> iterator = models.values().iterator();
+        while ( currentBytes > maxBytes && models.size() > 1 ) {
+            currentBytes -= iterator.next().getEstimatedBytes();
+            iterator.remove();
+        }
+
+        return model;
+    }
+
+    /**
+     * @return The number of transcripts currently in the cache.
+     */
+    synchronized int size() {
+        return models.size();
+    }
+
+    /**
+     * @return The estimated size of the cache in bytes.
+     */
+    synchronized long getEstimatedBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * @return The number of requests that were satisfied by the cache.
+     */
+    synchronized long getNumHits() {
+        return nHits;
+    }
+
+    /**
+     * @return The number of requests that required a transcript to be modeled.
+     */
+    synchronized long getNumMisses() {
+        return nMisses;
+    }
+
+    /**
+     * The precomputed coding structure and coding sequence of a single transcript.
+     * Instances are immutable.
+     */
+    static final class TranscriptModel {
+        private final String transcriptId;
+        private final String contig;
+        private final int start;
+        private final int end;
+        private final Strand strand;
+
+        /**
+         * The start codon, CDS, and stop codon regions of the transcript in transcript order
+         * (as given by {@link GencodeFuncotationFactory#getSortedCdsAndStartStopPositions}).
+         */
+        private final List<? extends Locatable> sortedCodingRegions;
+
+        // The genomic bounds of each coding region (1-based, inclusive) and the position
+        // (1-based, inclusive) in the coding sequence of the first base of each region in transcript order:
+        private final int[] regionStarts;
+        private final int[] regionEnds;
+        private final int[] regionCodingSequenceOffsets;
+
+        /**
+         * The coding sequence of the transcript, or {@code null} if it is not available.
+         */
+        private final String codingSequence;
+
+        private TranscriptModel(final GencodeGtfTranscriptFeature transcript, final String codingSequence) {
+            this.transcriptId = transcript.getTranscriptId();
+            this.contig = transcript.getContig();
+            this.start = transcript.getStart();
+            this.end = transcript.getEnd();
+            this.strand = transcript.getGenomicStrand();
+            this.sortedCodingRegions = Collections.unmodifiableList(GencodeFuncotationFactory.getSortedCdsAndStartStopPositions(transcript));
+            this.codingSequence = codingSequence;
+
+            final int numRegions = sortedCodingRegions.size();
+            regionStarts = new int[numRegions];
+            regionEnds = new int[numRegions];
+            regionCodingSequenceOffsets = new int[numRegions];
+
+            int offset = 1;
+            for ( int i = 0; i < numRegions; ++i ) {
+                final Locatable region = sortedCodingRegions.get(i);
+                regionStarts[i] = region.getStart();
+                regionEnds[i] = region.getEnd();
+                regionCodingSequenceOffsets[i] = offset;
+                // Add 1 because of inclusive positions:
+                offset += region.getEnd() - region.getStart() + 1;
+            }
+        }
+
+        private boolean isModelOf(final GencodeGtfTranscriptFeature transcript) {
+            return transcriptId.equals(transcript.getTranscriptId()) &&
+                    contig.equals(transcript.getContig()) &&
+                    (start == transcript.getStart()) &&
+                    (end == transcript.getEnd()) &&
+                    (strand == transcript.getGenomicStrand());
+        }
+
+        private long getEstimatedBytes() {
+            return MODEL_OVERHEAD_BYTES +
+                    (BYTES_PER_CODING_REGION * regionStarts.length) +
+                    (codingSequence == null ? 0 : codingSequence.length());
+        }
+
+        /**
+         * @return The start codon, CDS, and stop codon regions of the transcript in transcript order.
+         */
+        List<? extends Locatable> getSortedCodingRegions() {
+            return sortedCodingRegions;
+        }
+
+        /**
+         * @return The coding sequence of this transcript, or {@code null} if it is not available.
+         */
+        String getCodingSequence() {
+            return codingSequence;
+        }
+
+        /**
+         * Gets the position of the given {@code variant} in the coding sequence of this transcript.
+         * Equivalent to {@link org.broadinstitute.hellbender.tools.funcotator.FuncotatorUtils#getStartPositionInTranscript}
+         * called with {@link #getSortedCodingRegions()}, but with no allocation or re-traversal of the regions.
+         * @param variant A {@link Locatable} to locate in the coding sequence.  Must not be {@code null}.
+         * @return The position (1-based, inclusive) of the start of the given {@code variant} in the coding sequence,
+         *         or -1 if the variant does not start in a coding region.
+         */
+        int getStartPositionInCodingSequence(final Locatable variant) {
+            Utils.nonNull(variant);
+
+            if ( regionStarts.length > 0 && !contig.equals(variant.getContig()) ) {
+                throw new GATKException("Variant and transcript contigs are not equal.");
+            }
+
+            final int variantStart = (strand == Strand.POSITIVE) ? variant.getStart() : variant.getEnd();
+            for ( int i = 0; i < regionStarts.length; ++i ) {
+                if ( (regionStarts[i] <= variantStart) && (variantStart <= regionEnds[i]) ) {
+                    return regionCodingSequenceOffsets[i] +
+                            ((strand == Strand.POSITIVE) ? variantStart - regionStarts[i] : regionEnds[i] - variantStart);
+                }
+            }
+            return -1;
+        }
+    }
+}
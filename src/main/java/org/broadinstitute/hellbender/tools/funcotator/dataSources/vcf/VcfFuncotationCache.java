@@ -0,0 +1,218 @@
+package org.broadinstitute.hellbender.tools.funcotator.dataSources.vcf;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.tools.funcotator.Funcotation;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * A cache of the {@link Funcotation}s created by {@link VcfFuncotationFactory}s, which can be shared by all of the
+ * VCF data sources in a Funcotator run.
+ *
+ * Entries are keyed on the data source and the position and alleles of the annotated variant, which is all that
+ * the annotations of a VCF data source depend on (the features overlapping a variant are determined by its position).
+ * This makes keys cheap to create, hash, and compare, and allows a variant to hit the cache whenever the same site
+ * and alleles are annotated again, not only when the same {@link VariantContext} object is.
+ *
+ * The cache holds entries up to a maximum (estimated) number of bytes, evicting the least recently used entries first.
+ *
+ * This class is thread-safe.
+ */
+public final class VcfFuncotationCache {
+
+    /**
+     * Default maximum size of the cache in bytes.
+     */
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024L * 1024L;
+
+    // Rough size of an entry, ignoring its alleles and funcotations:
+    private static final long ENTRY_OVERHEAD_BYTES = 160L;
+    // Rough size of each funcotation in an entry, ignoring its fields:
+    private static final long BYTES_PER_FUNCOTATION = 96L;
+    // Rough size of each field of a funcotation, ignoring its value:
+    private static final long BYTES_PER_FIELD = 48L;
+
+    // Separates alleles in the encoded alleles of a key.  This can't be part of an allele's display string:
+    private static final byte ALLELE_SEPARATOR = (byte) ' ';
+
+    private final long maxBytes;
+    private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(1024, 0.75f, true);
+    private long currentBytes = 0L;
+    private int nDataSources = 0;
+
+    /**
+     * Create a {@link VcfFuncotationCache} of {@link #DEFAULT_MAX_BYTES}.
+     */
+    public VcfFuncotationCache() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    /**
+     * @param maxBytes The maximum (estimated) size of the cache in bytes.  Must be > 0.
+     */
+    public VcfFuncotationCache(final long maxBytes) {
+        Utils.validateArg(maxBytes > 0, "maxBytes must be positive");
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Registers a data source to use this cache.
+     * @return The ID with which the data source must create its keys.
+     */
+    synchronized int registerDataSource() {
+        return nDataSources++;
+    }
+
+    /**
+     * @param dataSourceId The ID of the data source as given by {@link #registerDataSource()}.
+     * @param variant The annotated {@link VariantContext}.  Must not be {@code null}.
+     * @return A key for the annotations of the given {@code variant} by the given data source.
+     */
+    static Key createKey(final int dataSourceId, final VariantContext variant) {
+        Utils.nonNull(variant);
+
+        final List<Allele> alleles = variant.getAlleles();
+        int length = alleles.size();
+        for ( final Allele allele : alleles ) {
+            length += allele.getDisplayBases().length;
+        }
+
+        final byte[] encodedAlleles = new byte[length];
+        int offset = 0;
+        for ( final Allele allele : alleles ) {
+            final byte[] bases = allele.getDisplayBases();
+            System.arraycopy(bases, 0, encodedAlleles, offset, bases.length);
+            offset += bases.length;
+            encodedAlleles[offset++] = ALLELE_SEPARATOR;
+        }
+
+        return new Key(dataSourceId, variant.getContig(), variant.getStart(), variant.getEnd(), encodedAlleles);
+    }
+
+    /**
+     * @param key The {@link Key} of the annotations to get.  Must not be {@code null}.
+     * @return The cached annotations for the given {@code key}, or {@code null} if they are not in the cache.
+     */
+    synchronized List<Funcotation> get(final Key key) {
+        final Entry entry = entries.get(Utils.nonNull(key));
+        return entry == null ? null : entry.funcotations;
+    }
+
+    /**
+     * Adds annotations to the cache, evicting the least recently used annotations if necessary.
+     * @param key The {@link Key} of the annotations.  Must not be {@code null}.
+     * @param funcotations The annotations to cache.  Must not be {@code null}.
+     * @param fieldNames The names of the fields of the given {@code funcotations}, used to estimate their size.  Must not be {@code null}.
+     */
+    synchronized void put(final Key key, final List<Funcotation> funcotations, final Iterable<String> fieldNames) {
+        Utils.nonNull(key);
+        Utils.nonNull(funcotations);
+        Utils.nonNull(fieldNames);
+
+        final Entry entry = new Entry(funcotations, estimateBytes(key, funcotations, fieldNames));
+        final Entry replacedEntry = entries.put(key, entry);
+        if ( replacedEntry != null ) {
+            currentBytes -= replacedEntry.estimatedBytes;
+        }
+        currentBytes += entry.estimatedBytes;
+
+        // Evict the least recently used entries until we fit, but always keep the entry we just added:
+        final Iterator<Entry> iterator = entries.values().iterator();
+        while ( currentBytes > maxBytes && entries.size() > 1 ) {
+            currentBytes -= iterator.next().estimatedBytes;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * @return The number of entries currently in the cache.
+     */
+    synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return The estimated size of the cache in bytes.
+     */
+    synchronized long getEstimatedBytes() {
+        return currentBytes;
+    }
+
+    private static long estimateBytes(final Key key, final List<Funcotation> funcotations, final Iterable<String> fieldNames) {
+        long bytes = ENTRY_OVERHEAD_BYTES + key.alleles.length;
+        for ( final Funcotation funcotation : funcotations ) {
+            bytes += BYTES_PER_FUNCOTATION;
+            for ( final String fieldName : fieldNames ) {
+                if ( funcotation.hasField(fieldName) ) {
+                    final String value = funcotation.getField(fieldName);
+                    bytes += BYTES_PER_FIELD + (value == null ? 0 : value.length());
+                }
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * The key of the annotations of a variant by a data source.
+     */
+    static final class Key {
+        private final int dataSourceId;
+        private final String contig;
+        private final int start;
+        private final int end;
+        private final byte[] alleles;
+        private final int hashCode;
+
+        private Key(final int dataSourceId, final String contig, final int start, final int end, final byte[] alleles) {
+            this.dataSourceId = dataSourceId;
+            this.contig = contig;
+            this.start = start;
+            this.end = end;
+            this.alleles = alleles;
+
+            int hash = dataSourceId;
+            hash = 31 * hash + contig.hashCode();
+            hash = 31 * hash + start;
+            hash = 31 * hash + end;
+            hash = 31 * hash + Arrays.hashCode(alleles);
+            this.hashCode = hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof Key) ) {
+                return false;
+            }
+            final Key that = (Key) o;
+            return hashCode == that.hashCode &&
+                    dataSourceId == that.dataSourceId &&
+                    start == that.start &&
+                    end == that.end &&
+                    contig.equals(that.contig) &&
+                    Arrays.equals(alleles, that.alleles);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static final class Entry {
+        private final List<Funcotation> funcotations;
+        private final long estimatedBytes;
+
+        private Entry(final List<Funcotation> funcotations, final long estimatedBytes) {
+            this.funcotations = funcotations;
+            this.estimatedBytes = estimatedBytes;
+        }
+    }
+}
@@ -5,7 +5,6 @@ import htsjdk.tribble.Feature;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.vcf.*;
-import org.apache.commons.lang3.tuple.Triple;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
@@ -72,9 +71,15 @@ public class VcfFuncotationFactory extends DataSourceFuncotationFactory {
     private final FuncotationMetadata supportedFieldMetadata;
 
     /**
-     * Cache for speed.  Please note that the cache is done on the reference.
+     * Cache for speed, which may be shared with other {@link VcfFuncotationFactory}s.
+     * Updates to {@link #cacheHits} and {@link #cacheMisses} must be synchronized on the cache.
      */
-    private final LRUCache<Triple<VariantContext, ReferenceContext, List<Feature>>, List<Funcotation>> cache = new LRUCache<>();
+    private final VcfFuncotationCache cache;
+
+    /**
+     * The ID of this {@link VcfFuncotationFactory} in {@link #cache}.
+     */
+    private final int cacheId;
 
     /**
      * If the VCF has multiple lines with the same position, ref, and alt.
@@ -152,6 +157,28 @@ public class VcfFuncotationFactory extends DataSourceFuncotationFactory {
                                  final FeatureInput<? extends Feature> mainSourceFileAsFeatureInput,
                                  final boolean isDataSourceB37,
                                  final int minBasesForValidSegment) {
+        this(name, version, sourceFilePath, annotationOverridesMap, mainSourceFileAsFeatureInput, isDataSourceB37, minBasesForValidSegment, new VcfFuncotationCache());
+    }
+
+    /**
+     * Create a {@link VcfFuncotationFactory}.
+     * @param name A {@link String} containing the name of this {@link VcfFuncotationFactory}.
+     * @param version  The version {@link String} of the backing data source from which {@link Funcotation}s will be made.
+     * @param sourceFilePath {@link Path} to the VCF file from which {@link VariantContext}s will be read in and used as Features from which to create {@link Funcotation}s.
+     * @param annotationOverridesMap A {@link LinkedHashMap<String,String>} containing user-specified overrides for specific {@link Funcotation}s.
+     * @param mainSourceFileAsFeatureInput The backing {@link FeatureInput} for this {@link VcfFuncotationFactory}, from which all {@link Funcotation}s will be created.
+     * @param isDataSourceB37 If {@code true}, indicates that the data source behind this {@link GencodeFuncotationFactory} contains B37 data.
+     * @param minBasesForValidSegment The minimum number of bases for a segment to be considered valid.
+     * @param cache The {@link VcfFuncotationCache} in which to cache {@link Funcotation}s.  May be shared with other {@link VcfFuncotationFactory}s.  Must not be {@code null}.
+     */
+    public VcfFuncotationFactory(final String name,
+                                 final String version,
+                                 final Path sourceFilePath,
+                                 final LinkedHashMap<String, String> annotationOverridesMap,
+                                 final FeatureInput<? extends Feature> mainSourceFileAsFeatureInput,
+                                 final boolean isDataSourceB37,
+                                 final int minBasesForValidSegment,
+                                 final VcfFuncotationCache cache) {
 
         super(mainSourceFileAsFeatureInput, minBasesForValidSegment);
 
@@ -159,6 +186,9 @@ public class VcfFuncotationFactory extends DataSourceFuncotationFactory {
         this.version = version;
         this.sourceFilePath = sourceFilePath;
 
+        this.cache = Utils.nonNull(cache);
+        this.cacheId = cache.registerDataSource();
+
         this.dataSourceIsB37 = isDataSourceB37;
 
         // Handle the supported field names here:
@@ -253,6 +283,11 @@ public class VcfFuncotationFactory extends DataSourceFuncotationFactory {
         return FuncotatorArgumentDefinitions.DataSourceType.VCF;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     @Override
     public LinkedHashSet<String> getSupportedFuncotationFields() {
         return supportedFieldNames;
@@ -281,11 +316,14 @@ public class VcfFuncotationFactory extends DataSourceFuncotationFactory {
         final List<Funcotation> outputFuncotations = new ArrayList<>();
 
         // TODO: Caching logic can be refactored and shared in other funcotation factories:  https://github.com/broadinstitute/gatk/issues/4974
-        final Triple<VariantContext, ReferenceContext, List<Feature>> cacheKey = createCacheKey(variant, referenceContext, featureList);
-        final List<Funcotation> cacheResult = cache.get(cacheKey);
-        if (cacheResult != null) {
-            cacheHits++;
-            return cacheResult;
+        // The features overlapping a variant are determined by its position, so we need not include them in the key:
+        final VcfFuncotationCache.Key cacheKey = VcfFuncotationCache.createKey(cacheId, variant);
+        synchronized ( cache ) {
+            final List<Funcotation> cacheResult = cache.get(cacheKey);
+            if (cacheResult != null) {
+                cacheHits++;
+                return cacheResult;
+            }
         }
 
         // Only create annotations if we have data to annotate:
@@ -333,8 +371,10 @@ public class VcfFuncotationFactory extends DataSourceFuncotationFactory {
             }
             variant.getAlternateAlleles().forEach(a -> outputFuncotations.add(outputOrderedMap.computeIfAbsent(a, allele -> createDefaultFuncotation(allele))));
         }
-        cacheMisses++;
-        cache.put(cacheKey, outputFuncotations);
+        synchronized ( cache ) {
+            cacheMisses++;
+            cache.put(cacheKey, outputFuncotations, supportedFieldNames);
+        }
 
         // The output number of funcotations should equal to the variant.getAlternateAlleles().size()
         return outputFuncotations;
@@ -530,30 +570,8 @@ public class VcfFuncotationFactory extends DataSourceFuncotationFactory {
         return funcotationFactoryName + "_" + fieldName;
     }
 
-    private Triple<VariantContext, ReferenceContext, List<Feature>> createCacheKey(final VariantContext variant, final ReferenceContext referenceContext, final List<Feature> featureList) {
-        return Triple.of(variant, referenceContext, featureList);
-    }
-
     @Override
     public void close() {
         logger.info(getName() + " " + getVersion() + " cache hits/total: " + cacheHits + "/" + (cacheMisses + cacheHits));
     }
-
-    //==================================================================================================================
-    // Helper Data Types:
-
-    // Modifed from https://docs.oracle.com/javase/7/docs/api/java/util/LinkedHashMap.html#removeEldestEntry(java.util.Map.Entry)
-    class LRUCache<K, V> extends LinkedHashMap<K, V> {
-        static final long serialVersionUID = 55337L;
-        @VisibleForTesting
-        static final int MAX_ENTRIES = 20;
-        public LRUCache() {
-            super(MAX_ENTRIES);
-        }
-
-        @Override
-        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
-            return size() > MAX_ENTRIES;
-        }
-    }
 }
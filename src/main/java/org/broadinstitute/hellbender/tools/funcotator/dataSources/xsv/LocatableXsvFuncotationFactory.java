@@ -7,6 +7,7 @@ import htsjdk.tribble.readers.AsciiLineReader;
 import htsjdk.tribble.readers.AsciiLineReaderIterator;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.engine.FeatureContext;
 import org.broadinstitute.hellbender.engine.FeatureInput;
 import org.broadinstitute.hellbender.engine.ReferenceContext;
 import org.broadinstitute.hellbender.exceptions.GATKException;
@@ -17,9 +18,13 @@ import org.broadinstitute.hellbender.tools.funcotator.FuncotatorArgumentDefiniti
 import org.broadinstitute.hellbender.tools.funcotator.FuncotatorUtils;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.TableFuncotation;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable.XsvLocatableTableCodec;
 import org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable.XsvTableFeature;
+import org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable.XsvTableFeatureBCICodec;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream;
+import org.broadinstitute.hellbender.utils.io.InflatedBlockCache;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -71,6 +76,12 @@ public class LocatableXsvFuncotationFactory extends DataSourceFuncotationFactory
      */
     private List<String> emptyFieldList = null;
 
+    /**
+     * Reader for a compiled version of the backing data file, or {@code null} if features are read through the engine.
+     * Set by {@link #openCompiledDataFile(FeatureInput)}.
+     */
+    private BlockCompressedIntervalStream.Reader<XsvTableFeature> compiledDataReader = null;
+
     //==================================================================================================================
     // Constructors:
 
@@ -206,6 +217,27 @@ public class LocatableXsvFuncotationFactory extends DataSourceFuncotationFactory
         return FuncotatorArgumentDefinitions.DataSourceType.LOCATABLE_XSV;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
+    @Override
+    protected List<Feature> queryFeatures(final FeatureContext featureContext, final SimpleInterval queryInterval) {
+        if ( compiledDataReader == null ) {
+            return super.queryFeatures(featureContext, queryInterval);
+        }
+        return new ArrayList<>(compiledDataReader.queryAll(Collections.singletonList(queryInterval)));
+    }
+
+    @Override
+    public void close() {
+        if ( compiledDataReader != null ) {
+            compiledDataReader.close();
+            compiledDataReader = null;
+        }
+    }
+
     //==================================================================================================================
     // Static Methods:
 
@@ -290,6 +322,50 @@ public class LocatableXsvFuncotationFactory extends DataSourceFuncotationFactory
         }
     }
 
+    /**
+     * Set the field names that this {@link LocatableXsvFuncotationFactory} can create from the columns of a table
+     * that has already been read (e.g. from the header of a compiled data source).
+     * @param columnNames The names of the columns of the backing data, excluding the location columns.  Must not be {@code null}.
+     */
+    public void setSupportedFuncotationFields(final List<String> columnNames) {
+
+        Utils.nonNull(columnNames);
+
+        if ( supportedFieldNames == null ) {
+            synchronized ( this ) {
+                if ( supportedFieldNames == null ) {
+                    final LinkedHashSet<String> fieldNames = new LinkedHashSet<>(columnNames);
+                    supportedFieldNames = fieldNames;
+
+                    // Initialize our field name lists:
+                    initializeFieldNameLists();
+
+                    // Adjust the manual annotations to make sure we don't try to annotate any fields we aren't
+                    // responsible for:
+                    annotationOverrideMap.entrySet().removeIf( e -> !fieldNames.contains(e.getKey()) );
+                }
+            }
+        }
+    }
+
+    /**
+     * Read features from a compiled version of the backing data file (as made by
+     * {@link org.broadinstitute.hellbender.tools.funcotator.CompileFuncotatorDataSources}) rather than through the engine,
+     * and set the field names that this {@link LocatableXsvFuncotationFactory} can create from the header of that file.
+     * The compiled data file is memory-mapped, and its inflated blocks are cached by this factory alone.
+     * @param compiledDataFile {@link FeatureInput} for the compiled data file.  Must not be {@code null}.
+     */
+    public void openCompiledDataFile(final FeatureInput<XsvTableFeature> compiledDataFile) {
+
+        Utils.nonNull(compiledDataFile);
+        Utils.validate(compiledDataReader == null, "A compiled data file is already open for " + name);
+
+        compiledDataReader = new BlockCompressedIntervalStream.Reader<>(compiledDataFile, new XsvTableFeatureBCICodec(),
+                new InflatedBlockCache(InflatedBlockCache.DEFAULT_CAPACITY_BYTES));
+
+        setSupportedFuncotationFields(XsvTableFeatureBCICodec.getColumnNamesWithoutLocationColumns(compiledDataReader));
+    }
+
     /**
      * Initialize {@link #supportedFieldNameList} and {@link #emptyFieldList} given a populated {@link #supportedFieldNames}.
      */
@@ -282,6 +282,11 @@ public class SimpleKeyXsvFuncotationFactory extends DataSourceFuncotationFactory
         return FuncotatorArgumentDefinitions.DataSourceType.SIMPLE_XSV;
     }
 
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+
     //==================================================================================================================
     // Static Methods:
 
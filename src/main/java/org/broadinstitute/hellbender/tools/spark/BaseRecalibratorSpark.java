@@ -11,6 +11,7 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
 import org.broadinstitute.hellbender.utils.spark.JoinReadsWithVariants;
+import org.broadinstitute.hellbender.utils.spark.KnownSitesIndex;
 import org.broadinstitute.hellbender.tools.spark.transforms.BaseRecalibratorSparkFn;
 import org.broadinstitute.hellbender.tools.walkers.bqsr.BaseRecalibrator;
 import org.broadinstitute.hellbender.utils.SerializableFunction;
@@ -125,9 +126,9 @@ public class BaseRecalibratorSpark extends GATKSparkTool {
     @Override
     protected void runTool( JavaSparkContext ctx ) {
         String referenceFileName = addReferenceFilesForSpark(ctx, referenceArguments.getReferencePath());
-        List<String> localKnownSitesFilePaths = addVCFsForSpark(ctx, knownVariants);
+        final KnownSitesIndex.SparkSource knownSites = KnownSitesIndex.addForSpark(ctx, knownVariants, getHeaderForReads().getSequenceDictionary());
 
-        JavaPairRDD<GATKRead, Iterable<GATKVariant>> readsWithVariants = JoinReadsWithVariants.join(getReads(), localKnownSitesFilePaths);
+        JavaPairRDD<GATKRead, Iterable<GATKVariant>> readsWithVariants = JoinReadsWithVariants.join(getReads(), knownSites);
 
         final RecalibrationReport bqsrReport = BaseRecalibratorSparkFn.apply(readsWithVariants, getHeaderForReads(), referenceFileName, bqsrArgs);
 
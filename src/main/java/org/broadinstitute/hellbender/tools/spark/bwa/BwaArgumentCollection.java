@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.spark.bwa;
 
+import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.hellbender.tools.BwaMemIndexImageCreator;
 
@@ -15,6 +16,8 @@ public class BwaArgumentCollection implements Serializable {
     public static final String SINGLE_END_ALIGNMENT_SHORT_NAME = "se";
     public static final String BWA_MEM_INDEX_IMAGE_FULL_NAME = "bwa-mem-index-image";
     public static final String BWA_MEM_INDEX_IMAGE_SHORT_NAME = "image";
+    public static final String SHARE_BWA_MEM_INDEX_IMAGE_FULL_NAME = "share-bwa-mem-index-image";
+    public static final String PREWARM_BWA_MEM_INDEX_IMAGE_FULL_NAME = "prewarm-bwa-mem-index-image";
 
     /**
      * The BWA-MEM index image file name that you've distributed to each executor. The image file can be generated using
@@ -35,4 +38,25 @@ public class BwaArgumentCollection implements Serializable {
             shortName = SINGLE_END_ALIGNMENT_SHORT_NAME,
             optional = true)
     public boolean singleEndAlignment = false;
+
+    /**
+     * On Spark, copy the index image once per node into a node-local cache, instead of into the working directory of
+     * each executor, so that all the executors of a node, and later jobs on the same node, memory-map the same file and
+     * share its pages.  The image must then be readable from the executors, e.g. on HDFS, GCS or a shared file system.
+     */
+    @Advanced
+    @Argument(doc = "Share a node-local copy of the BWA-MEM index image between the executors of each node",
+            fullName = SHARE_BWA_MEM_INDEX_IMAGE_FULL_NAME,
+            optional = true)
+    public boolean shareIndexImage = false;
+
+    /**
+     * Read the whole index image into the page cache before opening it, rather than letting BWA-MEM fault its pages in
+     * while it aligns the first reads.
+     */
+    @Advanced
+    @Argument(doc = "Read the whole BWA-MEM index image into memory before aligning",
+            fullName = PREWARM_BWA_MEM_INDEX_IMAGE_FULL_NAME,
+            optional = true)
+    public boolean prewarmIndexImage = false;
 }
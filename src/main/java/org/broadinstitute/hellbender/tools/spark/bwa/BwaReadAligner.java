@@ -0,0 +1,120 @@
+package org.broadinstitute.hellbender.tools.spark.bwa;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.bwa.BwaMemAligner;
+import org.broadinstitute.hellbender.utils.bwa.BwaMemAlignment;
+import org.broadinstitute.hellbender.utils.bwa.BwaMemAlignmentUtils;
+import org.broadinstitute.hellbender.utils.bwa.BwaMemIndex;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Aligns batches of unaligned reads with BWA-MEM and converts the alignments into GATKReads.  This is the alignment step
+ * shared by {@link BwaSparkEngine}, which aligns each partition as a batch, and by tools that align without Spark.
+ *
+ * Aligning a batch is split into {@link #alignBatch}, which runs the native aligner, and {@link #toReads}, which converts
+ * its output, so that callers can run the two steps on different threads.
+ */
+public final class BwaReadAligner {
+    private final BwaMemIndex bwaMemIndex;
+    private final SAMFileHeader readsHeader;
+    private final boolean alignsPairs;
+    private final int numThreads;
+
+    /**
+     * @param bwaMemIndex the index of the reference
+     * @param readsHeader the header of the aligned reads, whose sequence dictionary must match the index
+     * @param alignsPairs whether batches are made of interleaved read pairs, rather than single-end reads
+     * @param numThreads the number of native threads BWA uses to align a batch
+     */
+    public BwaReadAligner(final BwaMemIndex bwaMemIndex, final SAMFileHeader readsHeader, final boolean alignsPairs, final int numThreads) {
+        this.bwaMemIndex = Utils.nonNull(bwaMemIndex);
+        this.readsHeader = Utils.nonNull(readsHeader);
+        this.alignsPairs = alignsPairs;
+        Utils.validateArg(numThreads > 0, "the number of threads must be positive");
+        this.numThreads = numThreads;
+    }
+
+    /**
+     * Aligns a batch of reads and converts the alignments.
+     *
+     * @return the aligned records of the reads, in the order of the reads
+     */
+    public List<GATKRead> align(final List<GATKRead> inputReads) {
+        return toReads(inputReads, alignBatch(inputReads));
+    }
+
+    /**
+     * Runs BWA-MEM on a batch of reads.  When aligning pairs, the mates of each pair must be consecutive.
+     *
+     * @return the alignments of each read of the batch
+     */
+    public List<List<BwaMemAlignment>> alignBatch(final List<GATKRead> inputReads) {
+        final int nReads = inputReads.size();
+        if ( alignsPairs ) {
+            if ( (nReads & 1) != 0 ) {
+                throw new GATKException("We're supposed to be aligning paired reads, but there are an odd number of them.");
+            }
+            for ( int idx = 0; idx != nReads; idx += 2 ) {
+                final String readName1 = inputReads.get(idx).getName();
+                final String readName2 = inputReads.get(idx+1).getName();
+                if ( !Objects.equals(readName1,readName2) ) {
+                    throw new GATKException("Read pair has varying template name: "+readName1+" .vs "+readName2);
+                }
+            }
+        }
+        if ( nReads == 0 ) {
+            return Collections.emptyList();
+        }
+        final List<byte[]> seqs = new ArrayList<>(nReads);
+        for (final GATKRead read : inputReads) {
+            seqs.add(read.getBases());
+        }
+        final BwaMemAligner aligner = new BwaMemAligner(bwaMemIndex);
+        aligner.setNThreadsOption(numThreads);
+        // we are dealing with interleaved, paired reads.  tell BWA that they're paired.
+        if (alignsPairs) {
+            aligner.alignPairs();
+        }
+        return aligner.alignSeqs(seqs);
+    }
+
+    /**
+     * Converts the alignments of a batch, as returned by {@link #alignBatch}, into reads.
+     *
+     * @return the aligned records of the reads, in the order of the reads
+     */
+    public List<GATKRead> toReads(final List<GATKRead> inputReads, final List<List<BwaMemAlignment>> allAlignments) {
+        final int nReads = inputReads.size();
+        final List<String> refNames = bwaMemIndex.getReferenceContigNames();
+        final List<GATKRead> outputReads = new ArrayList<>(allAlignments.stream().mapToInt(List::size).sum());
+        for ( int idx = 0; idx != nReads; ++idx ) {
+            final GATKRead originalRead = inputReads.get(idx);
+            final String readName = originalRead.getName();
+            final byte[] bases = originalRead.getBases();
+            final byte[] quals = originalRead.getBaseQualities();
+            final String readGroup = originalRead.getReadGroup();
+            final List<BwaMemAlignment> alignments = allAlignments.get(idx);
+            final Map<BwaMemAlignment,String> saTagMap = BwaMemAlignmentUtils.createSATags(alignments,refNames);
+            for ( final BwaMemAlignment alignment : alignments ) {
+                final SAMRecord samRecord =
+                        BwaMemAlignmentUtils.applyAlignment(readName, bases, quals, readGroup,
+                                                            alignment, refNames, readsHeader, false, true);
+                final GATKRead rec = SAMRecordToGATKReadAdapter.headerlessReadAdapter(samRecord);
+                final String saTag = saTagMap.get(alignment);
+                if ( saTag != null ) rec.setAttribute("SA", saTag);
+                outputReads.add(rec);
+            }
+        }
+        return outputReads;
+    }
+}
@@ -1,19 +1,17 @@
 package org.broadinstitute.hellbender.tools.spark.bwa;
 
 import htsjdk.samtools.SAMFileHeader;
-import htsjdk.samtools.SAMRecord;
 import htsjdk.samtools.SAMSequenceDictionary;
 import org.apache.spark.SparkFiles;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.broadcast.Broadcast;
-import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.bwa.*;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
-import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.broadinstitute.hellbender.utils.spark.NodeLocalFileCache;
 
 import java.util.*;
 
@@ -33,6 +31,9 @@ public final class BwaSparkEngine implements AutoCloseable {
     private final JavaSparkContext ctx;
     private final String indexFileName;
     private final boolean resolveIndexFileName;
+    // fingerprint of the index image when it is shared through the node-local cache, otherwise null
+    private final String indexImageChecksum;
+    private final boolean prewarmIndexImage;
     private final Broadcast<SAMFileHeader> broadcastHeader;
 
     /**
@@ -48,17 +49,52 @@ public final class BwaSparkEngine implements AutoCloseable {
                           final String indexFileName,
                           SAMFileHeader inputHeader,
                           final SAMSequenceDictionary refDictionary) {
+        this(ctx, referenceFile, indexFileName, false, false, inputHeader, refDictionary);
+    }
+
+    /**
+     * @param ctx           the Spark context
+     * @param referenceFile the path to the reference file named <i>_prefix_.fa</i>, which is used to find the image file with name <i>_prefix_.fa.img</i>.
+     *                      Can be <code>null</code> if the index image file is provided.
+     * @param bwaArgs       the BWA arguments, giving the index image file and how executors load it
+     * @param inputHeader   the SAM file header to use for reads
+     * @param refDictionary the sequence dictionary to use for reads if the SAM file header doesn't have one (or it's empty)
+     */
+    public BwaSparkEngine(final JavaSparkContext ctx,
+                          final String referenceFile,
+                          final BwaArgumentCollection bwaArgs,
+                          SAMFileHeader inputHeader,
+                          final SAMSequenceDictionary refDictionary) {
+        this(ctx, referenceFile, bwaArgs.indexImageFile, bwaArgs.shareIndexImage, bwaArgs.prewarmIndexImage, inputHeader, refDictionary);
+    }
+
+    private BwaSparkEngine(final JavaSparkContext ctx,
+                           final String referenceFile,
+                           final String indexFileName,
+                           final boolean shareIndexImage,
+                           final boolean prewarmIndexImage,
+                           SAMFileHeader inputHeader,
+                           final SAMSequenceDictionary refDictionary) {
         Utils.nonNull(referenceFile);
         Utils.nonNull(inputHeader);
         this.ctx = ctx;
-        if (indexFileName != null) {
+        this.prewarmIndexImage = prewarmIndexImage;
+        if (shareIndexImage) {
+            // executors copy the image into their node-local cache themselves; a fingerprint identifies it without
+            // reading the whole image on the driver
+            this.indexFileName = indexFileName != null ? indexFileName : referenceFile + REFERENCE_INDEX_IMAGE_FILE_SUFFIX;
+            this.resolveIndexFileName = false;
+            this.indexImageChecksum = NodeLocalFileCache.fingerprint(this.indexFileName);
+        } else if (indexFileName != null) {
             this.indexFileName = indexFileName;
             this.resolveIndexFileName = false;
+            this.indexImageChecksum = null;
         } else {
             String indexFile = referenceFile + REFERENCE_INDEX_IMAGE_FILE_SUFFIX;
             ctx.addFile(indexFile); // distribute index file to all executors
             this.indexFileName = IOUtils.getPath(indexFile).getFileName().toString();
             this.resolveIndexFileName = true;
+            this.indexImageChecksum = null;
         }
 
         if (inputHeader.getSequenceDictionary() == null || inputHeader.getSequenceDictionary().isEmpty()) {
@@ -100,8 +136,20 @@ public final class BwaSparkEngine implements AutoCloseable {
         final Broadcast<SAMFileHeader> broadcastHeader = this.broadcastHeader;
         final String indexFileName = this.indexFileName;
         final boolean resolveIndexFileName = this.resolveIndexFileName;
-        return unalignedReads.mapPartitions(itr ->
-                new ReadAligner(resolveIndexFileName ? SparkFiles.get(indexFileName) : indexFileName, broadcastHeader.value(), pairedAlignment).apply(itr));
+        final String indexImageChecksum = this.indexImageChecksum;
+        final boolean prewarmIndexImage = this.prewarmIndexImage;
+        return unalignedReads.mapPartitions(itr -> {
+            if (indexImageChecksum == null) {
+                final String indexImageFile = resolveIndexFileName ? SparkFiles.get(indexFileName) : indexFileName;
+                if (prewarmIndexImage) {
+                    BwaMemIndexCache.prewarm(indexImageFile);
+                }
+                return new ReadAligner(BwaMemIndexCache.getInstance(indexImageFile), broadcastHeader.value(), pairedAlignment).apply(itr);
+            }
+            // the shared index stays open for later tasks on this executor, until close() or the executor exits
+            final BwaMemIndex index = BwaMemIndexCache.acquireShared(indexFileName, indexImageChecksum, prewarmIndexImage);
+            return new ReadAligner(index, broadcastHeader.value(), pairedAlignment).apply(itr);
+        });
     }
 
     @Override
@@ -111,75 +159,25 @@ public final class BwaSparkEngine implements AutoCloseable {
     }
 
     private static final class ReadAligner {
-        private final BwaMemIndex bwaMemIndex;
-        private final SAMFileHeader readsHeader;
-        private final boolean alignsPairs;
+        private final BwaReadAligner aligner;
 
         // assumes 128Mb partitions, with reads needing about 100bytes each when BAM compressed
         private static final int READS_PER_PARTITION_GUESS = 1500000;
 
-        ReadAligner( final String indexFileName, final SAMFileHeader readsHeader, final boolean alignsPairs) {
-            this.bwaMemIndex = BwaMemIndexCache.getInstance(indexFileName);
-            this.readsHeader = readsHeader;
-            this.alignsPairs = alignsPairs;
+        ReadAligner( final BwaMemIndex bwaMemIndex, final SAMFileHeader readsHeader, final boolean alignsPairs) {
             if ( alignsPairs && readsHeader.getSortOrder() != SAMFileHeader.SortOrder.queryname ) {
                 throw new UserException("Input must be queryname sorted unless you use single-ended alignment mode.");
             }
+            this.aligner = new BwaReadAligner(bwaMemIndex, readsHeader, alignsPairs, 1);
         }
 
+        // reads the whole partition, so that the aligned reads no longer need the index once this returns
         Iterator<GATKRead> apply( final Iterator<GATKRead> readItr ) {
             final List<GATKRead> inputReads = new ArrayList<>(READS_PER_PARTITION_GUESS);
             while ( readItr.hasNext() ) {
                 inputReads.add(readItr.next());
             }
-            final int nReads = inputReads.size();
-            if ( alignsPairs ) {
-                if ( (nReads & 1) != 0 ) {
-                    throw new GATKException("We're supposed to be aligning paired reads, but there are an odd number of them.");
-                }
-                for ( int idx = 0; idx != nReads; idx += 2 ) {
-                    final String readName1 = inputReads.get(idx).getName();
-                    final String readName2 = inputReads.get(idx+1).getName();
-                    if ( !Objects.equals(readName1,readName2) ) {
-                        throw new GATKException("Read pair has varying template name: "+readName1+" .vs "+readName2);
-                    }
-                }
-            }
-            final List<List<BwaMemAlignment>> allAlignments;
-            if ( nReads == 0 ) allAlignments = Collections.emptyList();
-            else {
-                final List<byte[]> seqs = new ArrayList<>(nReads);
-                for (final GATKRead read : inputReads) {
-                    seqs.add(read.getBases());
-                }
-                final BwaMemAligner aligner = new BwaMemAligner(bwaMemIndex);
-                // we are dealing with interleaved, paired reads.  tell BWA that they're paired.
-                if (alignsPairs) {
-                    aligner.alignPairs();
-                }
-                allAlignments = aligner.alignSeqs(seqs);
-            }
-            final List<String> refNames = bwaMemIndex.getReferenceContigNames();
-            final List<GATKRead> outputReads = new ArrayList<>(allAlignments.stream().mapToInt(List::size).sum());
-            for ( int idx = 0; idx != nReads; ++idx ) {
-                final GATKRead originalRead = inputReads.get(idx);
-                final String readName = originalRead.getName();
-                final byte[] bases = originalRead.getBases();
-                final byte[] quals = originalRead.getBaseQualities();
-                final String readGroup = originalRead.getReadGroup();
-                final List<BwaMemAlignment> alignments = allAlignments.get(idx);
-                final Map<BwaMemAlignment,String> saTagMap = BwaMemAlignmentUtils.createSATags(alignments,refNames);
-                for ( final BwaMemAlignment alignment : alignments ) {
-                    final SAMRecord samRecord =
-                            BwaMemAlignmentUtils.applyAlignment(readName, bases, quals, readGroup,
-                                                                alignment, refNames, readsHeader, false, true);
-                    final GATKRead rec = SAMRecordToGATKReadAdapter.headerlessReadAdapter(samRecord);
-                    final String saTag = saTagMap.get(alignment);
-                    if ( saTag != null ) rec.setAttribute("SA", saTag);
-                    outputReads.add(rec);
-                }
-            }
-            return outputReads.iterator();
+            return aligner.align(inputReads).iterator();
         }
     }
 }
@@ -13,26 +13,35 @@ import java.util.List;
  * Wrapper for ContainsKmerReadFilter to avoid serializing the kmer filter in Spark
  */
 public class ContainsKmerReadFilterSpark implements Function<GATKRead, Boolean> {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
     private final String kmerSetPath;
+    private final String kmerSetChecksum;
     private final int kmerCountThreshold;
     private transient ContainsKmerReadFilter filter; //Load lazily to avoid its serialization
 
     public ContainsKmerReadFilterSpark(final String kmerSetPath, final int kmerCountThreshold) {
+        this(kmerSetPath, null, kmerCountThreshold);
+    }
+
+    /**
+     * @param kmerSetChecksum checksum of a succinct kmer set on remote storage, as given by {@link PSKmerUtils#getKmerFileChecksum}
+     */
+    public ContainsKmerReadFilterSpark(final String kmerSetPath, final String kmerSetChecksum, final int kmerCountThreshold) {
         this.kmerSetPath = kmerSetPath;
+        this.kmerSetChecksum = kmerSetChecksum;
         this.kmerCountThreshold = kmerCountThreshold;
     }
 
     public void readObject(final ObjectInputStream in) throws IOException, ClassNotFoundException {
         in.defaultReadObject();
         //Load in executors upon deserialization
-        filter = new ContainsKmerReadFilter(kmerSetPath, kmerCountThreshold);
+        filter = new ContainsKmerReadFilter(kmerSetPath, kmerSetChecksum, kmerCountThreshold);
     }
 
     @Override
     public Boolean call(final GATKRead read) {
         //Still need this check for local mode
-        if (filter == null) filter = new ContainsKmerReadFilter(kmerSetPath, kmerCountThreshold);
+        if (filter == null) filter = new ContainsKmerReadFilter(kmerSetPath, kmerSetChecksum, kmerCountThreshold);
         return filter.test(read);
     }
 
@@ -204,7 +204,8 @@ public final class PSFilter implements AutoCloseable {
     private static JavaRDD<GATKRead> doKmerFiltering(final JavaRDD<GATKRead> reads, final String kmerLibPath,
                                                        final int countThresh) {
 
-        return reads.filter(new ContainsKmerReadFilterSpark(kmerLibPath, countThresh));
+        final String kmerLibChecksum = PSKmerUtils.getKmerFileChecksum(kmerLibPath);
+        return reads.filter(new ContainsKmerReadFilterSpark(kmerLibPath, kmerLibChecksum, countThresh));
     }
 
     @VisibleForTesting
@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.spark.pathseq;
 
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerizer;
 
 /**
  * Classes that provide a way to test kmers for set membership and keep track of the kmer size and mask
@@ -12,6 +13,21 @@ public abstract class PSKmerCollection {
     abstract SVKmerShort getMask();
     abstract double getFalsePositiveProbability();
 
+    /**
+     * Returns true if at least minCount of the kmers of a sequence are in the collection.
+     * Input should not be canonicalized/masked
+     */
+    boolean containsAtLeast(final byte[] bases, final int minCount) {
+        final SVKmerizer kmers = new SVKmerizer(bases, kmerSize(), 1, new SVKmerShort(kmerSize()));
+        int numKmersFound = 0;
+        while (kmers.hasNext()) {
+            if (contains((SVKmerShort) kmers.next()) && ++numKmersFound >= minCount) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     /**
      * Definition for the order of canonicalization and masking
      */
@@ -0,0 +1,536 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerizer;
+import org.broadinstitute.hellbender.tools.spark.utils.LongIterator;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.spark.NodeLocalFileCache;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.stream.IntStream;
+
+/**
+ * Kmer set stored in a compact, sorted file that is memory-mapped rather than read onto the heap, so that all the
+ * executors of a node share a single copy of it through the page cache.
+ *
+ * <p>Kmers (canonicalized and masked as in {@link PSKmerCollection#canonicalizeAndMask}) are bucketed by their
+ * minimizer: the substring of their unmasked bases, of a fixed length, that has the smallest hash value.  As the
+ * minimizer is implied by the bucket, a kmer is stored as the offset of its minimizer and its remaining bases,
+ * bit-packed in a fixed width.  The kmers of a bucket are sorted, and looked up by binary search.</p>
+ *
+ * <p>Consecutive kmers of a read usually share their minimizer, so {@link #containsAtLeast} streams the kmers of a read
+ * through the set, reusing the bucket of the previous kmer when it can.</p>
+ *
+ * <p>The file holds the packed kmers, followed by the index of the first kmer of each bucket and a fixed-size footer.</p>
+ */
+public final class PSKmerSuccinctSet extends PSKmerCollection {
+
+    private static final Logger logger = LogManager.getLogger(PSKmerSuccinctSet.class);
+
+    private static final long MAGIC = 0x50534b6d65725353L;
+    private static final int VERSION = 1;
+    private static final int FOOTER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES + Integer.BYTES + Long.BYTES;
+
+    // minimizers are at most 13 bases long, so that the bucket index can be mapped as one buffer
+    private static final int MAX_MINIMIZER_SIZE = 13;
+    private static final int KMERS_PER_BUCKET = 16;
+    // packed kmers are read as 64-bit words starting at a byte boundary
+    private static final int MAX_PACKED_BITS = Long.SIZE - 7;
+    private static final int PADDING_SIZE = Long.BYTES;
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_SIZE = 1L << CHUNK_SHIFT;
+    // maximum number of kmers sorted at once when writing a set
+    private static final int WRITE_BATCH_SIZE = 1 << 27;
+    // suffix of the file a set is written to before being moved into place
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    private final int kmerSize;
+    private final SVKmerShort kmerMask;
+    private final KmerEncoding encoding;
+    private final long numKmers;
+    private final ByteBuffer bucketStarts;
+    private final ByteBuffer[] packedKmerChunks;
+
+    private PSKmerSuccinctSet(final int kmerSize, final SVKmerShort kmerMask, final KmerEncoding encoding,
+                              final long numKmers, final ByteBuffer bucketStarts, final ByteBuffer[] packedKmerChunks) {
+        this.kmerSize = kmerSize;
+        this.kmerMask = kmerMask;
+        this.encoding = encoding;
+        this.numKmers = numKmers;
+        this.bucketStarts = bucketStarts;
+        this.packedKmerChunks = packedKmerChunks;
+    }
+
+    /**
+     * Memory-maps a set written by {@link #write}.
+     *
+     * @param localFile the set, which must be on a local file system
+     */
+    public static PSKmerSuccinctSet open(final Path localFile) {
+        Utils.nonNull(localFile);
+        try (final FileChannel channel = FileChannel.open(localFile, StandardOpenOption.READ)) {
+            final long fileSize = channel.size();
+            if (fileSize < FOOTER_SIZE) {
+                throw new UserException.CouldNotReadInputFile(localFile, "The file is not a PathSeq succinct kmer set");
+            }
+            final ByteBuffer footer = ByteBuffer.allocate(FOOTER_SIZE);
+            while (footer.hasRemaining()) {
+                if (channel.read(footer, fileSize - FOOTER_SIZE + footer.position()) < 0) {
+                    throw new UserException.CouldNotReadInputFile(localFile, "Unexpected end of file");
+                }
+            }
+            footer.flip();
+            final int kmerSize = footer.getInt();
+            final SVKmerShort kmerMask = new SVKmerShort(footer.getLong());
+            final int minimizerSize = footer.getInt();
+            final long numKmers = footer.getLong();
+            final int version = footer.getInt();
+            if (footer.getLong() != MAGIC) {
+                throw new UserException.CouldNotReadInputFile(localFile, "The file is not a PathSeq succinct kmer set");
+            }
+            if (version != VERSION) {
+                throw new UserException.CouldNotReadInputFile(localFile, "Unsupported version " + version + " of the succinct kmer set format");
+            }
+
+            final KmerEncoding encoding = new KmerEncoding(kmerSize, kmerMask, minimizerSize);
+            final long packedSize = packedSize(numKmers, encoding.packedBits) + PADDING_SIZE;
+            final long bucketStartsSize = (encoding.numBuckets + 1L) * Long.BYTES;
+            if (fileSize != packedSize + bucketStartsSize + FOOTER_SIZE) {
+                throw new UserException.CouldNotReadInputFile(localFile, "The file is truncated or corrupt");
+            }
+
+            final ByteBuffer bucketStarts = NodeLocalFileCache.map(localFile, packedSize, bucketStartsSize);
+            final int numChunks = (int) ((packedSize - PADDING_SIZE + CHUNK_SIZE - 1) >>> CHUNK_SHIFT);
+            final ByteBuffer[] packedKmerChunks = new ByteBuffer[Math.max(1, numChunks)];
+            for (int chunk = 0; chunk < packedKmerChunks.length; chunk++) {
+                // chunks overlap by the padding, so that a word starting in a chunk can always be read from it
+                final long position = chunk * CHUNK_SIZE;
+                packedKmerChunks[chunk] = NodeLocalFileCache.map(localFile, position, Math.min(CHUNK_SIZE + PADDING_SIZE, packedSize - position))
+                        .order(ByteOrder.LITTLE_ENDIAN);
+            }
+            logger.info("Mapped succinct kmer set " + localFile + " with " + numKmers + " kmers in " + fileSize + " bytes");
+            return new PSKmerSuccinctSet(kmerSize, kmerMask, encoding, numKmers, bucketStarts, packedKmerChunks);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(localFile, e);
+        }
+    }
+
+    /**
+     * Opens a set that may not be on a local file system, copying it into the node-local cache if needed.
+     *
+     * @param uri path or URI of the set
+     * @param checksum checksum of the set as computed by {@link NodeLocalFileCache#checksum} or
+     *                 {@link NodeLocalFileCache#fingerprint}, or null to fingerprint it when the set has to be copied
+     */
+    public static PSKmerSuccinctSet open(final String uri, final String checksum) {
+        Utils.nonNull(uri);
+        if (!BucketUtils.isRemoteStorageUrl(uri)) {
+            return open(IOUtils.getPath(uri));
+        }
+        return open(NodeLocalFileCache.localize(uri, checksum != null ? checksum : NodeLocalFileCache.fingerprint(uri)));
+    }
+
+    /**
+     * Writes the set of the given kmers.  Kmers may be repeated.
+     *
+     * @param maskedKmers kmers, which should have been run through {@link PSKmerCollection#canonicalizeAndMask}
+     */
+    public static void write(final Collection<long[]> maskedKmers, final int kmerSize, final SVKmerShort kmerMask, final String uri) {
+        Utils.nonNull(maskedKmers);
+        Utils.nonNull(kmerMask);
+        Utils.nonNull(uri);
+        final long numInputKmers = PSKmerUtils.longArrayCollectionSize(maskedKmers);
+        final KmerEncoding encoding = new KmerEncoding(kmerSize, kmerMask,
+                KmerEncoding.chooseMinimizerSize(numInputKmers, KmerEncoding.getUnmaskedBaseShifts(kmerSize, kmerMask).length));
+
+        // find the bucket of every kmer once, as finding its minimizer dominates the cost of building the set
+        final List<int[]> kmerBuckets = new ArrayList<>(maskedKmers.size());
+        final long[] bucketCounts = new long[encoding.numBuckets];
+        for (final long[] kmers : maskedKmers) {
+            final int[] buckets = new int[kmers.length];
+            for (int i = 0; i < kmers.length; i++) {
+                final long compacted = encoding.compact(kmers[i]);
+                buckets[i] = encoding.bucket(compacted, encoding.minimizerOffset(compacted));
+                bucketCounts[buckets[i]]++;
+            }
+            kmerBuckets.add(buckets);
+        }
+
+        final long[] bucketStarts = new long[encoding.numBuckets + 1];
+        long numKmers = 0;
+        // write next to the destination and move the set into place once complete, so that a failed write never
+        // leaves a truncated set that would later be mapped
+        final String tempUri = uri + TEMP_FILE_SUFFIX;
+        boolean written = false;
+        try {
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(BucketUtils.createFile(tempUri)))) {
+                final BitPacker packer = new BitPacker(out, encoding.packedBits);
+                int firstBucket = 0;
+                while (firstBucket < encoding.numBuckets) {
+                    // sort the kmers of as many buckets as fit into a batch
+                    int endBucket = firstBucket;
+                    long batchSize = 0;
+                    do {
+                        batchSize += bucketCounts[endBucket++];
+                    } while (endBucket < encoding.numBuckets && batchSize + bucketCounts[endBucket] <= WRITE_BATCH_SIZE);
+                    if (batchSize > Integer.MAX_VALUE - 8) {
+                        throw new GATKException("Too many kmers share the minimizer of bucket " + firstBucket);
+                    }
+
+                    final long[] packedKmers = new long[(int) batchSize];
+                    final int[] nextKmer = new int[endBucket - firstBucket + 1];
+                    for (int bucket = firstBucket; bucket < endBucket; bucket++) {
+                        nextKmer[bucket - firstBucket + 1] = nextKmer[bucket - firstBucket] + (int) bucketCounts[bucket];
+                    }
+                    final int[] bucketEnds = Arrays.copyOfRange(nextKmer, 1, nextKmer.length);
+                    int arrayIndex = 0;
+                    for (final long[] kmers : maskedKmers) {
+                        final int[] buckets = kmerBuckets.get(arrayIndex++);
+                        for (int i = 0; i < kmers.length; i++) {
+                            if (buckets[i] >= firstBucket && buckets[i] < endBucket) {
+                                final long compacted = encoding.compact(kmers[i]);
+                                packedKmers[nextKmer[buckets[i] - firstBucket]++] = encoding.pack(compacted, encoding.minimizerOffset(compacted));
+                            }
+                        }
+                    }
+
+                    int bucketStart = 0;
+                    for (int bucket = firstBucket; bucket < endBucket; bucket++) {
+                        bucketStarts[bucket] = numKmers;
+                        final int bucketEnd = bucketEnds[bucket - firstBucket];
+                        Arrays.sort(packedKmers, bucketStart, bucketEnd);
+                        for (int i = bucketStart; i < bucketEnd; i++) {
+                            if (i == bucketStart || packedKmers[i] != packedKmers[i - 1]) {
+                                packer.write(packedKmers[i]);
+                                numKmers++;
+                            }
+                        }
+                        bucketStart = bucketEnd;
+                    }
+                    firstBucket = endBucket;
+                }
+                bucketStarts[encoding.numBuckets] = numKmers;
+                packer.finish();
+                out.write(new byte[PADDING_SIZE]);
+
+                for (final long start : bucketStarts) {
+                    out.writeLong(start);
+                }
+                out.writeInt(kmerSize);
+                out.writeLong(kmerMask.getLong());
+                out.writeInt(encoding.minimizerSize);
+                out.writeLong(numKmers);
+                out.writeInt(VERSION);
+                out.writeLong(MAGIC);
+            }
+            Files.move(IOUtils.getPath(tempUri), IOUtils.getPath(uri), StandardCopyOption.REPLACE_EXISTING);
+            written = true;
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(uri, "Unable to write the succinct kmer set", e);
+        } finally {
+            if (!written) {
+                try {
+                    Files.deleteIfExists(IOUtils.getPath(tempUri));
+                } catch (final IOException e) {
+                    logger.warn("Unable to delete the partially written succinct kmer set " + tempUri, e);
+                }
+            }
+        }
+        logger.info("Wrote " + numKmers + " distinct kmers in " + encoding.numBuckets + " minimizer buckets");
+    }
+
+    /**
+     * Input should not be canonicalized/masked
+     */
+    @Override
+    public boolean contains(final SVKmerShort rawKmer) {
+        final long compacted = encoding.compact(canonicalizeAndMask(rawKmer, kmerSize, kmerMask));
+        final int offset = encoding.minimizerOffset(compacted);
+        final int bucket = encoding.bucket(compacted, offset);
+        return search(getBucketStart(bucket), getBucketStart(bucket + 1), encoding.pack(compacted, offset));
+    }
+
+    /**
+     * Input should not be canonicalized/masked
+     */
+    @Override
+    public boolean containsAtLeast(final byte[] bases, final int minCount) {
+        final SVKmerizer kmers = new SVKmerizer(bases, kmerSize, 1, new SVKmerShort(kmerSize));
+        int numKmersFound = 0;
+        int lastBucket = -1;
+        long bucketStart = 0;
+        long bucketEnd = 0;
+        while (kmers.hasNext()) {
+            final long compacted = encoding.compact(canonicalizeAndMask((SVKmerShort) kmers.next(), kmerSize, kmerMask));
+            final int offset = encoding.minimizerOffset(compacted);
+            final int bucket = encoding.bucket(compacted, offset);
+            if (bucket != lastBucket) {
+                bucketStart = getBucketStart(bucket);
+                bucketEnd = getBucketStart(bucket + 1);
+                lastBucket = bucket;
+            }
+            if (search(bucketStart, bucketEnd, encoding.pack(compacted, offset)) && ++numKmersFound >= minCount) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Iterates over the canonicalized and masked kmers of the set, in no particular order
+     */
+    public LongIterator iterator() {
+        return new LongIterator() {
+            private int bucket = 0;
+            private long index = 0;
+
+            @Override
+            public boolean hasNext() {
+                return index < numKmers;
+            }
+
+            @Override
+            public long next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException("No next element");
+                }
+                while (getBucketStart(bucket + 1) <= index) {
+                    bucket++;
+                }
+                return encoding.expand(encoding.unpack(bucket, getPackedKmer(index++)));
+            }
+        };
+    }
+
+    @Override
+    public int kmerSize() {
+        return kmerSize;
+    }
+
+    @Override
+    public SVKmerShort getMask() {
+        return kmerMask;
+    }
+
+    @Override
+    public double getFalsePositiveProbability() {
+        return 0;
+    }
+
+    public long setSize() {
+        return numKmers;
+    }
+
+    private long getBucketStart(final int bucket) {
+        return bucketStarts.getLong(bucket * Long.BYTES);
+    }
+
+    private long getPackedKmer(final long index) {
+        final long bitOffset = index * encoding.packedBits;
+        final long byteOffset = bitOffset >>> 3;
+        final long word = packedKmerChunks[(int) (byteOffset >>> CHUNK_SHIFT)].getLong((int) (byteOffset & (CHUNK_SIZE - 1)));
+        return (word >>> (bitOffset & 7)) & encoding.packedMask;
+    }
+
+    private boolean search(long low, long high, final long packedKmer) {
+        while (low < high) {
+            final long mid = (low + high) >>> 1;
+            final long value = getPackedKmer(mid);
+            if (value < packedKmer) {
+                low = mid + 1;
+            } else if (value > packedKmer) {
+                high = mid;
+            } else {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long packedSize(final long numKmers, final int packedBits) {
+        return (numKmers * packedBits + 7) >>> 3;
+    }
+
+    /**
+     * Maps canonicalized and masked kmers to their minimizer bucket and to the packed value stored in the bucket.
+     * Masked bases are dropped first, as they are always zero.
+     */
+    @VisibleForTesting
+    static final class KmerEncoding {
+        final int minimizerSize;
+        final int numBuckets;
+        final int packedBits;
+        final long packedMask;
+        // shifts of the unmasked bases in a kmer, from the first base to the last
+        private final int[] unmaskedBaseShifts;
+        private final int numWindows;
+        private final int restBits;
+        private final long minimizerMask;
+
+        KmerEncoding(final int kmerSize, final SVKmerShort kmerMask, final int minimizerSize) {
+            unmaskedBaseShifts = getUnmaskedBaseShifts(kmerSize, kmerMask);
+            final int numBases = unmaskedBaseShifts.length;
+            Utils.validateArg(numBases > 0, "the kmer mask must leave at least one base unmasked");
+            Utils.validateArg(minimizerSize > 0 && minimizerSize <= Math.min(numBases, MAX_MINIMIZER_SIZE),
+                    () -> "invalid minimizer size " + minimizerSize);
+            this.minimizerSize = minimizerSize;
+            numBuckets = 1 << (2 * minimizerSize);
+            numWindows = numBases - minimizerSize + 1;
+            restBits = 2 * (numBases - minimizerSize);
+            packedBits = getPackedBits(numBases, minimizerSize);
+            Utils.validateArg(packedBits <= MAX_PACKED_BITS, () -> "minimizer size " + minimizerSize + " is too small");
+            packedMask = (1L << packedBits) - 1;
+            minimizerMask = (1L << (2 * minimizerSize)) - 1;
+        }
+
+        /**
+         * Chooses the minimizer size giving roughly {@link #KMERS_PER_BUCKET} kmers per bucket.
+         */
+        static int chooseMinimizerSize(final long numKmers, final int numBases) {
+            int minimizerSize = 1;
+            while (minimizerSize < Math.min(numBases, MAX_MINIMIZER_SIZE) && ((long) KMERS_PER_BUCKET << (2 * minimizerSize)) < numKmers) {
+                minimizerSize++;
+            }
+            while (getPackedBits(numBases, minimizerSize) > MAX_PACKED_BITS) {
+                minimizerSize++;
+            }
+            return minimizerSize;
+        }
+
+        static int[] getUnmaskedBaseShifts(final int kmerSize, final SVKmerShort kmerMask) {
+            return IntStream.range(0, kmerSize)
+                    .map(position -> 2 * (kmerSize - position - 1))
+                    .filter(shift -> ((kmerMask.getLong() >>> shift) & 3L) == 3L)
+                    .toArray();
+        }
+
+        private static int getPackedBits(final int numBases, final int minimizerSize) {
+            final int numWindows = numBases - minimizerSize + 1;
+            return (Integer.SIZE - Integer.numberOfLeadingZeros(numWindows - 1)) + 2 * (numBases - minimizerSize);
+        }
+
+        /**
+         * Drops the masked bases of a kmer
+         */
+        long compact(final long maskedKmer) {
+            long compacted = 0;
+            for (final int shift : unmaskedBaseShifts) {
+                compacted = (compacted << 2) | ((maskedKmer >>> shift) & 3L);
+            }
+            return compacted;
+        }
+
+        /**
+         * Inverse of {@link #compact}
+         */
+        long expand(long compacted) {
+            long maskedKmer = 0;
+            for (int i = unmaskedBaseShifts.length - 1; i >= 0; i--) {
+                maskedKmer |= (compacted & 3L) << unmaskedBaseShifts[i];
+                compacted >>>= 2;
+            }
+            return maskedKmer;
+        }
+
+        /**
+         * Returns the offset, in bases from the end, of the minimizer of a compacted kmer
+         */
+        int minimizerOffset(final long compacted) {
+            int bestOffset = 0;
+            long bestHash = hash(compacted & minimizerMask);
+            for (int offset = 1; offset < numWindows; offset++) {
+                final long hash = hash((compacted >>> (2 * offset)) & minimizerMask);
+                if (hash < bestHash) {
+                    bestHash = hash;
+                    bestOffset = offset;
+                }
+            }
+            return bestOffset;
+        }
+
+        int bucket(final long compacted, final int minimizerOffset) {
+            return (int) ((compacted >>> (2 * minimizerOffset)) & minimizerMask);
+        }
+
+        /**
+         * Packs the offset of the minimizer and the bases around it
+         */
+        long pack(final long compacted, final int minimizerOffset) {
+            final int lowBits = 2 * minimizerOffset;
+            final long rest = ((compacted >>> (lowBits + 2 * minimizerSize)) << lowBits) | (compacted & ((1L << lowBits) - 1));
+            return ((long) minimizerOffset << restBits) | rest;
+        }
+
+        /**
+         * Inverse of {@link #pack}, given the bucket of the kmer
+         */
+        long unpack(final int bucket, final long packed) {
+            final int lowBits = 2 * (int) (packed >>> restBits);
+            final long rest = packed & ((1L << restBits) - 1);
+            return ((rest >>> lowBits) << (lowBits + 2 * minimizerSize)) | ((long) bucket << lowBits) | (rest & ((1L << lowBits) - 1));
+        }
+
+        private static long hash(long value) {
+            value ^= value >>> 33;
+            value *= 0xff51afd7ed558ccdL;
+            value ^= value >>> 33;
+            value *= 0xc4ceb9fe1a85ec53L;
+            value ^= value >>> 33;
+            return value;
+        }
+    }
+
+    /**
+     * Writes values of a fixed bit width, least significant bits first
+     */
+    private static final class BitPacker {
+        private final DataOutputStream out;
+        private final int bits;
+        private long pending = 0;
+        private int numPendingBits = 0;
+
+        BitPacker(final DataOutputStream out, final int bits) {
+            this.out = out;
+            this.bits = bits;
+        }
+
+        void write(final long value) throws IOException {
+            pending |= value << numPendingBits;
+            numPendingBits += bits;
+            while (numPendingBits >= 8) {
+                out.write((int) pending);
+                pending >>>= 8;
+                numPendingBits -= 8;
+            }
+        }
+
+        void finish() throws IOException {
+            if (numPendingBits > 0) {
+                out.write((int) pending);
+            }
+            pending = 0;
+            numPendingBits = 0;
+        }
+    }
+}
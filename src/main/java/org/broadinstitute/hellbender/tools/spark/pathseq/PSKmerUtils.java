@@ -14,6 +14,7 @@ import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
+import org.broadinstitute.hellbender.utils.spark.NodeLocalFileCache;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -27,6 +28,7 @@ public class PSKmerUtils {
 
     public static final String HOPSCOTCH_SET_EXTENSION = ".hss";
     public static final String BLOOM_FILTER_EXTENSION = ".bfi";
+    public static final String SUCCINCT_SET_EXTENSION = ".sks";
     private static final Logger logger = LogManager.getLogger(PSKmerUtils.class);
 
     /**
@@ -127,7 +129,41 @@ public class PSKmerUtils {
         writeKryoObject(bloomFilter, filePath);
     }
 
+    public static void writeKmerSuccinctSet(final String uri, final Collection<long[]> maskedKmers, final int kmerSize,
+                                            final SVKmerShort kmerMask) {
+        String filePath = uri;
+        if (!uri.toLowerCase().endsWith(SUCCINCT_SET_EXTENSION.toLowerCase())) {
+            filePath = filePath + SUCCINCT_SET_EXTENSION;
+        }
+        PSKmerSuccinctSet.write(maskedKmers, kmerSize, kmerMask, filePath);
+    }
+
+    /**
+     * Returns the checksum with which executors copy a kmer file into their node-local cache, fingerprinting the file
+     * (see {@link NodeLocalFileCache#fingerprint}) rather than reading it if it is a succinct kmer set on remote
+     * storage, or null if the file is read directly.
+     */
+    public static String getKmerFileChecksum(final String uri) {
+        if (uri.endsWith(SUCCINCT_SET_EXTENSION) && BucketUtils.isRemoteStorageUrl(uri)) {
+            return NodeLocalFileCache.fingerprint(uri);
+        }
+        return null;
+    }
+
     public static PSKmerCollection readKmerFilter(final String uri) {
+        return readKmerFilter(uri, null);
+    }
+
+    /**
+     * Reads a kmer file.  Succinct kmer sets are memory-mapped, after being copied to the node-local cache if they are on
+     * remote storage.
+     *
+     * @param checksum checksum of the file as given by {@link #getKmerFileChecksum}, or null
+     */
+    public static PSKmerCollection readKmerFilter(final String uri, final String checksum) {
+        if (uri.endsWith(SUCCINCT_SET_EXTENSION)) {
+            return PSKmerSuccinctSet.open(uri, checksum);
+        }
         final Input input = new Input(BucketUtils.openFile(uri));
         final Kryo kryo = new Kryo();
         if (uri.endsWith(HOPSCOTCH_SET_EXTENSION)) {
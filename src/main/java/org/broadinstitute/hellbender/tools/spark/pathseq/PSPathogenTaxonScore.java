@@ -15,8 +15,8 @@ public final class PSPathogenTaxonScore {
     private double selfScore = 0; //Total abundance score assigned directly to this taxon
     private double descendentScore = 0; //Sum of descendents' scores
     private double scoreNormalized = 0; //selfScore + descendentScore, normalized to percent of total selfScores
-    private int totalReads = 0; //Number of total reads mapped
-    private int unambiguousReads = 0; //Number of reads mapped unamibuously to this node
+    private long totalReads = 0; //Number of total reads mapped
+    private long unambiguousReads = 0; //Number of reads mapped unamibuously to this node
     private long referenceLength = 0; //Length of reference in bp
     private int kingdomTaxonId = DEFAULT_KINGDOM_ID;
 
@@ -65,11 +65,11 @@ public final class PSPathogenTaxonScore {
         return scoreNormalized;
     }
 
-    public int getTotalReads() {
+    public long getTotalReads() {
         return totalReads;
     }
 
-    public int getUnambiguousReads() {
+    public long getUnambiguousReads() {
         return unambiguousReads;
     }
 
@@ -96,12 +96,12 @@ public final class PSPathogenTaxonScore {
         this.scoreNormalized += scoreNormalized;
     }
 
-    public void addTotalReads(final int totalReads) {
+    public void addTotalReads(final long totalReads) {
         Utils.validateArg(totalReads >= 0, "Taxon read count must be non-negative");
         this.totalReads += totalReads;
     }
 
-    public void addUnambiguousReads(final int unambiguousReads) {
+    public void addUnambiguousReads(final long unambiguousReads) {
         Utils.validateArg(unambiguousReads >= 0, "Taxon unambiguous read count must be non-negative");
         this.unambiguousReads += unambiguousReads;
     }
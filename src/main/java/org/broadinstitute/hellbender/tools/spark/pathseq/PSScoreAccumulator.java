@@ -0,0 +1,103 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Taxonomic scores accumulated in primitive arrays indexed by the nodes of a {@link PSTreeIndex}. Reads with identical
+ * hits are scored together (see {@link PSScorer#accumulateTaxScores}), and the accumulators of the partitions are
+ * merged by adding their arrays.
+ */
+public final class PSScoreAccumulator implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final double[] selfScores;
+    private final double[] descendentScores;
+    private final long[] totalReads;
+    private final long[] unambiguousReads;
+
+    // marks the nodes already counted for the current hit set, by hit set number
+    private transient int[] visitedNodes;
+    private transient int numHitSets;
+
+    public PSScoreAccumulator(final int numNodes) {
+        Utils.validateArg(numNodes > 0, "Number of nodes must be positive");
+        selfScores = new double[numNodes];
+        descendentScores = new double[numNodes];
+        totalReads = new long[numNodes];
+        unambiguousReads = new long[numNodes];
+    }
+
+    /**
+     * Adds the scores of reads that all hit the same taxa.
+     *
+     * @param hitIndices distinct indices of the taxa hit, which must have non-zero reference lengths
+     * @param numMates total number of mates of the reads
+     */
+    public void addHits(final int[] hitIndices, final long numMates, final PSTreeIndex tree, final boolean divideByGenomeLength) {
+        Utils.validateArg(hitIndices.length > 0, "No hits to add");
+        if (visitedNodes == null) {
+            visitedNodes = new int[selfScores.length];
+        }
+        final int hitSet = ++numHitSets;
+
+        //Unambiguous read scores for the lowest common ancestor and its ancestors
+        for (int node = tree.getLCA(hitIndices); node != PSTreeIndex.NO_NODE; node = tree.getParentOf(node)) {
+            unambiguousReads[node] += numMates;
+        }
+
+        //Scores normalized by genome length and degree of ambiguity (number of hits)
+        for (final int hit : hitIndices) {
+            double score = numMates / (double) hitIndices.length;
+            if (divideByGenomeLength) score *= PSScorer.SCORE_GENOME_LENGTH_UNITS / tree.getLengthOf(hit);
+            selfScores[hit] += score;
+            for (int node = hit; node != PSTreeIndex.NO_NODE; node = tree.getParentOf(node)) {
+                if (node != hit) {
+                    descendentScores[node] += score;
+                }
+                //"reads" score is the number of reads that COULD belong to each node i.e. an upper-bound
+                if (visitedNodes[node] != hitSet) {
+                    visitedNodes[node] = hitSet;
+                    totalReads[node] += numMates;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the scores of another accumulator over the same tree to this one, and returns this one
+     */
+    public PSScoreAccumulator merge(final PSScoreAccumulator other) {
+        Utils.validateArg(other.selfScores.length == selfScores.length, "Cannot merge scores of different trees");
+        for (int node = 0; node < selfScores.length; node++) {
+            selfScores[node] += other.selfScores[node];
+            descendentScores[node] += other.descendentScores[node];
+            totalReads[node] += other.totalReads[node];
+            unambiguousReads[node] += other.unambiguousReads[node];
+        }
+        return this;
+    }
+
+    /**
+     * Returns the scores of the taxa hit by at least one read, by taxonomic ID
+     */
+    public Map<Integer, PSPathogenTaxonScore> getTaxonScores(final PSTreeIndex tree) {
+        final Map<Integer, PSPathogenTaxonScore> scores = new HashMap<>();
+        for (int node = 0; node < selfScores.length; node++) {
+            if (totalReads[node] > 0) {
+                final PSPathogenTaxonScore score = new PSPathogenTaxonScore();
+                score.setReferenceLength(tree.getLengthOf(node));
+                score.addSelfScore(selfScores[node]);
+                score.addDescendentScore(descendentScores[node]);
+                score.addTotalReads(totalReads[node]);
+                score.addUnambiguousReads(unambiguousReads[node]);
+                scores.put(tree.getTaxIdOf(node), score);
+            }
+        }
+        return scores;
+    }
+}
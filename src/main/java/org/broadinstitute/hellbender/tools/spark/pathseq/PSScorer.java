@@ -5,12 +5,10 @@ import com.esotericsoftware.kryo.io.Input;
 import htsjdk.samtools.*;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
-import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.broadcast.Broadcast;
 import org.broadinstitute.hellbender.exceptions.UserException;
-import org.broadinstitute.hellbender.tools.spark.sv.utils.SVUtils;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
@@ -47,6 +45,8 @@ public final class PSScorer {
         //Load taxonomy database, created by running PathSeqBuildReferenceTaxonomy with this reference
         final PSTaxonomyDatabase taxDB = readTaxonomyDatabase(scoreArgs.taxonomyDatabasePath);
         final Broadcast<PSTaxonomyDatabase> taxonomyDatabaseBroadcast = ctx.broadcast(taxDB);
+        final PSTreeIndex treeIndex = new PSTreeIndex(taxDB.tree);
+        final Broadcast<PSTreeIndex> treeIndexBroadcast = ctx.broadcast(treeIndex);
 
         //Check header against database
         if (scoreArgs.headerWarningFile != null) {
@@ -64,11 +64,12 @@ public final class PSScorer {
         //Compute taxonomic scores from the alignment hits
         final JavaRDD<PSPathogenAlignmentHit> alignmentHits = readHits.map(Tuple2::_2);
         final boolean divideByGenomeLength = scoreArgs.divideByGenomeLength; //To prevent serialization of PSScorer
-        final JavaPairRDD<Integer, PSPathogenTaxonScore> taxScoresRdd = alignmentHits
-                .mapPartitionsToPair(iter -> computeTaxScores(iter, taxonomyDatabaseBroadcast.value(), divideByGenomeLength));
+        final PSScoreAccumulator taxScores = alignmentHits
+                .mapPartitions(iter -> Collections.singletonList(accumulateTaxScores(iter, treeIndexBroadcast.value(), divideByGenomeLength)).iterator())
+                .treeReduce(PSScoreAccumulator::merge);
 
-        //Reduce scores by taxon and compute normalized scores
-        Map<Integer, PSPathogenTaxonScore> taxScoresMap = new HashMap<>(taxScoresRdd.reduceByKey(PSPathogenTaxonScore::add).collectAsMap());
+        //Compute normalized scores
+        Map<Integer, PSPathogenTaxonScore> taxScoresMap = taxScores.getTaxonScores(treeIndex);
         taxScoresMap = computeNormalizedScores(taxScoresMap, taxDB.tree, scoreArgs.notNormalizedByKingdom);
 
         //Write scores to file
@@ -278,63 +279,48 @@ public final class PSScorer {
     }
 
     /**
-     * Computes abundance scores and returns key-values of taxonomic id and scores
+     * Computes abundance scores, accumulated in arrays indexed by the nodes of the tree. Reads that hit the same set of
+     * taxa are grouped and scored together, so that the tree is traversed once per distinct set of hits rather than
+     * once per read.
      */
-    public static Iterator<Tuple2<Integer, PSPathogenTaxonScore>> computeTaxScores(final Iterator<PSPathogenAlignmentHit> taxonHits,
-                                                                                  final PSTaxonomyDatabase taxonomyDatabase,
-                                                                                  final boolean divideByGenomeLength) {
-        final PSTree tree = taxonomyDatabase.tree;
-        final Map<Integer, PSPathogenTaxonScore> taxIdsToScores = new HashMap<>();
+    public static PSScoreAccumulator accumulateTaxScores(final Iterator<PSPathogenAlignmentHit> taxonHits,
+                                                         final PSTreeIndex tree,
+                                                         final boolean divideByGenomeLength) {
+        final Map<HitSet, long[]> numMatesByHitSet = new HashMap<>();
         final Set<Integer> invalidIds = new HashSet<>();
         while (taxonHits.hasNext()) {
             final PSPathogenAlignmentHit hit = taxonHits.next();
-            final Set<Integer> hitTaxIds = new HashSet<>(hit.taxIDs);
-            final Set<Integer> hitInvalidTaxIds = new HashSet<>(SVUtils.hashMapCapacity(hitTaxIds.size()));
-            for (final int taxId : hitTaxIds) {
-                if (!tree.hasNode(taxId) || tree.getLengthOf(taxId) == 0) hitInvalidTaxIds.add(taxId);
+            final int[] hitIndices = new int[hit.taxIDs.size()];
+            int numHits = 0;
+            for (final int taxId : hit.taxIDs) {
+                final int index = tree.indexOf(taxId);
+                if (index == PSTreeIndex.NO_NODE || tree.getLengthOf(index) == 0) {
+                    invalidIds.add(taxId);
+                } else {
+                    hitIndices[numHits++] = index;
+                }
             }
-            hitTaxIds.removeAll(hitInvalidTaxIds);
-            invalidIds.addAll(hitInvalidTaxIds);
-
-            //Number of genomes hit by this read and number of mates in the tuple (1 for single, 2 for pair)
-            final int numHits = hitTaxIds.size();
             if (numHits == 0) continue;
 
-            //Unambiguous read scores for the lowest common ancestor and its ancestors
-            final int lowestCommonAncestor = tree.getLCA(hitTaxIds);
-            final List<Integer> lcaPath = tree.getPathOf(lowestCommonAncestor);
-            for (final int taxId : lcaPath) {
-                getOrAddScoreInfo(taxId, taxIdsToScores, tree).addUnambiguousReads(hit.numMates);
-            }
-
-            //Scores normalized by genome length and degree of ambiguity (number of hits)
-            final Set<Integer> hitPathNodes = new HashSet<>(); //Set of all unique hits and ancestors
-            for (final int taxId : hitTaxIds) {
-                double score = hit.numMates / (double) numHits;
-                if (divideByGenomeLength) score *= SCORE_GENOME_LENGTH_UNITS / tree.getLengthOf(taxId);
-                //Get list containing this node and its ancestors
-                final List<Integer> path = tree.getPathOf(taxId);
-                hitPathNodes.addAll(path);
-                for (final int pathTaxId : path) {
-                    final PSPathogenTaxonScore info = getOrAddScoreInfo(pathTaxId, taxIdsToScores, tree);
-                    if (pathTaxId == taxId) {
-                        info.addSelfScore(score);
-                    } else {
-                        info.addDescendentScore(score);
-                    }
-                    taxIdsToScores.put(pathTaxId, info);
+            //Hit sets are compared as sorted arrays of distinct node indices
+            Arrays.sort(hitIndices, 0, numHits);
+            int numDistinctHits = 1;
+            for (int i = 1; i < numHits; i++) {
+                if (hitIndices[i] != hitIndices[numDistinctHits - 1]) {
+                    hitIndices[numDistinctHits++] = hitIndices[i];
                 }
             }
-
-            //"reads" score is the number of reads that COULD belong to each node i.e. an upper-bound
-            for (final int taxId : hitPathNodes) {
-                getOrAddScoreInfo(taxId, taxIdsToScores, tree).addTotalReads(hit.numMates);
-            }
+            numMatesByHitSet.computeIfAbsent(new HitSet(Arrays.copyOf(hitIndices, numDistinctHits)), key -> new long[1])[0] += hit.numMates;
         }
         PSUtils.logItemizedWarning(logger, invalidIds, "The following taxonomic ID hits were ignored because " +
                 "they either could not be found in the tree or had a reference length of 0 (this may happen when " +
                 "the catalog file, taxdump file, and/or pathogen reference are inconsistent)");
-        return taxIdsToScores.entrySet().stream().map(entry -> new Tuple2<>(entry.getKey(), entry.getValue())).iterator();
+
+        final PSScoreAccumulator scores = new PSScoreAccumulator(tree.size());
+        for (final Map.Entry<HitSet, long[]> entry : numMatesByHitSet.entrySet()) {
+            scores.addHits(entry.getKey().indices, entry.getValue()[0], tree, divideByGenomeLength);
+        }
+        return scores;
     }
 
     /**
@@ -398,23 +384,6 @@ public final class PSScorer {
         }
     }
 
-    /**
-     * Helper function for handling PSPathogenTaxonScore retrieval from the taxScores map
-     */
-    private static PSPathogenTaxonScore getOrAddScoreInfo(final int taxId,
-                                                          final Map<Integer, PSPathogenTaxonScore> taxScores,
-                                                          final PSTree tree) {
-        final PSPathogenTaxonScore score;
-        if (taxScores.containsKey(taxId)) {
-            score = taxScores.get(taxId);
-        } else {
-            score = new PSPathogenTaxonScore();
-            score.setReferenceLength(tree.getLengthOf(taxId));
-            taxScores.put(taxId, score);
-        }
-        return score;
-    }
-
     /**
      * Reads taxonomy database that has been serialized to a file
      */
@@ -451,6 +420,29 @@ public final class PSScorer {
         }
     }
 
+    /**
+     * Sorted node indices of the taxa hit by a read, as a hash key
+     */
+    private static final class HitSet {
+        private final int[] indices;
+        private final int hashCode;
+
+        HitSet(final int[] indices) {
+            this.indices = indices;
+            this.hashCode = Arrays.hashCode(indices);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof HitSet && Arrays.equals(indices, ((HitSet) o).indices);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
     /**
      * Helper class for storing alignment hit information
      */
@@ -0,0 +1,132 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Array-based view of a {@link PSTree} for scoring, in which each taxon is identified by a dense index, so that scores
+ * can be accumulated in primitive arrays and paths to the root followed without looking up the nodes in a map.
+ */
+public final class PSTreeIndex implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+    public static final int NO_NODE = -1;
+
+    private final int[] taxIds;
+    private final int[] parents;
+    private final int[] depths;
+    private final long[] lengths;
+    private final Map<Integer, Integer> taxIdToIndex;
+
+    public PSTreeIndex(final PSTree tree) {
+        Utils.nonNull(tree);
+        taxIds = tree.getNodeIDs().stream().mapToInt(Integer::intValue).sorted().toArray();
+        final int numNodes = taxIds.length;
+        taxIdToIndex = new HashMap<>(2 * numNodes);
+        for (int index = 0; index < numNodes; index++) {
+            taxIdToIndex.put(taxIds[index], index);
+        }
+        parents = new int[numNodes];
+        lengths = new long[numNodes];
+        for (int index = 0; index < numNodes; index++) {
+            final int parentId = tree.getParentOf(taxIds[index]);
+            if (parentId == PSTree.NULL_NODE) {
+                parents[index] = NO_NODE;
+            } else if (taxIdToIndex.containsKey(parentId)) {
+                parents[index] = taxIdToIndex.get(parentId);
+            } else {
+                throw new UserException.BadInput("Parent node " + parentId + " not found in tree while indexing it");
+            }
+            lengths[index] = tree.getLengthOf(taxIds[index]);
+        }
+        depths = new int[numNodes];
+        Arrays.fill(depths, NO_NODE);
+        for (int index = 0; index < numNodes; index++) {
+            computeDepth(index);
+        }
+    }
+
+    /**
+     * Computes the depth of a node and of its ancestors, without recursion as the tree can be deep
+     */
+    private void computeDepth(final int index) {
+        int ancestor = index;
+        int numSteps = 0;
+        while (ancestor != NO_NODE && depths[ancestor] == NO_NODE) {
+            if (++numSteps > depths.length) {
+                throw new UserException.BadInput("The tree contains a cycle at node " + taxIds[index]);
+            }
+            ancestor = parents[ancestor];
+        }
+        int depth = ancestor == NO_NODE ? 0 : depths[ancestor] + 1;
+        // assign depths on the way down, from the first ancestor whose depth is unknown
+        final int[] path = new int[numSteps];
+        int node = index;
+        for (int i = numSteps - 1; i >= 0; i--) {
+            path[i] = node;
+            node = parents[node];
+        }
+        for (final int pathNode : path) {
+            depths[pathNode] = depth++;
+        }
+    }
+
+    public int size() {
+        return taxIds.length;
+    }
+
+    /**
+     * Returns the index of a taxon, or {@link #NO_NODE} if it is not in the tree
+     */
+    public int indexOf(final int taxId) {
+        final Integer index = taxIdToIndex.get(taxId);
+        return index == null ? NO_NODE : index;
+    }
+
+    public int getTaxIdOf(final int index) {
+        return taxIds[index];
+    }
+
+    /**
+     * Returns the index of the parent of a node, or {@link #NO_NODE} for the root
+     */
+    public int getParentOf(final int index) {
+        return parents[index];
+    }
+
+    public long getLengthOf(final int index) {
+        return lengths[index];
+    }
+
+    /**
+     * Returns the lowest common ancestor of a non-empty set of nodes
+     */
+    public int getLCA(final int[] indices) {
+        Utils.validateArg(indices.length > 0, "Queried lowest common ancestor of a null set");
+        int lca = indices[0];
+        for (int i = 1; i < indices.length; i++) {
+            int node = indices[i];
+            while (depths[node] > depths[lca]) {
+                node = parents[node];
+            }
+            while (depths[lca] > depths[node]) {
+                lca = parents[lca];
+            }
+            while (lca != node) {
+                lca = parents[lca];
+                node = parents[node];
+                if (lca == NO_NODE || node == NO_NODE) {
+                    //This should never happen if the tree structure has been checked
+                    throw new GATKException.ShouldNeverReachHereException("Could not find common ancester of node set.");
+                }
+            }
+        }
+        return lca;
+    }
+}
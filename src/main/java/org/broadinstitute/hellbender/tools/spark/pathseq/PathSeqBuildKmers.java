@@ -30,6 +30,10 @@ import java.util.Collection;
  * read is < 1.5%, but the amount of memory used is reduced 4-fold compared to a hash table. For this reason, Bloom
  * filters are generally recommended.</p>
  *
+ * <p>Alternatively, the --succinct-kmer-set option stores the k-mers in a compact, sorted file that the PathSeq tools
+ * memory-map instead of loading onto the heap. It is exact like the hash table but about half its size, and all the Spark
+ * executors of a node share one copy of it, so it is recommended for large hosts.</p>
+ *
  * <p>Note that the file formats used for storing these k-mer data structures are only readable by the PathSeq tools.</p>
  *
  * <h3>Input</h3>
@@ -63,6 +67,16 @@ import java.util.Collection;
  *   --kmer-size 31
  * </pre>
  *
+ * <h4>Builds a succinct k-mer set.</h4>
+ * <pre>
+ * gatk PathSeqBuildKmers  \
+ *   --reference host_reference.fasta \
+ *   --output host_reference.sks \
+ *   --succinct-kmer-set \
+ *   --kmer-mask 16 \
+ *   --kmer-size 31
+ * </pre>
+ *
  * <h3>Notes</h3>
  *
  * <p>For most references, the Java VM will run out of memory with the default settings. The Java heap size limit should
@@ -87,10 +101,12 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
     public static final String KMER_MASK_SHORT_NAME = "M";
     public static final String KMER_SPACING_LONG_NAME = "kmer-spacing";
     public static final String KMER_SPACING_SHORT_NAME = "SP";
+    public static final String SUCCINCT_SET_LONG_NAME = "succinct-kmer-set";
 
     @Argument(doc = "File for k-mer set output. Extension will be automatically added if not present ("
-            + PSKmerUtils.HOPSCOTCH_SET_EXTENSION + " for hash set or "
-            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter)",
+            + PSKmerUtils.HOPSCOTCH_SET_EXTENSION + " for hash set, "
+            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter or "
+            + PSKmerUtils.SUCCINCT_SET_EXTENSION + " for succinct set)",
             shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
             fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
     public String outputFile;
@@ -110,6 +126,7 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
             minValue = 0.0,
             maxValue = 1.0,
             maxRecommendedValue = 0.001,
+            mutex = {SUCCINCT_SET_LONG_NAME},
             optional = true)
     public double bloomFpp = 0;
 
@@ -148,7 +165,17 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
     public int kmerSpacing = 1;
 
     /**
-     * Get the list of distinct kmers in the reference, and write them to a file as a HopScotch set or Bloom filter.
+     * The succinct set is memory-mapped by PathSeqFilterSpark and PathSeqPipelineSpark, so that the executors of a node
+     * share it rather than each loading its own copy onto the heap.
+     */
+    @Argument(doc = "Write the k-mers as a memory-mappable succinct set instead of a hash set",
+            fullName = SUCCINCT_SET_LONG_NAME,
+            mutex = {BLOOM_FILTER_FALSE_POSITIVE_P_LONG_NAME},
+            optional = true)
+    public boolean succinctSet = false;
+
+    /**
+     * Get the list of distinct kmers in the reference, and write them to a file as a HopScotch set, Bloom filter or succinct set.
      */
     @Override
     protected Object doWork() {
@@ -161,7 +188,10 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
         logger.info("Loading reference kmers...");
         final Collection<long[]> maskedKmerCollection = PSKmerUtils.getMaskedKmersFromLocalReference(reference, kmerSize, kmerSpacing, kmerMask);
         final long numLongs = PSKmerUtils.longArrayCollectionSize(maskedKmerCollection);
-        if (bloomFpp > 0) {
+        if (succinctSet) {
+            logger.info("Building succinct kmer set...");
+            PSKmerUtils.writeKmerSuccinctSet(outputFile, maskedKmerCollection, kmerSize, kmerMask);
+        } else if (bloomFpp > 0) {
             logger.info("Building Bloom filter with false positive probability " + bloomFpp + "...");
             final LongBloomFilter bloomFilter = PSKmerUtils.longArrayCollectionToBloomFilter(maskedKmerCollection, numLongs, bloomFpp);
             final PSKmerBloomFilter kmerBloomFilter = new PSKmerBloomFilter(bloomFilter, kmerSize, kmerMask, numLongs);
@@ -13,6 +13,7 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
 import org.broadinstitute.hellbender.utils.spark.JoinReadsWithVariants;
+import org.broadinstitute.hellbender.utils.spark.KnownSitesIndex;
 import org.broadinstitute.hellbender.tools.ApplyBQSRUniqueArgumentCollection;
 import org.broadinstitute.hellbender.tools.spark.transforms.ApplyBQSRSparkFn;
 import org.broadinstitute.hellbender.tools.spark.transforms.BaseRecalibratorSparkFn;
@@ -97,7 +98,7 @@ public final class BQSRPipelineSpark extends GATKSparkTool {
     @Override
     protected void runTool(final JavaSparkContext ctx) {
         String referenceFileName = addReferenceFilesForSpark(ctx, referenceArguments.getReferencePath());
-        List<String> localKnownSitesFilePaths = addVCFsForSpark(ctx, knownVariants);
+        final KnownSitesIndex.SparkSource knownSites = KnownSitesIndex.addForSpark(ctx, knownVariants, getHeaderForReads().getSequenceDictionary());
 
         //Should this get the getUnfilteredReads? getReads will merge default and command line filters.
         //but the code below uses other filters for other parts of the pipeline that do not honor
@@ -111,7 +112,7 @@ public final class BQSRPipelineSpark extends GATKSparkTool {
         final ReadFilter bqsrReadFilter = ReadFilter.fromList(BaseRecalibrator.getBQSRSpecificReadFilterList(), getHeaderForReads());
         final JavaRDD<GATKRead> filteredReadsForBQSR = initialReads.filter(read -> bqsrReadFilter.test(read));
 
-        JavaPairRDD<GATKRead, Iterable<GATKVariant>> readsWithVariants = JoinReadsWithVariants.join(filteredReadsForBQSR, localKnownSitesFilePaths);
+        JavaPairRDD<GATKRead, Iterable<GATKVariant>> readsWithVariants = JoinReadsWithVariants.join(filteredReadsForBQSR, knownSites);
         //note: we use the reference dictionary from the reads themselves.
         final RecalibrationReport bqsrReport = BaseRecalibratorSparkFn.apply(readsWithVariants, getHeaderForReads(), referenceFileName, bqsrArgs);
 
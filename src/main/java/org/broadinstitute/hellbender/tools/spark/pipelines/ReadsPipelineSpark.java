@@ -6,6 +6,7 @@ import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.storage.StorageLevel;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
@@ -20,7 +21,9 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.spark.AssemblyRegionArgumentCollection;
 import org.broadinstitute.hellbender.engine.spark.AssemblyRegionReadShardArgumentCollection;
 import org.broadinstitute.hellbender.engine.spark.GATKSparkTool;
+import org.broadinstitute.hellbender.engine.spark.SparkSharder;
 import org.broadinstitute.hellbender.utils.spark.JoinReadsWithVariants;
+import org.broadinstitute.hellbender.utils.spark.KnownSitesIndex;
 import org.broadinstitute.hellbender.tools.ApplyBQSRUniqueArgumentCollection;
 import org.broadinstitute.hellbender.tools.HaplotypeCallerSpark;
 import org.broadinstitute.hellbender.tools.spark.bwa.BwaArgumentCollection;
@@ -165,13 +168,12 @@ public class ReadsPipelineSpark extends GATKSparkTool {
     @Override
     protected void runTool(final JavaSparkContext ctx) {
         String referenceFileName = addReferenceFilesForSpark(ctx, referenceArguments.getReferencePath());
-        List<String> localKnownSitesFilePaths = addVCFsForSpark(ctx, knownVariants);
 
         final JavaRDD<GATKRead> alignedReads;
         final SAMFileHeader header;
         final BwaSparkEngine bwaEngine;
         if (align) {
-            bwaEngine = new BwaSparkEngine(ctx, referenceArguments.getReferenceFileName(), bwaArgs.indexImageFile, getHeaderForReads(), getReferenceSequenceDictionary());
+            bwaEngine = new BwaSparkEngine(ctx, referenceArguments.getReferenceFileName(), bwaArgs, getHeaderForReads(), getReferenceSequenceDictionary());
             if (bwaArgs.singleEndAlignment) {
                 alignedReads = bwaEngine.alignUnpaired(getReads());
             } else {
@@ -185,6 +187,7 @@ public class ReadsPipelineSpark extends GATKSparkTool {
             alignedReads = getReads();
             header = getHeaderForReads();
         }
+        final KnownSitesIndex.SparkSource knownSites = KnownSitesIndex.addForSpark(ctx, knownVariants, header.getSequenceDictionary());
 
         final JavaRDD<GATKRead> markedReads = MarkDuplicatesSpark.mark(alignedReads, header, new OpticalDuplicateFinder(), markDuplicatesSparkArgumentCollection, getRecommendedNumReducers());
 
@@ -201,7 +204,7 @@ public class ReadsPipelineSpark extends GATKSparkTool {
 
         JavaRDD<GATKRead> markedFilteredReadsForBQSR = sortedMarkedReads.filter(bqsrReadFilter::test);
 
-        JavaPairRDD<GATKRead, Iterable<GATKVariant>> readsWithVariants = JoinReadsWithVariants.join(markedFilteredReadsForBQSR, localKnownSitesFilePaths);
+        JavaPairRDD<GATKRead, Iterable<GATKVariant>> readsWithVariants = JoinReadsWithVariants.join(markedFilteredReadsForBQSR, knownSites);
         final RecalibrationReport bqsrReport = BaseRecalibratorSparkFn.apply(readsWithVariants, getHeaderForReads(), referenceFileName, bqsrArgs);
 
         final Broadcast<RecalibrationReport> reportBroadcast = ctx.broadcast(bqsrReport);
@@ -217,11 +220,23 @@ public class ReadsPipelineSpark extends GATKSparkTool {
         SAMSequenceDictionary sequenceDictionary = getBestAvailableSequenceDictionary();
         final List<SimpleInterval> intervals = hasUserSuppliedIntervals() ? getIntervals() : IntervalUtils.getAllIntervalsForReference(sequenceDictionary);
 
-        List<ShardBoundary> intervalShards = intervals.stream()
-                .flatMap(interval -> Shard.divideIntervalIntoShards(interval, shardingArgs.readShardSize, shardingArgs.readShardPadding, sequenceDictionary).stream())
-                .collect(Collectors.toList());
+        final List<ShardBoundary> intervalShards;
+        if (shardingArgs.adaptiveReadShards) {
+            // the reads are sampled to size the shards before HaplotypeCaller reads them again, so keep them
+            // rather than running the whole pipeline up to this point twice
+            filteredReadsForHC.persist(StorageLevel.MEMORY_AND_DISK_SER());
+            intervalShards = SparkSharder.adaptiveShardBoundaries(filteredReadsForHC, intervals, shardingArgs.readShardSize, shardingArgs.readShardPadding,
+                    shardingArgs.adaptiveReadShardSampleFraction, sequenceDictionary);
+        } else {
+            intervalShards = intervals.stream()
+                    .flatMap(interval -> Shard.divideIntervalIntoShards(interval, shardingArgs.readShardSize, shardingArgs.readShardPadding, sequenceDictionary).stream())
+                    .collect(Collectors.toList());
+        }
 
         HaplotypeCallerSpark.callVariantsWithHaplotypeCallerAndWriteOutput(ctx, filteredReadsForHC, readsHeader, sequenceDictionary, referenceArguments.getReferenceFileName(), intervalShards, hcArgs, shardingArgs, assemblyRegionArgs, output, makeVariantAnnotations(), logger, strict, createOutputVariantIndex);
+        if (shardingArgs.adaptiveReadShards) {
+            filteredReadsForHC.unpersist();
+        }
 
         if (bwaEngine != null) {
             bwaEngine.close();
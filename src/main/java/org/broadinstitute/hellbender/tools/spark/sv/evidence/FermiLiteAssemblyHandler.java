@@ -4,7 +4,7 @@ import com.google.common.annotations.VisibleForTesting;
 import htsjdk.samtools.util.SequenceUtil;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.*;
-import org.broadinstitute.hellbender.tools.spark.utils.HopscotchMultiMapSpark;
+import org.broadinstitute.hellbender.tools.spark.utils.LongHopscotchMultiMap;
 import org.broadinstitute.hellbender.utils.BaseUtils;
 import org.broadinstitute.hellbender.utils.bwa.BwaMemAligner;
 import org.broadinstitute.hellbender.utils.bwa.BwaMemAlignment;
@@ -128,7 +128,7 @@ public final class FermiLiteAssemblyHandler implements FindBreakpointEvidenceSpa
 
         // make a map of assembled kmers
         final int capacity = assembly.getContigs().stream().mapToInt(tig -> tig.getSequence().length - kmerSize + 1).sum();
-        final HopscotchMultiMapSpark<SVKmerShort, ContigLocation, KmerLocation> kmerMap = new HopscotchMultiMapSpark<>(capacity);
+        final LongHopscotchMultiMap<ContigLocation> kmerMap = new LongHopscotchMultiMap<>(capacity);
         assembly.getContigs().forEach(tig -> {
             int contigOffset = 0;
             final Iterator<SVKmer> contigKmerItr = new SVKmerizer(tig.getSequence(), kmerSize, new SVKmerShort());
@@ -136,7 +136,7 @@ public final class FermiLiteAssemblyHandler implements FindBreakpointEvidenceSpa
                 final SVKmerShort kmer = (SVKmerShort)contigKmerItr.next();
                 final SVKmerShort canonicalKmer = kmer.canonical(kmerSize);
                 final ContigLocation location = new ContigLocation(tig, contigOffset++, kmer.equals(canonicalKmer));
-                kmerMap.add(new KmerLocation(canonicalKmer, location));
+                kmerMap.add(canonicalKmer.getLong(), location);
             }
         });
 
@@ -158,9 +158,9 @@ public final class FermiLiteAssemblyHandler implements FindBreakpointEvidenceSpa
                 final SVKmerShort contigKmer = (SVKmerShort)contigKmerItr.next();
                 final SVKmerShort canonicalContigKmer = contigKmer.canonical(kmerSize);
                 final boolean contigKmerIsCanonical = contigKmer.equals(canonicalContigKmer);
-                final Iterator<KmerLocation> locItr = kmerMap.findEach(canonicalContigKmer);
+                final Iterator<ContigLocation> locItr = kmerMap.findEach(canonicalContigKmer.getLong());
                 while ( locItr.hasNext() ) {
-                    final ContigLocation tig2Location = locItr.next().getLocation();
+                    final ContigLocation tig2Location = locItr.next();
                     final Contig tig2 = tig2Location.getContig();
                     if ( tig == tig2 || contigsToRemove.contains(tig2) ) continue;
                     // having found a kmer that matches between two contigs, and knowing the offsets of those kmers, we'll
@@ -490,25 +490,6 @@ public final class FermiLiteAssemblyHandler implements FindBreakpointEvidenceSpa
         }
     }
 
-    // map entry for maps of kmers onto contig locations
-    private static final class KmerLocation implements Map.Entry<SVKmerShort, ContigLocation> {
-        private final SVKmerShort kmer;
-        private final ContigLocation location;
-
-        public KmerLocation( final SVKmerShort kmer, final ContigLocation location ) {
-            this.kmer = kmer;
-            this.location = location;
-        }
-
-        public SVKmerShort getKmer() { return kmer; }
-        public ContigLocation getLocation() { return location; }
-        @Override public SVKmerShort getKey() { return kmer; }
-        @Override public ContigLocation getValue() { return location; }
-        @Override public ContigLocation setValue(final ContigLocation value ) {
-            throw new UnsupportedOperationException("KmerLocation is immutable");
-        }
-    }
-
     // contig + strand info.
     private static final class ContigStrand {
         private final Contig contig;
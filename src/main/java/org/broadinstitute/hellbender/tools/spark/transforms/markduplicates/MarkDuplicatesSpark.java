@@ -227,41 +227,8 @@ public final class MarkDuplicatesSpark extends GATKSparkTool {
                 });
 
             return Utils.stream(readsIter)
-                    .peek(read -> read.setIsDuplicate(false))
-                    .peek(read -> read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, (String) null))
-                    .peek(read -> {
-                        // Handle reads that have been marked as non-duplicates (which also get tagged with optical duplicate summary statistics)
-                        if (namesOfNonDuplicateReadsAndOpticalCounts.containsKey(read.getName())) {
-                            // If its an optical duplicate, mark it. (Note: we only expect these to exist if optical duplicate marking is on)
-                            if (namesOfNonDuplicateReadsAndOpticalCounts.get(read.getName()) == OPTICAL_DUPLICATE_MARKER) {
-                                read.setIsDuplicate(true);
-                                read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_SEQUENCING);
-
-                            // Otherwise treat it normally as a non-duplicate.
-                            } else {
-                                read.setIsDuplicate(false);
-                                if (markUnmappedMates || !read.isUnmapped()) {
-                                    int dupCount = namesOfNonDuplicateReadsAndOpticalCounts.replace(read.getName(), NO_OPTICAL_MARKER);
-                                    if (dupCount > -1) {
-                                        read.setTransientAttribute(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME, dupCount);
-                                    }
-                                }
-                            }
-                            // Mark unmapped read pairs as non-duplicates
-                        } else if (ReadUtils.readAndMateAreUnmapped(read)) {
-                            read.setIsDuplicate(false);
-                            // Everything else is a duplicate
-                        } else {
-                            if (markUnmappedMates || !read.isUnmapped()) {
-                                read.setIsDuplicate(true);
-                                if (taggingPolicy == MarkDuplicates.DuplicateTaggingPolicy.All) {
-                                    read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_LIBRARY);
-                                }
-                            } else {
-                                read.setIsDuplicate(false);
-                            }
-                        }
-                    }).iterator();
+                    .peek(read -> MarkDuplicatesSparkUtils.markRead(read, namesOfNonDuplicateReadsAndOpticalCounts, markUnmappedMates, taggingPolicy))
+                    .iterator();
         });
     }
 
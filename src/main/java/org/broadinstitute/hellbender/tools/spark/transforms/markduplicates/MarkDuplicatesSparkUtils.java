@@ -7,6 +7,7 @@ import com.google.common.collect.*;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.metrics.MetricsFile;
+import org.apache.spark.Partitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
@@ -24,6 +25,7 @@ import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.read.markduplicates.*;
 import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.*;
 import org.broadinstitute.hellbender.utils.spark.SparkUtils;
+import picard.sam.markduplicates.MarkDuplicates;
 import picard.sam.markduplicates.util.OpticalDuplicateFinder;
 import picard.sam.markduplicates.util.ReadEnds;
 import scala.Tuple2;
@@ -87,8 +89,7 @@ public class MarkDuplicatesSparkUtils {
             return index;
         }
 
-        @VisibleForTesting
-        IndexPair(T value, int index) {
+        public IndexPair(T value, int index) {
             this.value = value;
             this.index = index;
         }
@@ -110,8 +111,9 @@ public class MarkDuplicatesSparkUtils {
      *   (c) Label each read with alignment information: Library, reference index,
      *       stranded unclipped start and reverse strand.
      *   (d) Unmapped Pairs, Templates of entirely non-primary reads, etc are passed through as unmarked reads
-     * (4) GroupByKey: Group MarkDuplicatesSparkRecord that share alignment information. These pairs
-     *     are duplicates of each other.
+     * (4) Group MarkDuplicatesSparkRecord that share alignment information. These pairs
+     *     are duplicates of each other. The records and their keys are shuffled in the binary encoding
+     *     of {@link MarkDuplicatesSparkRecordCodec} and grouped by sorting the encoded keys.
      * (5) markDuplicatePairs:
      *   (a) For each group created by (4), sort the pairs by score and mark all but the
      *       highest scoring as duplicates.
@@ -126,78 +128,99 @@ public class MarkDuplicatesSparkUtils {
         final Broadcast<Map<String, Short>> headerReadGroupIndexMap = JavaSparkContext.fromSparkContext(reads.context()).broadcast( getHeaderReadGroupIndexMap(header));
         final Broadcast<Map<String, Byte>> libraryIndex = JavaSparkContext.fromSparkContext(reads.context()).broadcast( constructLibraryIndex(header));
 
-        // Place all the reads into a single RDD of MarkDuplicatesSparkRecord objects
-        final JavaPairRDD<ReadsKey, MarkDuplicatesSparkRecord> pairedEnds = keyedReads.flatMapToPair(keyedRead -> {
-            final List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>> out = Lists.newArrayList();
-            final IndexPair<?>[] hadNonPrimaryRead = {null};
-
-            final List<IndexPair<GATKRead>> primaryReads = Utils.stream(keyedRead._2())
-                    ////// Making The Fragments //////
-                    // Make a PairedEnd object with no second read for each fragment (and an empty one for each paired read)
-                    .peek(readWithIndex -> {
-                        final GATKRead read = readWithIndex.getValue();
-                        if (!(read.isSecondaryAlignment()||read.isSupplementaryAlignment())) {
-                            PairedEnds fragment = (ReadUtils.readHasMappedMate(read)) ?
-                                    MarkDuplicatesSparkRecord.newEmptyFragment(read, header, libraryIndex.getValue(), mdArgs) :
-                                    MarkDuplicatesSparkRecord.newFragment(read, header, readWithIndex.getIndex(), scoringStrategy, libraryIndex.getValue(), mdArgs);
-
-                            out.add(new Tuple2<>(fragment.key(), fragment));
-                        } else {
-                            hadNonPrimaryRead[0] = readWithIndex;
-                        }
-                    })
-                    .filter(indexPair -> !(indexPair.getValue().isSecondaryAlignment()||indexPair.getValue().isSupplementaryAlignment()))
-                    .collect(Collectors.toList());
-
-            // Catching the case where there are only secondary and supplementary reads in the readname group
-            if (primaryReads.isEmpty()) {
-                final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough((GATKRead)hadNonPrimaryRead[0].getValue(), hadNonPrimaryRead[0].getIndex());
-                out.add(new Tuple2<>(pass.key(), pass));
-                return out.iterator();
-
-                // Mark duplicates cant properly handle templates with more than two reads in a pair
-            } else if (primaryReads.size()>2) {
-                throw new UserException.UnimplementedFeature(String.format("MarkDuplicatesSpark only supports singleton fragments and pairs. We found the following group with >2 primary reads: ( %d number of reads)." +
-                        " \n%s.", primaryReads.size(), primaryReads.stream().map(Object::toString).collect(Collectors.joining("\n"))));
-            }
+        // Place all the reads into a single RDD of MarkDuplicatesSparkRecord objects, encoded as byte arrays so that the
+        // shuffle moves fixed-width keys and compact records rather than Kryo-serialized object graphs
+        final JavaPairRDD<byte[], byte[]> pairedEnds = keyedReads.flatMapToPair(keyedRead ->
+                createRecordsForReadNameGroup(keyedRead._2(), header, scoringStrategy, headerReadGroupIndexMap.getValue(), libraryIndex.getValue(), mdArgs)
+                        .stream()
+                        .map(record -> new Tuple2<>(MarkDuplicatesSparkRecordCodec.encodeKey(record.key()), MarkDuplicatesSparkRecordCodec.encode(record)))
+                        .iterator());
 
-            ////// Making The Paired Reads //////
-            // Write each paired read with a mapped mate as a pair
-            final List<IndexPair<GATKRead>> mappedPair = primaryReads.stream()
-                    .filter(readWithIndex -> ReadUtils.readHasMappedMate(readWithIndex.getValue()))
-                    .collect(Collectors.toList());
-
-            // If there are two primary reads in the group pass them as a pair
-            if (mappedPair.size()==2) {
-                final GATKRead firstRead = mappedPair.get(0).getValue();
-                final IndexPair<GATKRead> secondRead = mappedPair.get(1);
-                final Pair pair = MarkDuplicatesSparkRecord.newPair(firstRead, secondRead.getValue(), header, secondRead.getIndex(), scoringStrategy, libraryIndex.getValue());
-                // Validate and add the read group to the pair
-                final Short readGroup = headerReadGroupIndexMap.getValue().get(firstRead.getReadGroup());
-                if (readGroup != null) {
-                    pair.setReadGroup(readGroup);
-                } else {
-                    throw (firstRead.getReadGroup()==null) ?
-                            new UserException.ReadMissingReadGroup(firstRead) :
-                            new UserException.HeaderMissingReadGroup(firstRead);
-                }
-                out.add(new Tuple2<>(pair.key(), pair));
+        // Sorting by the encoded keys within each partition brings the records sharing a key together
+        final JavaPairRDD<byte[], byte[]> sortedPairedEnds = pairedEnds.repartitionAndSortWithinPartitions(
+                new EncodedKeyPartitioner(pairedEnds.getNumPartitions()), EncodedKeyComparator.INSTANCE);
 
-                // If there is one paired read in the template this probably means the bam is missing its mate, don't duplicate mark it
-            } else if (mappedPair.size()==1) {
-                final IndexPair<GATKRead> firstRead = mappedPair.get(0);
-                final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough(firstRead.getValue(), firstRead.getIndex());
-                out.add(new Tuple2<>(pass.key(), pass));
-            }
-            // If mappedPair is empty here, it probably means that we had a fragment with an unmapped mate, which has already been built
-            // and added to out. So we just pass through and return.
+        return markDuplicateRecords(sortedPairedEnds, finder, markOpticalDups, mdArgs.FLOW_END_LOCATION_SIGNIFICANT, mdArgs.ENDS_READ_UNCERTAINTY);
+    }
 
-            return out.iterator();
-        });
+    /**
+     * Makes the MarkDuplicatesSparkRecords for a group of reads sharing the same read name (steps (3a) to (3d) of
+     * {@link #transformToDuplicateNames}).
+     *
+     * @param readNameGroup mapped reads with the same name, each with the index to be reported for the records it contributes to
+     * @param readGroupIndexMap read group indices, as returned by {@link #getHeaderReadGroupIndexMap}
+     * @param libraryIndex library indices, as returned by {@link #constructLibraryIndex}
+     * @return the records for the group; their keys are only valid until they are serialized.
+     */
+    public static List<MarkDuplicatesSparkRecord> createRecordsForReadNameGroup(final Iterable<IndexPair<GATKRead>> readNameGroup,
+                                                                              final SAMFileHeader header,
+                                                                              final MarkDuplicatesScoringStrategy scoringStrategy,
+                                                                              final Map<String, Short> readGroupIndexMap,
+                                                                              final Map<String, Byte> libraryIndex,
+                                                                              final MarkDuplicatesSparkArgumentCollection mdArgs) {
+        final List<MarkDuplicatesSparkRecord> out = Lists.newArrayList();
+        final IndexPair<?>[] hadNonPrimaryRead = {null};
+
+        final List<IndexPair<GATKRead>> primaryReads = Utils.stream(readNameGroup)
+                ////// Making The Fragments //////
+                // Make a PairedEnd object with no second read for each fragment (and an empty one for each paired read)
+                .peek(readWithIndex -> {
+                    final GATKRead read = readWithIndex.getValue();
+                    if (!(read.isSecondaryAlignment()||read.isSupplementaryAlignment())) {
+                        PairedEnds fragment = (ReadUtils.readHasMappedMate(read)) ?
+                                MarkDuplicatesSparkRecord.newEmptyFragment(read, header, libraryIndex, mdArgs) :
+                                MarkDuplicatesSparkRecord.newFragment(read, header, readWithIndex.getIndex(), scoringStrategy, libraryIndex, mdArgs);
+
+                        out.add(fragment);
+                    } else {
+                        hadNonPrimaryRead[0] = readWithIndex;
+                    }
+                })
+                .filter(indexPair -> !(indexPair.getValue().isSecondaryAlignment()||indexPair.getValue().isSupplementaryAlignment()))
+                .collect(Collectors.toList());
+
+        // Catching the case where there are only secondary and supplementary reads in the readname group
+        if (primaryReads.isEmpty()) {
+            out.add(MarkDuplicatesSparkRecord.getPassthrough((GATKRead)hadNonPrimaryRead[0].getValue(), hadNonPrimaryRead[0].getIndex()));
+            return out;
+
+            // Mark duplicates cant properly handle templates with more than two reads in a pair
+        } else if (primaryReads.size()>2) {
+            throw new UserException.UnimplementedFeature(String.format("MarkDuplicatesSpark only supports singleton fragments and pairs. We found the following group with >2 primary reads: ( %d number of reads)." +
+                    " \n%s.", primaryReads.size(), primaryReads.stream().map(Object::toString).collect(Collectors.joining("\n"))));
+        }
+
+        ////// Making The Paired Reads //////
+        // Write each paired read with a mapped mate as a pair
+        final List<IndexPair<GATKRead>> mappedPair = primaryReads.stream()
+                .filter(readWithIndex -> ReadUtils.readHasMappedMate(readWithIndex.getValue()))
+                .collect(Collectors.toList());
 
-        final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs = pairedEnds.groupByKey(); //TODO evaluate replacing this with a smart aggregate by key.
+        // If there are two primary reads in the group pass them as a pair
+        if (mappedPair.size()==2) {
+            final GATKRead firstRead = mappedPair.get(0).getValue();
+            final IndexPair<GATKRead> secondRead = mappedPair.get(1);
+            final Pair pair = MarkDuplicatesSparkRecord.newPair(firstRead, secondRead.getValue(), header, secondRead.getIndex(), scoringStrategy, libraryIndex);
+            // Validate and add the read group to the pair
+            final Short readGroup = readGroupIndexMap.get(firstRead.getReadGroup());
+            if (readGroup != null) {
+                pair.setReadGroup(readGroup);
+            } else {
+                throw (firstRead.getReadGroup()==null) ?
+                        new UserException.ReadMissingReadGroup(firstRead) :
+                        new UserException.HeaderMissingReadGroup(firstRead);
+            }
+            out.add(pair);
+
+            // If there is one paired read in the template this probably means the bam is missing its mate, don't duplicate mark it
+        } else if (mappedPair.size()==1) {
+            final IndexPair<GATKRead> firstRead = mappedPair.get(0);
+            out.add(MarkDuplicatesSparkRecord.getPassthrough(firstRead.getValue(), firstRead.getIndex()));
+        }
+        // If mappedPair is empty here, it probably means that we had a fragment with an unmapped mate, which has already been built
+        // and added to out. So we just pass through and return.
 
-        return markDuplicateRecords(keyedPairs, finder, markOpticalDups, mdArgs.FLOW_END_LOCATION_SIGNIFICANT, mdArgs.ENDS_READ_UNCERTAINTY);
+        return out;
     }
 
     /**
@@ -219,7 +242,7 @@ public class MarkDuplicatesSparkUtils {
     /**
      * Method which generates a map of the readgroups from the header so they can be serialized as indexes
      */
-    private static Map<String, Short> getHeaderReadGroupIndexMap(final SAMFileHeader header) {
+    public static Map<String, Short> getHeaderReadGroupIndexMap(final SAMFileHeader header) {
         final List<SAMReadGroupRecord> readGroups = header.getReadGroups();
         if (readGroups.size() > 65535) {
             throw new GATKException("Detected too many read groups in the header, currently MarkDuplicatesSpark only supports up to 65535 unique readgroup IDs but " + readGroups.size() + " were found");
@@ -285,44 +308,70 @@ public class MarkDuplicatesSparkUtils {
      *  - Farms out to methods which handles each group
      *  - Collects the results and returns an iterator
      */
-    @SuppressWarnings("unchecked")
-    private static JavaPairRDD<IndexPair<String>, Integer> markDuplicateRecords(final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs,
+    private static JavaPairRDD<IndexPair<String>, Integer> markDuplicateRecords(final JavaPairRDD<byte[], byte[]> sortedEncodedPairs,
                                                                                 final OpticalDuplicateFinder finder, final boolean markOpticalDups,
                                                                                 final boolean handleFragmentEnds, final int flowEndUncert) {
-        return keyedPairs.flatMapToPair(keyedPair -> {
-            Iterable<MarkDuplicatesSparkRecord> pairGroups = keyedPair._2();
-
-            final List<Tuple2<IndexPair<String>, Integer>> nonDuplicates = Lists.newArrayList();
-            final Map<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> stratifiedByType = splitByType(pairGroups);
-
-            // Each key corresponds to either fragments or paired ends, not a mixture of both.
-            final List<MarkDuplicatesSparkRecord> emptyFragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.EMPTY_FRAGMENT);
-            final List<MarkDuplicatesSparkRecord> fragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.FRAGMENT);
-            final List<Pair> pairs = (List<Pair>)(List)stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PAIR);
-            final List<MarkDuplicatesSparkRecord> passthroughs = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PASSTHROUGH);
-
-            //empty MarkDuplicatesSparkRecord signify that a pair has a mate somewhere else
-            // If there are any non-fragment placeholders at this site, mark everything as duplicates, otherwise compute the best score
-            if (Utils.isNonEmpty(fragments) && !Utils.isNonEmpty(emptyFragments)) {
-                if ( !handleFragmentEnds ) {
-                    final Tuple2<IndexPair<String>, Integer> bestFragment = handleFragments(fragments, finder);
-                    nonDuplicates.add(bestFragment);
-                } else {
-                    nonDuplicates.addAll(handleFragmentsWithEndPosition(fragments, finder, flowEndUncert));
+        return sortedEncodedPairs.mapPartitionsToPair(encodedPairs -> {
+            final PeekingIterator<Tuple2<byte[], byte[]>> iter = Iterators.peekingIterator(encodedPairs);
+            return Utils.stream(new AbstractIterator<List<MarkDuplicatesSparkRecord>>() {
+                @Override
+                protected List<MarkDuplicatesSparkRecord> computeNext() {
+                    if (!iter.hasNext()) {
+                        return endOfData();
+                    }
+                    final Tuple2<byte[], byte[]> first = iter.next();
+                    final List<MarkDuplicatesSparkRecord> group = Lists.newArrayList(MarkDuplicatesSparkRecordCodec.decode(first._2()));
+                    while (iter.hasNext() && MarkDuplicatesSparkRecordCodec.compareKeys(iter.peek()._1(), first._1()) == 0) {
+                        group.add(MarkDuplicatesSparkRecordCodec.decode(iter.next()._2()));
+                    }
+                    return group;
                 }
+            }).flatMap(group -> markDuplicateGroup(group, finder, markOpticalDups, handleFragmentEnds, flowEndUncert).stream())
+                    .iterator();
+        });
+    }
 
+    /**
+     * Marks a group of MarkDuplicatesSparkRecords that share the same key (step (5) of {@link #transformToDuplicateNames}).
+     *
+     * @return the names and indices of the non-duplicates in the group, each with its number of optical duplicates (or one of
+     *         {@link MarkDuplicatesSpark#NO_OPTICAL_MARKER} and {@link MarkDuplicatesSpark#OPTICAL_DUPLICATE_MARKER}).
+     *         The records in the group that are not reported are duplicates.
+     */
+    @SuppressWarnings("unchecked")
+    public static List<Tuple2<IndexPair<String>, Integer>> markDuplicateGroup(final Iterable<MarkDuplicatesSparkRecord> pairGroups,
+                                                                             final OpticalDuplicateFinder finder, final boolean markOpticalDups,
+                                                                             final boolean handleFragmentEnds, final int flowEndUncert) {
+        final List<Tuple2<IndexPair<String>, Integer>> nonDuplicates = Lists.newArrayList();
+        final Map<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> stratifiedByType = splitByType(pairGroups);
+
+        // Each key corresponds to either fragments or paired ends, not a mixture of both.
+        final List<MarkDuplicatesSparkRecord> emptyFragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.EMPTY_FRAGMENT);
+        final List<MarkDuplicatesSparkRecord> fragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.FRAGMENT);
+        final List<Pair> pairs = (List<Pair>)(List)stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PAIR);
+        final List<MarkDuplicatesSparkRecord> passthroughs = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PASSTHROUGH);
+
+        //empty MarkDuplicatesSparkRecord signify that a pair has a mate somewhere else
+        // If there are any non-fragment placeholders at this site, mark everything as duplicates, otherwise compute the best score
+        if (Utils.isNonEmpty(fragments) && !Utils.isNonEmpty(emptyFragments)) {
+            if ( !handleFragmentEnds ) {
+                final Tuple2<IndexPair<String>, Integer> bestFragment = handleFragments(fragments, finder);
+                nonDuplicates.add(bestFragment);
+            } else {
+                nonDuplicates.addAll(handleFragmentsWithEndPosition(fragments, finder, flowEndUncert));
             }
 
-            if (Utils.isNonEmpty(pairs)) {
-                nonDuplicates.addAll(handlePairs(pairs, finder, markOpticalDups));
-            }
+        }
 
-            if (Utils.isNonEmpty(passthroughs)) {
-                nonDuplicates.addAll(handlePassthroughs(passthroughs));
-            }
+        if (Utils.isNonEmpty(pairs)) {
+            nonDuplicates.addAll(handlePairs(pairs, finder, markOpticalDups));
+        }
 
-            return nonDuplicates.iterator();
-        });
+        if (Utils.isNonEmpty(passthroughs)) {
+            nonDuplicates.addAll(handlePassthroughs(passthroughs));
+        }
+
+        return nonDuplicates;
     }
 
     /**
@@ -493,7 +542,58 @@ public class MarkDuplicatesSparkUtils {
                 .orElse(null);
     }
 
-    static JavaPairRDD<String, GATKDuplicationMetrics> generateMetrics(final SAMFileHeader header, final JavaRDD<GATKRead> reads) {
+    /**
+     * Sets the duplicate flag (and, depending on the tagging policy, the duplicate type tag) of a read, given the names of
+     * the non-duplicate templates in its partition.
+     *
+     * @param namesOfNonDuplicateReadsAndOpticalCounts the non-duplicate names, each with its number of optical duplicates or
+     *                                                 one of {@link MarkDuplicatesSpark#NO_OPTICAL_MARKER} and
+     *                                                 {@link MarkDuplicatesSpark#OPTICAL_DUPLICATE_MARKER}.  The optical duplicate
+     *                                                 count of a name is replaced by {@link MarkDuplicatesSpark#NO_OPTICAL_MARKER}
+     *                                                 once it has been attached to one of the template's reads.
+     * @param markUnmappedMates whether the unmapped mates of duplicates are marked as duplicates
+     * @param taggingPolicy determines whether optical duplicates and library duplicates are labeled with the "DT" tag
+     */
+    public static void markRead(final GATKRead read, final Map<String, Integer> namesOfNonDuplicateReadsAndOpticalCounts,
+                                final boolean markUnmappedMates, final MarkDuplicates.DuplicateTaggingPolicy taggingPolicy) {
+        read.setIsDuplicate(false);
+        read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, (String) null);
+        // Handle reads that have been marked as non-duplicates (which also get tagged with optical duplicate summary statistics)
+        final Integer nonDuplicateMarker = namesOfNonDuplicateReadsAndOpticalCounts.get(read.getName());
+        if (nonDuplicateMarker != null) {
+            // If its an optical duplicate, mark it. (Note: we only expect these to exist if optical duplicate marking is on)
+            if (nonDuplicateMarker == MarkDuplicatesSpark.OPTICAL_DUPLICATE_MARKER) {
+                read.setIsDuplicate(true);
+                read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_SEQUENCING);
+
+            // Otherwise treat it normally as a non-duplicate.
+            } else {
+                read.setIsDuplicate(false);
+                if (markUnmappedMates || !read.isUnmapped()) {
+                    int dupCount = namesOfNonDuplicateReadsAndOpticalCounts.replace(read.getName(), MarkDuplicatesSpark.NO_OPTICAL_MARKER);
+                    if (dupCount > -1) {
+                        read.setTransientAttribute(OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME, dupCount);
+                    }
+                }
+            }
+            // Mark unmapped read pairs as non-duplicates
+        } else if (ReadUtils.readAndMateAreUnmapped(read)) {
+            read.setIsDuplicate(false);
+            // Everything else is a duplicate
+        } else {
+            if (markUnmappedMates || !read.isUnmapped()) {
+                read.setIsDuplicate(true);
+                if (taggingPolicy == MarkDuplicates.DuplicateTaggingPolicy.All) {
+                    read.setAttribute(MarkDuplicates.DUPLICATE_TYPE_TAG, MarkDuplicates.DUPLICATE_TYPE_LIBRARY);
+                }
+            } else {
+                read.setIsDuplicate(false);
+            }
+        }
+    }
+
+    @VisibleForTesting
+    public static JavaPairRDD<String, GATKDuplicationMetrics> generateMetrics(final SAMFileHeader header, final JavaRDD<GATKRead> reads) {
         return reads.mapToPair(read -> {
                     final String library = LibraryIdGenerator.getLibraryName(header, read.getReadGroup());
                     GATKDuplicationMetrics metrics = new GATKDuplicationMetrics();
@@ -516,19 +616,25 @@ public class MarkDuplicatesSparkUtils {
                     }
                     return metricsSum;
                 })
-                .mapValues(metrics -> {
-                    final GATKDuplicationMetrics copy = metrics.copy();
-                    // Divide these by 2 because they are counted for each read
-                    // when they should be counted by pair.
-                    copy.READ_PAIRS_EXAMINED = metrics.READ_PAIRS_EXAMINED / 2;
-                    copy.READ_PAIR_DUPLICATES = metrics.READ_PAIR_DUPLICATES / 2;
-
-                    copy.calculateDerivedFields();
-                    if (copy.ESTIMATED_LIBRARY_SIZE == null) {
-                        copy.ESTIMATED_LIBRARY_SIZE = 0L;
-                    }
-                    return copy;
-                });
+                .mapValues(MarkDuplicatesSparkUtils::finalizeMetrics);
+    }
+
+    /**
+     * @param metrics the metrics of a library, summed over all of its reads
+     * @return a copy of the metrics with the pair counts and derived fields computed
+     */
+    public static GATKDuplicationMetrics finalizeMetrics(final GATKDuplicationMetrics metrics) {
+        final GATKDuplicationMetrics copy = metrics.copy();
+        // Divide these by 2 because they are counted for each read
+        // when they should be counted by pair.
+        copy.READ_PAIRS_EXAMINED = metrics.READ_PAIRS_EXAMINED / 2;
+        copy.READ_PAIR_DUPLICATES = metrics.READ_PAIR_DUPLICATES / 2;
+
+        copy.calculateDerivedFields();
+        if (copy.ESTIMATED_LIBRARY_SIZE == null) {
+            copy.ESTIMATED_LIBRARY_SIZE = 0L;
+        }
+        return copy;
     }
 
     /**
@@ -537,9 +643,18 @@ public class MarkDuplicatesSparkUtils {
      * @param result metrics object, potentially pre-initialized with headers,
      */
     public static void saveMetricsRDD(final MetricsFile<GATKDuplicationMetrics, Double> result, final SAMFileHeader header, final JavaPairRDD<String, GATKDuplicationMetrics> metricsRDD, final String metricsOutputPath) {
+        saveMetrics(result, header, metricsRDD.collectAsMap(), metricsOutputPath);
+    }
+
+    /**
+     * Saves the metrics to a file.
+     * Note: the SamFileHeader is needed in order to include libraries that didn't have any duplicates.
+     * @param result metrics object, potentially pre-initialized with headers,
+     * @param nonEmptyMetricsByLibrary the finalized metrics of each library with reads (see {@link #finalizeMetrics})
+     */
+    public static void saveMetrics(final MetricsFile<GATKDuplicationMetrics, Double> result, final SAMFileHeader header, final Map<String, GATKDuplicationMetrics> nonEmptyMetricsByLibrary, final String metricsOutputPath) {
         final LibraryIdGenerator libraryIdGenerator = new LibraryIdGenerator(header);
 
-        final Map<String, GATKDuplicationMetrics> nonEmptyMetricsByLibrary = metricsRDD.collectAsMap();           //Unknown Library
         final Map<String, GATKDuplicationMetrics> emptyMapByLibrary = libraryIdGenerator.getMetricsByLibraryMap();//with null
 
         final List<String> sortedListOfLibraryNames = new ArrayList<>(Sets.union(emptyMapByLibrary.keySet(), nonEmptyMetricsByLibrary.keySet()));
@@ -559,6 +674,54 @@ public class MarkDuplicatesSparkUtils {
         MetricsUtils.saveMetrics(result, metricsOutputPath);
     }
 
+    /**
+     * Partitions the encoded keys of {@link MarkDuplicatesSparkRecordCodec} by their hash (the default {@link org.apache.spark.HashPartitioner}
+     * cannot partition array keys).
+     */
+    private static final class EncodedKeyPartitioner extends Partitioner {
+        private static final long serialVersionUID = 1L;
+        private final int numPartitions;
+
+        EncodedKeyPartitioner(final int numPartitions) {
+            this.numPartitions = numPartitions;
+        }
+
+        @Override
+        public int numPartitions() {
+            return numPartitions;
+        }
+
+        @Override
+        public int getPartition(final Object key) {
+            return Math.floorMod(MarkDuplicatesSparkRecordCodec.hashKey((byte[]) key), numPartitions);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof EncodedKeyPartitioner && ((EncodedKeyPartitioner) o).numPartitions == numPartitions;
+        }
+
+        @Override
+        public int hashCode() {
+            return numPartitions;
+        }
+    }
+
+    /**
+     * Orders the encoded keys of {@link MarkDuplicatesSparkRecordCodec} by their bytes.
+     */
+    private static final class EncodedKeyComparator implements Comparator<byte[]>, Serializable {
+        private static final long serialVersionUID = 1L;
+
+        static final EncodedKeyComparator INSTANCE = new EncodedKeyComparator();
+        private EncodedKeyComparator() { }
+
+        @Override
+        public int compare(final byte[] first, final byte[] second) {
+            return MarkDuplicatesSparkRecordCodec.compareKeys(first, second);
+        }
+    }
+
     /**
      * Comparator for TransientFieldPhysicalLocation objects by their attributes and strandedness. This comparator is intended to serve as a tiebreaker
      * for the score comparator.
@@ -0,0 +1,106 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A map from non-negative longs to (non-null) Objects that can contain multiple values for a given key.
+ * Compared to a {@link HopscotchMultiMapSpark}, it saves the boxed key and the entry object for each value.
+ */
+@DefaultSerializer(LongHopscotchMultiMap.Serializer.class)
+public final class LongHopscotchMultiMap<V> extends LongKeyHopscotchCollection<Object[]> {
+    private static final long serialVersionUID = 1L;
+
+    /** make a small LongHopscotchMultiMap */
+    public LongHopscotchMultiMap() { this(12000); }
+
+    /** make a LongHopscotchMultiMap for a specified minimum capacity */
+    public LongHopscotchMultiMap( final int capacity ) { super(capacity); }
+
+    private LongHopscotchMultiMap( final Kryo kryo, final Input input ) { super(kryo, input); }
+
+    /** adds a value for a key, whether or not the key already has values */
+    public void add( final long key, final V value ) {
+        Utils.nonNull(value, "Null values are not allowed");
+        // adding the key may resize the array of values, so it must be done before we refer to the array
+        final int bucketIndex = addKey(key, false);
+        values[bucketIndex] = value;
+    }
+
+    /** iterates over the values for a key */
+    public Iterator<V> findEach( final long key ) { return new ValueIterator(key); }
+
+    /** removes a key and all its values, and returns true if the key was present */
+    public boolean removeEach( final long key ) { return removeKey(key, true); }
+
+    public EntryIterator iterator() { return new EntryIterator(); }
+
+    @Override
+    protected Object[] newValues( final int capacity ) { return new Object[capacity]; }
+
+    @Override
+    protected void copyValue( final Object[] fromValues, final int fromIndex, final Object[] toValues, final int toIndex ) {
+        toValues[toIndex] = fromValues[fromIndex];
+    }
+
+    @Override
+    protected void clearValue( final int bucketIndex ) { values[bucketIndex] = null; }
+
+    @Override
+    protected void writeValue( final Kryo kryo, final Output output, final int bucketIndex ) {
+        kryo.writeClassAndObject(output, values[bucketIndex]);
+    }
+
+    @Override
+    protected void readValue( final Kryo kryo, final Input input, final int bucketIndex ) {
+        values[bucketIndex] = kryo.readClassAndObject(input);
+    }
+
+    /** iterates over the keys, giving access to the value of the entry most recently returned by next */
+    public final class EntryIterator extends KeyIterator {
+        @SuppressWarnings("unchecked")
+        public V getValue() { return (V)values[lastIndex()]; }
+    }
+
+    /** walks the chain of a key, returning the values of the entries that have that key */
+    private final class ValueIterator implements Iterator<V> {
+        private final long key;
+        private int bucketIndex;
+
+        ValueIterator( final long key ) {
+            this.key = key;
+            this.bucketIndex = findIndex(key);
+        }
+
+        @Override
+        public boolean hasNext() { return bucketIndex != NO_ELEMENT_INDEX; }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V next() {
+            if ( !hasNext() ) throw new NoSuchElementException("Iterator exhausted.");
+            final V value = (V)values[bucketIndex];
+            bucketIndex = nextIndexOf(key, bucketIndex);
+            return value;
+        }
+    }
+
+    @SuppressWarnings("rawtypes")
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<LongHopscotchMultiMap> {
+        @Override
+        public void write( final Kryo kryo, final Output output, final LongHopscotchMultiMap multiMap ) {
+            multiMap.serialize(kryo, output);
+        }
+
+        @Override
+        public LongHopscotchMultiMap read( final Kryo kryo, final Input input, final Class<LongHopscotchMultiMap> klass ) {
+            return new LongHopscotchMultiMap(kryo, input);
+        }
+    }
+}
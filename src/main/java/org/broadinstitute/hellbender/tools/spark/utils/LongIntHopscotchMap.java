@@ -0,0 +1,87 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+
+/**
+ * A uniquely keyed map from non-negative longs to ints with O(1) operations, that uses about 13 bytes per entry
+ * rather than the boxed key, value and entry objects of a {@link HopscotchMapSpark}.
+ */
+@DefaultSerializer(LongIntHopscotchMap.Serializer.class)
+public final class LongIntHopscotchMap extends LongKeyHopscotchCollection<int[]> {
+    private static final long serialVersionUID = 1L;
+
+    /** make a small LongIntHopscotchMap */
+    public LongIntHopscotchMap() { this(12000); }
+
+    /** make a LongIntHopscotchMap for a specified minimum capacity */
+    public LongIntHopscotchMap( final int capacity ) { super(capacity); }
+
+    private LongIntHopscotchMap( final Kryo kryo, final Input input ) { super(kryo, input); }
+
+    /** sets the value for a key, and returns true if the key wasn't already present */
+    public boolean put( final long key, final int value ) {
+        final int bucketIndex = addKey(key, true);
+        values[bucketIndex < 0 ? ~bucketIndex : bucketIndex] = value;
+        return bucketIndex >= 0;
+    }
+
+    /** returns the value for a key, or the default value if the key isn't present */
+    public int get( final long key, final int defaultValue ) {
+        final int bucketIndex = findIndex(key);
+        return bucketIndex == NO_ELEMENT_INDEX ? defaultValue : values[bucketIndex];
+    }
+
+    /** adds an amount to the value for a key (which is 0 if the key isn't present), and returns the new value */
+    public int increment( final long key, final int amount ) {
+        int bucketIndex = addKey(key, true);
+        if ( bucketIndex < 0 ) bucketIndex = ~bucketIndex;
+        return values[bucketIndex] += amount;
+    }
+
+    /** removes a key and its value, and returns true if the key was present */
+    public boolean remove( final long key ) { return removeKey(key, false); }
+
+    public EntryIterator iterator() { return new EntryIterator(); }
+
+    @Override
+    protected int[] newValues( final int capacity ) { return new int[capacity]; }
+
+    @Override
+    protected void copyValue( final int[] fromValues, final int fromIndex, final int[] toValues, final int toIndex ) {
+        toValues[toIndex] = fromValues[fromIndex];
+    }
+
+    @Override
+    protected void clearValue( final int bucketIndex ) { values[bucketIndex] = 0; }
+
+    @Override
+    protected void writeValue( final Kryo kryo, final Output output, final int bucketIndex ) {
+        output.writeInt(values[bucketIndex]);
+    }
+
+    @Override
+    protected void readValue( final Kryo kryo, final Input input, final int bucketIndex ) {
+        values[bucketIndex] = input.readInt();
+    }
+
+    /** iterates over the keys, giving access to the value of the key most recently returned by next */
+    public final class EntryIterator extends KeyIterator {
+        public int getValue() { return values[lastIndex()]; }
+        public void setValue( final int value ) { values[lastIndex()] = value; }
+    }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<LongIntHopscotchMap> {
+        @Override
+        public void write( final Kryo kryo, final Output output, final LongIntHopscotchMap map ) {
+            map.serialize(kryo, output);
+        }
+
+        @Override
+        public LongIntHopscotchMap read( final Kryo kryo, final Input input, final Class<LongIntHopscotchMap> klass ) {
+            return new LongIntHopscotchMap(kryo, input);
+        }
+    }
+}
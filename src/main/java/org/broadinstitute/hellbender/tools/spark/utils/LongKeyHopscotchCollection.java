@@ -0,0 +1,538 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.SetSizeUtils;
+
+import java.io.Serializable;
+import java.util.NoSuchElementException;
+
+/**
+ * Base class for hopscotch maps keyed by primitive longs. It uses the same collision resolution as
+ * {@link LongHopscotchSet}, but each bucket also has a value, held by subclasses in a primitive or Object array
+ * parallel to the keys, so that no entry objects need to be allocated.
+ * <p>
+ * Non-negative keys only! We set the MSB to say that a bin is not empty.
+ *
+ * @param <A> the type of the array of values
+ */
+public abstract class LongKeyHopscotchCollection<A> implements Serializable {
+    private static final long serialVersionUID = 1L;
+    protected static final int NO_ELEMENT_INDEX = -1;
+
+    private int capacity;
+    private int size;
+
+    // keys have the most significant bit set to 0 if empty and 1 otherwise (keys must be non-negative)
+    private long[] keys;
+
+    // status bytes have the same format as those of LongHopscotchSet:
+    // the high bit is set for a chain head, and the low 7 bits give the offset to the next entry in the chain
+    private byte[] status;
+
+    // values, in the bucket of their key
+    protected A values;
+
+    protected LongKeyHopscotchCollection( final int capacity ) {
+        this.capacity = SetSizeUtils.getLegalSizeAbove(capacity);
+        this.size = 0;
+        this.keys = new long[this.capacity];
+        this.status = new byte[this.capacity];
+        this.values = newValues(this.capacity);
+    }
+
+    protected LongKeyHopscotchCollection( final Kryo kryo, final Input input ) {
+        capacity = input.readInt();
+        size = 0;
+        keys = new long[capacity];
+        status = new byte[capacity];
+        values = newValues(capacity);
+
+        final boolean oldReferences = kryo.getReferences();
+        kryo.setReferences(false);
+
+        int nElements = input.readInt();
+        while ( nElements-- > 0 ) {
+            // keys were unique when written, so there's no need to check them
+            final int bucketIndex = addKey(input.readLong(), false);
+            readValue(kryo, input, bucketIndex);
+        }
+
+        kryo.setReferences(oldReferences);
+    }
+
+    /** make an array of values for a given capacity */
+    protected abstract A newValues( final int capacity );
+
+    /** copy the value in one bucket of an array of values to a bucket of another array (or of the same array) */
+    protected abstract void copyValue( final A fromValues, final int fromIndex, final A toValues, final int toIndex );
+
+    /** release the value in a bucket */
+    protected abstract void clearValue( final int bucketIndex );
+
+    protected abstract void writeValue( final Kryo kryo, final Output output, final int bucketIndex );
+
+    protected abstract void readValue( final Kryo kryo, final Input input, final int bucketIndex );
+
+    protected void serialize( final Kryo kryo, final Output output ) {
+        final boolean oldReferences = kryo.getReferences();
+        kryo.setReferences(false);
+
+        output.writeInt(capacity);
+        output.writeInt(size);
+
+        // write the chain heads, and then the squatters
+        int count = 0;
+        for ( int idx = 0; idx != capacity; ++idx ) {
+            if ( isChainHead(idx) ) {
+                output.writeLong(getKey(keys[idx]));
+                writeValue(kryo, output, idx);
+                count += 1;
+            }
+        }
+        for ( int idx = 0; idx != capacity; ++idx ) {
+            if ( !isUnusedKey(keys[idx]) && !isChainHead(idx) ) {
+                output.writeLong(getKey(keys[idx]));
+                writeValue(kryo, output, idx);
+                count += 1;
+            }
+        }
+
+        kryo.setReferences(oldReferences);
+
+        if ( count != size ) {
+            throw new IllegalStateException("Failed to serialize the expected number of objects: expected=" + size + " actual=" + count + ".");
+        }
+    }
+
+    /** maximum number of entries that can be held without resizing. (but we may have to resize earlier.) */
+    public final int capacity() { return capacity; }
+
+    public final int size() { return size; }
+
+    public final boolean isEmpty() { return size == 0; }
+
+    public final void clear() {
+        for ( int idx = 0; idx != capacity; ++idx ) {
+            if ( !isUnusedKey(keys[idx]) ) clearValue(idx);
+            keys[idx] = 0;
+            status[idx] = 0;
+        }
+        size = 0;
+    }
+
+    public final boolean containsKey( final long key ) {
+        return findIndex(key) != NO_ELEMENT_INDEX;
+    }
+
+    /** iterates over the keys (in a multimap, a key is returned once for each of its values) */
+    public LongIterator keyIterator() { return new KeyIterator(); }
+
+    // -------- methods for subclasses ----------
+
+    /** returns the bucket of the first entry for a key, or NO_ELEMENT_INDEX if there is none */
+    protected final int findIndex( final long key ) {
+        int bucketIndex = hashToIndex(LongHopscotchSet.longHash(key));
+        if ( !isChainHead(bucketIndex) ) return NO_ELEMENT_INDEX;
+        if ( getKey(keys[bucketIndex]) == key ) return bucketIndex;
+        return nextIndexOf(key, bucketIndex);
+    }
+
+    /** returns the bucket of the next entry in the chain that has the same key, or NO_ELEMENT_INDEX if there is none */
+    protected final int nextIndexOf( final long key, int bucketIndex ) {
+        int offset;
+        while ( (offset = getOffset(bucketIndex)) != 0 ) {
+            bucketIndex = getIndex(bucketIndex, offset);
+            if ( getKey(keys[bucketIndex]) == key ) return bucketIndex;
+        }
+        return NO_ELEMENT_INDEX;
+    }
+
+    /**
+     * Adds a key, and returns the bucket in which its value is to be put.
+     * If keys are unique and the key is already present, nothing is added and the bitwise complement of the bucket
+     * holding the key is returned instead (i.e., a negative number).
+     */
+    protected final int addKey( final long key, final boolean unique ) {
+        Utils.validateArg(isValidKey(key), "Tried to add negative key to a long-keyed hopscotch collection");
+        final int hashValue = LongHopscotchSet.longHash(key);
+        if ( size == capacity ) resize();
+        try {
+            return insert(key, hashValue, unique);
+        } catch ( final IllegalStateException ise ) {
+            resize();
+            return insert(key, hashValue, unique);
+        }
+    }
+
+    /** removes the first entry for a key (or each of them), and returns true if anything was removed */
+    protected final boolean removeKey( final long key, final boolean removeEach ) {
+        int bucketIndex = hashToIndex(LongHopscotchSet.longHash(key));
+        if ( !isChainHead(bucketIndex) ) return false;
+        boolean result = false;
+        int predecessorIndex = NO_ELEMENT_INDEX;
+        while ( true ) {
+            if ( getKey(keys[bucketIndex]) == key ) {
+                final boolean endOfChain = getOffset(bucketIndex) == 0;
+                removeAtIndex(bucketIndex, predecessorIndex);
+                result = true;
+                // unless it was the end of the chain, the removed entry was replaced by another one we haven't seen
+                if ( !removeEach || endOfChain ) break;
+                continue;
+            }
+            final int offset = getOffset(bucketIndex);
+            if ( offset == 0 ) break;
+            predecessorIndex = bucketIndex;
+            bucketIndex = getIndex(bucketIndex, offset);
+        }
+        return result;
+    }
+
+    // -------- internal methods ----------
+
+    /** returns the key for a given bucket entry (zeroing the bit used for declaring the bucket occupied) */
+    private static long getKey( final long entry ) {
+        return entry & Long.MAX_VALUE;
+    }
+
+    private static boolean isValidKey( final long key ) {
+        return key >= 0;
+    }
+
+    private static boolean isUnusedKey( final long entry ) {
+        return entry == 0L;
+    }
+
+    private int hashToIndex( final int hashVal ) {
+        int result = hashVal % capacity;
+        if ( result < 0 ) result += capacity;
+        return result;
+    }
+
+    private int insert( final long key, final int hashValue, final boolean unique ) {
+        final int bucketIndex = hashToIndex(hashValue);
+
+        // if there's a squatter where the new entry should go, move it elsewhere and put the entry there
+        if ( !isUnusedKey(keys[bucketIndex]) && !isChainHead(bucketIndex) ) evict(bucketIndex);
+
+        // if the place where it should go is empty, just put the new entry there
+        if ( isUnusedKey(keys[bucketIndex]) ) {
+            keys[bucketIndex] = key | Long.MIN_VALUE;
+            status[bucketIndex] = Byte.MIN_VALUE;
+            size += 1;
+            return bucketIndex;
+        }
+
+        // walk to end of chain
+        // along the way, make sure the key isn't already present if necessary
+        int endOfChainIndex = bucketIndex;
+        while ( true ) {
+            if ( unique && getKey(keys[endOfChainIndex]) == key ) return ~endOfChainIndex;
+            final int offset = getOffset(endOfChainIndex);
+            if ( offset == 0 ) break;
+            endOfChainIndex = getIndex(endOfChainIndex, offset);
+        }
+
+        // find a place for the new entry
+        final int emptyBucketIndex = insertIntoChain(bucketIndex, endOfChainIndex);
+
+        // put the new entry into the empty bucket
+        keys[emptyBucketIndex] = key | Long.MIN_VALUE;
+        size += 1;
+        return emptyBucketIndex;
+    }
+
+    private void removeAtIndex( final int bucketIndex, final int predecessorIndex ) {
+        final int offset = getOffset(bucketIndex);
+        if ( offset == 0 ) { // if end of chain
+            keys[bucketIndex] = 0;
+            clearValue(bucketIndex);
+            status[bucketIndex] = 0;
+            if ( predecessorIndex != NO_ELEMENT_INDEX ) { // fix up offset of previous element in chain if there is one
+                status[predecessorIndex] -= getOffset(predecessorIndex);
+            }
+        } else {
+            // move the item at the end of the chain into the hole we're creating by deleting this entry
+            int prevIndex = bucketIndex;
+            int nextIndex = getIndex(prevIndex, offset);
+            int offsetToNext;
+            while ( (offsetToNext = getOffset(nextIndex)) != 0 ) {
+                prevIndex = nextIndex;
+                nextIndex = getIndex(nextIndex, offsetToNext);
+            }
+            moveEntry(nextIndex, bucketIndex);
+            status[prevIndex] -= getOffset(prevIndex);
+        }
+        size -= 1;
+    }
+
+    // moves the key and value of a bucket into an empty one, leaving the status bytes alone
+    private void moveEntry( final int fromIndex, final int toIndex ) {
+        keys[toIndex] = keys[fromIndex];
+        keys[fromIndex] = 0;
+        copyValue(values, fromIndex, values, toIndex);
+        clearValue(fromIndex);
+    }
+
+    private int insertIntoChain( final int bucketIndex, final int endOfChainIndex ) {
+        final int offsetToEndOfChain = getIndexDiff(bucketIndex, endOfChainIndex);
+
+        // find an empty bucket for the new entry
+        int emptyBucketIndex = findEmptyBucket(bucketIndex);
+
+        // if the distance to the empty bucket is larger than this, we'll have to hopscotch
+        final int maxOffset = offsetToEndOfChain + Byte.MAX_VALUE;
+
+        // hopscotch the empty bucket into range if it's too far away
+        int offsetToEmpty;
+        while ( (offsetToEmpty = getIndexDiff(bucketIndex, emptyBucketIndex)) > maxOffset ) {
+            emptyBucketIndex = hopscotch(bucketIndex, emptyBucketIndex);
+        }
+
+        // if the new entry lies downstream of the current chain end, just link it in
+        if ( offsetToEmpty > offsetToEndOfChain ) {
+            status[endOfChainIndex] += offsetToEmpty - offsetToEndOfChain;
+        } else {
+            linkIntoChain(bucketIndex, emptyBucketIndex);
+        }
+
+        return emptyBucketIndex;
+    }
+
+    // walk the chain until we find where the new slot gets linked in
+    private void linkIntoChain( final int bucketIndex, final int emptyBucketIndex ) {
+        int offsetToEmpty = getIndexDiff(bucketIndex, emptyBucketIndex);
+        int tmpIndex = bucketIndex;
+        int offset;
+        while ( (offset = getOffset(tmpIndex)) < offsetToEmpty ) {
+            tmpIndex = getIndex(tmpIndex, offset);
+            offsetToEmpty -= offset;
+        }
+        offset -= offsetToEmpty;
+        status[tmpIndex] -= offset;
+        status[emptyBucketIndex] = (byte) offset;
+    }
+
+    private void evict( final int bucketToEvictIndex ) {
+        final int bucketIndex = hashToIndex(LongHopscotchSet.longHash(getKey(keys[bucketToEvictIndex])));
+        final int offsetToEvictee = getIndexDiff(bucketIndex, bucketToEvictIndex);
+        int emptyBucketIndex = findEmptyBucket(bucketIndex);
+        int fromIndex = bucketIndex;
+        while ( true ) {
+            while ( getIndexDiff(bucketIndex, emptyBucketIndex) > offsetToEvictee ) {
+                emptyBucketIndex = hopscotch(fromIndex, emptyBucketIndex);
+            }
+            if ( emptyBucketIndex == bucketToEvictIndex ) return;
+            fromIndex = emptyBucketIndex;
+            linkIntoChain(bucketIndex, emptyBucketIndex);
+            int prevIndex = bucketIndex;
+            int offsetToNext = getOffset(prevIndex);
+            int nextIndex = getIndex(prevIndex, offsetToNext);
+            while ( (offsetToNext = getOffset(nextIndex)) != 0 ) {
+                prevIndex = nextIndex;
+                nextIndex = getIndex(nextIndex, offsetToNext);
+            }
+            moveEntry(nextIndex, emptyBucketIndex);
+            status[nextIndex] = 0;
+            status[prevIndex] -= getOffset(prevIndex);
+            emptyBucketIndex = nextIndex;
+        }
+    }
+
+    private int findEmptyBucket( int bucketIndex ) {
+        do {
+            bucketIndex = getIndex(bucketIndex, 1);
+        }
+        while ( !isUnusedKey(keys[bucketIndex]) );
+        return bucketIndex;
+    }
+
+    private boolean isChainHead( final int bucketIndex ) {
+        return (status[bucketIndex] & Byte.MIN_VALUE) != 0;
+    }
+
+    private int getOffset( final int bucketIndex ) {
+        return status[bucketIndex] & Byte.MAX_VALUE;
+    }
+
+    private int getIndex( final int bucketIndex, final int offset ) {
+        int result = bucketIndex + offset;
+        if ( result >= capacity ) result -= capacity;
+        else if ( result < 0 ) result += capacity;
+        return result;
+    }
+
+    // bucket1 is assumed to be upstream of bucket2 (even if bucket2's index has wrapped)
+    // i.e., the result is always positive
+    private int getIndexDiff( final int bucketIndex1, final int bucketIndex2 ) {
+        int result = bucketIndex2 - bucketIndex1;
+        if ( result < 0 ) result += capacity;
+        return result;
+    }
+
+    private int hopscotch( final int fromIndex, final int emptyBucketIndex ) {
+        final int fromToEmptyDistance = getIndexDiff(fromIndex, emptyBucketIndex);
+        int offsetToEmpty = Byte.MAX_VALUE;
+        while ( offsetToEmpty > 1 ) {
+            final int bucketIndex = getIndex(emptyBucketIndex, -offsetToEmpty);
+            final int offsetInBucket = getOffset(bucketIndex);
+            if ( offsetInBucket != 0 &&
+                    offsetInBucket < offsetToEmpty &&
+                    offsetToEmpty - offsetInBucket < fromToEmptyDistance ) {
+                final int bucketToMoveIndex = getIndex(bucketIndex, offsetInBucket);
+                move(bucketIndex, bucketToMoveIndex, emptyBucketIndex);
+                return bucketToMoveIndex;
+            }
+            offsetToEmpty -= 1;
+        }
+        // this happens now and then, but is usually caught and remedied by a resize
+        throw new IllegalStateException("Hopscotching failed at load factor " + (1. * size / capacity));
+    }
+
+    private void move( int predecessorBucketIndex, final int bucketToMoveIndex, final int emptyBucketIndex ) {
+        int toEmptyDistance = getIndexDiff(bucketToMoveIndex, emptyBucketIndex);
+        int nextOffset = getOffset(bucketToMoveIndex);
+        if ( nextOffset == 0 || nextOffset > toEmptyDistance ) {
+            status[predecessorBucketIndex] += toEmptyDistance;
+        } else {
+            status[predecessorBucketIndex] += nextOffset;
+            toEmptyDistance -= nextOffset;
+            predecessorBucketIndex = getIndex(bucketToMoveIndex, nextOffset);
+            while ( (nextOffset = getOffset(predecessorBucketIndex)) != 0 && nextOffset < toEmptyDistance ) {
+                toEmptyDistance -= nextOffset;
+                predecessorBucketIndex = getIndex(predecessorBucketIndex, nextOffset);
+            }
+            status[predecessorBucketIndex] = (byte) toEmptyDistance;
+        }
+        if ( nextOffset != 0 ) {
+            status[emptyBucketIndex] = (byte) (nextOffset - toEmptyDistance);
+        }
+        moveEntry(bucketToMoveIndex, emptyBucketIndex);
+        status[bucketToMoveIndex] = 0;
+    }
+
+    private void resize() {
+        if ( keys == null ) {
+            throw new IllegalStateException("Someone must be doing something ugly with reflection -- I have no buckets.");
+        }
+        final int oldCapacity = capacity;
+        final int oldSize = size;
+        final long[] oldKeys = keys;
+        final byte[] oldStatus = status;
+        final A oldValues = values;
+
+        capacity = SetSizeUtils.getLegalSizeAbove(capacity);
+        size = 0;
+        keys = new long[capacity];
+        status = new byte[capacity];
+        values = newValues(capacity);
+
+        try {
+            int idx = 0;
+            do {
+                final long entry = oldKeys[idx];
+                if ( !isUnusedKey(entry) ) {
+                    final long key = getKey(entry);
+                    final int bucketIndex = insert(key, LongHopscotchSet.longHash(key), false);
+                    copyValue(oldValues, idx, values, bucketIndex);
+                }
+            }
+            while ( (idx = (idx + 127) % oldCapacity) != 0 );
+        } catch ( final IllegalStateException ise ) {
+            capacity = oldCapacity;
+            size = oldSize;
+            keys = oldKeys;
+            status = oldStatus;
+            values = oldValues;
+            // this shouldn't happen except in the case of really bad hash functions
+            throw new IllegalStateException("Hopscotching failed at load factor " + 1. * size / capacity + ", and resizing didn't help.");
+        }
+
+        if ( size != oldSize ) {
+            // this should never happen, period.
+            throw new IllegalStateException("Lost some elements during resizing.");
+        }
+    }
+
+    /**
+     * Iterates over the keys, chain by chain.  Subclasses extend it to give access to the value of the key most
+     * recently returned by next.
+     */
+    public class KeyIterator implements LongIterator {
+        // Class Invariants are those of LongHopscotchSet's iterator:
+        //  bucketHeadIndex is a valid bucket head until the iteration is complete, when it's NO_ELEMENT_INDEX.
+        //  currentIndex points to the entry that the next method will return.
+        //  removeIndex is the entry most recently returned by next, or NO_ELEMENT_INDEX before the first call to next
+        //    and after a call to remove.
+        private int bucketHeadIndex;
+        private int currentIndex;
+        private int prevIndex;
+        private int removeIndex;
+        private int removePrevIndex;
+
+        protected KeyIterator() {
+            currentIndex = prevIndex = removeIndex = removePrevIndex = NO_ELEMENT_INDEX;
+            bucketHeadIndex = NO_ELEMENT_INDEX;
+            nextBucketHead();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return bucketHeadIndex != NO_ELEMENT_INDEX;
+        }
+
+        @Override
+        public long next() {
+            if ( !hasNext() ) throw new NoSuchElementException("Iterator exhausted.");
+
+            removeIndex = currentIndex;
+            removePrevIndex = prevIndex;
+
+            final int offset = getOffset(currentIndex);
+            // if we're at the end of a chain, advance to the next bucket
+            if ( offset == 0 ) nextBucketHead();
+            else { // otherwise step to the next item in the chain
+                prevIndex = currentIndex;
+                currentIndex = getIndex(currentIndex, offset);
+            }
+
+            return getKey(keys[removeIndex]);
+        }
+
+        @Override
+        public void remove() {
+            if ( removeIndex == NO_ELEMENT_INDEX ) throw new IllegalStateException("Remove without next.");
+
+            removeAtIndex(removeIndex, removePrevIndex);
+
+            // If we haven't deleted the end of a chain, we'll now have an unseen element under removeIndex.
+            // So we need to back up and return it at the next call to the next method.
+            if ( !isUnusedKey(keys[removeIndex]) ) {
+                currentIndex = removeIndex;
+                prevIndex = removePrevIndex;
+            }
+
+            // Set state to "invalid to call remove again".
+            removeIndex = NO_ELEMENT_INDEX;
+        }
+
+        /** the bucket of the entry most recently returned by next */
+        protected final int lastIndex() {
+            if ( removeIndex == NO_ELEMENT_INDEX ) throw new IllegalStateException("No current entry.");
+            return removeIndex;
+        }
+
+        private void nextBucketHead() {
+            while ( ++bucketHeadIndex < capacity ) {
+                if ( isChainHead(bucketHeadIndex) ) {
+                    currentIndex = bucketHeadIndex;
+                    prevIndex = NO_ELEMENT_INDEX;
+                    return;
+                }
+            }
+            bucketHeadIndex = NO_ELEMENT_INDEX;
+        }
+    }
+}
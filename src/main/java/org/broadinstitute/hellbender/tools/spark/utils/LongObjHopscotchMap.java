@@ -0,0 +1,91 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.utils.Utils;
+
+/**
+ * A uniquely keyed map from non-negative longs to (non-null) Objects with O(1) operations.
+ * Compared to a {@link HopscotchMapSpark}, it saves the boxed key and the entry object for each value.
+ */
+@DefaultSerializer(LongObjHopscotchMap.Serializer.class)
+public final class LongObjHopscotchMap<V> extends LongKeyHopscotchCollection<Object[]> {
+    private static final long serialVersionUID = 1L;
+
+    /** make a small LongObjHopscotchMap */
+    public LongObjHopscotchMap() { this(12000); }
+
+    /** make a LongObjHopscotchMap for a specified minimum capacity */
+    public LongObjHopscotchMap( final int capacity ) { super(capacity); }
+
+    private LongObjHopscotchMap( final Kryo kryo, final Input input ) { super(kryo, input); }
+
+    /** sets the value for a key, and returns the value it replaced, or null if the key wasn't already present */
+    @SuppressWarnings("unchecked")
+    public V put( final long key, final V value ) {
+        Utils.nonNull(value, "Null values are not allowed");
+        final int bucketIndex = addKey(key, true);
+        if ( bucketIndex >= 0 ) {
+            values[bucketIndex] = value;
+            return null;
+        }
+        final V oldValue = (V)values[~bucketIndex];
+        values[~bucketIndex] = value;
+        return oldValue;
+    }
+
+    /** returns the value for a key, or null if the key isn't present */
+    @SuppressWarnings("unchecked")
+    public V get( final long key ) {
+        final int bucketIndex = findIndex(key);
+        return bucketIndex == NO_ELEMENT_INDEX ? null : (V)values[bucketIndex];
+    }
+
+    /** removes a key and its value, and returns true if the key was present */
+    public boolean remove( final long key ) { return removeKey(key, false); }
+
+    public EntryIterator iterator() { return new EntryIterator(); }
+
+    @Override
+    protected Object[] newValues( final int capacity ) { return new Object[capacity]; }
+
+    @Override
+    protected void copyValue( final Object[] fromValues, final int fromIndex, final Object[] toValues, final int toIndex ) {
+        toValues[toIndex] = fromValues[fromIndex];
+    }
+
+    @Override
+    protected void clearValue( final int bucketIndex ) { values[bucketIndex] = null; }
+
+    @Override
+    protected void writeValue( final Kryo kryo, final Output output, final int bucketIndex ) {
+        kryo.writeClassAndObject(output, values[bucketIndex]);
+    }
+
+    @Override
+    protected void readValue( final Kryo kryo, final Input input, final int bucketIndex ) {
+        values[bucketIndex] = kryo.readClassAndObject(input);
+    }
+
+    /** iterates over the keys, giving access to the value of the key most recently returned by next */
+    public final class EntryIterator extends KeyIterator {
+        @SuppressWarnings("unchecked")
+        public V getValue() { return (V)values[lastIndex()]; }
+        public void setValue( final V value ) { values[lastIndex()] = Utils.nonNull(value, "Null values are not allowed"); }
+    }
+
+    @SuppressWarnings("rawtypes")
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<LongObjHopscotchMap> {
+        @Override
+        public void write( final Kryo kryo, final Output output, final LongObjHopscotchMap map ) {
+            map.serialize(kryo, output);
+        }
+
+        @Override
+        public LongObjHopscotchMap read( final Kryo kryo, final Input input, final Class<LongObjHopscotchMap> klass ) {
+            return new LongObjHopscotchMap(kryo, input);
+        }
+    }
+}
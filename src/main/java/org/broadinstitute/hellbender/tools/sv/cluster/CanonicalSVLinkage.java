@@ -305,6 +305,24 @@ public class CanonicalSVLinkage<T extends SVCallRecord> extends SVClusterLinkage
         );
     }
 
+    /**
+     * Second breakpoints must lie on the same contig and, when every applicable parameter set requires breakend proximity,
+     * within the largest applicable window.
+     */
+    @Override
+    public SimpleInterval getClusterableSecondBreakpointWindow(final SVCallRecord record) {
+        final String contig = record.getContigB();
+        final ClusteringParameters params = record.isDepthOnly() ? depthOnlyParams : evidenceParams;
+        if (params.requiresOverlapAndProximity() && mixedParams.requiresOverlapAndProximity()) {
+            final int window = Math.max(params.getWindow(), mixedParams.getWindow());
+            return new SimpleInterval(contig, Math.max(record.getPositionB() - window, 1), record.getPositionB() + window);
+        } else if (dictionary.getSequence(contig) != null) {
+            return new SimpleInterval(contig, 1, Math.max(dictionary.getSequence(contig).getSequenceLength(), record.getPositionB()));
+        } else {
+            return null;
+        }
+    }
+
     /**
      * Returns max feasible start position of an item clusterable with the given record, given a set of clustering parameters.
      */
@@ -5,6 +5,9 @@ import htsjdk.samtools.SAMSequenceDictionary;
 import org.broadinstitute.hellbender.tools.sv.SVCallRecord;
 import org.broadinstitute.hellbender.tools.sv.SVCallRecordUtils;
 import org.broadinstitute.hellbender.tools.sv.SVLocatable;
+import org.broadinstitute.hellbender.utils.SVInterval;
+import org.broadinstitute.hellbender.utils.SVIntervalTree;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.util.*;
@@ -22,7 +25,14 @@ import java.util.stream.Collectors;
  * Bioinformatics. 2012;28(22):2875-2882.</p>
  *
  * <p>NOTE: precise implementation of {@link SVClusterLinkage#getMaxClusterableStartingPosition(SVLocatable)}
- * is important for efficiency because it determines when a cluster can be finalized and omitted from further clustering tests.</p>
+ * is important for efficiency because it determines when a cluster can be finalized and omitted from further clustering tests.
+ * It also bounds the first breakpoint window of each active item, which together with
+ * {@link SVClusterLinkage#getClusterableSecondBreakpointWindow(SVLocatable)} is used to index the items that a new item
+ * needs to be tested against. Items whose first breakpoint window ends before the start of the current item are dropped
+ * from the index, and the remaining items are looked up by the position of the new item's second breakpoint, so each
+ * new item is only tested against items it could feasibly cluster with rather than every active item. Active clusters
+ * are likewise indexed by their items and max clusterable start, so only clusters containing a linked item or ready to
+ * be finalized are visited.</p>
  */
 public class SVClusterEngine {
 
@@ -37,7 +47,14 @@ public class SVClusterEngine {
     private final Function<OutputCluster, SVCallRecord> collapser; // Flattens clusters into a single representative item for output
     private final SVClusterLinkage<SVCallRecord> linkage;
     private Map<Integer, Cluster> idToClusterMap; // Active clusters
+    private final TreeMap<Integer, Set<Integer>> clusterIdsByMaxClusterableStart; // Active clusters by max clusterable start
+    private final Map<Integer, Set<Integer>> clusterIdsByItemId; // Active clusters containing each active item
     private final Map<Integer, SVCallRecord> idToItemMap; // Active items
+    private final TreeMap<Integer, List<Integer>> candidateItemIdsByMaxClusterableStart; // Active items that may still cluster with new items
+    private final SVIntervalTree<List<Integer>> candidateItemIdsBySecondBreakpointWindow; // Candidate items by second breakpoint window
+    private final Map<Integer, SVInterval> candidateSecondBreakpointWindows; // Indexed second breakpoint window of each candidate item
+    private final Set<Integer> unboundedCandidateItemIds; // Candidate items without a second breakpoint window
+    private final SAMSequenceDictionary dictionary;
     protected final CLUSTERING_TYPE clusteringType;
     private final Comparator<SVCallRecord> itemComparator;
 
@@ -58,9 +75,16 @@ public class SVClusterEngine {
         this.clusteringType = clusteringType;
         this.collapser = Utils.nonNull(collapser);
         this.linkage = Utils.nonNull(linkage);
+        this.dictionary = Utils.nonNull(dictionary);
         idToClusterMap = new HashMap<>();
+        clusterIdsByMaxClusterableStart = new TreeMap<>();
+        clusterIdsByItemId = new HashMap<>();
         currentContig = null;
         idToItemMap = new HashMap<>();
+        candidateItemIdsByMaxClusterableStart = new TreeMap<>();
+        candidateItemIdsBySecondBreakpointWindow = new SVIntervalTree<>();
+        candidateSecondBreakpointWindows = new HashMap<>();
+        unboundedCandidateItemIds = new HashSet<>();
         itemComparator = SVCallRecordUtils.getSVLocatableComparator(dictionary);
         nextItemId = 0;
         nextClusterId = 0;
@@ -115,12 +139,152 @@ public class SVClusterEngine {
         lastStart = item.getPositionA();
         final int itemId = nextItemId++;
         idToItemMap.put(itemId, item);
+        candidateItemIdsByMaxClusterableStart.computeIfAbsent(linkage.getMaxClusterableStartingPosition(item), k -> new ArrayList<>()).add(itemId);
+        final SVInterval window = toSVInterval(linkage.getClusterableSecondBreakpointWindow(item));
+        if (window == null) {
+            unboundedCandidateItemIds.add(itemId);
+        } else {
+            candidateSecondBreakpointWindows.put(itemId, window);
+            final SVIntervalTree.Entry<List<Integer>> entry = candidateItemIdsBySecondBreakpointWindow.find(window);
+            if (entry == null) {
+                final List<Integer> windowItemIds = new ArrayList<>(1);
+                windowItemIds.add(itemId);
+                candidateItemIdsBySecondBreakpointWindow.put(window, windowItemIds);
+            } else {
+                entry.getValue().add(itemId);
+            }
+        }
         if (minActiveStartingPositionItemId == null || item.getPositionA() < getMinActiveStartingPositionItem().getPositionA()) {
             minActiveStartingPositionItemId = itemId;
         }
         return itemId;
     }
 
+    /**
+     * Converts a second breakpoint window to an interval in the dictionary's contig index space, or null if unbounded.
+     */
+    private final SVInterval toSVInterval(final SimpleInterval window) {
+        if (window == null) {
+            return null;
+        }
+        final int contigIndex = dictionary.getSequenceIndex(window.getContig());
+        if (contigIndex < 0) {
+            return null;
+        }
+        // SVInterval is half-open
+        return new SVInterval(contigIndex, window.getStart(), window.getEnd() + 1);
+    }
+
+    /**
+     * Removes an item from the active set and from the candidate index.
+     */
+    private final void unregisterItem(final Integer itemId) {
+        final SVCallRecord item = idToItemMap.remove(itemId);
+        if (item != null) {
+            final int maxClusterableStart = linkage.getMaxClusterableStartingPosition(item);
+            final List<Integer> candidates = candidateItemIdsByMaxClusterableStart.get(maxClusterableStart);
+            if (candidates != null) {
+                candidates.remove(itemId);
+                if (candidates.isEmpty()) {
+                    candidateItemIdsByMaxClusterableStart.remove(maxClusterableStart);
+                }
+            }
+            removeSecondBreakpointCandidate(itemId);
+        }
+    }
+
+    /**
+     * Removes an item from the second breakpoint index, if present.
+     */
+    private final void removeSecondBreakpointCandidate(final Integer itemId) {
+        unboundedCandidateItemIds.remove(itemId);
+        final SVInterval window = candidateSecondBreakpointWindows.remove(itemId);
+        if (window != null) {
+            final SVIntervalTree.Entry<List<Integer>> entry = candidateItemIdsBySecondBreakpointWindow.find(window);
+            if (entry != null) {
+                entry.getValue().remove(itemId);
+                if (entry.getValue().isEmpty()) {
+                    candidateItemIdsBySecondBreakpointWindow.remove(window);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns ids of active items that could cluster with the given item. Since items are added in order of increasing
+     * start, items whose max clusterable start precedes the item's start are permanently removed from the index (but
+     * remain in their clusters). The remaining candidates are restricted to those whose second breakpoint window
+     * contains the item's second breakpoint.
+     */
+    private final Collection<Integer> getCandidateItemIds(final SVCallRecord item) {
+        final NavigableMap<Integer, List<Integer>> expired = candidateItemIdsByMaxClusterableStart.headMap(item.getPositionA(), false);
+        for (final List<Integer> itemIds : expired.values()) {
+            for (final Integer itemId : itemIds) {
+                removeSecondBreakpointCandidate(itemId);
+            }
+        }
+        expired.clear();
+        final int contigIndexB = dictionary.getSequenceIndex(item.getContigB());
+        final Set<Integer> candidates = new LinkedHashSet<>();
+        if (contigIndexB < 0) {
+            // Not indexable, so fall back on every candidate
+            for (final List<Integer> itemIds : candidateItemIdsByMaxClusterableStart.values()) {
+                candidates.addAll(itemIds);
+            }
+            return candidates;
+        }
+        final Iterator<SVIntervalTree.Entry<List<Integer>>> overlappers = candidateItemIdsBySecondBreakpointWindow.overlappers(
+                new SVInterval(contigIndexB, item.getPositionB(), item.getPositionB() + 1));
+        while (overlappers.hasNext()) {
+            candidates.addAll(overlappers.next().getValue());
+        }
+        candidates.addAll(unboundedCandidateItemIds);
+        return candidates;
+    }
+
+    /**
+     * Adds a cluster to the active set and the cluster indexes.
+     */
+    private final void putCluster(final int clusterId, final Cluster cluster) {
+        idToClusterMap.put(clusterId, cluster);
+        clusterIdsByMaxClusterableStart.computeIfAbsent(cluster.getMaxClusterableStart(), k -> new HashSet<>()).add(clusterId);
+        for (final Integer itemId : cluster.getItemIds()) {
+            clusterIdsByItemId.computeIfAbsent(itemId, k -> new HashSet<>()).add(clusterId);
+        }
+    }
+
+    /**
+     * Removes a cluster from the active set and the cluster indexes. Returns the ids of items that no longer belong to
+     * any active cluster.
+     */
+    private final List<Integer> removeCluster(final int clusterId) {
+        final Cluster cluster = getCluster(clusterId);
+        idToClusterMap.remove(clusterId);
+        removeFromMaxClusterableStartIndex(clusterId, cluster.getMaxClusterableStart());
+        final List<Integer> orphanedItemIds = new ArrayList<>();
+        for (final Integer itemId : cluster.getItemIds()) {
+            final Set<Integer> itemClusterIds = clusterIdsByItemId.get(itemId);
+            if (itemClusterIds != null) {
+                itemClusterIds.remove(clusterId);
+                if (itemClusterIds.isEmpty()) {
+                    clusterIdsByItemId.remove(itemId);
+                    orphanedItemIds.add(itemId);
+                }
+            }
+        }
+        return orphanedItemIds;
+    }
+
+    private final void removeFromMaxClusterableStartIndex(final int clusterId, final int maxClusterableStart) {
+        final Set<Integer> clusterIds = clusterIdsByMaxClusterableStart.get(maxClusterableStart);
+        if (clusterIds != null) {
+            clusterIds.remove(clusterId);
+            if (clusterIds.isEmpty()) {
+                clusterIdsByMaxClusterableStart.remove(maxClusterableStart);
+            }
+        }
+    }
+
     private final int getMaxClusterableStartingPositionByIds(final Collection<Integer> itemIds) {
         Utils.nonNull(itemIds);
         Utils.nonEmpty(itemIds);
@@ -135,25 +299,31 @@ public class SVClusterEngine {
     private final List<Integer> cluster(final Integer itemId) {
         final SVCallRecord item = getItem(itemId);
         // Get list of item IDs from active clusters that cluster with this item
-        final Set<Integer> linkedItems = idToClusterMap.values().stream().map(Cluster::getItemIds)
-                .flatMap(List::stream)
-                .distinct()
+        final Set<Integer> linkedItems = getCandidateItemIds(item).stream()
                 .filter(other -> !other.equals(itemId) && linkage.areClusterable(item, getItem(other)).getResult())
                 .collect(Collectors.toCollection(LinkedHashSet::new));
 
-        // Find clusters to which this item belongs, and which active clusters we're definitely done with
+        // Active clusters we're definitely done with -- process them when we're done
         final List<Integer> clusterIdsToProcess = new ArrayList<>();
+        for (final Set<Integer> clusterIds : clusterIdsByMaxClusterableStart.headMap(item.getPositionA(), false).values()) {
+            clusterIdsToProcess.addAll(clusterIds);
+        }
+        Collections.sort(clusterIdsToProcess);
+
+        // Only clusters containing a linked item can be augmented or seeded from
+        final SortedSet<Integer> linkedClusterIds = new TreeSet<>();
+        for (final Integer linkedItem : linkedItems) {
+            linkedClusterIds.addAll(clusterIdsByItemId.getOrDefault(linkedItem, Collections.emptySet()));
+        }
+
         // Clusters to which we simply add the item
         final List<Integer> clustersToAugment = new ArrayList<>();
         // New clusters, formed from subsets of currently active clusters, to which we will add the item
         final Set<List<Integer>> clustersToSeedWith = new HashSet<>();    // Use set to prevent creating duplicate clusters
-        for (final Map.Entry<Integer, Cluster> entry : idToClusterMap.entrySet()) {
-            final Integer clusterIndex = entry.getKey();
-            final Cluster cluster = entry.getValue();
+        for (final Integer clusterIndex : linkedClusterIds) {
+            final Cluster cluster = getCluster(clusterIndex);
             final List<Integer> clusterItems = cluster.getItemIds();
-            if (item.getPositionA() > cluster.getMaxClusterableStart()) {
-                clusterIdsToProcess.add(clusterIndex);  //this cluster is complete -- process it when we're done
-            } else {
+            if (item.getPositionA() <= cluster.getMaxClusterableStart()) {
                 if (clusteringType.equals(CLUSTERING_TYPE.MAX_CLIQUE)) {
                     final List<Integer> linkedClusterItems = clusterItems.stream().filter(linkedItems::contains).collect(Collectors.toList());
                     final int numLinkedItems = linkedClusterItems.size();
@@ -228,7 +398,7 @@ public class SVClusterEngine {
      */
     private final void combineClusters(final Collection<Integer> clusterIds, final Integer itemId) {
         final List<Cluster> clusters = clusterIds.stream().map(this::getCluster).collect(Collectors.toList());
-        clusterIds.stream().forEach(idToClusterMap::remove);
+        clusterIds.stream().forEach(this::removeCluster);
         final List<Integer> clusterItems = clusters.stream()
                 .map(Cluster::getItemIds)
                 .flatMap(List::stream)
@@ -237,7 +407,7 @@ public class SVClusterEngine {
         final List<Integer> newClusterItems = new ArrayList<>(clusterItems.size() + 1);
         newClusterItems.addAll(clusterItems);
         newClusterItems.add(itemId);
-        idToClusterMap.put(nextClusterId++, new Cluster(getMaxClusterableStartingPositionByIds(newClusterItems), newClusterItems));
+        putCluster(nextClusterId++, new Cluster(getMaxClusterableStartingPositionByIds(newClusterItems), newClusterItems));
     }
 
     /**
@@ -245,25 +415,12 @@ public class SVClusterEngine {
      */
     private final SVCallRecord processCluster(final int clusterIndex) {
         final Cluster cluster = getCluster(clusterIndex);
-        idToClusterMap.remove(clusterIndex);
         final List<Integer> clusterItemIds = cluster.getItemIds();
         final OutputCluster outputCluster = new OutputCluster(clusterItemIds.stream().map(idToItemMap::get).collect(Collectors.toList()));
         final SVCallRecord result = collapser.apply(outputCluster);
-        // Clean up item id map
-        if (clusterItemIds.size() == 1) {
-            // Singletons won't be present in any other clusters
-            idToItemMap.remove(clusterItemIds.get(0));
-        } else {
-            // Need to check that items aren't present in any other clusters
-            final Set<Integer> activeItemIds = idToClusterMap.values().stream()
-                    .map(Cluster::getItemIds)
-                    .flatMap(List::stream)
-                    .collect(Collectors.toSet());
-            final List<Integer> itemsToRemove = idToItemMap.keySet().stream().filter(i -> !activeItemIds.contains(i))
-                    .collect(Collectors.toList());
-            for (final Integer i : itemsToRemove) {
-                idToItemMap.remove(i);
-            }
+        // Clean up item id map, keeping items still present in other clusters
+        for (final Integer i : removeCluster(clusterIndex)) {
+            unregisterItem(i);
         }
         // Update min active start position
         if (clusterItemIds.contains(minActiveStartingPositionItemId)) {
@@ -309,6 +466,12 @@ public class SVClusterEngine {
             result.add(processCluster(clusterId));
         }
         idToItemMap.clear();
+        clusterIdsByMaxClusterableStart.clear();
+        clusterIdsByItemId.clear();
+        candidateItemIdsByMaxClusterableStart.clear();
+        candidateItemIdsBySecondBreakpointWindow.clear();
+        candidateSecondBreakpointWindows.clear();
+        unboundedCandidateItemIds.clear();
         minActiveStartingPositionItemId = null;
         nextItemId = 0;
         nextClusterId = 0;
@@ -321,7 +484,7 @@ public class SVClusterEngine {
     private final void seedCluster(final Integer item) {
         final List<Integer> newClusters = new ArrayList<>(1);
         newClusters.add(item);
-        idToClusterMap.put(nextClusterId++, new Cluster(linkage.getMaxClusterableStartingPosition(getItem(item)), newClusters));
+        putCluster(nextClusterId++, new Cluster(linkage.getMaxClusterableStartingPosition(getItem(item)), newClusters));
     }
 
     /**
@@ -334,8 +497,7 @@ public class SVClusterEngine {
         final List<Integer> newClusterItems = new ArrayList<>(1 + seedItems.size());
         newClusterItems.addAll(seedItems);
         newClusterItems.add(item);
-        idToClusterMap.put(nextClusterId++,
-                new Cluster(getMaxClusterableStartingPositionByIds(newClusterItems), newClusterItems));
+        putCluster(nextClusterId++, new Cluster(getMaxClusterableStartingPositionByIds(newClusterItems), newClusterItems));
     }
 
     private final Cluster getCluster(final int id) {
@@ -358,9 +520,14 @@ public class SVClusterEngine {
         final Cluster cluster = getCluster(clusterId);
         final List<Integer> clusterItems = cluster.getItemIds();
         clusterItems.add(itemId);
+        clusterIdsByItemId.computeIfAbsent(itemId, k -> new HashSet<>()).add(clusterId);
         final SVCallRecord item = getItem(itemId);
         final int itemClusterableStartPosition = linkage.getMaxClusterableStartingPosition(item);
-        cluster.setMaxClusterableStart(Math.max(cluster.getMaxClusterableStart(), itemClusterableStartPosition));
+        if (itemClusterableStartPosition > cluster.getMaxClusterableStart()) {
+            removeFromMaxClusterableStartIndex(clusterId, cluster.getMaxClusterableStart());
+            cluster.setMaxClusterableStart(itemClusterableStartPosition);
+            clusterIdsByMaxClusterableStart.computeIfAbsent(itemClusterableStartPosition, k -> new HashSet<>()).add(clusterId);
+        }
     }
 
     public static final class OutputCluster {
@@ -6,6 +6,7 @@ import org.broadinstitute.hellbender.tools.spark.sv.utils.GATKSVVCFConstants;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVUtils;
 import org.broadinstitute.hellbender.tools.sv.SVCallRecord;
 import org.broadinstitute.hellbender.tools.sv.SVLocatable;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.variant.VariantContextGetters;
 
 import java.util.Collection;
@@ -45,6 +46,19 @@ public abstract class SVClusterLinkage<T extends SVLocatable> {
         return items.stream().mapToInt(item -> getMaxClusterableStartingPosition(item)).max().getAsInt();
     }
 
+    /**
+     * Returns the window on the second contig that must contain the second breakpoint of any other item that clusters
+     * with the given item. That is, given item A and W = getClusterableSecondBreakpointWindow(A), then for any item B,
+     * W != null && !W.contains(contigB(B), positionB(B)) => clusterTogether(A, B) == false. As with
+     * {@link #getMaxClusterableStartingPosition(SVLocatable)} this is an upper-bound. The default implementation
+     * returns null, meaning the second breakpoint is unconstrained.
+     * @param item item in question
+     * @return window on the second contig, or null if unbounded
+     */
+    public SimpleInterval getClusterableSecondBreakpointWindow(final T item) {
+        return null;
+    }
+
     /**
      * Returns number of overlapping items
      */
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.sv.cluster;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.SAMSequenceDictionary;
 import htsjdk.samtools.reference.ReferenceSequenceFile;
 import htsjdk.samtools.util.SortingCollection;
@@ -11,6 +12,7 @@ import htsjdk.variant.vcf.*;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.*;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.GATKSVVCFConstants;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.GATKSVVCFHeaderLines;
@@ -19,7 +21,16 @@ import org.broadinstitute.hellbender.tools.sv.SVCallRecordUtils;
 import org.broadinstitute.hellbender.tools.walkers.sv.JointGermlineCNVSegmentation;
 import org.broadinstitute.hellbender.utils.reference.ReferenceUtils;
 
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.broadinstitute.hellbender.tools.walkers.sv.JointGermlineCNVSegmentation.BREAKPOINT_SUMMARY_STRATEGY_LONG_NAME;
 import static org.broadinstitute.hellbender.tools.walkers.sv.JointGermlineCNVSegmentation.FLAG_FIELD_LOGIC_LONG_NAME;
@@ -27,6 +38,11 @@ import static org.broadinstitute.hellbender.tools.walkers.sv.JointGermlineCNVSeg
 /***
  * Base class for tools that a simple interface for utilizing {@link SVClusterEngine}. It handles input/output easily,
  * including output sorting with spilling to disk to avoid excessive memory usage.
+ *
+ * <p>Since clustering never spans contigs, tools may also cluster several contigs concurrently (see
+ * {@link #CONTIG_THREADS_LONG_NAME}). In that mode, records are buffered one contig at a time and each contig is
+ * clustered on a worker thread with fresh engine state via {@link #clusterContig(List, ReferenceSequenceFile)}. Results are handed to the
+ * output buffer in contig order, so generated variant IDs are assigned deterministically.</p>
  */
 public abstract class SVClusterWalker extends MultiVariantWalker {
     public static final String PLOIDY_TABLE_LONG_NAME = "ploidy-table";
@@ -37,6 +53,7 @@ public abstract class SVClusterWalker extends MultiVariantWalker {
     public static final String OMIT_MEMBERS_LONG_NAME = "omit-members";
     public static final String DEFAULT_NO_CALL_LONG_NAME = "default-no-call";
     public static final String MAX_RECORDS_IN_RAM_LONG_NAME = "max-records-in-ram";
+    public static final String CONTIG_THREADS_LONG_NAME = "contig-threads";
 
     /**
      * The enum Cluster algorithm.
@@ -151,6 +168,12 @@ public abstract class SVClusterWalker extends MultiVariantWalker {
             optional=true)
     public int maxRecordsInRam = 10000;
 
+    @Argument(fullName = CONTIG_THREADS_LONG_NAME,
+            doc = "Number of contigs to cluster in parallel. Each contig in flight is held in memory.",
+            minValue = 1,
+            optional = true)
+    public int contigThreads = 1;
+
     protected SAMSequenceDictionary dictionary;
     protected ReferenceSequenceFile reference;
     protected PloidyTable ploidyTable;
@@ -161,6 +184,10 @@ public abstract class SVClusterWalker extends MultiVariantWalker {
     protected String currentContig;
     protected int numVariantsBuilt = 0;
 
+    private List<SVCallRecord> currentContigRecords;
+    private ExecutorService contigExecutor;
+    private final Deque<Future<List<SVCallRecord>>> pendingContigs = new ArrayDeque<>();
+
     @Override
     public boolean requiresReference() {
         return true;
@@ -185,10 +212,21 @@ public abstract class SVClusterWalker extends MultiVariantWalker {
                 header.getVCFRecordComparator(),
                 maxRecordsInRam,
                 tmpDir.toPath());
+        if (contigThreads > 1) {
+            currentContigRecords = new ArrayList<>();
+            contigExecutor = Executors.newFixedThreadPool(contigThreads,
+                    new ThreadFactoryBuilder().setNameFormat("svCluster-contig-thread-%d").setDaemon(true).build());
+        }
     }
 
     @Override
     public Object onTraversalSuccess() {
+        if (contigExecutor != null) {
+            submitCurrentContig();
+            while (!pendingContigs.isEmpty()) {
+                awaitContig(pendingContigs.removeFirst()).forEach(this::write);
+            }
+        }
         for (final VariantContext variant : sortingBuffer) {
             writer.add(variant);
         }
@@ -198,6 +236,9 @@ public abstract class SVClusterWalker extends MultiVariantWalker {
     @Override
     public void closeTool() {
         super.closeTool();
+        if (contigExecutor != null) {
+            contigExecutor.shutdownNow();
+        }
         if (sortingBuffer != null) {
             sortingBuffer.cleanup();
         }
@@ -211,6 +252,17 @@ public abstract class SVClusterWalker extends MultiVariantWalker {
      */
     public abstract void applyRecord(final SVCallRecord record);
 
+    /**
+     * Clusters all records from a single contig, in order, using engine state that is not shared with any other
+     * contig, and returns the output records in the order they would have been written by {@link #applyRecord}.
+     * Called from worker threads when {@link #contigThreads} is greater than 1.
+     *
+     * @param contigReference reference reader opened for this contig only, which must be used in place of
+     *                        {@link #reference} since readers are not thread-safe
+     */
+    protected abstract List<SVCallRecord> clusterContig(final List<SVCallRecord> records,
+                                                        final ReferenceSequenceFile contigReference);
+
     @Override
     public void apply(final VariantContext variant, final ReadsContext readsContext,
                       final ReferenceContext referenceContext, final FeatureContext featureContext) {
@@ -223,10 +275,55 @@ public abstract class SVClusterWalker extends MultiVariantWalker {
         }
         // Update current contig
         if (!call.getContigA().equals(currentContig)) {
+            if (contigExecutor != null) {
+                submitCurrentContig();
+            }
             currentContig = call.getContigA();
             logger.info("Processing contig " + currentContig + "...");
         }
-        applyRecord(call);
+        if (contigExecutor != null) {
+            currentContigRecords.add(call);
+        } else {
+            applyRecord(call);
+        }
+    }
+
+    /**
+     * Hands the buffered records of the current contig to a worker. Once the maximum number of contigs are in flight,
+     * blocks on the oldest one and writes its output, which keeps output ordering identical to the sequential mode.
+     */
+    private void submitCurrentContig() {
+        if (currentContigRecords.isEmpty()) {
+            return;
+        }
+        while (pendingContigs.size() >= contigThreads) {
+            awaitContig(pendingContigs.removeFirst()).forEach(this::write);
+        }
+        final List<SVCallRecord> records = currentContigRecords;
+        pendingContigs.addLast(contigExecutor.submit(() -> clusterContigWithOwnReference(records)));
+        currentContigRecords = new ArrayList<>();
+    }
+
+    private List<SVCallRecord> clusterContigWithOwnReference(final List<SVCallRecord> records) {
+        try (final ReferenceSequenceFile contigReference = ReferenceUtils.createReferenceReader(referenceArguments.getReferenceSpecifier())) {
+            return clusterContig(records, contigReference);
+        } catch (final IOException e) {
+            throw new GATKException("Error closing reference reader for contig " + records.get(0).getContigA(), e);
+        }
+    }
+
+    private static List<SVCallRecord> awaitContig(final Future<List<SVCallRecord>> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            throw new GATKException("Interrupted while clustering contig", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GATKException("Exception encountered while clustering contig", cause);
+        }
     }
 
     protected VCFHeader createHeader() {
@@ -0,0 +1,405 @@
+package org.broadinstitute.hellbender.tools.walkers.bwa;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.fastq.FastqReader;
+import htsjdk.samtools.fastq.FastqRecord;
+import htsjdk.samtools.util.IOUtil;
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.argparser.ExperimentalFeature;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.SequenceDictionaryValidationArgumentCollection;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.engine.GATKTool;
+import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.bwa.BwaArgumentCollection;
+import org.broadinstitute.hellbender.tools.spark.bwa.BwaReadAligner;
+import org.broadinstitute.hellbender.tools.spark.bwa.BwaSpark;
+import org.broadinstitute.hellbender.utils.bwa.BwaMemAlignment;
+import org.broadinstitute.hellbender.utils.bwa.BwaMemIndex;
+import org.broadinstitute.hellbender.utils.bwa.BwaMemIndexCache;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aligns unaligned reads with BWA-MEM on a single machine, using multiple threads but no Spark.
+ *
+ * <p>This tool aligns reads as {@link BwaSpark} does, through the same BWA-MEM bindings, but streams them through a pipeline
+ * instead of a Spark job: a reader thread reads the input in batches, an aligner thread aligns each batch with BWA-MEM on
+ * --threads native threads, and a pool of conversion threads turns the alignments into reads, which are written in
+ * input order.  The stages are linked by bounded queues, so reading, aligning and writing overlap while holding at most a
+ * few batches in memory.</p>
+ *
+ * <p>The input is either an unaligned BAM, which must be queryname sorted or querygrouped unless single-end alignment is
+ * requested, or FASTQ: two FASTQ files of mates, or a single FASTQ file of interleaved mates or of single-end reads.  Reads
+ * from FASTQ input have no read group.  When aligning pairs, BWA-MEM estimates the insert size distribution separately in
+ * each batch, as it does in each partition of {@link BwaSpark}, so batches should hold at least a few hundred thousand reads.</p>
+ *
+ * <h3>Usage example</h3>
+ *     <pre>
+ *      gatk BwaMultithreaded \
+ *            -I unaligned.bam \
+ *            -R reference.fasta \
+ *            --bwa-mem-index-image reference.fasta.img \
+ *            -O aligned.bam \
+ *            --threads 32
+ *     </pre>
+ */
+@DocumentedFeature
+@ExperimentalFeature
+@CommandLineProgramProperties(
+        summary = "Aligns reads with BWA-MEM using multiple threads, with the same results as BwaSpark",
+        oneLineSummary = "Multithreaded BWA-MEM alignment without Spark",
+        programGroup = ReadDataManipulationProgramGroup.class)
+public final class BwaMultithreaded extends GATKTool {
+    public static final String FASTQ_LONG_NAME = "fastq";
+    public static final String FASTQ2_LONG_NAME = "fastq2";
+    public static final String THREADS_LONG_NAME = "threads";
+    public static final String CONVERSION_THREADS_LONG_NAME = "conversion-threads";
+    public static final String READS_PER_BATCH_LONG_NAME = "reads-per-batch";
+    public static final String QUEUED_BATCHES_LONG_NAME = "queued-batches";
+
+    private static final String REFERENCE_INDEX_IMAGE_FILE_SUFFIX = ".img";
+
+    // marks the end of the input in the queues between stages
+    private static final List<GATKRead> END_OF_BATCHES = new ArrayList<>(0);
+    private static final Future<List<GATKRead>> END_OF_READS = CompletableFuture.completedFuture(END_OF_BATCHES);
+
+    @Argument(doc = "the output bam", shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
+    protected GATKPath output;
+
+    @Argument(doc = "FASTQ file of reads to align instead of reads from a BAM file: the first mates, or interleaved mates, " +
+            "or single-end reads", fullName = FASTQ_LONG_NAME, optional = true,
+            mutex = {StandardArgumentDefinitions.INPUT_LONG_NAME})
+    protected GATKPath fastq;
+
+    @Argument(doc = "FASTQ file of the second mates of the reads of --" + FASTQ_LONG_NAME, fullName = FASTQ2_LONG_NAME, optional = true,
+            mutex = {StandardArgumentDefinitions.INPUT_LONG_NAME})
+    protected GATKPath fastq2;
+
+    @ArgumentCollection
+    public final BwaArgumentCollection bwaArgs = new BwaArgumentCollection();
+
+    @Argument(doc = "Number of native threads BWA-MEM uses to align each batch.", optional = true, minValue = 1,
+            fullName = THREADS_LONG_NAME)
+    protected int threads = Runtime.getRuntime().availableProcessors();
+
+    @Argument(doc = "Number of threads converting alignments into reads.", optional = true, minValue = 1,
+            fullName = CONVERSION_THREADS_LONG_NAME)
+    protected int conversionThreads = 2;
+
+    @Advanced
+    @Argument(doc = "Number of reads aligned together.", optional = true, minValue = 2,
+            fullName = READS_PER_BATCH_LONG_NAME)
+    protected int readsPerBatch = 500000;
+
+    @Advanced
+    @Argument(doc = "Number of batches waiting between two stages of the pipeline.", optional = true, minValue = 1,
+            fullName = QUEUED_BATCHES_LONG_NAME)
+    protected int queuedBatches = 2;
+
+    private SAMFileHeader alignedHeader;
+
+    @Override
+    public boolean requiresReference() {
+        return true;
+    }
+
+    @Override
+    public List<ReadFilter> getDefaultReadFilters() {
+        // 1) unmapped or neither secondary nor supplementary and 2) has some sequence
+        return Arrays.asList(ReadFilterLibrary.PRIMARY_LINE, ReadFilterLibrary.SEQ_IS_STORED);
+    }
+
+    @Override
+    public SequenceDictionaryValidationArgumentCollection getSequenceDictionaryValidationArgumentCollection() {
+        return new SequenceDictionaryValidationArgumentCollection.NoValidationCollection();
+    }
+
+    @Override
+    protected String[] customCommandLineValidation() {
+        if (fastq2 != null && fastq == null) {
+            return new String[]{"--" + FASTQ2_LONG_NAME + " requires --" + FASTQ_LONG_NAME};
+        }
+        if (fastq2 != null && bwaArgs.singleEndAlignment) {
+            return new String[]{"--" + FASTQ2_LONG_NAME + " cannot be used with single-end alignment"};
+        }
+        return null;
+    }
+
+    @Override
+    public void onTraversalStart() {
+        if (!hasReads() && fastq == null) {
+            throw new UserException.BadInput("Either reads (--" + StandardArgumentDefinitions.INPUT_LONG_NAME + ") or --" + FASTQ_LONG_NAME + " must be given.");
+        }
+        if (hasReads() && !bwaArgs.singleEndAlignment && getHeaderForReads().getSortOrder() != SAMFileHeader.SortOrder.queryname &&
+                getHeaderForReads().getGroupOrder() != SAMFileHeader.GroupOrder.query) {
+            throw new UserException.BadInput("Input must be queryname sorted or querygrouped unless you use single-ended alignment mode.");
+        }
+    }
+
+    /**
+     * A copy of the header of the reads, or an empty header for FASTQ input, with the sequence dictionary of the reference
+     * if it has none, as {@link BwaSpark} uses.
+     */
+    @Override
+    protected SAMFileHeader getHeaderForSAMWriter() {
+        if (alignedHeader == null) {
+            // the header of the reads belongs to the engine, so it is not modified
+            alignedHeader = super.getHeaderForSAMWriter().clone();
+            if (alignedHeader.getSequenceDictionary() == null || alignedHeader.getSequenceDictionary().isEmpty()) {
+                alignedHeader.setSequenceDictionary(getReferenceDictionary());
+            }
+            if (!hasReads() && !bwaArgs.singleEndAlignment) {
+                alignedHeader.setGroupOrder(SAMFileHeader.GroupOrder.query);
+            }
+        }
+        return alignedHeader;
+    }
+
+    @Override
+    public void traverse() {
+        final SAMFileHeader header = getHeaderForSAMWriter();
+        final boolean pairs = !bwaArgs.singleEndAlignment;
+        final String indexImageFile = bwaArgs.indexImageFile != null ? bwaArgs.indexImageFile :
+                referenceArguments.getReferenceFileName() + REFERENCE_INDEX_IMAGE_FILE_SUFFIX;
+
+        // as in BwaSpark, paired reads are filtered after alignment since filtering does not know about pairs
+        final ReadFilter filter = makeReadFilter();
+        final Iterator<GATKRead> reads = fastq != null ? new FastqReadIterator(header, pairs) : directlyAccessEngineReadsDataSource().iterator();
+        final Iterator<GATKRead> input = pairs ? reads : new FilteringIterator(reads, filter);
+
+        final BlockingQueue<List<GATKRead>> batches = new ArrayBlockingQueue<>(queuedBatches);
+        final BlockingQueue<Future<List<GATKRead>>> alignedBatches = new ArrayBlockingQueue<>(queuedBatches);
+        final ExecutorService stages = Executors.newFixedThreadPool(2);
+        final ExecutorService converters = Executors.newFixedThreadPool(conversionThreads);
+        long batchCount = 0;
+        final BwaMemIndex index = BwaMemIndexCache.acquire(indexImageFile, bwaArgs.prewarmIndexImage);
+        try (final SAMFileGATKReadWriter writer = createSAMWriter(output, true)) {
+            final BwaReadAligner aligner = new BwaReadAligner(index, header, pairs, threads);
+            final List<Future<?>> stageFutures = Arrays.asList(
+                    stages.submit(() -> readBatches(input, batches)),
+                    stages.submit(() -> alignBatches(aligner, batches, alignedBatches, converters)));
+
+            while (true) {
+                final Future<List<GATKRead>> alignedBatch = alignedBatches.poll(1, TimeUnit.SECONDS);
+                if (alignedBatch == null) {
+                    checkStages(stageFutures);
+                } else if (alignedBatch == END_OF_READS) {
+                    break;
+                } else {
+                    for (final GATKRead read : getResult(alignedBatch)) {
+                        if (!pairs || filter.test(read)) {
+                            writer.addRead(read);
+                        }
+                    }
+                    batchCount++;
+                }
+            }
+            checkStages(stageFutures);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while aligning reads", e);
+        } finally {
+            stages.shutdownNow();
+            converters.shutdownNow();
+            BwaMemIndexCache.release(index);
+        }
+        logger.info("Aligned " + batchCount + " batches of reads");
+    }
+
+    /**
+     * Reader stage: splits the input into batches, without separating the mates of a pair.
+     */
+    private Void readBatches(final Iterator<GATKRead> input, final BlockingQueue<List<GATKRead>> batches) throws InterruptedException {
+        // an even batch size keeps interleaved mates together
+        final int batchSize = readsPerBatch & ~1;
+        List<GATKRead> batch = new ArrayList<>(batchSize);
+        while (input.hasNext()) {
+            batch.add(input.next());
+            if (batch.size() == batchSize) {
+                batches.put(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            batches.put(batch);
+        }
+        batches.put(END_OF_BATCHES);
+        return null;
+    }
+
+    /**
+     * Aligner stage: aligns each batch on the native threads of BWA-MEM, and hands the conversion of its alignments to
+     * the conversion threads.
+     */
+    private static Void alignBatches(final BwaReadAligner aligner, final BlockingQueue<List<GATKRead>> batches,
+                                     final BlockingQueue<Future<List<GATKRead>>> alignedBatches, final ExecutorService converters) throws InterruptedException {
+        while (true) {
+            final List<GATKRead> batch = batches.take();
+            if (batch == END_OF_BATCHES) {
+                alignedBatches.put(END_OF_READS);
+                return null;
+            }
+            final List<List<BwaMemAlignment>> alignments = aligner.alignBatch(batch);
+            alignedBatches.put(converters.submit(() -> aligner.toReads(batch, alignments)));
+        }
+    }
+
+    // rethrows the failure of a stage
+    private static void checkStages(final List<Future<?>> stageFutures) throws InterruptedException {
+        for (final Future<?> stage : stageFutures) {
+            if (stage.isDone()) {
+                getResult(stage);
+            }
+        }
+    }
+
+    private static <T> T getResult(final Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Failed to align reads", e.getCause());
+        }
+    }
+
+    private static final class FilteringIterator implements Iterator<GATKRead> {
+        private final Iterator<GATKRead> reads;
+        private final ReadFilter filter;
+        private GATKRead next;
+
+        FilteringIterator(final Iterator<GATKRead> reads, final ReadFilter filter) {
+            this.reads = reads;
+            this.filter = filter;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (next == null && reads.hasNext()) {
+                final GATKRead read = reads.next();
+                if (filter.test(read)) {
+                    next = read;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public GATKRead next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            final GATKRead read = next;
+            advance();
+            return read;
+        }
+    }
+
+    /**
+     * Reads unaligned reads from one FASTQ file, or from two FASTQ files of mates, which it interleaves.
+     */
+    private final class FastqReadIterator implements Iterator<GATKRead> {
+        private final SAMFileHeader header;
+        private final boolean pairs;
+        private final FastqReader reader1;
+        private final FastqReader reader2;
+        private boolean nextIsFirstOfPair = true;
+
+        FastqReadIterator(final SAMFileHeader header, final boolean pairs) {
+            this.header = header;
+            this.pairs = pairs;
+            this.reader1 = openFastq(fastq);
+            this.reader2 = fastq2 == null ? null : openFastq(fastq2);
+        }
+
+        private FastqReader openFastq(final GATKPath path) {
+            return new FastqReader(null, IOUtil.openFileForBufferedReading(path.toPath()));
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (reader2 != null && !nextIsFirstOfPair) {
+                if (!reader2.hasNext()) {
+                    throw new UserException.BadInput("--" + FASTQ2_LONG_NAME + " has fewer reads than --" + FASTQ_LONG_NAME);
+                }
+                return true;
+            }
+            if (reader1.hasNext()) {
+                return true;
+            }
+            if (reader2 != null && reader2.hasNext()) {
+                throw new UserException.BadInput("--" + FASTQ2_LONG_NAME + " has more reads than --" + FASTQ_LONG_NAME);
+            }
+            reader1.close();
+            if (reader2 != null) {
+                reader2.close();
+            }
+            return false;
+        }
+
+        @Override
+        public GATKRead next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            final FastqRecord fastqRecord = reader2 == null || nextIsFirstOfPair ? reader1.next() : reader2.next();
+            final SAMRecord record = new SAMRecord(header);
+            record.setReadName(templateName(fastqRecord.getReadName()));
+            record.setReadBases(fastqRecord.getReadBases());
+            record.setBaseQualities(fastqRecord.getBaseQualities());
+            record.setReadUnmappedFlag(true);
+            if (pairs) {
+                record.setReadPairedFlag(true);
+                record.setMateUnmappedFlag(true);
+                record.setFirstOfPairFlag(nextIsFirstOfPair);
+                record.setSecondOfPairFlag(!nextIsFirstOfPair);
+                nextIsFirstOfPair = !nextIsFirstOfPair;
+            }
+            return new SAMRecordToGATKReadAdapter(record);
+        }
+
+        // the read name ends at the first whitespace, and the mates of a pair may be told apart by a /1 or /2 suffix
+        private String templateName(final String fastqName) {
+            int end = 0;
+            while (end < fastqName.length() && !Character.isWhitespace(fastqName.charAt(end))) {
+                end++;
+            }
+            if (end > 2 && fastqName.charAt(end - 2) == '/' && (fastqName.charAt(end - 1) == '1' || fastqName.charAt(end - 1) == '2')) {
+                end -= 2;
+            }
+            return fastqName.substring(0, end);
+        }
+    }
+}
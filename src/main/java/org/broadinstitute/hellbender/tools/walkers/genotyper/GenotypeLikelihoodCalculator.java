@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.walkers.genotyper;
 
+import com.google.common.annotations.VisibleForTesting;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.GenotypeLikelihoods;
 import org.apache.commons.lang3.tuple.ImmutablePair;
@@ -33,9 +34,25 @@ import java.util.Arrays;
  *
  * If the cache-friendliness of this class is broken, it will show up as a severe regression in the runtime of its unit tests
  * for larger ploidies and allele counts.
+ *
+ * HIGH PLOIDY AND MANY ALLELES
+ * The number of genotypes grows very quickly with the ploidy and the number of alleles.  Above {@link #ENUMERATION_MIN_PLOIDY}
+ * or {@link #ENUMERATION_MIN_ALLELE_COUNT}, genotypes are not materialized as {@link GenotypeAlleleCounts}.  Instead, they are
+ * enumerated in canonical order by a depth-first traversal over (allele, count) pairs, in which the per-read sums shared by
+ * all the genotypes below a node of the traversal are computed once, so that each genotype costs a single pass over the reads.
  */
 public class GenotypeLikelihoodCalculator {
 
+    /**
+     * Minimum ploidy at which genotype likelihoods are computed by enumeration (see the class documentation).
+     */
+    static final int ENUMERATION_MIN_PLOIDY = 10;
+
+    /**
+     * Minimum number of alleles at which genotype likelihoods are computed by enumeration (see the class documentation).
+     */
+    static final int ENUMERATION_MIN_ALLELE_COUNT = 6;
+
     protected GenotypeLikelihoodCalculator() { }
 
     /**
@@ -61,6 +78,20 @@ public class GenotypeLikelihoodCalculator {
      * @return the log 10 likelihood of each genotype as an array
      */
     protected static <EVIDENCE, A extends Allele> double[] computeLog10GenotypeLikelihoods(final int ploidy, final LikelihoodMatrix<EVIDENCE, A> log10AlleleLikelihoods) {
+        Utils.nonNull(log10AlleleLikelihoods);
+        final int alleleCount = log10AlleleLikelihoods.numberOfAlleles();
+        if (ploidy > 0 && (ploidy >= ENUMERATION_MIN_PLOIDY || alleleCount >= ENUMERATION_MIN_ALLELE_COUNT)) {
+            return computeLog10GenotypeLikelihoodsByEnumeration(ploidy, log10AlleleLikelihoods);
+        } else {
+            return computeLog10GenotypeLikelihoodsByGenotypeAlleleCounts(ploidy, log10AlleleLikelihoods);
+        }
+    }
+
+    /**
+     * Compute the genotype log10 likelihoods iterating over the {@link GenotypeAlleleCounts} of each genotype.
+     */
+    @VisibleForTesting
+    static <EVIDENCE, A extends Allele> double[] computeLog10GenotypeLikelihoodsByGenotypeAlleleCounts(final int ploidy, final LikelihoodMatrix<EVIDENCE, A> log10AlleleLikelihoods) {
         Utils.nonNull(log10AlleleLikelihoods);
         final int alleleCount = log10AlleleLikelihoods.numberOfAlleles();
         final int readCount = log10AlleleLikelihoods.evidenceCount();
@@ -109,6 +140,146 @@ public class GenotypeLikelihoodCalculator {
         return result;
     }
 
+    /**
+     * Compute the genotype log10 likelihoods enumerating the genotypes in canonical order without materializing
+     * their {@link GenotypeAlleleCounts}.  The results are those of {@link #computeLog10GenotypeLikelihoodsByGenotypeAlleleCounts}
+     * up to floating-point rounding.
+     */
+    @VisibleForTesting
+    static <EVIDENCE, A extends Allele> double[] computeLog10GenotypeLikelihoodsByEnumeration(final int ploidy, final LikelihoodMatrix<EVIDENCE, A> log10AlleleLikelihoods) {
+        Utils.nonNull(log10AlleleLikelihoods);
+        Utils.validateArg(ploidy > 0, "the ploidy must be positive");
+        final int alleleCount = log10AlleleLikelihoods.numberOfAlleles();
+        final int readCount = log10AlleleLikelihoods.evidenceCount();
+
+        final double[][] log10LikelihoodsByAlleleAndRead = log10AlleleLikelihoods.asRealMatrix().getData();
+        final boolean triallelicGenotypesPossible = alleleCount > 2 && ploidy > 2;
+        final Pair<double[][], Double> rescaledNonLogLikelihoodsAndCorrection = !triallelicGenotypesPossible ? null :
+                rescaledNonLogLikelihoods(log10AlleleLikelihoods);
+
+        final GenotypeEnumerator enumerator = new GenotypeEnumerator(ploidy, alleleCount, readCount,
+                log10LikelihoodsByAlleleAndRead, rescaledNonLogLikelihoodsAndCorrection);
+        enumerator.enumerate(alleleCount, ploidy, 0);
+        Utils.validate(enumerator.nextGenotypeIndex == enumerator.result.length, "not all genotypes were enumerated");
+        return enumerator.result;
+    }
+
+    /**
+     * Depth-first enumeration of the genotypes of a ploidy and allele count in canonical order.
+     *
+     * <p>
+     *     Each level of the traversal picks the next distinct allele of the genotype, in decreasing allele order, and its count.
+     *     In canonical order the genotypes are sorted first by their largest allele, then by its count, then by the remaining
+     *     alleles (recursively), which is exactly the order in which the leaves of the traversal are visited.
+     * </p>
+     * <p>
+     *     Homozygous and biallelic genotypes are computed in log space exactly as in {@link #computeLog10GenotypeLikelihoodsByGenotypeAlleleCounts}.
+     *     For genotypes with three or more distinct alleles, the (non-log, rescaled) per-read sum over the alleles picked so far is kept
+     *     for each level of the traversal, so that each genotype adds only its last allele to its parent's sums.
+     * </p>
+     */
+    private static final class GenotypeEnumerator {
+        private final int ploidy;
+        private final int readCount;
+        private final double[][] log10LikelihoodsByAlleleAndRead;
+        private final double[] homozygousLog10Likelihoods;
+        private final double[][] nonLogLikelihoodsByAlleleAndRead;
+        private final double log10Rescaling;
+
+        // allele and count picked at each level of the traversal, and the per-read sums over the alleles picked up to each level.
+        private final int[] alleleByLevel;
+        private final int[] countByLevel;
+        private final double[][] perReadSumsByLevel;
+
+        private final double[] result;
+        private int nextGenotypeIndex = 0;
+
+        private GenotypeEnumerator(final int ploidy, final int alleleCount, final int readCount,
+                                   final double[][] log10LikelihoodsByAlleleAndRead,
+                                   final Pair<double[][], Double> rescaledNonLogLikelihoodsAndCorrection) {
+            this.ploidy = ploidy;
+            this.readCount = readCount;
+            this.log10LikelihoodsByAlleleAndRead = log10LikelihoodsByAlleleAndRead;
+            homozygousLog10Likelihoods = new double[alleleCount];
+            for (int a = 0; a < alleleCount; a++) {
+                homozygousLog10Likelihoods[a] = MathUtils.sum(log10LikelihoodsByAlleleAndRead[a]);
+            }
+            nonLogLikelihoodsByAlleleAndRead = rescaledNonLogLikelihoodsAndCorrection == null ? null : rescaledNonLogLikelihoodsAndCorrection.getLeft();
+            log10Rescaling = rescaledNonLogLikelihoodsAndCorrection == null ? 0 : rescaledNonLogLikelihoodsAndCorrection.getRight();
+
+            final int maxLevels = Math.min(ploidy, alleleCount);
+            alleleByLevel = new int[maxLevels];
+            countByLevel = new int[maxLevels];
+            perReadSumsByLevel = new double[maxLevels][];
+            result = new double[GenotypeIndexCalculator.genotypeCount(ploidy, alleleCount)];
+        }
+
+        /**
+         * Visits all the genotypes that complete the alleles picked in levels {@code [0, level)} with
+         * {@code remainingPloidy} copies of alleles smaller than {@code alleleBound}.
+         */
+        private void enumerate(final int alleleBound, final int remainingPloidy, final int level) {
+            for (int allele = 0; allele < alleleBound; allele++) {
+                alleleByLevel[level] = allele;
+                // allele 0 leaves no smaller alleles for the remaining copies, so it must take all of them:
+                for (int count = allele == 0 ? remainingPloidy : 1; count <= remainingPloidy; count++) {
+                    countByLevel[level] = count;
+                    if (count == remainingPloidy) {
+                        result[nextGenotypeIndex++] = genotypeLog10Likelihood(level + 1);
+                    } else {
+                        if (nonLogLikelihoodsByAlleleAndRead != null) {
+                            accumulatePerReadSums(level);
+                        }
+                        enumerate(allele, remainingPloidy - count, level + 1);
+                    }
+                }
+            }
+        }
+
+        private void accumulatePerReadSums(final int level) {
+            final double[] sums = perReadSumsByLevel[level] == null ? (perReadSumsByLevel[level] = new double[readCount]) : perReadSumsByLevel[level];
+            final double[] likelihoods = nonLogLikelihoodsByAlleleAndRead[alleleByLevel[level]];
+            final int count = countByLevel[level];
+            if (level == 0) {
+                for (int r = 0; r < readCount; r++) {
+                    sums[r] = count * likelihoods[r];
+                }
+            } else {
+                final double[] parentSums = perReadSumsByLevel[level - 1];
+                for (int r = 0; r < readCount; r++) {
+                    sums[r] = parentSums[r] + count * likelihoods[r];
+                }
+            }
+        }
+
+        private double genotypeLog10Likelihood(final int distinctAlleleCount) {
+            if (distinctAlleleCount == 1) {
+                return homozygousLog10Likelihoods[alleleByLevel[0]];
+            } else if (distinctAlleleCount == 2) {
+                // same as the biallelic het case above, where the first allele is the smaller one
+                final double[] log10ReadLks1 = log10LikelihoodsByAlleleAndRead[alleleByLevel[1]];
+                final int count1 = countByLevel[1];
+                final double log10Count1 = Math.log10(count1);
+                final double[] log10ReadLks2 = log10LikelihoodsByAlleleAndRead[alleleByLevel[0]];
+                final double log10Count2 = Math.log10(ploidy - count1);
+                double sum = 0;
+                for (int r = 0; r < readCount; r++) {
+                    sum += MathUtils.approximateLog10SumLog10(log10ReadLks1[r] + log10Count1, log10ReadLks2[r] + log10Count2);
+                }
+                return sum - readCount * Math.log10(ploidy);
+            } else {
+                final int lastLevel = distinctAlleleCount - 1;
+                final double[] parentSums = perReadSumsByLevel[lastLevel - 1];
+                final double[] likelihoods = nonLogLikelihoodsByAlleleAndRead[alleleByLevel[lastLevel]];
+                final int count = countByLevel[lastLevel];
+                double sum = 0;
+                for (int r = 0; r < readCount; r++) {
+                    sum += Math.log10(parentSums[r] + count * likelihoods[r]);
+                }
+                return sum - readCount * Math.log10(ploidy) + log10Rescaling;
+            }
+        }
+    }
 
     /**
      * Given an input log10 log10Likelihoods matrix, subtract off the maximum of each read column so that each column's maximum is zero for numerical
@@ -76,6 +76,7 @@ public abstract class AssemblyBasedCallerArgumentCollection {
         final ReadThreadingAssembler assemblyEngine = assemblerArgs.makeReadThreadingAssembler();
         assemblyEngine.setDebug(assemblerArgs.debugAssembly);
         assemblyEngine.setMinBaseQualityToUseInAssembly(minBaseQualityScore);
+        assemblyEngine.setAssemblyAlignerImplementation(smithWatermanImplementation);
 
         return assemblyEngine;
     }
@@ -555,6 +555,7 @@ public final class AssemblyBasedCallerUtils {
                 read.setAttribute(SUPPORTED_ALLELES_TAG, prevAllelesString + newAllelesString);
             }
         }
+        subsettedLikelihoods.releaseBuffers();
     }
 
     /*
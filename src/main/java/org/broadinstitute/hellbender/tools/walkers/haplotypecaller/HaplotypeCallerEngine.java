@@ -1006,32 +1006,40 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
             logger.info("----------------------------------------------------------------------------------");
         }
 
-        if ( emitReferenceConfidence() ) {
-            if ( !containsCalls(calledHaplotypes) ) {
-                // no called all of the potential haplotypes
-                return referenceModelForNoVariation(region, false, VCpriors);
-            }
-            else {
-                final List<VariantContext> result = new LinkedList<>();
-                // output left-flanking non-variant section, then variant-containing section, then right flank
-                trimmingResult.nonVariantLeftFlankRegion().ifPresent(flank -> result.addAll(referenceModelForNoVariation(flank, false, VCpriors)));
+        try {
+            if ( emitReferenceConfidence() ) {
+                if ( !containsCalls(calledHaplotypes) ) {
+                    // no called all of the potential haplotypes
+                    return referenceModelForNoVariation(region, false, VCpriors);
+                }
+                else {
+                    final List<VariantContext> result = new LinkedList<>();
+                    // output left-flanking non-variant section, then variant-containing section, then right flank
+                    trimmingResult.nonVariantLeftFlankRegion().ifPresent(flank -> result.addAll(referenceModelForNoVariation(flank, false, VCpriors)));
 
-                result.addAll(referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
-                        calledHaplotypes.getCalledHaplotypes(), assemblyResult.getPaddedReferenceLoc(), regionForGenotyping,
-                        subsettedReadLikelihoodsFinal, localGenotypingEngine.getPloidyModel(), calledHaplotypes.getCalls(), hcArgs.standardArgs.genotypeArgs.supportVariants != null,
-                        VCpriors));
+                    result.addAll(referenceConfidenceModel.calculateRefConfidence(assemblyResult.getReferenceHaplotype(),
+                            calledHaplotypes.getCalledHaplotypes(), assemblyResult.getPaddedReferenceLoc(), regionForGenotyping,
+                            subsettedReadLikelihoodsFinal, localGenotypingEngine.getPloidyModel(), calledHaplotypes.getCalls(), hcArgs.standardArgs.genotypeArgs.supportVariants != null,
+                            VCpriors));
 
-                trimmingResult.nonVariantRightFlankRegion().ifPresent(flank -> result.addAll(referenceModelForNoVariation(flank, false, VCpriors)));
+                    trimmingResult.nonVariantRightFlankRegion().ifPresent(flank -> result.addAll(referenceModelForNoVariation(flank, false, VCpriors)));
 
-                return result;
+                    return result;
+                }
             }
-        }
-        else {
-            //TODO this should be updated once reducible annotations are handled properly.
-            return calledHaplotypes.getCalls()
-                    .stream()
-                    .map(RMSMappingQuality.getInstance()::finalizeRawMQ)
-                    .collect(Collectors.toList());
+            else {
+                //TODO this should be updated once reducible annotations are handled properly.
+                return calledHaplotypes.getCalls()
+                        .stream()
+                        .map(RMSMappingQuality.getInstance()::finalizeRawMQ)
+                        .collect(Collectors.toList());
+            }
+        } finally {
+            // the likelihoods of this region are no longer needed:  let the next region reuse their buffers
+            if (subsettedReadLikelihoodsFinal != readLikelihoods) {
+                subsettedReadLikelihoodsFinal.releaseBuffers();
+            }
+            readLikelihoods.releaseBuffers();
         }
     }
 
@@ -1130,6 +1138,7 @@ public class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         HaplotypeCallerGenotypingDebugger.close();
         // Write assembly region debug output if present
         assemblyEngine.printDebugHistograms();
+        assemblyEngine.shutdown();
 
     }
 
@@ -189,7 +189,8 @@ public class HaplotypeCallerGenotypingEngine extends GenotypingEngine<StandardCa
 
             mergedVC = removeAltAllelesIfTooManyGenotypes(ploidy, alleleMapper, mergedVC);
 
-            AlleleLikelihoods<GATKRead, Allele> readAlleleLikelihoods = readLikelihoods.marginalize(alleleMapper);
+            final AlleleLikelihoods<GATKRead, Allele> readAlleleLikelihoodsForGenotyping = readLikelihoods.marginalize(alleleMapper);
+            AlleleLikelihoods<GATKRead, Allele> readAlleleLikelihoods = readAlleleLikelihoodsForGenotyping;
             final SAMSequenceDictionary sequenceDictionary = header.getSequenceDictionary();
             final SimpleInterval variantCallingRelevantOverlap = new SimpleInterval(mergedVC).expandWithinContig(hcArgs.informativeReadOverlapMargin, sequenceDictionary);
 
@@ -285,6 +286,12 @@ public class HaplotypeCallerGenotypingEngine extends GenotypingEngine<StandardCa
                 // maintain the set of all called haplotypes
                 call.getAlleles().stream().map(alleleMapper::get).filter(Objects::nonNull).forEach(calledHaplotypes::addAll);
             }
+
+            // the likelihoods of this event are no longer needed:  let the next event reuse their buffers
+            if (readAlleleLikelihoods != readAlleleLikelihoodsForGenotyping) {
+                readAlleleLikelihoods.releaseBuffers();
+            }
+            readAlleleLikelihoodsForGenotyping.releaseBuffers();
         }
 
         final List<VariantContext> phasedCalls = doPhysicalPhasing ? AssemblyBasedCallerUtils.phaseCalls(returnCalls, calledHaplotypes) : returnCalls;
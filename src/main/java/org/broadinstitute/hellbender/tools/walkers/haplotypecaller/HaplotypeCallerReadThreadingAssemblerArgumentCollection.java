@@ -49,6 +49,11 @@ public class HaplotypeCallerReadThreadingAssemblerArgumentCollection extends Rea
         assemblyEngine.setRecoverAllDanglingBranches(recoverAllDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(minDanglingBranchLength);
         assemblyEngine.setArtificialHaplotypeRecoveryMode(disableArtificialHaplotypeRecovery);
+        assemblyEngine.setUseCompactGraph(useCompactAssemblyGraph);
+        assemblyEngine.setAssemblyThreads(assemblyKmerThreads);
+        if ( useBoundedHaplotypeSearch ) {
+            assemblyEngine.setBoundedHaplotypeSearch(haplotypeSearchMaxPartialPaths, haplotypeSearchMaxMillis);
+        }
 
         if ( graphOutput != null ) {
             assemblyEngine.setGraphWriter(new File(graphOutput));
@@ -30,6 +30,11 @@ public class MutectReadThreadingAssemblerArgumentCollection extends ReadThreadin
         assemblyEngine.setRecoverAllDanglingBranches(recoverAllDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(minDanglingBranchLength);
         assemblyEngine.setArtificialHaplotypeRecoveryMode(disableArtificialHaplotypeRecovery);
+        assemblyEngine.setUseCompactGraph(useCompactAssemblyGraph);
+        assemblyEngine.setAssemblyThreads(assemblyKmerThreads);
+        if ( useBoundedHaplotypeSearch ) {
+            assemblyEngine.setBoundedHaplotypeSearch(haplotypeSearchMaxPartialPaths, haplotypeSearchMaxMillis);
+        }
 
         if ( graphOutput != null ) {
             assemblyEngine.setGraphWriter(new File(graphOutput));
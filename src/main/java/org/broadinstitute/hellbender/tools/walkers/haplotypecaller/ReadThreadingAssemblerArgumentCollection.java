@@ -25,6 +25,11 @@ public abstract class ReadThreadingAssemblerArgumentCollection implements Serial
     public static final String KMER_SIZE_LONG_NAME = "kmer-size";
     public static final String DONT_INCREASE_KMER_SIZE_LONG_NAME = "dont-increase-kmer-sizes-for-cycles";
     public static final String LINKED_DE_BRUIJN_GRAPH_LONG_NAME = "linked-de-bruijn-graph";
+    public static final String COMPACT_ASSEMBLY_GRAPH_LONG_NAME = "compact-assembly-graph";
+    public static final String ASSEMBLY_KMER_THREADS_LONG_NAME = "assembly-kmer-threads";
+    public static final String BOUNDED_HAPLOTYPE_SEARCH_LONG_NAME = "bounded-haplotype-search";
+    public static final String HAPLOTYPE_SEARCH_MAX_PARTIAL_PATHS_LONG_NAME = "haplotype-search-max-partial-paths";
+    public static final String HAPLOTYPE_SEARCH_MAX_MILLIS_LONG_NAME = "haplotype-search-max-millis";
     public static final String ALLOW_NON_UNIQUE_KMERS_IN_REF_LONG_NAME = "allow-non-unique-kmers-in-ref";
     public static final String NUM_PRUNING_SAMPLES_LONG_NAME = "num-pruning-samples";
     public static final String MIN_DANGLING_BRANCH_LENGTH_LONG_NAME = "min-dangling-branch-length";
@@ -165,6 +170,49 @@ public abstract class ReadThreadingAssemblerArgumentCollection implements Serial
     public boolean useLinkedDeBruijnGraph = false;
 
 
+    /**
+     * Build the read threading graph with kmers of up to 31 bases packed into longs, and with its edges and their
+     * multiplicities held in primitive arrays, converting it into an ordinary graph only after low-weight chain pruning.
+     * This uses much less memory and time for deep or long assembly regions, and produces identical results.
+     * Has no effect in linked De Bruijn graph mode, or for larger kmer sizes.
+     */
+    @Advanced
+    @Argument(fullName= COMPACT_ASSEMBLY_GRAPH_LONG_NAME, doc = "Build the assembly graph in a compact, packed-kmer form where possible", optional = true)
+    public boolean useCompactAssemblyGraph = false;
+
+    /**
+     * Build the assembly graphs for all the candidate kmer sizes (both those requested, and the larger sizes that are
+     * tried when those fail) concurrently, on a pool of this many threads.  Results are identical to those of serial
+     * assembly, but latency drops in repetitive regions where several kmer sizes are always tried, at the cost of
+     * holding several graphs in memory at once.  Has no effect in linked De Bruijn graph mode.
+     */
+    @Advanced
+    @Argument(fullName= ASSEMBLY_KMER_THREADS_LONG_NAME, doc = "Number of threads used to build assembly graphs for different kmer sizes concurrently", optional = true, minValue = 1)
+    public int assemblyKmerThreads = 1;
+
+    /**
+     * Find the best haplotypes in each assembly graph with a search that shares the prefixes of partial paths and that
+     * is guided by an exact bound on the best score a partial path can achieve.  It finds the same haplotypes as the
+     * default search using far less memory and time on complex graphs, and it stops early (keeping the best haplotypes
+     * found so far) if it exceeds the budget set by --haplotype-search-max-partial-paths and --haplotype-search-max-millis.
+     * The number of regions that exceed the budget is reported at the end of the run.  Has no effect in linked De Bruijn
+     * graph mode.
+     */
+    @Advanced
+    @Argument(fullName= BOUNDED_HAPLOTYPE_SEARCH_LONG_NAME, doc = "Use a bounded-memory, early-terminating search for the best haplotypes in each assembly graph", optional = true)
+    public boolean useBoundedHaplotypeSearch = false;
+
+    @Advanced
+    @Argument(fullName= HAPLOTYPE_SEARCH_MAX_PARTIAL_PATHS_LONG_NAME, doc = "Maximum number of partial paths the bounded haplotype search may explore in each graph (0 for no limit)", optional = true, minValue = 0)
+    public long haplotypeSearchMaxPartialPaths = 1_000_000L;
+
+    /**
+     * Note that this makes results depend on the speed of the machine.
+     */
+    @Advanced
+    @Argument(fullName= HAPLOTYPE_SEARCH_MAX_MILLIS_LONG_NAME, doc = "Maximum time in milliseconds the bounded haplotype search may spend on each graph (0 for no limit)", optional = true, minValue = 0)
+    public long haplotypeSearchMaxMillis = 0L;
+
     /**
      * This is used to disable the recovery of paths that were dropped in the graph based on the junction trees. Disabling this
      * will affect sensitivity but improve phasing and runtime somewhat.
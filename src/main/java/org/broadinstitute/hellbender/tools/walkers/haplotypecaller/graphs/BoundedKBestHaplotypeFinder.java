@@ -0,0 +1,279 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs;
+
+import org.apache.commons.lang3.ArrayUtils;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.*;
+
+/**
+ * A k-best haplotype finder that finds the same haplotypes as {@link GraphBasedKBestHaplotypeFinder} (up to the order of
+ * paths with identical scores), but that works in bounded memory and time.
+ *
+ * <p>
+ *     Partial paths are persistent linked lists that share their prefixes, so extending a path costs a single small
+ *     node rather than a copy of its edge list.  The search is best-first on the score of a partial path plus the
+ *     best score with which its last vertex can reach a sink.  That bound is exact, so complete paths are found in order
+ *     of decreasing score while exploring few of the partial paths that can't make the cut, and partial paths that
+ *     can't reach a sink at all are never created.  Paths are only turned into {@link KBestHaplotype}s when they're
+ *     complete.
+ * </p>
+ *
+ * <p>
+ *     The search may also be given a budget:  a maximum number of partial paths to create, and a maximum time to take.
+ *     When either runs out, the search stops and returns the haplotypes it has found so far (which are the best ones),
+ *     and {@link #exceededBudget()} reports true.  Note that a time budget makes results depend on the machine.
+ * </p>
+ */
+public class BoundedKBestHaplotypeFinder<V extends BaseVertex, E extends BaseEdge> extends KBestHaplotypeFinder<V, E> {
+    public static final long NO_LIMIT = 0L;
+
+    private static final int TIME_CHECK_INTERVAL = 1024;
+    private static final Comparator<byte[]> TIE_BREAKER = BaseUtils.BASES_COMPARATOR.reversed();
+
+    private final long maxPartialPaths;
+    private final long maxNanos;
+    private boolean exceededBudget = false;
+    private long nPartialPaths = 0L;
+
+    /**
+     * @param graph the graph to search.
+     * @param sources source vertices for all haplotypes.
+     * @param sinks sink vertices for all haplotypes.
+     * @param maxPartialPaths the maximum number of partial paths to create, or {@link #NO_LIMIT}
+     * @param maxMillis the maximum time to search in milliseconds, or {@link #NO_LIMIT}
+     */
+    public BoundedKBestHaplotypeFinder(final BaseGraph<V, E> graph, final Set<V> sources, final Set<V> sinks,
+                                       final long maxPartialPaths, final long maxMillis) {
+        super(sinks, sources, graph);
+        Utils.validateArg(maxPartialPaths >= 0, "maxPartialPaths must be non-negative");
+        Utils.validateArg(maxMillis >= 0, "maxMillis must be non-negative");
+        this.maxPartialPaths = maxPartialPaths;
+        this.maxNanos = maxMillis * 1_000_000L;
+    }
+
+    /**
+     * Constructor for the special case of a single source and sink
+     */
+    public BoundedKBestHaplotypeFinder(final BaseGraph<V, E> graph, final V source, final V sink,
+                                       final long maxPartialPaths, final long maxMillis) {
+        this(graph, Collections.singleton(source), Collections.singleton(sink), maxPartialPaths, maxMillis);
+    }
+
+    /**
+     * Constructor for the default case of all sources and sinks, with no budget
+     */
+    public BoundedKBestHaplotypeFinder(final BaseGraph<V, E> graph) {
+        this(graph, graph.getSources(), graph.getSinks(), NO_LIMIT, NO_LIMIT);
+    }
+
+    @Override
+    public boolean keepCycles() {
+        return false;
+    }
+
+    /**
+     * Did the most recent search stop early because it ran out of its budget?
+     */
+    public boolean exceededBudget() { return exceededBudget; }
+
+    /**
+     * The number of partial paths created by the most recent search.
+     */
+    public long getNPartialPaths() { return nPartialPaths; }
+
+    @Override
+    public List<KBestHaplotype<V, E>> findBestHaplotypes(final int maxNumberOfHaplotypes) {
+        exceededBudget = false;
+        nPartialPaths = 0L;
+        final long startNanos = System.nanoTime();
+
+        final Map<V, Double> bestScoreToSink = computeBestScoresToSinks();
+        final List<KBestHaplotype<V, E>> result = new ArrayList<>();
+        final PriorityQueue<PartialPath<V, E>> queue = new PriorityQueue<>();
+        for ( final V source : sources ) {
+            final Double bound = bestScoreToSink.get(source);
+            if ( bound != null ) {
+                queue.add(new PartialPath<>(source, bound, BaseGraph.getAdditionalSequence(source, true)));
+                nPartialPaths += 1;
+            }
+        }
+
+        final Map<V, Integer> vertexCounts = new HashMap<>();
+        long nIterations = 0L;
+        while ( !queue.isEmpty() && result.size() < maxNumberOfHaplotypes ) {
+            if ( overBudget(++nIterations, startNanos) ) {
+                exceededBudget = true;
+                break;
+            }
+            final PartialPath<V, E> pathToExtend = queue.poll();
+            final V vertexToExtend = pathToExtend.lastVertex;
+            if ( sinks.contains(vertexToExtend) ) {
+                result.add(toKBestHaplotype(pathToExtend));
+            } else if ( vertexCounts.merge(vertexToExtend, 1, Integer::sum) <= maxNumberOfHaplotypes ) {
+                final Set<E> outgoingEdges = graph.outgoingEdgesOf(vertexToExtend);
+                int totalOutgoingMultiplicity = 0;
+                for ( final BaseEdge edge : outgoingEdges ) {
+                    totalOutgoingMultiplicity += edge.getMultiplicity();
+                }
+
+                for ( final E edge : outgoingEdges ) {
+                    final V target = graph.getEdgeTarget(edge);
+                    final Double bound = bestScoreToSink.get(target);
+                    if ( bound != null ) {
+                        final double score = pathToExtend.score +
+                                KBestHaplotype.computeLogPenaltyScore(edge.getMultiplicity(), totalOutgoingMultiplicity);
+                        queue.add(new PartialPath<>(pathToExtend, edge, target, score, bound));
+                        nPartialPaths += 1;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean overBudget( final long nIterations, final long startNanos ) {
+        if ( maxPartialPaths != NO_LIMIT && nPartialPaths > maxPartialPaths ) {
+            return true;
+        }
+        return maxNanos != NO_LIMIT && nIterations % TIME_CHECK_INTERVAL == 0 && System.nanoTime() - startNanos > maxNanos;
+    }
+
+    /**
+     * For each vertex from which a sink can be reached, the best score with which a path can get from the vertex to
+     * a sink (with the same per-edge scoring as paths).  Vertices that can't reach a sink have no entry.
+     */
+    private Map<V, Double> computeBestScoresToSinks() {
+        final Map<V, Double> bestScores = new HashMap<>();
+        final Set<V> visited = new HashSet<>();
+        final Deque<V> stack = new ArrayDeque<>();
+        final Deque<Iterator<E>> edgeIterators = new ArrayDeque<>();
+
+        // an iterative post-order depth-first traversal:  the graph is acyclic, so every vertex is scored after all
+        // the vertices it leads to have been scored
+        for ( final V source : sources ) {
+            if ( !visited.add(source) ) {
+                continue;
+            }
+            stack.push(source);
+            edgeIterators.push(graph.outgoingEdgesOf(source).iterator());
+            while ( !stack.isEmpty() ) {
+                final Iterator<E> itr = edgeIterators.peek();
+                if ( itr.hasNext() ) {
+                    final V target = graph.getEdgeTarget(itr.next());
+                    if ( visited.add(target) ) {
+                        stack.push(target);
+                        edgeIterators.push(graph.outgoingEdgesOf(target).iterator());
+                    }
+                } else {
+                    edgeIterators.pop();
+                    final V vertex = stack.pop();
+                    scoreVertex(vertex, bestScores);
+                }
+            }
+        }
+        return bestScores;
+    }
+
+    private void scoreVertex( final V vertex, final Map<V, Double> bestScores ) {
+        if ( sinks.contains(vertex) ) {
+            bestScores.put(vertex, 0.0);
+            return;
+        }
+        final Set<E> outgoingEdges = graph.outgoingEdgesOf(vertex);
+        int totalOutgoingMultiplicity = 0;
+        for ( final BaseEdge edge : outgoingEdges ) {
+            totalOutgoingMultiplicity += edge.getMultiplicity();
+        }
+        Double bestScore = null;
+        for ( final E edge : outgoingEdges ) {
+            final Double targetScore = bestScores.get(graph.getEdgeTarget(edge));
+            if ( targetScore != null ) {
+                final double score = targetScore +
+                        KBestHaplotype.computeLogPenaltyScore(edge.getMultiplicity(), totalOutgoingMultiplicity);
+                if ( bestScore == null || score > bestScore ) {
+                    bestScore = score;
+                }
+            }
+        }
+        if ( bestScore != null ) {
+            bestScores.put(vertex, bestScore);
+        }
+    }
+
+    private KBestHaplotype<V, E> toKBestHaplotype( final PartialPath<V, E> path ) {
+        final List<E> edges = new ArrayList<>(path.length);
+        PartialPath<V, E> source = path;
+        while ( source.parent != null ) {
+            edges.add(source.edge);
+            source = source.parent;
+        }
+        final KBestHaplotype<V, E> start = new KBestHaplotype<>(source.lastVertex, graph);
+        if ( edges.isEmpty() ) {
+            return start;
+        }
+        Collections.reverse(edges);
+        return new KBestHaplotype<>(start, edges, path.score);
+    }
+
+    /**
+     * A partial path, which shares all but its last edge with its parent.
+     */
+    private static final class PartialPath<V extends BaseVertex, E extends BaseEdge> implements Comparable<PartialPath<V, E>> {
+        private final PartialPath<V, E> parent;
+        private final E edge;
+        private final V lastVertex;
+        private final int length;
+        private final double score;
+        // the best score any completion of this path could have
+        private final double bound;
+        // only calculated when needed to break ties
+        private byte[] bases;
+
+        PartialPath( final V source, final double bound, final byte[] bases ) {
+            this.parent = null;
+            this.edge = null;
+            this.lastVertex = source;
+            this.length = 0;
+            this.score = 0.0;
+            this.bound = bound;
+            this.bases = bases;
+        }
+
+        PartialPath( final PartialPath<V, E> parent, final E edge, final V lastVertex,
+                     final double score, final double boundToSink ) {
+            this.parent = parent;
+            this.edge = edge;
+            this.lastVertex = lastVertex;
+            this.length = parent.length + 1;
+            this.score = score;
+            this.bound = score + boundToSink;
+            this.bases = null;
+        }
+
+        byte[] getBases() {
+            if ( bases == null ) {
+                // walk back (iteratively, as paths can be long) to the nearest path whose bases we know
+                final Deque<PartialPath<V, E>> suffix = new ArrayDeque<>();
+                PartialPath<V, E> path = this;
+                while ( path.bases == null ) {
+                    suffix.push(path);
+                    path = path.parent;
+                }
+                byte[] result = path.bases;
+                while ( !suffix.isEmpty() ) {
+                    result = ArrayUtils.addAll(result, BaseGraph.getAdditionalSequence(suffix.pop().lastVertex, false));
+                }
+                bases = result;
+            }
+            return bases;
+        }
+
+        // best bound first, with the same arbitrary, deterministic tie breaker as GraphBasedKBestHaplotypeFinder
+        @Override
+        public int compareTo( final PartialPath<V, E> other ) {
+            final int result = Double.compare(other.bound, bound);
+            return result != 0 ? result : TIE_BREAKER.compare(getBases(), other.getBases());
+        }
+    }
+}
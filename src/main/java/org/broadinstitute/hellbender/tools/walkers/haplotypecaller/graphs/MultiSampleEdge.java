@@ -51,6 +51,30 @@ public final class MultiSampleEdge extends BaseEdge {
         this.singleSampleCapacity = singleSampleCapacity;
     }
 
+    /**
+     * Recreate a MultiSampleEdge from its state, as captured elsewhere
+     *
+     * @param isRef indicates whether this edge is a path through the reference
+     * @param multiplicity the total number of observations of this edge
+     * @param singleSampleCapacity the max number of samples to track edge multiplicities
+     * @param singleSampleMultiplicities the retained single sample multiplicities (at most singleSampleCapacity of them)
+     * @param currentSingleSampleMultiplicity the not-yet-flushed multiplicity of the current sample
+     */
+    public MultiSampleEdge(final boolean isRef, final int multiplicity, final int singleSampleCapacity,
+                           final int[] singleSampleMultiplicities, final int currentSingleSampleMultiplicity) {
+        super(isRef, multiplicity);
+
+        Utils.validateArg( singleSampleCapacity > 0, () -> "singleSampleCapacity must be > 0 but found: " + singleSampleCapacity);
+        Utils.validateArg( singleSampleMultiplicities.length > 0 && singleSampleMultiplicities.length <= singleSampleCapacity,
+                () -> "bad number of single sample multiplicities: " + singleSampleMultiplicities.length);
+        this.singleSampleMultiplicities = new PriorityQueue<>(singleSampleCapacity);
+        for ( final int value : singleSampleMultiplicities ) {
+            this.singleSampleMultiplicities.add(value);
+        }
+        this.currentSingleSampleMultiplicity = currentSingleSampleMultiplicity;
+        this.singleSampleCapacity = singleSampleCapacity;
+    }
+
     @Override
     public MultiSampleEdge copy() {
         return new MultiSampleEdge(isRef(), getMultiplicity(), singleSampleCapacity); // TODO -- should I copy values for other features?
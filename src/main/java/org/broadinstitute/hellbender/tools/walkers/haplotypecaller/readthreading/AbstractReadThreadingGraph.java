@@ -34,7 +34,7 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSampleEdge> implements KmerSearchableGraph<MultiDeBruijnVertex, MultiSampleEdge> {
     private static final long serialVersionUID = 1l;
-    private static final String ANONYMOUS_SAMPLE = "XXX_UNNAMED_XXX";
+    static final String ANONYMOUS_SAMPLE = "XXX_UNNAMED_XXX";
     private static final boolean WRITE_GRAPH = false;
     private static final boolean DEBUG_NON_UNIQUE_CALC = false;
     private static final int MAX_CIGAR_COMPLEXITY = 3;
@@ -181,6 +181,17 @@ public abstract class AbstractReadThreadingGraph extends BaseGraph<MultiDeBruijn
         alreadyBuilt = true;
     }
 
+    /**
+     * Install the results of threading that was done elsewhere (see {@link CompactReadThreadingGraph}):
+     * the vertices and edges have already been added to this graph.
+     */
+    void setThreadedState(final List<MultiDeBruijnVertex> referencePath, final Kmer refSource) {
+        this.referencePath = referencePath == null ? null : Collections.unmodifiableList(referencePath);
+        this.refSource = refSource;
+        pending.clear();
+        alreadyBuilt = true;
+    }
+
     @VisibleForTesting
     void setMinMatchingBasesToDanglingEndRecovery(final int minMatchingBasesToDanglingEndRecovery) {
         this.minMatchingBasesToDanglingEndRecovery = minMatchingBasesToDanglingEndRecovery;
@@ -0,0 +1,732 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import com.google.common.annotations.VisibleForTesting;
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.tools.spark.utils.LongHopscotchSet;
+import org.broadinstitute.hellbender.tools.spark.utils.LongIterator;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.MultiSampleEdge;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+
+import java.util.*;
+
+/**
+ * A memory-frugal equivalent of {@link ReadThreadingGraph} for building and pruning the read threading graph.
+ *
+ * <p>
+ *     Kmers of up to {@link #MAX_KMER_SIZE} bases are packed 2 bits per base into longs, and looked up in an
+ *     open-addressing map of packed kmers to vertex ids.  Vertices and edges (including their multiplicities and
+ *     per-sample pruning multiplicities) live in primitive arrays, and adjacency is kept as linked lists of edge ids.
+ *     Threading and low-weight chain pruning thus allocate almost nothing per kmer.  Once the graph has been pruned
+ *     it's converted by {@link #toReadThreadingGraph()} into an ordinary ReadThreadingGraph, vertex for vertex and
+ *     edge for edge (in the same order), so that the rest of the assembly (dangling end recovery, conversion to a
+ *     SeqGraph, haplotype finding) proceeds exactly as it would have if the ReadThreadingGraph had been built directly.
+ * </p>
+ *
+ * <p>
+ *     Only sequences consisting entirely of upper-case A, C, G, and T bases can be threaded.  Callers ought to
+ *     check {@link #isPackable()} after adding sequences, and fall back to a ReadThreadingGraph if it returns false.
+ * </p>
+ */
+public final class CompactReadThreadingGraph {
+    public static final int MAX_KMER_SIZE = 31;
+
+    private static final int NO_VERTEX = -1;
+    private static final int NO_EDGE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final byte[] DECODE = {'A', 'C', 'G', 'T'};
+
+    private final int kmerSize;
+    private final long kmerMask;
+    private final byte minBaseQualityToUseInAssembly;
+    private final int numPruningSamples;
+    private final int numDanglingMatchingPrefixBases;
+    private boolean startThreadingOnlyAtExistingVertex = false;
+
+    private final Map<String, List<AbstractReadThreadingGraph.SequenceForKmers>> pending = new LinkedHashMap<>();
+    private boolean packable = true;
+    private boolean alreadyBuilt = false;
+
+    // non-unique kmers:  those we can pack, and (rarely) those we can't -- they're only needed for their count
+    private final LongHopscotchSet nonUniqueKmers = new LongHopscotchSet(INITIAL_CAPACITY);
+    private final Set<Kmer> unpackableNonUniqueKmers = new HashSet<>();
+
+    private final PackedKmerMap kmerToVertexMap = new PackedKmerMap(INITIAL_CAPACITY);
+    private boolean hasRefSource = false;
+    private long refSourceKmer;
+    private int[] referencePath = null;
+    private int referencePathLength = 0;
+
+    // vertices
+    private int nVertices = 0;
+    private long[] vertexKmers = new long[INITIAL_CAPACITY];
+    private boolean[] vertexTracked = new boolean[INITIAL_CAPACITY];
+    private boolean[] vertexRemoved = new boolean[INITIAL_CAPACITY];
+    private int[] inDegree = new int[INITIAL_CAPACITY];
+    private int[] outDegree = new int[INITIAL_CAPACITY];
+    private int[] firstOutEdge = new int[INITIAL_CAPACITY];
+    private int[] lastOutEdge = new int[INITIAL_CAPACITY];
+    private int[] firstInEdge = new int[INITIAL_CAPACITY];
+    private int[] lastInEdge = new int[INITIAL_CAPACITY];
+
+    // edges
+    private int nEdges = 0;
+    private int[] edgeSources = new int[INITIAL_CAPACITY];
+    private int[] edgeTargets = new int[INITIAL_CAPACITY];
+    private int[] nextOutEdge = new int[INITIAL_CAPACITY];
+    private int[] nextInEdge = new int[INITIAL_CAPACITY];
+    private boolean[] edgeIsRef = new boolean[INITIAL_CAPACITY];
+    private boolean[] edgeRemoved = new boolean[INITIAL_CAPACITY];
+    private int[] edgeMultiplicities = new int[INITIAL_CAPACITY];
+    private int[] edgeCurrentSampleMultiplicities = new int[INITIAL_CAPACITY];
+    // the numPruningSamples largest single-sample multiplicities for each edge, as tracked by MultiSampleEdge
+    private int[] edgeSampleMultiplicities;
+    private int[] edgeNSampleMultiplicities = new int[INITIAL_CAPACITY];
+
+    /**
+     * @param kmerSize must be between 1 and {@link #MAX_KMER_SIZE}
+     * @param minBaseQualityToUseInAssembly read bases of lower quality break the read into separate sequences
+     * @param numPruningSamples number of samples that must pass the pruning threshold
+     * @param numDanglingMatchingPrefixBases passed on to the ReadThreadingGraph for dangling end recovery
+     */
+    public CompactReadThreadingGraph(final int kmerSize, final byte minBaseQualityToUseInAssembly,
+                                     final int numPruningSamples, final int numDanglingMatchingPrefixBases) {
+        Utils.validateArg(supportsKmerSize(kmerSize), () -> "bad kmerSize " + kmerSize);
+        Utils.validateArg(numPruningSamples > 0, () -> "numPruningSamples must be > 0 but found: " + numPruningSamples);
+        this.kmerSize = kmerSize;
+        this.kmerMask = (1L << (2 * kmerSize)) - 1L;
+        this.minBaseQualityToUseInAssembly = minBaseQualityToUseInAssembly;
+        this.numPruningSamples = numPruningSamples;
+        this.numDanglingMatchingPrefixBases = numDanglingMatchingPrefixBases;
+        this.edgeSampleMultiplicities = new int[INITIAL_CAPACITY * numPruningSamples];
+    }
+
+    public static boolean supportsKmerSize( final int kmerSize ) {
+        return kmerSize > 0 && kmerSize <= MAX_KMER_SIZE;
+    }
+
+    public int getKmerSize() { return kmerSize; }
+
+    /** @see AbstractReadThreadingGraph#setThreadingStartOnlyAtExistingVertex(boolean) */
+    public void setThreadingStartOnlyAtExistingVertex( final boolean value ) {
+        startThreadingOnlyAtExistingVertex = value;
+    }
+
+    /** @see AbstractReadThreadingGraph#addSequence(String, byte[], int, boolean) */
+    public void addSequence( final String seqName, final byte[] sequence, final int count, final boolean isRef ) {
+        addSequence(seqName, AbstractReadThreadingGraph.ANONYMOUS_SAMPLE, sequence, 0, sequence.length, count, isRef);
+    }
+
+    /** Exactly as for {@link AbstractReadThreadingGraph#addRead(GATKRead, SAMFileHeader)}. */
+    public void addRead( final GATKRead read, final SAMFileHeader header ) {
+        final byte[] sequence = read.getBases();
+        final byte[] qualities = read.getBaseQualities();
+
+        int lastGood = -1;
+        for (int end = 0; end <= sequence.length; end++) {
+            if (end == sequence.length || !baseIsUsableForAssembly(sequence[end], qualities[end])) {
+                final int start = lastGood;
+                final int len = end - start;
+                if (start != -1 && len >= kmerSize) {
+                    final String name = read.getName() + '_' + start + '_' + end;
+                    addSequence(name, ReadUtils.getSampleName(read, header), sequence, start, end, 1, false);
+                }
+                lastGood = -1;
+            } else if (lastGood == -1) {
+                lastGood = end;
+            }
+        }
+    }
+
+    /**
+     * Can all the sequences added so far be threaded through a packed-kmer graph?
+     * If not, the graph must be built as an ordinary ReadThreadingGraph.
+     */
+    public boolean isPackable() { return packable; }
+
+    /**
+     * Thread all the pending sequences through the graph.
+     */
+    public void buildGraph() {
+        Utils.validate(packable, "attempting to build a compact graph from sequences that can't be packed");
+        if ( alreadyBuilt ) {
+            return;
+        }
+        determineNonUniques();
+        for ( final List<AbstractReadThreadingGraph.SequenceForKmers> sequencesForSample : pending.values() ) {
+            for ( final AbstractReadThreadingGraph.SequenceForKmers sequenceForKmers : sequencesForSample ) {
+                threadSequence(sequenceForKmers);
+            }
+            // flush the single sample edge values from the graph
+            for ( int edge = 0; edge != nEdges; ++edge ) {
+                flushSingleSampleMultiplicity(edge);
+            }
+        }
+        pending.clear();
+        alreadyBuilt = true;
+    }
+
+    /**
+     * The equivalent of running a {@link org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.LowWeightChainPruner}
+     * over the graph: removes all chains whose edges are all non-reference edges with pruning multiplicity less than
+     * pruneFactor, and then removes the orphaned vertices.
+     */
+    public void pruneLowWeightChains( final int pruneFactor ) {
+        Utils.validateArg(pruneFactor >= 0, "pruneFactor must be >= 0 but got " + pruneFactor);
+        Utils.validate(alreadyBuilt, "pruning requires the graph be already built");
+
+        // find all the chains, as per ChainPruner.findAllChains, before removing anything
+        final int[] edgesToRemove = new int[nEdges];
+        int nEdgesToRemove = 0;
+        final boolean[] alreadySeen = new boolean[nVertices];
+        final int[] chainStarts = new int[nVertices];
+        int chainStartsHead = 0;
+        int chainStartsTail = 0;
+        for ( int vertex = 0; vertex != nVertices; ++vertex ) {
+            if ( !vertexRemoved[vertex] && inDegree[vertex] == 0 ) {
+                chainStarts[chainStartsTail++] = vertex;
+                alreadySeen[vertex] = true;
+            }
+        }
+        final int[] chain = new int[nEdges];
+        while ( chainStartsHead != chainStartsTail ) {
+            final int chainStart = chainStarts[chainStartsHead++];
+            for ( int outEdge = firstOutEdge[chainStart]; outEdge != NO_EDGE; outEdge = nextOutEdge[outEdge] ) {
+                if ( edgeRemoved[outEdge] ) {
+                    continue;
+                }
+                int chainLength = 0;
+                chain[chainLength++] = outEdge;
+                final int firstVertex = edgeSources[outEdge];
+                int lastVertex = edgeTargets[outEdge];
+                boolean needsPruning = !edgeIsRef[outEdge] && getPruningMultiplicity(outEdge) < pruneFactor;
+                while ( outDegree[lastVertex] == 1 && inDegree[lastVertex] <= 1 && lastVertex != firstVertex ) {
+                    final int nextEdge = getFirstLiveOutEdge(lastVertex);
+                    chain[chainLength++] = nextEdge;
+                    needsPruning &= !edgeIsRef[nextEdge] && getPruningMultiplicity(nextEdge) < pruneFactor;
+                    lastVertex = edgeTargets[nextEdge];
+                }
+                if ( needsPruning ) {
+                    for ( int idx = 0; idx != chainLength; ++idx ) {
+                        edgesToRemove[nEdgesToRemove++] = chain[idx];
+                    }
+                }
+                if ( !alreadySeen[lastVertex] ) {
+                    chainStarts[chainStartsTail++] = lastVertex;
+                    alreadySeen[lastVertex] = true;
+                }
+            }
+        }
+
+        for ( int idx = 0; idx != nEdgesToRemove; ++idx ) {
+            removeEdge(edgesToRemove[idx]);
+        }
+
+        // clean up singleton orphaned vertices
+        for ( int vertex = 0; vertex != nVertices; ++vertex ) {
+            if ( !vertexRemoved[vertex] && inDegree[vertex] == 0 && outDegree[vertex] == 0 ) {
+                vertexRemoved[vertex] = true;
+                // as in AbstractReadThreadingGraph.removeVertex, the kmer goes away even if it maps to another vertex
+                kmerToVertexMap.remove(vertexKmers[vertex]);
+            }
+        }
+    }
+
+    /**
+     * Produce a ReadThreadingGraph (already built) that's identical to this graph.
+     */
+    public ReadThreadingGraph toReadThreadingGraph() {
+        Utils.validate(alreadyBuilt, "conversion requires the graph be already built");
+        final ReadThreadingGraph graph = new ReadThreadingGraph(kmerSize, false, minBaseQualityToUseInAssembly,
+                                                                numPruningSamples, numDanglingMatchingPrefixBases);
+        graph.setThreadingStartOnlyAtExistingVertex(startThreadingOnlyAtExistingVertex);
+
+        final MultiDeBruijnVertex[] vertices = new MultiDeBruijnVertex[nVertices];
+        for ( int vertex = 0; vertex != nVertices; ++vertex ) {
+            if ( !vertexRemoved[vertex] ) {
+                vertices[vertex] = createVertex(vertex);
+                graph.addVertex(vertices[vertex]);
+            }
+        }
+        for ( int edge = 0; edge != nEdges; ++edge ) {
+            if ( !edgeRemoved[edge] ) {
+                final int offset = edge * numPruningSamples;
+                final int[] sampleMultiplicities = Arrays.copyOfRange(edgeSampleMultiplicities, offset,
+                                                                offset + edgeNSampleMultiplicities[edge]);
+                graph.addEdge(vertices[edgeSources[edge]], vertices[edgeTargets[edge]],
+                        new MultiSampleEdge(edgeIsRef[edge], edgeMultiplicities[edge], numPruningSamples,
+                                            sampleMultiplicities, edgeCurrentSampleMultiplicities[edge]));
+            }
+        }
+        for ( int vertex = 0; vertex != nVertices; ++vertex ) {
+            if ( vertices[vertex] != null && vertexTracked[vertex] &&
+                    kmerToVertexMap.get(vertexKmers[vertex]) == vertex ) {
+                graph.kmerToVertexMap.put(new Kmer(vertices[vertex].getSequence()), vertices[vertex]);
+            }
+        }
+
+        final Set<Kmer> nonUniques = new HashSet<>(unpackableNonUniqueKmers);
+        final LongIterator itr = nonUniqueKmers.iterator();
+        while ( itr.hasNext() ) {
+            nonUniques.add(new Kmer(decode(itr.next())));
+        }
+        graph.nonUniqueKmers = nonUniques;
+
+        List<MultiDeBruijnVertex> refPath = null;
+        if ( referencePath != null ) {
+            refPath = new ArrayList<>(referencePathLength);
+            for ( int idx = 0; idx != referencePathLength; ++idx ) {
+                final int vertex = referencePath[idx];
+                if ( vertices[vertex] == null ) {
+                    vertices[vertex] = createVertex(vertex);
+                }
+                refPath.add(vertices[vertex]);
+            }
+        }
+        graph.setThreadedState(refPath, hasRefSource ? new Kmer(decode(refSourceKmer)) : null);
+        return graph;
+    }
+
+    @VisibleForTesting
+    int getNVertices() {
+        int count = 0;
+        for ( int vertex = 0; vertex != nVertices; ++vertex ) {
+            if ( !vertexRemoved[vertex] ) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    @VisibleForTesting
+    int getNEdges() {
+        int count = 0;
+        for ( int edge = 0; edge != nEdges; ++edge ) {
+            if ( !edgeRemoved[edge] ) {
+                count += 1;
+            }
+        }
+        return count;
+    }
+
+    @VisibleForTesting
+    int getNNonUniqueKmers() {
+        return nonUniqueKmers.size() + unpackableNonUniqueKmers.size();
+    }
+
+    private void addSequence( final String seqName, final String sampleName, final byte[] sequence,
+                              final int start, final int stop, final int count, final boolean isRef ) {
+        Utils.validate(!alreadyBuilt, "Attempting to add sequence to a graph that has already been built");
+        for ( int idx = start; idx < stop && packable; ++idx ) {
+            packable = encode(sequence[idx]) >= 0;
+        }
+        pending.computeIfAbsent(sampleName, s -> new ArrayList<>())
+                .add(new AbstractReadThreadingGraph.SequenceForKmers(seqName, sequence, start, stop, count, isRef));
+    }
+
+    private boolean baseIsUsableForAssembly( final byte base, final byte qual ) {
+        return base != BaseUtils.Base.N.base && qual >= minBaseQualityToUseInAssembly;
+    }
+
+    /**
+     * Equivalent to ReadThreadingGraph.determineNonUniques, including its habit of looking at kmers from the
+     * beginning of the sequence, rather than from the start of the usable subsequence.
+     * Kmers from outside the usable subsequence might not be packable, so those are tracked separately.
+     */
+    private void determineNonUniques() {
+        for ( final List<AbstractReadThreadingGraph.SequenceForKmers> sequencesForSample : pending.values() ) {
+            for ( final AbstractReadThreadingGraph.SequenceForKmers seqForKmers : sequencesForSample ) {
+                final byte[] sequence = seqForKmers.sequence;
+                final int stopPosition = seqForKmers.stop - kmerSize;
+                if ( stopPosition < 0 ) {
+                    continue;
+                }
+                final long[] kmers = new long[stopPosition + 1];
+                int nKmers = 0;
+                Set<Kmer> unpackableKmers = null;
+                long kmer = 0L;
+                int lastUnpackable = -1;
+                for ( int idx = 0; idx < seqForKmers.stop; ++idx ) {
+                    final int code = encode(sequence[idx]);
+                    if ( code < 0 ) {
+                        lastUnpackable = idx;
+                    }
+                    kmer = ((kmer << 2) | (code & 3)) & kmerMask;
+                    final int kmerStart = idx - kmerSize + 1;
+                    if ( kmerStart >= 0 ) {
+                        if ( lastUnpackable < kmerStart ) {
+                            kmers[nKmers++] = kmer;
+                        } else {
+                            if ( unpackableKmers == null ) {
+                                unpackableKmers = new HashSet<>();
+                            }
+                            final Kmer unpackableKmer = new Kmer(sequence, kmerStart, kmerSize);
+                            if ( !unpackableKmers.add(unpackableKmer) ) {
+                                unpackableNonUniqueKmers.add(unpackableKmer);
+                            }
+                        }
+                    }
+                }
+                Arrays.sort(kmers, 0, nKmers);
+                for ( int idx = 1; idx < nKmers; ++idx ) {
+                    if ( kmers[idx] == kmers[idx - 1] ) {
+                        nonUniqueKmers.add(kmers[idx]);
+                    }
+                }
+            }
+        }
+    }
+
+    private void threadSequence( final AbstractReadThreadingGraph.SequenceForKmers seqForKmers ) {
+        final int startPos = findStart(seqForKmers);
+        if ( startPos == -1 ) {
+            return;
+        }
+
+        final byte[] sequence = seqForKmers.sequence;
+        long kmer = pack(sequence, startPos);
+        final int existingVertex = kmerToVertexMap.get(kmer);
+        final int startingVertex = existingVertex != NO_VERTEX ? existingVertex : createVertex(kmer);
+
+        // increase the counts of all edges incoming into the starting vertex supported by going back in sequence
+        int vertex = startingVertex;
+        for ( int offset = kmerSize - 2; offset >= 0 && inDegree[vertex] == 1; --offset ) {
+            final int edge = firstInEdge[vertex];
+            final int prev = edgeSources[edge];
+            if ( (vertexKmers[prev] & 3L) != ((kmer >>> (2 * (kmerSize - 1 - offset))) & 3L) ) {
+                break;
+            }
+            incMultiplicity(edge, seqForKmers.count);
+            vertex = prev;
+        }
+
+        if ( seqForKmers.isRef ) {
+            if ( hasRefSource ) {
+                throw new IllegalStateException("Found two refSources! prev: " + decodeString(refSourceKmer) +
+                        ", new: " + decodeString(kmer));
+            }
+            referencePath = new int[Math.max(1, sequence.length - kmerSize + 1)];
+            referencePathLength = 0;
+            referencePath[referencePathLength++] = startingVertex;
+            refSourceKmer = pack(sequence, seqForKmers.start);
+            hasRefSource = true;
+        }
+
+        vertex = startingVertex;
+        for ( int kmerStart = startPos + 1; kmerStart <= seqForKmers.stop - kmerSize; kmerStart++ ) {
+            kmer = ((kmer << 2) | encode(sequence[kmerStart + kmerSize - 1])) & kmerMask;
+            vertex = extendChainByOne(vertex, kmer, seqForKmers.count, seqForKmers.isRef);
+            if ( seqForKmers.isRef ) {
+                referencePath[referencePathLength++] = vertex;
+            }
+        }
+    }
+
+    private int findStart( final AbstractReadThreadingGraph.SequenceForKmers seqForKmers ) {
+        if ( seqForKmers.isRef ) {
+            return 0;
+        }
+        final int stop = seqForKmers.stop - kmerSize;
+        if ( seqForKmers.start >= stop ) {
+            return -1;
+        }
+        long kmer = pack(seqForKmers.sequence, seqForKmers.start);
+        for ( int idx = seqForKmers.start; idx < stop; idx++ ) {
+            if ( idx > seqForKmers.start ) {
+                kmer = ((kmer << 2) | encode(seqForKmers.sequence[idx + kmerSize - 1])) & kmerMask;
+            }
+            final boolean isThreadingStart = startThreadingOnlyAtExistingVertex ?
+                    kmerToVertexMap.get(kmer) != NO_VERTEX : !nonUniqueKmers.contains(kmer);
+            if ( isThreadingStart ) {
+                return idx;
+            }
+        }
+        return -1;
+    }
+
+    private int extendChainByOne( final int prevVertex, final long kmer, final int count, final boolean isRef ) {
+        final long suffix = kmer & 3L;
+        for ( int edge = firstOutEdge[prevVertex]; edge != NO_EDGE; edge = nextOutEdge[edge] ) {
+            if ( (vertexKmers[edgeTargets[edge]] & 3L) == suffix ) {
+                // we've got a match in the chain, so simply increase the count of the edge by 1 and continue
+                incMultiplicity(edge, count);
+                return edgeTargets[edge];
+            }
+        }
+
+        // none of our outgoing edges had our unique suffix base, so we check for an opportunity to merge back in
+        final int mergeVertex = hasRefSource && kmer == refSourceKmer ? NO_VERTEX : kmerToVertexMap.get(kmer);
+        Utils.validate(!(isRef && mergeVertex != NO_VERTEX), () -> "Found a unique vertex to merge into the reference graph " +
+                decodeString(vertexKmers[prevVertex]) + " -> " + decodeString(kmer));
+        final int nextVertex = mergeVertex == NO_VERTEX ? createVertex(kmer) : mergeVertex;
+        addEdge(prevVertex, nextVertex, isRef, count);
+        return nextVertex;
+    }
+
+    private int createVertex( final long kmer ) {
+        if ( nVertices == vertexKmers.length ) {
+            growVertices();
+        }
+        final int vertex = nVertices++;
+        vertexKmers[vertex] = kmer;
+        firstOutEdge[vertex] = lastOutEdge[vertex] = NO_EDGE;
+        firstInEdge[vertex] = lastInEdge[vertex] = NO_EDGE;
+        // only track the kmer if it's unique and not already tracked
+        if ( !nonUniqueKmers.contains(kmer) && kmerToVertexMap.get(kmer) == NO_VERTEX ) {
+            kmerToVertexMap.put(kmer, vertex);
+            vertexTracked[vertex] = true;
+        }
+        return vertex;
+    }
+
+    private MultiDeBruijnVertex createVertex( final int vertex ) {
+        final MultiDeBruijnVertex result = new MultiDeBruijnVertex(decode(vertexKmers[vertex]));
+        if ( vertexTracked[vertex] ) {
+            // AbstractReadThreadingGraph.buildGraphIfNecessary marks all the tracked vertices this way
+            result.setAdditionalInfo(result.getAdditionalInfo() + '+');
+        }
+        return result;
+    }
+
+    private void addEdge( final int source, final int target, final boolean isRef, final int multiplicity ) {
+        if ( nEdges == edgeSources.length ) {
+            growEdges();
+        }
+        final int edge = nEdges++;
+        edgeSources[edge] = source;
+        edgeTargets[edge] = target;
+        edgeIsRef[edge] = isRef;
+        edgeMultiplicities[edge] = multiplicity;
+        edgeCurrentSampleMultiplicities[edge] = multiplicity;
+        edgeSampleMultiplicities[edge * numPruningSamples] = multiplicity;
+        edgeNSampleMultiplicities[edge] = 1;
+
+        nextOutEdge[edge] = NO_EDGE;
+        if ( lastOutEdge[source] == NO_EDGE ) {
+            firstOutEdge[source] = edge;
+        } else {
+            nextOutEdge[lastOutEdge[source]] = edge;
+        }
+        lastOutEdge[source] = edge;
+        outDegree[source] += 1;
+
+        nextInEdge[edge] = NO_EDGE;
+        if ( lastInEdge[target] == NO_EDGE ) {
+            firstInEdge[target] = edge;
+        } else {
+            nextInEdge[lastInEdge[target]] = edge;
+        }
+        lastInEdge[target] = edge;
+        inDegree[target] += 1;
+    }
+
+    // edges are simply marked as removed -- they remain in the adjacency lists, and iterators skip them
+    private void removeEdge( final int edge ) {
+        if ( !edgeRemoved[edge] ) {
+            edgeRemoved[edge] = true;
+            outDegree[edgeSources[edge]] -= 1;
+            inDegree[edgeTargets[edge]] -= 1;
+        }
+    }
+
+    private int getFirstLiveOutEdge( final int vertex ) {
+        int edge = firstOutEdge[vertex];
+        while ( edgeRemoved[edge] ) {
+            edge = nextOutEdge[edge];
+        }
+        return edge;
+    }
+
+    private void incMultiplicity( final int edge, final int incr ) {
+        edgeMultiplicities[edge] += incr;
+        edgeCurrentSampleMultiplicities[edge] += incr;
+    }
+
+    // just like MultiSampleEdge.flushSingleSampleMultiplicity:  retain the numPruningSamples largest values
+    private void flushSingleSampleMultiplicity( final int edge ) {
+        final int offset = edge * numPruningSamples;
+        final int value = edgeCurrentSampleMultiplicities[edge];
+        final int nValues = edgeNSampleMultiplicities[edge];
+        if ( nValues < numPruningSamples ) {
+            edgeSampleMultiplicities[offset + nValues] = value;
+            edgeNSampleMultiplicities[edge] = nValues + 1;
+        } else {
+            int minIdx = offset;
+            for ( int idx = offset + 1; idx != offset + nValues; ++idx ) {
+                if ( edgeSampleMultiplicities[idx] < edgeSampleMultiplicities[minIdx] ) {
+                    minIdx = idx;
+                }
+            }
+            if ( value > edgeSampleMultiplicities[minIdx] ) {
+                edgeSampleMultiplicities[minIdx] = value;
+            }
+        }
+        edgeCurrentSampleMultiplicities[edge] = 0;
+    }
+
+    // just like MultiSampleEdge.getPruningMultiplicity:  the smallest of the retained values
+    private int getPruningMultiplicity( final int edge ) {
+        final int offset = edge * numPruningSamples;
+        int result = edgeSampleMultiplicities[offset];
+        for ( int idx = offset + 1; idx != offset + edgeNSampleMultiplicities[edge]; ++idx ) {
+            result = Math.min(result, edgeSampleMultiplicities[idx]);
+        }
+        return result;
+    }
+
+    private void growVertices() {
+        final int newCapacity = 2 * vertexKmers.length;
+        vertexKmers = Arrays.copyOf(vertexKmers, newCapacity);
+        vertexTracked = Arrays.copyOf(vertexTracked, newCapacity);
+        vertexRemoved = Arrays.copyOf(vertexRemoved, newCapacity);
+        inDegree = Arrays.copyOf(inDegree, newCapacity);
+        outDegree = Arrays.copyOf(outDegree, newCapacity);
+        firstOutEdge = Arrays.copyOf(firstOutEdge, newCapacity);
+        lastOutEdge = Arrays.copyOf(lastOutEdge, newCapacity);
+        firstInEdge = Arrays.copyOf(firstInEdge, newCapacity);
+        lastInEdge = Arrays.copyOf(lastInEdge, newCapacity);
+    }
+
+    private void growEdges() {
+        final int newCapacity = 2 * edgeSources.length;
+        edgeSources = Arrays.copyOf(edgeSources, newCapacity);
+        edgeTargets = Arrays.copyOf(edgeTargets, newCapacity);
+        nextOutEdge = Arrays.copyOf(nextOutEdge, newCapacity);
+        nextInEdge = Arrays.copyOf(nextInEdge, newCapacity);
+        edgeIsRef = Arrays.copyOf(edgeIsRef, newCapacity);
+        edgeRemoved = Arrays.copyOf(edgeRemoved, newCapacity);
+        edgeMultiplicities = Arrays.copyOf(edgeMultiplicities, newCapacity);
+        edgeCurrentSampleMultiplicities = Arrays.copyOf(edgeCurrentSampleMultiplicities, newCapacity);
+        edgeSampleMultiplicities = Arrays.copyOf(edgeSampleMultiplicities, newCapacity * numPruningSamples);
+        edgeNSampleMultiplicities = Arrays.copyOf(edgeNSampleMultiplicities, newCapacity);
+    }
+
+    private long pack( final byte[] sequence, final int start ) {
+        long kmer = 0L;
+        for ( int idx = start; idx != start + kmerSize; ++idx ) {
+            kmer = (kmer << 2) | encode(sequence[idx]);
+        }
+        return kmer;
+    }
+
+    private byte[] decode( long kmer ) {
+        final byte[] bases = new byte[kmerSize];
+        for ( int idx = kmerSize - 1; idx >= 0; --idx ) {
+            bases[idx] = DECODE[(int)(kmer & 3L)];
+            kmer >>>= 2;
+        }
+        return bases;
+    }
+
+    private String decodeString( final long kmer ) {
+        return new String(decode(kmer));
+    }
+
+    private static int encode( final byte base ) {
+        switch ( base ) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+
+    /**
+     * An open-addressing (linear probing) map from packed kmers (which are non-negative) to vertex ids.
+     */
+    @VisibleForTesting
+    static final class PackedKmerMap {
+        private static final long EMPTY = -1L;
+        private static final double LOAD_FACTOR = .5;
+
+        private long[] keys;
+        private int[] values;
+        private int size;
+
+        PackedKmerMap( final int initialCapacity ) {
+            final int capacity = Integer.highestOneBit(Math.max(16, initialCapacity) - 1) << 1;
+            keys = new long[capacity];
+            Arrays.fill(keys, EMPTY);
+            values = new int[capacity];
+            size = 0;
+        }
+
+        int size() { return size; }
+
+        /** @return the vertex id, or NO_VERTEX if the kmer isn't present */
+        int get( final long kmer ) {
+            final int mask = keys.length - 1;
+            for ( int idx = hash(kmer) & mask; keys[idx] != EMPTY; idx = (idx + 1) & mask ) {
+                if ( keys[idx] == kmer ) {
+                    return values[idx];
+                }
+            }
+            return NO_VERTEX;
+        }
+
+        void put( final long kmer, final int vertex ) {
+            if ( size + 1 > keys.length * LOAD_FACTOR ) {
+                resize();
+            }
+            final int mask = keys.length - 1;
+            int idx = hash(kmer) & mask;
+            while ( keys[idx] != EMPTY ) {
+                if ( keys[idx] == kmer ) {
+                    values[idx] = vertex;
+                    return;
+                }
+                idx = (idx + 1) & mask;
+            }
+            keys[idx] = kmer;
+            values[idx] = vertex;
+            size += 1;
+        }
+
+        void remove( final long kmer ) {
+            final int mask = keys.length - 1;
+            int idx = hash(kmer) & mask;
+            while ( keys[idx] != kmer ) {
+                if ( keys[idx] == EMPTY ) {
+                    return;
+                }
+                idx = (idx + 1) & mask;
+            }
+            // backward-shift deletion:  move later members of the probe sequence into the hole
+            int hole = idx;
+            for ( int next = (hole + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask ) {
+                final int home = hash(keys[next]) & mask;
+                if ( ((next - home) & mask) >= ((next - hole) & mask) ) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+            }
+            keys[hole] = EMPTY;
+            size -= 1;
+        }
+
+        private void resize() {
+            final long[] oldKeys = keys;
+            final int[] oldValues = values;
+            keys = new long[2 * oldKeys.length];
+            Arrays.fill(keys, EMPTY);
+            values = new int[2 * oldValues.length];
+            size = 0;
+            for ( int idx = 0; idx != oldKeys.length; ++idx ) {
+                if ( oldKeys[idx] != EMPTY ) {
+                    put(oldKeys[idx], oldValues[idx]);
+                }
+            }
+        }
+
+        private static int hash( final long kmer ) {
+            long hash = kmer * 0x9E3779B97F4A7C15L;
+            hash ^= hash >>> 29;
+            return (int)(hash ^ (hash >>> 32));
+        }
+    }
+}
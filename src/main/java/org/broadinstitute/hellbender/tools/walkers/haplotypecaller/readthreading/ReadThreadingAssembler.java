@@ -2,6 +2,7 @@ package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreadin
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.Cigar;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMFileHeader;
@@ -14,6 +15,7 @@ import org.apache.logging.log4j.Logger;
 import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
 import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
 import org.broadinstitute.hellbender.engine.AssemblyRegion;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResult;
 import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyResultSet;
@@ -35,6 +37,11 @@ import java.io.File;
 import java.io.IOException;
 import java.io.PrintStream;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 public final class ReadThreadingAssembler {
@@ -43,6 +50,7 @@ public final class ReadThreadingAssembler {
     static final int DEFAULT_NUM_PATHS_PER_GRAPH = 128;
     private static final int KMER_SIZE_ITERATION_INCREASE = 10;
     private static final int MAX_KMER_ITERATIONS_TO_ATTEMPT = 6;
+    private static final long ASSEMBLY_THREADS_TERMINATION_TIMEOUT_SECONDS = 60;
 
     /** The min and max kmer sizes to try when building the graph. */
     private final List<Integer> kmerSizes;
@@ -73,6 +81,20 @@ public final class ReadThreadingAssembler {
     private byte minBaseQualityToUseInAssembly = DEFAULT_MIN_BASE_QUALITY_TO_USE;
     private final int pruneFactor;
     private final ChainPruner<MultiDeBruijnVertex, MultiSampleEdge> chainPruner;
+    private boolean useCompactGraph = false;
+    private ExecutorService assemblyExecutor = null;
+    private SmithWatermanAligner.Implementation assemblyAlignerImplementation = SmithWatermanAligner.Implementation.JAVA;
+    private final Set<SmithWatermanAligner> assemblyAligners = Collections.newSetFromMap(Collections.synchronizedMap(new IdentityHashMap<>()));
+    private final ThreadLocal<SmithWatermanAligner> assemblyThreadAligner = ThreadLocal.withInitial(() -> {
+        final SmithWatermanAligner aligner = SmithWatermanAligner.getAligner(assemblyAlignerImplementation);
+        assemblyAligners.add(aligner);
+        return aligner;
+    });
+    private boolean useBoundedHaplotypeSearch = false;
+    private long maxHaplotypeSearchPartialPaths = BoundedKBestHaplotypeFinder.NO_LIMIT;
+    private long maxHaplotypeSearchMillis = BoundedKBestHaplotypeFinder.NO_LIMIT;
+    private boolean haplotypeSearchExceededBudget = false;
+    private long nRegionsExceedingHaplotypeSearchBudget = 0;
     private int minMatchingBasesToDanglingEndRecovery;
 
     private File debugGraphOutputPath = null;  //Where to write debug graphs, if unset it defaults to the current working dir
@@ -165,6 +187,7 @@ public final class ReadThreadingAssembler {
         if ( haplotypeCollapsing != null ) {
             logger.debug("starting runLocalAssembly with haplotypeCollapsing: " + haplotypeCollapsing);
         }
+        haplotypeSearchExceededBudget = false;
         final AssemblyResultSet resultSet = new AssemblyResultSet();
         resultSet.setRegionForGenotyping(assemblyRegion);
         resultSet.setFullReferenceWithPadding(fullReferenceWithPadding);
@@ -183,6 +206,11 @@ public final class ReadThreadingAssembler {
                     danglingEndSWParameters, haplotypeToReferenceSWParameters, correctedReads, nonRefRTGraphs, resultSet, activeRegionExtendedLocation);
         }
 
+        if (haplotypeSearchExceededBudget) {
+            nRegionsExceedingHaplotypeSearchBudget++;
+            logger.debug("Haplotype search at " + assemblyRegion.getSpan() + " ran out of its budget; using the best haplotypes found so far");
+        }
+
         // If we get to this point then no graph worked... that's bad and indicates something horrible happened, in this case we just return a reference haplotype
         if (resultSet.getHaplotypeList().isEmpty()) {
             logger.debug("Graph at position "+resultSet.getPaddedReferenceLoc()+" failed to assemble anything informative; emitting just the reference here" );
@@ -337,10 +365,18 @@ public final class ReadThreadingAssembler {
             final V sink = graph.getReferenceSinkVertex();
             Utils.validateArg(source != null && sink != null, () -> "Both source and sink cannot be null but got " + source + " and sink " + sink + " for graph " + graph);
 
-            List<KBestHaplotype<V, E>> bestHaplotypes = (generateSeqGraph ?
-                    new GraphBasedKBestHaplotypeFinder<>(graph, source, sink) :
-                    new JunctionTreeKBestHaplotypeFinder<>(graph, source, sink, JunctionTreeKBestHaplotypeFinder.DEFAULT_OUTGOING_JT_EVIDENCE_THRESHOLD_TO_BELEIVE, recoverHaplotypesFromEdgesNotCoveredInJunctionTrees))
-                    .findBestHaplotypes(numBestHaplotypesPerGraph);
+            final KBestHaplotypeFinder<V, E> haplotypeFinder;
+            if (!generateSeqGraph) {
+                haplotypeFinder = new JunctionTreeKBestHaplotypeFinder<>(graph, source, sink, JunctionTreeKBestHaplotypeFinder.DEFAULT_OUTGOING_JT_EVIDENCE_THRESHOLD_TO_BELEIVE, recoverHaplotypesFromEdgesNotCoveredInJunctionTrees);
+            } else if (useBoundedHaplotypeSearch) {
+                haplotypeFinder = new BoundedKBestHaplotypeFinder<>(graph, Collections.singleton(source), Collections.singleton(sink), maxHaplotypeSearchPartialPaths, maxHaplotypeSearchMillis);
+            } else {
+                haplotypeFinder = new GraphBasedKBestHaplotypeFinder<>(graph, source, sink);
+            }
+            List<KBestHaplotype<V, E>> bestHaplotypes = haplotypeFinder.findBestHaplotypes(numBestHaplotypesPerGraph);
+            if (haplotypeFinder instanceof BoundedKBestHaplotypeFinder && ((BoundedKBestHaplotypeFinder<V, E>) haplotypeFinder).exceededBudget()) {
+                haplotypeSearchExceededBudget = true;
+            }
 
             for (final KBestHaplotype<V, E> kBestHaplotype : bestHaplotypes) {
                 // TODO for now this seems like the solution, perhaps in the future it will be to excise the haplotype completely)
@@ -551,6 +587,10 @@ public final class ReadThreadingAssembler {
      */
     @VisibleForTesting
     List<AssemblyResult> assemble(final List<GATKRead> reads, final Haplotype refHaplotype, final SAMFileHeader header, final SmithWatermanAligner aligner, final SWParameters danglingEndSWParameters) {
+        if ( assemblyExecutor != null ) {
+            return assembleInParallel(reads, refHaplotype, header, aligner, danglingEndSWParameters);
+        }
+
         final List<AssemblyResult> results = new LinkedList<>();
 
         // first, try using the requested kmer sizes
@@ -574,6 +614,77 @@ public final class ReadThreadingAssembler {
         return results;
     }
 
+    /**
+     * Just like {@link #assemble(List, Haplotype, SAMFileHeader, SmithWatermanAligner, SWParameters)}, but the graphs
+     * for the requested kmer sizes are built at once on the assembly thread pool, and if none of them works, so are
+     * the graphs for the larger kmer sizes we fall back on.  Results are combined in the same order, and by the same
+     * rules, as in serial assembly, so the outcome is identical.  Fallback attempts that turn out to be unnecessary
+     * are cancelled, which keeps them from starting if they haven't already.  Each assembly thread aligns dangling
+     * ends with its own aligner, since aligners are not thread-safe, so {@code aligner} is not used.
+     */
+    private List<AssemblyResult> assembleInParallel(final List<GATKRead> reads, final Haplotype refHaplotype, final SAMFileHeader header, final SmithWatermanAligner aligner, final SWParameters danglingEndSWParameters) {
+        final List<AssemblyResult> results = new LinkedList<>();
+
+        // the requested kmer sizes are always used
+        final List<Future<AssemblyResult>> attempts = new ArrayList<>(kmerSizes.size());
+        for ( final int kmerSize : kmerSizes ) {
+            attempts.add(assemblyExecutor.submit(() ->
+                    createGraph(reads, refHaplotype, kmerSize, dontIncreaseKmerSizesForCycles, allowNonUniqueKmersInRef, header, assemblyThreadAligner.get(), danglingEndSWParameters)));
+        }
+        addAttemptResults(results, attempts, false);
+
+        // if none of those worked, the larger kmer sizes are used, in order, only until one of them works
+        if ( results.isEmpty() && !dontIncreaseKmerSizesForCycles ) {
+            final List<Future<AssemblyResult>> fallbackAttempts = new ArrayList<>(MAX_KMER_ITERATIONS_TO_ATTEMPT);
+            int kmerSize = arrayMaxInt(kmerSizes) + KMER_SIZE_ITERATION_INCREASE;
+            for ( int numIterations = 1; numIterations <= MAX_KMER_ITERATIONS_TO_ATTEMPT; numIterations++ ) {
+                // on the last attempt we will allow low complexity graphs
+                final boolean lastAttempt = numIterations == MAX_KMER_ITERATIONS_TO_ATTEMPT;
+                final int expandedKmerSize = kmerSize;
+                fallbackAttempts.add(assemblyExecutor.submit(() ->
+                        createGraph(reads, refHaplotype, expandedKmerSize, lastAttempt, lastAttempt, header, assemblyThreadAligner.get(), danglingEndSWParameters)));
+                kmerSize += KMER_SIZE_ITERATION_INCREASE;
+            }
+            addAttemptResults(results, fallbackAttempts, true);
+        }
+        return results;
+    }
+
+    /**
+     * Adds the results of some assembly attempts, in order, stopping at the first one that works if
+     * {@code stopAtFirstResult}.  The remaining attempts are cancelled.
+     */
+    private static void addAttemptResults(final List<AssemblyResult> results, final List<Future<AssemblyResult>> attempts, final boolean stopAtFirstResult) {
+        try {
+            for ( final Future<AssemblyResult> attempt : attempts ) {
+                if ( stopAtFirstResult && !results.isEmpty() ) {
+                    break;
+                }
+                addResult(results, getAttemptResult(attempt));
+            }
+        } finally {
+            attempts.forEach(attempt -> attempt.cancel(false));
+        }
+    }
+
+    private static AssemblyResult getAttemptResult(final Future<AssemblyResult> attempt) {
+        try {
+            return attempt.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("interrupted while waiting for assembly", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            } else {
+                throw new GATKException("exception during assembly", cause);
+            }
+        }
+    }
+
     /**
      * Method for getting a list of all the specified kmer sizes to test for the graph including kmer expansions
      */
@@ -630,28 +741,38 @@ public final class ReadThreadingAssembler {
             return null;
         }
 
-        // TODO figure out how you want to hook this in
-        final AbstractReadThreadingGraph rtgraph = generateSeqGraph ? new ReadThreadingGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery) :
-                new JunctionTreeLinkedDeBruijnGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery);
+        // low-weight chain pruning can be done before the compact graph is converted, but adaptive pruning can't
+        final boolean pruneCompactGraph = pruneBeforeCycleCounting && chainPruner instanceof LowWeightChainPruner;
+        final AbstractReadThreadingGraph compactGraph = canUseCompactGraph(kmerSize) ?
+                createCompactGraph(reads, refHaplotype, kmerSize, header, pruneCompactGraph) : null;
 
-        rtgraph.setThreadingStartOnlyAtExistingVertex(!recoverDanglingBranches);
+        final AbstractReadThreadingGraph rtgraph;
+        if ( compactGraph != null ) {
+            rtgraph = compactGraph;
+        } else {
+            // TODO figure out how you want to hook this in
+            rtgraph = generateSeqGraph ? new ReadThreadingGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery) :
+                    new JunctionTreeLinkedDeBruijnGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery);
 
-        // add the reference sequence to the graph
-        rtgraph.addSequence("ref", refHaplotype.getBases(), 1, true);
+            rtgraph.setThreadingStartOnlyAtExistingVertex(!recoverDanglingBranches);
 
-        // Next pull kmers out of every read and throw them on the graph
-        for( final GATKRead read : reads ) {
-            rtgraph.addRead(read, header);
-        }
+            // add the reference sequence to the graph
+            rtgraph.addSequence("ref", refHaplotype.getBases(), 1, true);
 
-        // actually build the read threading graph
-        rtgraph.buildGraphIfNecessary();
-        dotFilePrinter.saveGraphIfDebugEnabled(rtgraph, "raw_readthreading_graph");
+            // Next pull kmers out of every read and throw them on the graph
+            for( final GATKRead read : reads ) {
+                rtgraph.addRead(read, header);
+            }
+
+            // actually build the read threading graph
+            rtgraph.buildGraphIfNecessary();
+            dotFilePrinter.saveGraphIfDebugEnabled(rtgraph, "raw_readthreading_graph");
+        }
 
         // It's important to prune before recovering dangling ends so that we don't waste time recovering bad ends.
         // It's also important to prune before checking for cycles so that sequencing errors don't create false cycles
         // and unnecessarily abort assembly
-        if (pruneBeforeCycleCounting) {
+        if (pruneBeforeCycleCounting && !(compactGraph != null && pruneCompactGraph)) {
             chainPruner.pruneLowWeightChains(rtgraph);
         }
 
@@ -675,6 +796,39 @@ public final class ReadThreadingAssembler {
         return result;
     }
 
+    private boolean canUseCompactGraph(final int kmerSize) {
+        return useCompactGraph && generateSeqGraph && !debugGraphTransformations &&
+                CompactReadThreadingGraph.supportsKmerSize(kmerSize);
+    }
+
+    /**
+     * Thread the reference and reads through a {@link CompactReadThreadingGraph}, optionally prune it, and convert it
+     * into an equivalent ReadThreadingGraph.
+     *
+     * @return the built graph, or null if the sequences contain bases that can't be packed into kmers
+     */
+    private ReadThreadingGraph createCompactGraph(final Iterable<GATKRead> reads,
+                                                  final Haplotype refHaplotype,
+                                                  final int kmerSize,
+                                                  final SAMFileHeader header,
+                                                  final boolean prune) {
+        final CompactReadThreadingGraph compactGraph =
+                new CompactReadThreadingGraph(kmerSize, minBaseQualityToUseInAssembly, numPruningSamples, minMatchingBasesToDanglingEndRecovery);
+        compactGraph.setThreadingStartOnlyAtExistingVertex(!recoverDanglingBranches);
+        compactGraph.addSequence("ref", refHaplotype.getBases(), 1, true);
+        for( final GATKRead read : reads ) {
+            compactGraph.addRead(read, header);
+        }
+        if ( !compactGraph.isPackable() ) {
+            return null;
+        }
+        compactGraph.buildGraph();
+        if ( prune ) {
+            compactGraph.pruneLowWeightChains(pruneFactor);
+        }
+        return compactGraph.toReadThreadingGraph();
+    }
+
     private AssemblyResult getAssemblyResult(final AbstractReadThreadingGraph rtgraph, final SmithWatermanAligner aligner, final SWParameters danglingEndSWParameters, final DotFilePrinter dotFilePrinter) {
         if (!pruneBeforeCycleCounting) {
             chainPruner.pruneLowWeightChains(rtgraph);
@@ -864,6 +1018,86 @@ public final class ReadThreadingAssembler {
         this.justReturnRawGraph = justReturnRawGraph;
     }
 
+    /**
+     * Set the {@link SmithWatermanAligner} implementation with which each assembly thread aligns dangling ends.
+     * Only used when assembling with more than one thread (see {@link #setAssemblyThreads}).
+     */
+    public void setAssemblyAlignerImplementation(final SmithWatermanAligner.Implementation implementation) {
+        assemblyAlignerImplementation = Utils.nonNull(implementation);
+    }
+
+    /**
+     * Build the graphs for the various kmer sizes concurrently, on a pool of this many threads.
+     * Only applies to sequence graph assembly:  linked De Bruijn graph assembly uses the results from each kmer size
+     * to decide whether to try the next, and so remains serial.
+     */
+    public void setAssemblyThreads(final int assemblyThreads) {
+        ParamUtils.isPositive(assemblyThreads, "number of assembly threads must be positive");
+        shutdown();
+        if ( assemblyThreads > 1 && generateSeqGraph ) {
+            assemblyExecutor = Executors.newFixedThreadPool(assemblyThreads,
+                    new ThreadFactoryBuilder().setNameFormat("assembly-thread-%d").setDaemon(true).build());
+        }
+    }
+
+    /**
+     * Use a {@link BoundedKBestHaplotypeFinder} to find haplotypes in sequence graphs.
+     *
+     * @param maxPartialPaths the maximum number of partial paths to explore per graph, or 0 for no limit
+     * @param maxMillis the maximum time to search each graph, or 0 for no limit
+     */
+    public void setBoundedHaplotypeSearch(final long maxPartialPaths, final long maxMillis) {
+        ParamUtils.isPositiveOrZero(maxPartialPaths, "maximum number of partial paths cannot be negative");
+        ParamUtils.isPositiveOrZero(maxMillis, "maximum search time cannot be negative");
+        useBoundedHaplotypeSearch = true;
+        maxHaplotypeSearchPartialPaths = maxPartialPaths;
+        maxHaplotypeSearchMillis = maxMillis;
+    }
+
+    /**
+     * @return the number of assembly regions for which the haplotype search stopped early for lack of budget
+     */
+    public long getNRegionsExceedingHaplotypeSearchBudget() {
+        return nRegionsExceedingHaplotypeSearchBudget;
+    }
+
+    /**
+     * Release the assembly thread pool, if there is one, and report on any regions whose haplotype search
+     * ran out of budget.
+     */
+    public void shutdown() {
+        if ( assemblyExecutor != null ) {
+            assemblyExecutor.shutdownNow();
+            try {
+                // attempts that were no longer needed may still be running, and must be done with their aligners
+                if ( assemblyExecutor.awaitTermination(ASSEMBLY_THREADS_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS) ) {
+                    synchronized (assemblyAligners) {
+                        assemblyAligners.forEach(SmithWatermanAligner::close);
+                        assemblyAligners.clear();
+                    }
+                } else {
+                    logger.warn("Assembly threads did not terminate; their aligners will not be closed");
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            assemblyExecutor = null;
+        }
+        if ( nRegionsExceedingHaplotypeSearchBudget > 0 ) {
+            logger.warn(nRegionsExceedingHaplotypeSearchBudget + " assembly regions exceeded the haplotype search budget, " +
+                    "and were genotyped using the best haplotypes found within it");
+            nRegionsExceedingHaplotypeSearchBudget = 0;
+        }
+    }
+
+    /**
+     * Build (and, when using low-weight chain pruning, prune) the read threading graph in a compact, packed-kmer form
+     * whenever possible.  The results are identical.
+     */
+    public void setUseCompactGraph(final boolean useCompactGraph) {
+        this.useCompactGraph = useCompactGraph;
+    }
+
     public void setRemovePathsNotConnectedToRef(final boolean removePathsNotConnectedToRef) {
         this.removePathsNotConnectedToRef = removePathsNotConnectedToRef;
     }
@@ -0,0 +1,416 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import htsjdk.samtools.SAMFileHeader;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.engine.spark.GATKRegistrator;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSpark;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils.IndexPair;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.markduplicates.GATKDuplicationMetrics;
+import org.broadinstitute.hellbender.utils.read.markduplicates.LibraryIdGenerator;
+import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
+import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.MarkDuplicatesSparkRecord;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+import picard.sam.markduplicates.MarkDuplicates;
+import picard.sam.markduplicates.util.OpticalDuplicateFinder;
+import scala.Tuple2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Duplicate marking of queryname-grouped reads on a single machine, without Spark.
+ *
+ * <p>
+ *     This engine applies the same model as {@link MarkDuplicatesSpark} (the {@link MarkDuplicatesSparkRecord} fragments and
+ *     pairs, their {@link ReadsKey}s, and the scoring and tie-breaking of {@link MarkDuplicatesSparkUtils}), and produces the
+ *     same duplicate flags, tags and {@link GATKDuplicationMetrics}.  It replaces the Spark shuffles with local files:
+ * </p>
+ * <ol>
+ *     <li>{@link #findDuplicates}: the reads are read once, template by template.  Templates are numbered in input order,
+ *     and the records for each template are written to one of a number of bucket files on disk, chosen by the hash of
+ *     their key, so that all the records sharing a key end up in the same bucket.</li>
+ *     <li>The buckets are then marked in parallel, one bucket at a time per thread.  The keys of a bucket are held in
+ *     primitive arrays, and the records are grouped by key with a primitive hash table and a counting sort.
+ *     The outcome for each template (duplicate, non-duplicate with its optical duplicate count, or optical duplicate)
+ *     is kept in a primitive array indexed by template number.</li>
+ *     <li>{@link #markDuplicates}: the reads are read a second time, and each read is marked according to the outcome for
+ *     its template.</li>
+ * </ol>
+ * <p>
+ *     Memory use is dominated by one int per template and, for each thread, by the records of the bucket it is marking;
+ *     use more buckets to mark larger inputs with less memory.
+ * </p>
+ */
+public final class MarkDuplicatesEngine implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(MarkDuplicatesEngine.class);
+
+    /**
+     * Marker of templates that were not reported as non-duplicates (or optical duplicates) by any key group.
+     */
+    private static final int DUPLICATE_MARKER = Integer.MIN_VALUE;
+
+    private static final int TEMPLATE_BLOCK_SIZE = 1 << 20;
+    private static final int BUCKET_BUFFER_SIZE = 1 << 14;
+    private static final int INITIAL_BUCKET_CAPACITY = 1 << 10;
+
+    private final SAMFileHeader header;
+    private final MarkDuplicatesScoringStrategy scoringStrategy;
+    private final Supplier<OpticalDuplicateFinder> opticalDuplicateFinderSupplier;
+    private final MarkDuplicatesSparkArgumentCollection mdArgs;
+    private final int numThreads;
+    private final Map<String, Short> readGroupIndexMap;
+    private final Map<String, Byte> libraryIndex;
+
+    private final Path tempDir;
+    private final Path[] bucketPaths;
+
+    // the marker of each template, by template number, in blocks of TEMPLATE_BLOCK_SIZE templates
+    private final List<int[]> templateMarkerBlocks = new ArrayList<>();
+    private int templateCount = 0;
+    private boolean duplicatesFound = false;
+
+    private final Map<String, GATKDuplicationMetrics> metricsByLibrary = new LinkedHashMap<>();
+
+    /**
+     * @param header header of the reads, which must be queryname sorted or querygrouped
+     * @param opticalDuplicateFinderSupplier makes the optical duplicate finder of each thread
+     * @param mdArgs duplicate marking arguments, as for {@link MarkDuplicatesSpark}
+     * @param numBuckets number of bucket files among which the records are distributed
+     * @param numThreads number of threads marking buckets in parallel
+     */
+    public MarkDuplicatesEngine(final SAMFileHeader header,
+                                final Supplier<OpticalDuplicateFinder> opticalDuplicateFinderSupplier,
+                                final MarkDuplicatesSparkArgumentCollection mdArgs,
+                                final int numBuckets,
+                                final int numThreads) {
+        this.header = Utils.nonNull(header);
+        this.opticalDuplicateFinderSupplier = Utils.nonNull(opticalDuplicateFinderSupplier);
+        this.mdArgs = Utils.nonNull(mdArgs);
+        this.scoringStrategy = mdArgs.duplicatesScoringStrategy;
+        Utils.validateArg(numBuckets > 0, "the number of buckets must be positive");
+        Utils.validateArg(numThreads > 0, "the number of threads must be positive");
+        this.numThreads = numThreads;
+        readGroupIndexMap = MarkDuplicatesSparkUtils.getHeaderReadGroupIndexMap(header);
+        libraryIndex = MarkDuplicatesSparkUtils.constructLibraryIndex(header);
+
+        tempDir = IOUtils.createTempDir("markduplicates").toPath();
+        bucketPaths = new Path[numBuckets];
+        for (int i = 0; i < numBuckets; i++) {
+            bucketPaths[i] = tempDir.resolve("bucket" + i + ".bin");
+        }
+    }
+
+    /**
+     * First pass over the reads:  finds the duplicate templates.
+     *
+     * @param reads the reads, grouped by name.  Must be the same reads, in the same order, as those later given to {@link #markDuplicates}.
+     */
+    public void findDuplicates(final Iterator<GATKRead> reads) {
+        Utils.validate(!duplicatesFound, "duplicates have already been found");
+        writeBuckets(reads);
+        markBuckets();
+        duplicatesFound = true;
+    }
+
+    /**
+     * Second pass over the reads:  sets their duplicate flags and tags, and accumulates the duplication metrics.
+     *
+     * @param reads the reads, in the same order as given to {@link #findDuplicates}
+     * @param output receives each read once it has been marked, in input order
+     */
+    public void markDuplicates(final Iterator<GATKRead> reads, final Consumer<GATKRead> output) {
+        Utils.validate(duplicatesFound, "duplicates must be found before reads can be marked");
+        final boolean markUnmappedMates = !mdArgs.dontMarkUnmappedMates;
+        final MarkDuplicates.DuplicateTaggingPolicy taggingPolicy = mdArgs.taggingPolicy;
+        final Map<String, Integer> nonDuplicateMarkers = new HashMap<>(2);
+        final int[] templateNumber = {0};
+        forEachReadNameGroup(reads, readNameGroup -> {
+            if (templateNumber[0] >= templateCount) {
+                throw new UserException.BadInput("The reads to be marked are not the reads in which duplicates were found.");
+            }
+            final int marker = getTemplateMarker(templateNumber[0]++);
+            nonDuplicateMarkers.clear();
+            if (marker != DUPLICATE_MARKER) {
+                nonDuplicateMarkers.put(readNameGroup.get(0).getName(), marker);
+            }
+            for (final GATKRead read : readNameGroup) {
+                MarkDuplicatesSparkUtils.markRead(read, nonDuplicateMarkers, markUnmappedMates, taggingPolicy);
+                updateMetrics(read);
+                output.accept(read);
+            }
+        });
+    }
+
+    /**
+     * @return the duplication metrics of each library with reads, as computed by {@link MarkDuplicatesSparkUtils#finalizeMetrics}
+     */
+    public Map<String, GATKDuplicationMetrics> getMetricsByLibrary() {
+        final Map<String, GATKDuplicationMetrics> result = new LinkedHashMap<>();
+        metricsByLibrary.forEach((library, metrics) -> result.put(library, MarkDuplicatesSparkUtils.finalizeMetrics(metrics)));
+        return result;
+    }
+
+    @Override
+    public void close() {
+        IOUtils.deleteRecursively(tempDir);
+    }
+
+    private void updateMetrics(final GATKRead read) {
+        final String library = LibraryIdGenerator.getLibraryName(header, read.getReadGroup());
+        final GATKDuplicationMetrics metrics = metricsByLibrary.computeIfAbsent(library, l -> {
+            final GATKDuplicationMetrics m = new GATKDuplicationMetrics();
+            m.LIBRARY = l;
+            return m;
+        });
+        metrics.updateMetrics(read);
+        if (read.getTransientAttribute(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME) != null) {
+            metrics.READ_PAIR_OPTICAL_DUPLICATES += (int) read.getTransientAttribute(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME);
+        }
+    }
+
+    private void writeBuckets(final Iterator<GATKRead> reads) {
+        final Kryo kryo = newKryo();
+        final Output[] outputs = new Output[bucketPaths.length];
+        try {
+            for (int i = 0; i < bucketPaths.length; i++) {
+                outputs[i] = new Output(Files.newOutputStream(bucketPaths[i]), BUCKET_BUFFER_SIZE);
+            }
+            final List<IndexPair<GATKRead>> mappedReads = new ArrayList<>(2);
+            forEachReadNameGroup(reads, readNameGroup -> {
+                final int templateNumber = newTemplate();
+                mappedReads.clear();
+                for (final GATKRead read : readNameGroup) {
+                    // as in MarkDuplicatesSpark, unmapped reads are only marked according to their mates
+                    if (ReadFilterLibrary.MAPPED.test(read)) {
+                        mappedReads.add(new IndexPair<>(read, templateNumber));
+                    }
+                }
+                if (mappedReads.isEmpty()) {
+                    return;
+                }
+                for (final MarkDuplicatesSparkRecord record : MarkDuplicatesSparkUtils.createRecordsForReadNameGroup(
+                        mappedReads, header, scoringStrategy, readGroupIndexMap, libraryIndex, mdArgs)) {
+                    final ReadsKey key = record.key();
+                    final long hash = hashKey(key.isPairKey(), key.getFirstKeyValue(), key.getSecondKeyValue());
+                    final Output output = outputs[(int) ((hash >>> 32) % outputs.length)];
+                    output.writeBoolean(key.isPairKey());
+                    output.writeLong(key.getFirstKeyValue());
+                    output.writeLong(key.getSecondKeyValue());
+                    kryo.writeClassAndObject(output, record);
+                }
+            });
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(tempDir.toString(), "could not write duplicate marking records", e);
+        } finally {
+            for (final Output output : outputs) {
+                if (output != null) {
+                    output.close();
+                }
+            }
+        }
+        logger.info("Distributed the records of " + templateCount + " templates among " + bucketPaths.length + " buckets.");
+    }
+
+    private void markBuckets() {
+        final ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+        try {
+            final List<Future<?>> futures = new ArrayList<>(bucketPaths.length);
+            for (final Path bucketPath : bucketPaths) {
+                futures.add(executor.submit(() -> markBucket(bucketPath)));
+            }
+            for (final Future<?> future : futures) {
+                future.get();
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while marking duplicates", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Failed to mark duplicates", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the records of a bucket, groups them by key, and records the outcome of each group for its templates.
+     */
+    private void markBucket(final Path bucketPath) {
+        final Kryo kryo = newKryo();
+        int n = 0;
+        boolean[] pairKeys = new boolean[INITIAL_BUCKET_CAPACITY];
+        long[] firstKeyValues = new long[INITIAL_BUCKET_CAPACITY];
+        long[] secondKeyValues = new long[INITIAL_BUCKET_CAPACITY];
+        MarkDuplicatesSparkRecord[] records = new MarkDuplicatesSparkRecord[INITIAL_BUCKET_CAPACITY];
+        try (final Input input = new Input(Files.newInputStream(bucketPath), BUCKET_BUFFER_SIZE)) {
+            while (!input.eof()) {
+                if (n == records.length) {
+                    final int capacity = records.length * 2;
+                    pairKeys = Arrays.copyOf(pairKeys, capacity);
+                    firstKeyValues = Arrays.copyOf(firstKeyValues, capacity);
+                    secondKeyValues = Arrays.copyOf(secondKeyValues, capacity);
+                    records = Arrays.copyOf(records, capacity);
+                }
+                pairKeys[n] = input.readBoolean();
+                firstKeyValues[n] = input.readLong();
+                secondKeyValues[n] = input.readLong();
+                records[n] = (MarkDuplicatesSparkRecord) kryo.readClassAndObject(input);
+                n++;
+            }
+            Files.delete(bucketPath);
+        } catch (final IOException e) {
+            throw new UncheckedIOException("Could not read duplicate marking records from " + bucketPath, e);
+        }
+        if (n == 0) {
+            return;
+        }
+
+        // group the records by key, keeping the groups in order of first appearance and the records in input order within each group
+        final int[] groupOf = new int[n];
+        final int groupCount = assignGroups(pairKeys, firstKeyValues, secondKeyValues, n, groupOf);
+        final int[] groupStarts = new int[groupCount + 1];
+        for (int i = 0; i < n; i++) {
+            groupStarts[groupOf[i] + 1]++;
+        }
+        for (int g = 0; g < groupCount; g++) {
+            groupStarts[g + 1] += groupStarts[g];
+        }
+        final int[] nextInGroup = Arrays.copyOf(groupStarts, groupCount);
+        final MarkDuplicatesSparkRecord[] recordsByGroup = new MarkDuplicatesSparkRecord[n];
+        for (int i = 0; i < n; i++) {
+            recordsByGroup[nextInGroup[groupOf[i]]++] = records[i];
+        }
+
+        final OpticalDuplicateFinder finder = opticalDuplicateFinderSupplier.get();
+        final boolean markOpticalDups = mdArgs.taggingPolicy != MarkDuplicates.DuplicateTaggingPolicy.DontTag;
+        final List<MarkDuplicatesSparkRecord> recordList = Arrays.asList(recordsByGroup);
+        for (int g = 0; g < groupCount; g++) {
+            final List<Tuple2<IndexPair<String>, Integer>> nonDuplicates = MarkDuplicatesSparkUtils.markDuplicateGroup(
+                    recordList.subList(groupStarts[g], groupStarts[g + 1]), finder, markOpticalDups,
+                    mdArgs.FLOW_END_LOCATION_SIGNIFICANT, mdArgs.ENDS_READ_UNCERTAINTY);
+            for (final Tuple2<IndexPair<String>, Integer> nonDuplicate : nonDuplicates) {
+                setTemplateMarker(nonDuplicate._1().getIndex(), nonDuplicate._2(), nonDuplicate._1().getValue());
+            }
+        }
+    }
+
+    /**
+     * Assigns each of the first {@code n} records the number of its key among the distinct keys, in order of first appearance.
+     *
+     * @return the number of distinct keys
+     */
+    private static int assignGroups(final boolean[] pairKeys, final long[] firstKeyValues, final long[] secondKeyValues,
+                                    final int n, final int[] groupOf) {
+        // open addressing table of (1 + the index of the first record with each key)
+        final int[] slots = new int[Integer.highestOneBit(2 * n - 1) << 1];
+        final int mask = slots.length - 1;
+        int groupCount = 0;
+        for (int i = 0; i < n; i++) {
+            int slot = (int) hashKey(pairKeys[i], firstKeyValues[i], secondKeyValues[i]) & mask;
+            while (true) {
+                final int first = slots[slot] - 1;
+                if (first < 0) {
+                    slots[slot] = i + 1;
+                    groupOf[i] = groupCount++;
+                    break;
+                } else if (pairKeys[first] == pairKeys[i] && firstKeyValues[first] == firstKeyValues[i] && secondKeyValues[first] == secondKeyValues[i]) {
+                    groupOf[i] = groupOf[first];
+                    break;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+        return groupCount;
+    }
+
+    // the high bits choose the bucket and the low bits the slot in the bucket's hash table
+    private static long hashKey(final boolean pairKey, final long firstKeyValue, final long secondKeyValue) {
+        long h = firstKeyValue * 0x9E3779B97F4A7C15L + secondKeyValue + (pairKey ? 1 : 0);
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private int newTemplate() {
+        if (templateCount % TEMPLATE_BLOCK_SIZE == 0) {
+            final int[] block = new int[TEMPLATE_BLOCK_SIZE];
+            Arrays.fill(block, DUPLICATE_MARKER);
+            templateMarkerBlocks.add(block);
+        }
+        if (templateCount == Integer.MAX_VALUE) {
+            throw new UserException.BadInput("Too many templates to mark duplicates: at most " + Integer.MAX_VALUE + " are supported.");
+        }
+        return templateCount++;
+    }
+
+    private int getTemplateMarker(final int templateNumber) {
+        return templateMarkerBlocks.get(templateNumber / TEMPLATE_BLOCK_SIZE)[templateNumber % TEMPLATE_BLOCK_SIZE];
+    }
+
+    // called concurrently for different templates; each template is reported by at most one group
+    private void setTemplateMarker(final int templateNumber, final int marker, final String name) {
+        final int[] block = templateMarkerBlocks.get(templateNumber / TEMPLATE_BLOCK_SIZE);
+        if (block[templateNumber % TEMPLATE_BLOCK_SIZE] != DUPLICATE_MARKER) {
+            throw new GATKException(String.format("Detected multiple mark duplicate records objects corresponding to read with name '%s', this could be the result of the file sort order being incorrect", name));
+        }
+        block[templateNumber % TEMPLATE_BLOCK_SIZE] = marker;
+    }
+
+    // calls the action on each run of consecutive reads with the same name
+    private static void forEachReadNameGroup(final Iterator<GATKRead> reads, final Consumer<List<GATKRead>> action) {
+        final List<GATKRead> readNameGroup = new ArrayList<>(2);
+        while (reads.hasNext()) {
+            final GATKRead read = reads.next();
+            if (!readNameGroup.isEmpty() && !readNameGroup.get(0).getName().equals(read.getName())) {
+                action.accept(readNameGroup);
+                readNameGroup.clear();
+            }
+            readNameGroup.add(read);
+        }
+        if (!readNameGroup.isEmpty()) {
+            action.accept(readNameGroup);
+        }
+    }
+
+    // the records are serialized as they are by MarkDuplicatesSpark, so transient fields are recomputed in the same way
+    private static Kryo newKryo() {
+        final Kryo kryo = new Kryo();
+        kryo.setReferences(false);
+        kryo.setInstantiatorStrategy(new Kryo.DefaultInstantiatorStrategy(new StdInstantiatorStrategy()));
+        new GATKRegistrator().registerClasses(kryo);
+        return kryo;
+    }
+}
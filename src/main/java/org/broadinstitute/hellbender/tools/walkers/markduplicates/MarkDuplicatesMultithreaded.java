@@ -0,0 +1,152 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.metrics.MetricsFile;
+import org.broadinstitute.barclay.argparser.Advanced;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.argparser.ExperimentalFeature;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.ModeArgumentUtils;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.OpticalDuplicatesArgumentCollection;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.engine.GATKTool;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSpark;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
+import org.broadinstitute.hellbender.utils.read.markduplicates.GATKDuplicationMetrics;
+import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
+import picard.sam.markduplicates.MarkDuplicates;
+import picard.sam.markduplicates.util.OpticalDuplicateFinder;
+
+/**
+ * Marks duplicates in queryname-grouped reads on a single machine, using multiple threads but no Spark.
+ *
+ * <p>This tool marks duplicates exactly as {@link MarkDuplicatesSpark} does, and writes the same duplication metrics,
+ * without the cost of starting a Spark context and of serializing and shuffling the reads.  It reads the input twice:
+ * once to find the duplicates, which are grouped through temporary files and marked in parallel, and once to mark the reads
+ * and write them out.</p>
+ *
+ * <p>Unlike {@link MarkDuplicatesSpark}, this tool requires its input to be queryname sorted or querygrouped (as the output of
+ * the aligner usually is), and writes its output in the same order as its input, without coordinate sorting it.</p>
+ *
+ * <p>Memory use is dominated by 4 bytes per template, plus the duplicate marking records of one bucket per thread.
+ * Increase the number of buckets to reduce the memory used by each thread.  The temporary files are written to the
+ * directory given by --tmp-dir and take roughly as much space as the read names of the mapped reads.</p>
+ *
+ * <h3>Usage example</h3>
+ *     <pre>
+ *      gatk MarkDuplicatesMultithreaded \
+ *            -I input.querygrouped.bam \
+ *            -O marked_duplicates.bam \
+ *            -M marked_dup_metrics.txt \
+ *            --threads 32
+ *     </pre>
+ */
+@DocumentedFeature
+@ExperimentalFeature
+@CommandLineProgramProperties(
+        summary = "Marks duplicates in queryname-grouped reads using multiple threads, with the same results as MarkDuplicatesSpark",
+        oneLineSummary = "Multithreaded MarkDuplicates without Spark",
+        programGroup = ReadDataManipulationProgramGroup.class)
+public final class MarkDuplicatesMultithreaded extends GATKTool {
+    public static final String THREADS_LONG_NAME = "threads";
+    public static final String NUM_BUCKETS_LONG_NAME = "num-buckets";
+
+    @Argument(doc = "the output bam", shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
+    protected GATKPath output;
+
+    @Argument(doc = "Path to write duplication metrics to.", optional=true,
+            shortName = StandardArgumentDefinitions.METRICS_FILE_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.METRICS_FILE_LONG_NAME)
+    protected String metricsFile;
+
+    @Argument(doc = "Number of threads used to mark duplicates.", optional = true, minValue = 1,
+            fullName = THREADS_LONG_NAME)
+    protected int threads = Runtime.getRuntime().availableProcessors();
+
+    @Advanced
+    @Argument(doc = "Number of temporary files among which the duplicate marking records are distributed.  " +
+            "More buckets use less memory per thread.", optional = true, minValue = 1,
+            fullName = NUM_BUCKETS_LONG_NAME)
+    protected int numBuckets = 1024;
+
+    @Advanced
+    @Argument(doc = "Treat unsorted files as query-group orderd files. WARNING: This option disables a basic safety check and may result in unexpected behavior if the file is truly unordered", optional=true,
+            fullName = MarkDuplicatesSpark.TREAT_UNSORTED_AS_ORDERED)
+    protected boolean treatUnsortedAsOrdered = false;
+
+    @ArgumentCollection
+    protected MarkDuplicatesSparkArgumentCollection markDuplicatesArgumentCollection = new MarkDuplicatesSparkArgumentCollection();
+
+    @ArgumentCollection
+    protected OpticalDuplicatesArgumentCollection opticalDuplicatesArgumentCollection = new OpticalDuplicatesArgumentCollection();
+
+    @Override
+    public boolean requiresReads() { return true; }
+
+    @Override
+    public void traverse() {
+        final SAMFileHeader header = getHeaderForReads();
+        final SAMFileHeader.SortOrder sortOrder = header.getSortOrder();
+        if (!ReadUtils.isReadNameGroupedBam(header)) {
+            if (treatUnsortedAsOrdered && (sortOrder == SAMFileHeader.SortOrder.unknown || sortOrder == SAMFileHeader.SortOrder.unsorted)) {
+                logger.warn("Input bam was marked as " + sortOrder + " but " + MarkDuplicatesSpark.TREAT_UNSORTED_AS_ORDERED + " is specified so it's being treated as read name grouped");
+            } else {
+                throw new UserException.BadInput("MarkDuplicatesMultithreaded requires its input to be queryname sorted or querygrouped, but it is in " + sortOrder + " order.");
+            }
+        }
+
+        // If we need to remove optical duplicates, set the engine to mark optical duplicates using the DT tag.
+        if (markDuplicatesArgumentCollection.removeSequencingDuplicates && markDuplicatesArgumentCollection.taggingPolicy == MarkDuplicates.DuplicateTaggingPolicy.DontTag) {
+            markDuplicatesArgumentCollection.taggingPolicy = MarkDuplicates.DuplicateTaggingPolicy.OpticalOnly;
+        }
+
+        final ReadsDataSource reads = directlyAccessEngineReadsDataSource();
+        try (final MarkDuplicatesEngine engine = new MarkDuplicatesEngine(header,
+                    () -> new OpticalDuplicateFinder(opticalDuplicatesArgumentCollection.READ_NAME_REGEX, opticalDuplicatesArgumentCollection.OPTICAL_DUPLICATE_PIXEL_DISTANCE, null),
+                    markDuplicatesArgumentCollection, numBuckets, threads);
+             final SAMFileGATKReadWriter writer = createSAMWriter(output, true)) {
+            logger.info("Finding duplicates");
+            engine.findDuplicates(reads.iterator());
+
+            logger.info("Marking duplicates");
+            engine.markDuplicates(reads.iterator(), read -> {
+                if (markDuplicatesArgumentCollection.removeAllDuplicates && read.isDuplicate()) {
+                    return;
+                } else if (markDuplicatesArgumentCollection.removeSequencingDuplicates &&
+                        MarkDuplicates.DUPLICATE_TYPE_SEQUENCING.equals(read.getAttributeAsString(MarkDuplicates.DUPLICATE_TYPE_TAG))) {
+                    return;
+                }
+                writer.addRead(read);
+            });
+
+            if (metricsFile != null) {
+                final MetricsFile<GATKDuplicationMetrics, Double> resultMetrics = getMetricsFile();
+                MarkDuplicatesSparkUtils.saveMetrics(resultMetrics, header, engine.getMetricsByLibrary(), metricsFile);
+            }
+        }
+    }
+
+    /**
+     * mode adjustments
+     * @return error messages
+     */
+    @Override
+    protected String[] customCommandLineValidation() {
+        if (markDuplicatesArgumentCollection.useFlowFragments) {
+            ModeArgumentUtils.setArgValues(
+                    getCommandLineParser(),
+                    markDuplicatesArgumentCollection.getFlowModeArgValues(),
+                    MarkDuplicatesSparkArgumentCollection.FLOW_MD_MODE_LONG_NAME);
+        }
+        return null;
+    }
+}
@@ -455,6 +455,7 @@ public final class Mutect2Engine implements AssemblyRegionEvaluator, AutoCloseab
     public void close() {
         likelihoodCalculationEngine.close();
         aligner.close();
+        assemblyEngine.shutdown();
         haplotypeBAMWriter.ifPresent(HaplotypeBAMWriter::close);
         assembledEventMapVcfOutputWriter.ifPresent(writer -> {assembledEventMapVariants.get().forEach(writer::add); writer.close();});
         referenceReader.close();
@@ -189,6 +189,7 @@ public class SomaticGenotypingEngine implements AutoCloseable {
             // if every alt allele is germline, skip this variant.  However, if some alt alleles are germline and others
             // are not we emit them all so that the filtering engine can see them
             if (allelesToGenotype.isEmpty()) {
+                logLikelihoods.releaseBuffers();
                 continue;
             }
 
@@ -252,6 +253,12 @@ public class SomaticGenotypingEngine implements AutoCloseable {
 
             call.getAlleles().stream().map(alleleMapper::get).filter(Objects::nonNull).forEach(calledHaplotypes::addAll);
             returnCalls.add( annotatedCall );
+
+            // the likelihoods of this event are no longer needed:  let the next event reuse their buffers
+            trimmedLikelihoodsForAnnotation.releaseBuffers();
+            logReadAlleleLikelihoods.releaseBuffers();
+            trimmedLikelihoods.releaseBuffers();
+            logLikelihoods.releaseBuffers();
         }
 
         final List<VariantContext> outputCalls = AssemblyBasedCallerUtils.phaseCalls(returnCalls, calledHaplotypes);
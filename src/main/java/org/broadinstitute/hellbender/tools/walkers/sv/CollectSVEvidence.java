@@ -1,10 +1,14 @@
 package org.broadinstitute.hellbender.tools.walkers.sv;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.samtools.CigarElement;
 import htsjdk.samtools.CigarOperator;
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.util.Locatable;
+import htsjdk.samtools.util.PeekableIterator;
+import htsjdk.tribble.CloseableTribbleIterator;
 import htsjdk.tribble.Feature;
 import htsjdk.variant.variantcontext.VariantContext;
 import org.broadinstitute.barclay.argparser.Argument;
@@ -13,23 +17,37 @@ import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
 import org.broadinstitute.hellbender.cmdline.programgroups.StructuralVariantDiscoveryProgramGroup;
 import org.broadinstitute.hellbender.engine.*;
+import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.sv.DepthEvidence;
 import org.broadinstitute.hellbender.tools.sv.DiscordantPairEvidence;
 import org.broadinstitute.hellbender.tools.sv.SiteDepth;
 import org.broadinstitute.hellbender.tools.sv.SplitReadEvidence;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
 import org.broadinstitute.hellbender.utils.Nucleotide;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.codecs.*;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 import static org.broadinstitute.hellbender.utils.read.ReadUtils.isBaseInsideAdaptor;
 
@@ -98,6 +116,15 @@ import static org.broadinstitute.hellbender.utils.read.ReadUtils.isBaseInsideAda
  * as a tab-delimited text file by specifying an output file name that ends with ".bci" rather than
  * ".txt".  These files are self-indexing, and contain complete header information including sample
  * name(s) and a dictionary for the contigs.
+ *
+ * By default, all evidence is collected in a single pass over the reads on a single thread.  When
+ * --contig-threads is greater than 1, contigs are instead processed concurrently: each contig gets its
+ * own reader and evidence collectors, which write to per-contig block-compressed interval shards in a
+ * temporary directory.  When all contigs are done, the shards for each output are combined in dictionary
+ * order.  Block-compressed interval outputs are produced by concatenating the shards' compressed blocks
+ * and rewriting the index, while tab-delimited outputs are produced by re-encoding the shards.  The output
+ * is identical to that of the single-threaded mode.  In this mode, an input site depth VCF or depth evidence
+ * interval file that is indexed is queried by contig; otherwise it is scanned for each contig.
  */
 @BetaFeature
 @DocumentedFeature
@@ -129,6 +156,11 @@ public class CollectSVEvidence extends ReadWalker {
     public static final String MIN_SITE_DEPTH_BASEQ_ARGUMENT_NAME = "site-depth-min-baseq";
     public static final String SAMPLE_NAME_ARGUMENT_LONG_NAME = "sample-name";
     public static final String COMPRESSION_LEVEL_ARGUMENT_LONG_NAME = "compression-level";
+    public static final String CONTIG_THREADS_ARGUMENT_LONG_NAME = "contig-threads";
+
+    // how many reads a contig worker processes between (synchronized) updates of the progress meter
+    private static final int PROGRESS_METER_BATCH_SIZE = 10000;
+    private static final long WORKER_TERMINATION_TIMEOUT_SECONDS = 60;
 
     @Argument(shortName = PAIRED_END_FILE_ARGUMENT_SHORT_NAME,
             fullName = PAIRED_END_FILE_ARGUMENT_LONG_NAME, doc = "Output file for paired end evidence",
@@ -191,17 +223,21 @@ public class CollectSVEvidence extends ReadWalker {
     @Argument(fullName = COMPRESSION_LEVEL_ARGUMENT_LONG_NAME, doc = "Output compression level")
     int compressionLevel = 4;
 
-    final Set<String> observedDiscordantNames = new HashSet<>();
-    final PriorityQueue<SplitPos> splitPosBuffer = new PriorityQueue<>(new SplitPosComparator());
-    final List<DiscordantRead> discordantPairs = new ArrayList<>();
+    @Argument(fullName = CONTIG_THREADS_ARGUMENT_LONG_NAME,
+            doc = "Number of contigs to process concurrently, each with its own reader",
+            minValue = 1,
+            optional = true)
+    public int contigThreads = 1;
 
-    int currentDiscordantPosition = -1;
-    String currentChrom = null;
+    private EvidenceCollector evidenceCollector;
 
-    private FeatureSink<DiscordantPairEvidence> peWriter;
-    private FeatureSink<SplitReadEvidence> srWriter;
-    private SiteDepthCounter siteDepthCounter;
-    private DepthEvidenceCollector depthEvidenceCollector;
+    // outputs for the contig-parallel mode
+    private File shardDir;
+    private ShardedOutput<DiscordantPairEvidence> peOutput;
+    private ShardedOutput<SplitReadEvidence> srOutput;
+    private ShardedOutput<SiteDepth> sdOutput;
+    private ShardedOutput<DepthEvidence> rdOutput;
+    private DepthEvidenceCollector depthSummaryCollector;
 
     private SAMSequenceDictionary sequenceDictionary;
 
@@ -215,14 +251,39 @@ public class CollectSVEvidence extends ReadWalker {
         super.onTraversalStart();
 
         sequenceDictionary = getBestAvailableSequenceDictionary();
-        peWriter = createPEWriter();
-        srWriter = createSRWriter();
-        siteDepthCounter = createSiteDepthCounter();
-        depthEvidenceCollector = createDepthEvidenceCollector();
-        if ( peWriter == null && srWriter == null &&
-                siteDepthCounter == null && depthEvidenceCollector == null ) {
+        final boolean collectSiteDepth = validateSiteDepthArguments();
+        final boolean collectDepthEvidence = validateDepthEvidenceArguments();
+        if ( peFile == null && srFile == null && !collectSiteDepth && !collectDepthEvidence ) {
             throw new UserException("You must supply at least one output file: PE, SR, SD, or RD");
         }
+        if ( contigThreads > 1 ) {
+            if ( !directlyAccessEngineReadsDataSource().isQueryableByInterval() ) {
+                throw new UserException.MissingIndex("--" + CONTIG_THREADS_ARGUMENT_LONG_NAME +
+                        " greater than 1 requires indexed reads, so that each contig can be read on its own.");
+            }
+            shardDir = IOUtils.createTempDir("CollectSVEvidence");
+            if ( peFile != null ) {
+                peOutput = new ShardedOutput<>(peFile, ".pe.bci",
+                        DiscordantPairEvidenceBCICodec::new, this::createPEWriter);
+            }
+            if ( srFile != null ) {
+                srOutput = new ShardedOutput<>(srFile, ".sr.bci",
+                        SplitReadEvidenceBCICodec::new, this::createSRWriter);
+            }
+            if ( collectSiteDepth ) {
+                sdOutput = new ShardedOutput<>(siteDepthOutputFilename, ".sd.bci", SiteDepthBCICodec::new,
+                        path -> SiteDepthCounter.createWriter(sequenceDictionary, sampleName, compressionLevel, path));
+            }
+            if ( collectDepthEvidence ) {
+                rdOutput = new ShardedOutput<>(depthEvidenceOutputFilename, ".rd.bci", DepthEvidenceBCICodec::new,
+                        path -> DepthEvidenceCollector.createWriter(sequenceDictionary, sampleName, compressionLevel, path));
+            }
+        } else {
+            evidenceCollector = new EvidenceCollector(createPEWriter(peFile),
+                                                        createSRWriter(srFile),
+                                                        createSiteDepthCounter(),
+                                                        createDepthEvidenceCollector());
+        }
     }
 
     @Override
@@ -233,71 +294,266 @@ public class CollectSVEvidence extends ReadWalker {
         return readFilters;
     }
 
+    @Override
+    public void traverse() {
+        if ( contigThreads > 1 ) {
+            traverseContigsConcurrently();
+        } else {
+            super.traverse();
+        }
+    }
+
     @Override
     public void apply(final GATKRead read, final ReferenceContext referenceContext, final FeatureContext featureContext) {
-        if ( !(read.isPaired() && read.mateIsUnmapped()) &&
-                !read.isSupplementaryAlignment() &&
-                !read.isSecondaryAlignment() ) {
-            if ( srWriter != null && isSoftClipped(read) ) {
-                countSplitRead(read, splitPosBuffer, srWriter);
+        evidenceCollector.apply(read);
+    }
+
+    /**
+     * Collects evidence for each contig in the dictionary that has any on a pool of {@link #contigThreads} threads,
+     * then combines the per-contig shards into the requested outputs.
+     */
+    private void traverseContigsConcurrently() {
+        final ExecutorService executor = Executors.newFixedThreadPool(contigThreads,
+                new ThreadFactoryBuilder().setNameFormat("collectSVEvidence-contig-thread-%d").setDaemon(true).build());
+        try {
+            try {
+                final List<Future<EvidenceCollector>> futures = new ArrayList<>(sequenceDictionary.size());
+                try ( final FeatureDataSource<VariantContext> snpSource =
+                              sdOutput == null ? null : SiteDepthCounter.openSNPSource(siteDepthInputFilename);
+                      final FeatureDataSource<Feature> intervalSource =
+                              rdOutput == null ? null : new FeatureDataSource<>(depthEvidenceInputFilename.toPath().toString()) ) {
+                    for ( final SAMSequenceRecord contig : sequenceDictionary.getSequences() ) {
+                        if ( hasEvidenceToCollect(contig, snpSource, intervalSource) ) {
+                            futures.add(executor.submit(() -> collectContigEvidence(contig)));
+                        }
+                    }
+                }
+                for ( final Future<EvidenceCollector> future : futures ) {
+                    final DepthEvidenceCollector contigDepthCollector = awaitContig(future).depthEvidenceCollector;
+                    if ( contigDepthCollector != null ) {
+                        if ( depthSummaryCollector == null ) {
+                            depthSummaryCollector = contigDepthCollector;
+                        } else {
+                            depthSummaryCollector.mergeSummaryStats(contigDepthCollector);
+                        }
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+                // let the remaining workers stop writing their shards before they're deleted
+                awaitWorkers(executor);
+            }
+
+            for ( final ShardedOutput<?> output : Arrays.asList(peOutput, srOutput, sdOutput, rdOutput) ) {
+                if ( output != null ) {
+                    output.gather();
+                }
             }
+        } finally {
+            IOUtils.deleteRecursively(shardDir.toPath());
+        }
+    }
 
-            if ( peWriter != null && !read.isProperlyPaired() ) {
-                reportDiscordantReadPair(read);
+    /**
+     * Whether a contig needs a task: it has reads within the traversal, or site depth sites or depth evidence
+     * intervals, which are reported even when no reads cover them.
+     */
+    private boolean hasEvidenceToCollect( final SAMSequenceRecord contig,
+                                          final FeatureDataSource<VariantContext> snpSource,
+                                          final FeatureDataSource<Feature> intervalSource ) {
+        final ReadsDataSource reads = directlyAccessEngineReadsDataSource();
+        for ( final SimpleInterval interval : getContigTraversalIntervals(contig) ) {
+            if ( reads.query(interval).hasNext() ) {
+                return true;
             }
         }
+        return hasFeaturesOnContig(snpSource, contig) || hasFeaturesOnContig(intervalSource, contig);
+    }
 
-        if ( siteDepthCounter != null ) {
-            siteDepthCounter.apply(read);
+    // sources that can't be queried are assumed to have features on every contig
+    private static boolean hasFeaturesOnContig( final FeatureDataSource<?> source, final SAMSequenceRecord contig ) {
+        if ( source == null ) {
+            return false;
         }
-        if ( depthEvidenceCollector != null ) {
-            depthEvidenceCollector.apply(read);
+        if ( !source.supportsRandomAccess() ) {
+            return true;
         }
+        return source.query(new SimpleInterval(contig.getSequenceName(), 1, contig.getSequenceLength())).hasNext();
     }
 
-    private FeatureSink<DiscordantPairEvidence> createPEWriter() {
-        if ( peFile == null ) {
+    private void awaitWorkers( final ExecutorService executor ) {
+        try {
+            if ( !executor.awaitTermination(WORKER_TERMINATION_TIMEOUT_SECONDS, TimeUnit.SECONDS) ) {
+                logger.warn("Timed out waiting for the contig threads to stop");
+            }
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Collects all evidence for a single contig using a reader and collectors that aren't shared with
+     * any other contig.  Called from worker threads.
+     */
+    private EvidenceCollector collectContigEvidence( final SAMSequenceRecord contig ) {
+        final int contigIndex = contig.getSequenceIndex();
+        final EvidenceCollector collector = new EvidenceCollector(
+                peOutput == null ? null : peOutput.createShardSink(contigIndex),
+                srOutput == null ? null : srOutput.createShardSink(contigIndex),
+                sdOutput == null ? null :
+                        new SiteDepthCounter(sequenceDictionary, sampleName, sdOutput.createShardSink(contigIndex),
+                                SiteDepthCounter.openSNPSource(siteDepthInputFilename), contig, minMapQ, minQ),
+                rdOutput == null ? null :
+                        new DepthEvidenceCollector(sequenceDictionary, rdOutput.createShardSink(contigIndex),
+                                new FeatureDataSource<>(depthEvidenceInputFilename.toPath().toString()),
+                                contig, minDepthEvidenceMapQ));
+
+        final List<SimpleInterval> contigIntervals = getContigTraversalIntervals(contig);
+        if ( !contigIntervals.isEmpty() ) {
+            try ( final ReadsPathDataSource contigReads =
+                          new ReadsPathDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(),
+                                  makeSamReaderFactory(), cloudPrefetchBuffer,
+                                  (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer)) ) {
+                contigReads.setTraversalBounds(contigIntervals);
+                final CountingReadFilter readFilter = makeReadFilter();
+                final ReadTransformer preTransformer = makePreReadFilterTransformer();
+                final ReadTransformer postTransformer = makePostReadFilterTransformer();
+                long nReadsSinceProgressUpdate = 0;
+                GATKRead lastRead = null;
+                for ( final GATKRead rawRead : contigReads ) {
+                    final GATKRead read = preTransformer.apply(rawRead);
+                    if ( readFilter.test(read) ) {
+                        lastRead = postTransformer.apply(read);
+                        collector.apply(lastRead);
+                        if ( ++nReadsSinceProgressUpdate == PROGRESS_METER_BATCH_SIZE ) {
+                            updateProgressMeter(lastRead, nReadsSinceProgressUpdate);
+                            nReadsSinceProgressUpdate = 0;
+                        }
+                    }
+                }
+                if ( nReadsSinceProgressUpdate > 0 ) {
+                    updateProgressMeter(lastRead, nReadsSinceProgressUpdate);
+                }
+            }
+        }
+        collector.finish();
+        collector.close();
+        return collector;
+    }
+
+    // the part of the traversal that lies on the specified contig
+    private List<SimpleInterval> getContigTraversalIntervals( final SAMSequenceRecord contig ) {
+        final String contigName = contig.getSequenceName();
+        if ( !hasUserSuppliedIntervals() ) {
+            return Collections.singletonList(new SimpleInterval(contigName, 1, contig.getSequenceLength()));
+        }
+        return getTraversalIntervals().stream()
+                .filter(interval -> interval.getContig().equals(contigName))
+                .collect(Collectors.toList());
+    }
+
+    private void updateProgressMeter( final GATKRead read, final long nReads ) {
+        synchronized ( progressMeter ) {
+            progressMeter.update(read, nReads);
+        }
+    }
+
+    private static EvidenceCollector awaitContig( final Future<EvidenceCollector> future ) {
+        try {
+            return future.get();
+        } catch ( final InterruptedException e ) {
+            throw new GATKException("Interrupted while collecting evidence", e);
+        } catch ( final ExecutionException e ) {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            }
+            throw new GATKException("Exception encountered while collecting evidence", cause);
+        }
+    }
+
+    /**
+     * Returns an iterator over the features of a source that lie on a single contig.  Indexed sources are
+     * queried, and others are scanned until the end of the contig's (contiguous) run of features.
+     */
+    @VisibleForTesting
+    static <T extends Feature> Iterator<T> getContigIterator( final FeatureDataSource<T> source,
+                                                              final SAMSequenceRecord contig ) {
+        final String contigName = contig.getSequenceName();
+        if ( source.supportsRandomAccess() ) {
+            source.setIntervalsForTraversal(
+                    Collections.singletonList(new SimpleInterval(contigName, 1, contig.getSequenceLength())));
+            return source.iterator();
+        }
+        final PeekableIterator<T> itr = new PeekableIterator<>(source.iterator());
+        while ( itr.hasNext() && !contigName.equals(itr.peek().getContig()) ) {
+            itr.next();
+        }
+        return new Iterator<T>() {
+            @Override public boolean hasNext() {
+                return itr.hasNext() && contigName.equals(itr.peek().getContig());
+            }
+
+            @Override public T next() {
+                if ( !hasNext() ) {
+                    throw new NoSuchElementException("no more features on contig " + contigName);
+                }
+                return itr.next();
+            }
+        };
+    }
+
+    private FeatureSink<DiscordantPairEvidence> createPEWriter( final GATKPath path ) {
+        if ( path == null ) {
             return null;
         }
-        final String peFilename = peFile.toPath().toString();
+        final String peFilename = path.toPath().toString();
         final List<String> sampleNames = Collections.singletonList(sampleName);
         final DiscordantPairEvidenceCodec peCodec = new DiscordantPairEvidenceCodec();
         final DiscordantPairEvidenceBCICodec peBCICodec = new DiscordantPairEvidenceBCICodec();
         if ( peBCICodec.canDecode(peFilename) ) {
-            return peBCICodec.makeSink(peFile, sequenceDictionary, sampleNames, compressionLevel);
+            return peBCICodec.makeSink(path, sequenceDictionary, sampleNames, compressionLevel);
         }
         if ( !peCodec.canDecode(peFilename) ) {
             throw new UserException("Attempting to write discordant pair evidence to a file that " +
                     "can't be read as discordant pair evidence: " + peFilename + ".  The file " +
                     "name should end with \".pe.txt\", \".pe.txt.gz\", or \".pe.bci\".");
         }
-        return peCodec.makeSink(peFile, sequenceDictionary, sampleNames, compressionLevel);
+        return peCodec.makeSink(path, sequenceDictionary, sampleNames, compressionLevel);
     }
 
-    private FeatureSink<SplitReadEvidence> createSRWriter() {
-        if ( srFile == null ) {
+    private FeatureSink<SplitReadEvidence> createSRWriter( final GATKPath path ) {
+        if ( path == null ) {
             return null;
         }
-        final String srFilename = srFile.toPath().toString();
+        final String srFilename = path.toPath().toString();
         final List<String> sampleNames = Collections.singletonList(sampleName);
         final SplitReadEvidenceCodec srCodec = new SplitReadEvidenceCodec();
         final SplitReadEvidenceBCICodec srBCICodec = new SplitReadEvidenceBCICodec();
         if ( srBCICodec.canDecode(srFilename) ) {
-            return srBCICodec.makeSink(srFile, sequenceDictionary, sampleNames, compressionLevel);
+            return srBCICodec.makeSink(path, sequenceDictionary, sampleNames, compressionLevel);
         }
         if ( !srCodec.canDecode(srFilename) ) {
             throw new UserException("Attempting to write split read evidence to a file that " +
                     "can't be read as split read evidence: " + srFilename + ".  The file " +
                     "name should end with \".sr.txt\", \".sr.txt.gz\", or \".sr.bci\".");
         }
-        return srCodec.makeSink(srFile, sequenceDictionary, sampleNames, compressionLevel);
+        return srCodec.makeSink(path, sequenceDictionary, sampleNames, compressionLevel);
     }
 
     private SiteDepthCounter createSiteDepthCounter() {
+        if ( !validateSiteDepthArguments() ) {
+            return null;
+        }
+        return new SiteDepthCounter(sequenceDictionary, sampleName, compressionLevel,
+                siteDepthInputFilename, siteDepthOutputFilename,
+                                    minMapQ, minQ);
+    }
+
+    // returns true if site depth is to be collected
+    private boolean validateSiteDepthArguments() {
         if ( siteDepthInputFilename != null && siteDepthOutputFilename != null ) {
-            return new SiteDepthCounter(sequenceDictionary, sampleName, compressionLevel,
-                    siteDepthInputFilename, siteDepthOutputFilename,
-                                        minMapQ, minQ);
+            return true;
         }
         if ( siteDepthInputFilename != null ) {
             throw new UserException("Having specified a " + SITE_DEPTH_INPUT_ARGUMENT_LONG_NAME +
@@ -309,14 +565,22 @@ public class CollectSVEvidence extends ReadWalker {
                     " for output, you must also supply a " + SITE_DEPTH_INPUT_ARGUMENT_LONG_NAME +
                     " as input.");
         }
-        return null;
+        return false;
     }
 
     private DepthEvidenceCollector createDepthEvidenceCollector() {
+        if ( !validateDepthEvidenceArguments() ) {
+            return null;
+        }
+        return new DepthEvidenceCollector(sequenceDictionary, sampleName, compressionLevel,
+                                        depthEvidenceInputFilename, depthEvidenceOutputFilename,
+                                        minDepthEvidenceMapQ);
+    }
+
+    // returns true if depth evidence is to be collected
+    private boolean validateDepthEvidenceArguments() {
         if ( depthEvidenceInputFilename != null && depthEvidenceOutputFilename != null ) {
-            return new DepthEvidenceCollector(sequenceDictionary, sampleName, compressionLevel,
-                                            depthEvidenceInputFilename, depthEvidenceOutputFilename,
-                                            minDepthEvidenceMapQ);
+            return true;
         }
         if ( depthEvidenceInputFilename != null ) {
             throw new UserException("Having specified an depth-evidence-intervals input, " +
@@ -326,21 +590,7 @@ public class CollectSVEvidence extends ReadWalker {
             throw new UserException("Having specified a depth-evidence-file for output, " +
                     "you must also supply depth-evidence-intervals as input.");
         }
-        return null;
-    }
-
-    private void reportDiscordantReadPair(final GATKRead read) {
-        if (read.getStart() != currentDiscordantPosition) {
-            flushDiscordantReadPairs();
-            currentDiscordantPosition = read.getStart();
-            observedDiscordantNames.clear();
-        }
-
-        final DiscordantRead reportableDiscordantReadPair = getReportableDiscordantReadPair(read, observedDiscordantNames,
-                sequenceDictionary);
-        if (reportableDiscordantReadPair != null) {
-            discordantPairs.add(reportableDiscordantReadPair);
-        }
+        return false;
     }
 
     @VisibleForTesting
@@ -365,61 +615,6 @@ public class CollectSVEvidence extends ReadWalker {
         return null;
     }
 
-    private void flushDiscordantReadPairs() {
-        final Comparator<DiscordantRead> discReadComparator = new DiscordantReadComparator(sequenceDictionary);
-
-        discordantPairs.sort(discReadComparator);
-        discordantPairs.forEach(this::writeDiscordantPair);
-        discordantPairs.clear();
-    }
-
-    private void writeDiscordantPair(final DiscordantRead r) {
-        peWriter.write(new DiscordantPairEvidence(sampleName,
-                            r.getContig(), r.getStart(), !r.isReadReverseStrand(),
-                            r.getMateContig(), r.getMateStart(), !r.isMateReverseStrand()));
-    }
-
-    /**
-     * Adds split read information about the current read to the counts in splitCounts. Flushes split read counts to
-     * srWriter if necessary.
-     */
-    @VisibleForTesting
-    public void countSplitRead(final GATKRead read,
-                               final PriorityQueue<SplitPos> splitCounts,
-                               final FeatureSink<SplitReadEvidence> srWriter ) {
-        final SplitPos splitPosition = getSplitPosition(read);
-        final int readStart = read.getStart();
-        if (splitPosition.direction == POSITION.MIDDLE) {
-            return;
-        }
-        if (currentChrom == null) {
-            currentChrom = read.getContig();
-        } else if (!currentChrom.equals(read.getContig())) {
-            flushSplitCounts(splitPos -> true, splitCounts, srWriter);
-            currentChrom = read.getContig();
-        } else {
-            flushSplitCounts(sp -> (sp.pos < readStart - 1), splitCounts, srWriter);
-        }
-
-        splitCounts.add(splitPosition);
-    }
-
-    private void flushSplitCounts(final Predicate<SplitPos> flushablePosition,
-                                  final PriorityQueue<SplitPos> splitCounts,
-                                  final FeatureSink<SplitReadEvidence> srWriter) {
-
-        while (splitCounts.size() > 0 && flushablePosition.test(splitCounts.peek())) {
-            final SplitPos pos = splitCounts.poll();
-            int countAtPos = 1;
-            while (splitCounts.size() > 0 && splitCounts.peek().equals(pos)) {
-                countAtPos++;
-                splitCounts.poll();
-            }
-            final SplitReadEvidence splitRead = new SplitReadEvidence(sampleName, currentChrom, pos.pos, countAtPos, pos.direction.equals(POSITION.RIGHT));
-            srWriter.write(splitRead);
-        }
-    }
-
     private SplitPos getSplitPosition( final GATKRead read ) {
         if (read.getCigar().getFirstCigarElement().getOperator() == CigarOperator.M) {
             final int matchLength = read.getCigar().getCigarElements().stream().filter(e -> e.getOperator().consumesReferenceBases()).mapToInt(CigarElement::getLength).sum();
@@ -440,16 +635,15 @@ public class CollectSVEvidence extends ReadWalker {
 
     @Override
     public Object onTraversalSuccess() {
-        flushSplitCounts(splitPos -> true, splitPosBuffer, srWriter);
-        flushDiscordantReadPairs();
-        if ( siteDepthCounter != null ) {
-            siteDepthCounter.close();
-        }
-        if ( depthEvidenceCollector != null ) {
-            depthEvidenceCollector.close();
-            if ( depthEvidenceSummaryFilename != null ) {
-                depthEvidenceCollector.reportSummaryStats(depthEvidenceSummaryFilename, sampleName);
-            }
+        final DepthEvidenceCollector depthEvidenceCollector;
+        if ( evidenceCollector != null ) {
+            evidenceCollector.finish();
+            depthEvidenceCollector = evidenceCollector.depthEvidenceCollector;
+        } else {
+            depthEvidenceCollector = depthSummaryCollector;
+        }
+        if ( depthEvidenceCollector != null && depthEvidenceSummaryFilename != null ) {
+            depthEvidenceCollector.reportSummaryStats(depthEvidenceSummaryFilename, sampleName);
         }
         return null;
     }
@@ -457,11 +651,206 @@ public class CollectSVEvidence extends ReadWalker {
     @Override
     public void closeTool() {
         super.closeTool();
-        if ( peWriter != null ) {
-            peWriter.close();
+        if ( evidenceCollector != null ) {
+            evidenceCollector.close();
+        }
+    }
+
+    /**
+     * Gathers all types of evidence from a coordinate-sorted stream of reads.  There's a single collector
+     * for all reads by default, and one collector per contig when contigs are processed concurrently.
+     */
+    @VisibleForTesting
+    final class EvidenceCollector {
+        private final FeatureSink<DiscordantPairEvidence> peWriter;
+        private final FeatureSink<SplitReadEvidence> srWriter;
+        private final SiteDepthCounter siteDepthCounter;
+        private final DepthEvidenceCollector depthEvidenceCollector;
+
+        private final Set<String> observedDiscordantNames = new HashSet<>();
+        private final PriorityQueue<SplitPos> splitPosBuffer = new PriorityQueue<>(new SplitPosComparator());
+        private final List<DiscordantRead> discordantPairs = new ArrayList<>();
+
+        private int currentDiscordantPosition = -1;
+        private String currentChrom = null;
+
+        EvidenceCollector( final FeatureSink<DiscordantPairEvidence> peWriter,
+                           final FeatureSink<SplitReadEvidence> srWriter,
+                           final SiteDepthCounter siteDepthCounter,
+                           final DepthEvidenceCollector depthEvidenceCollector ) {
+            this.peWriter = peWriter;
+            this.srWriter = srWriter;
+            this.siteDepthCounter = siteDepthCounter;
+            this.depthEvidenceCollector = depthEvidenceCollector;
+        }
+
+        void apply( final GATKRead read ) {
+            if ( !(read.isPaired() && read.mateIsUnmapped()) &&
+                    !read.isSupplementaryAlignment() &&
+                    !read.isSecondaryAlignment() ) {
+                if ( srWriter != null && isSoftClipped(read) ) {
+                    countSplitRead(read, splitPosBuffer, srWriter);
+                }
+
+                if ( peWriter != null && !read.isProperlyPaired() ) {
+                    reportDiscordantReadPair(read);
+                }
+            }
+
+            if ( siteDepthCounter != null ) {
+                siteDepthCounter.apply(read);
+            }
+            if ( depthEvidenceCollector != null ) {
+                depthEvidenceCollector.apply(read);
+            }
+        }
+
+        /** Writes all pending evidence, and closes the site depth and depth evidence writers. */
+        void finish() {
+            if ( srWriter != null ) {
+                flushSplitCounts(splitPos -> true, splitPosBuffer, srWriter);
+            }
+            if ( peWriter != null ) {
+                flushDiscordantReadPairs();
+            }
+            if ( siteDepthCounter != null ) {
+                siteDepthCounter.close();
+            }
+            if ( depthEvidenceCollector != null ) {
+                depthEvidenceCollector.close();
+            }
+        }
+
+        /** Closes the discordant pair and split read writers. */
+        void close() {
+            if ( peWriter != null ) {
+                peWriter.close();
+            }
+            if ( srWriter != null ) {
+                srWriter.close();
+            }
+        }
+
+        private void reportDiscordantReadPair(final GATKRead read) {
+            if (read.getStart() != currentDiscordantPosition) {
+                flushDiscordantReadPairs();
+                currentDiscordantPosition = read.getStart();
+                observedDiscordantNames.clear();
+            }
+
+            final DiscordantRead reportableDiscordantReadPair = getReportableDiscordantReadPair(read, observedDiscordantNames,
+                    sequenceDictionary);
+            if (reportableDiscordantReadPair != null) {
+                discordantPairs.add(reportableDiscordantReadPair);
+            }
         }
-        if ( srWriter != null ) {
-            srWriter.close();
+
+        private void flushDiscordantReadPairs() {
+            final Comparator<DiscordantRead> discReadComparator = new DiscordantReadComparator(sequenceDictionary);
+
+            discordantPairs.sort(discReadComparator);
+            discordantPairs.forEach(this::writeDiscordantPair);
+            discordantPairs.clear();
+        }
+
+        private void writeDiscordantPair(final DiscordantRead r) {
+            peWriter.write(new DiscordantPairEvidence(sampleName,
+                                r.getContig(), r.getStart(), !r.isReadReverseStrand(),
+                                r.getMateContig(), r.getMateStart(), !r.isMateReverseStrand()));
+        }
+
+        /**
+         * Adds split read information about the current read to the counts in splitCounts. Flushes split read counts to
+         * srWriter if necessary.
+         */
+        @VisibleForTesting
+        void countSplitRead(final GATKRead read,
+                            final PriorityQueue<SplitPos> splitCounts,
+                            final FeatureSink<SplitReadEvidence> srWriter ) {
+            final SplitPos splitPosition = getSplitPosition(read);
+            final int readStart = read.getStart();
+            if (splitPosition.direction == POSITION.MIDDLE) {
+                return;
+            }
+            if (currentChrom == null) {
+                currentChrom = read.getContig();
+            } else if (!currentChrom.equals(read.getContig())) {
+                flushSplitCounts(splitPos -> true, splitCounts, srWriter);
+                currentChrom = read.getContig();
+            } else {
+                flushSplitCounts(sp -> (sp.pos < readStart - 1), splitCounts, srWriter);
+            }
+
+            splitCounts.add(splitPosition);
+        }
+
+        private void flushSplitCounts(final Predicate<SplitPos> flushablePosition,
+                                      final PriorityQueue<SplitPos> splitCounts,
+                                      final FeatureSink<SplitReadEvidence> srWriter) {
+
+            while (splitCounts.size() > 0 && flushablePosition.test(splitCounts.peek())) {
+                final SplitPos pos = splitCounts.poll();
+                int countAtPos = 1;
+                while (splitCounts.size() > 0 && splitCounts.peek().equals(pos)) {
+                    countAtPos++;
+                    splitCounts.poll();
+                }
+                final SplitReadEvidence splitRead = new SplitReadEvidence(sampleName, currentChrom, pos.pos, countAtPos, pos.direction.equals(POSITION.RIGHT));
+                srWriter.write(splitRead);
+            }
+        }
+    }
+
+    /**
+     * One output of the contig-parallel mode.  The evidence for each contig is written to its own
+     * block-compressed interval shard, and the shards are combined in dictionary order when all
+     * contigs are done.
+     */
+    private final class ShardedOutput<F extends Feature> {
+        private final GATKPath outputPath;
+        private final String shardExtension;
+        private final Supplier<AbstractBCICodec<F>> bciCodecFactory;
+        private final FeatureSink<F> textWriter; // null when the output is, itself, block-compressed interval
+        private final GATKPath[] shardPaths;
+
+        ShardedOutput( final GATKPath outputPath,
+                       final String shardExtension,
+                       final Supplier<AbstractBCICodec<F>> bciCodecFactory,
+                       final Function<GATKPath, FeatureSink<F>> writerFactory ) {
+            this.outputPath = outputPath;
+            this.shardExtension = shardExtension;
+            this.bciCodecFactory = bciCodecFactory;
+            // create tab-delimited outputs right away to validate the file name
+            this.textWriter = bciCodecFactory.get().canDecode(outputPath.toPath().toString()) ?
+                    null : writerFactory.apply(outputPath);
+            this.shardPaths = new GATKPath[sequenceDictionary.size()];
+        }
+
+        FeatureSink<F> createShardSink( final int contigIndex ) {
+            final GATKPath shardPath =
+                    new GATKPath(new File(shardDir, "contig" + contigIndex + shardExtension).getAbsolutePath());
+            shardPaths[contigIndex] = shardPath;
+            return bciCodecFactory.get().makeSink(shardPath, sequenceDictionary,
+                                                    Collections.singletonList(sampleName), compressionLevel);
+        }
+
+        void gather() {
+            final List<GATKPath> shards =
+                    Arrays.stream(shardPaths).filter(Objects::nonNull).collect(Collectors.toList());
+            if ( textWriter == null ) {
+                BlockCompressedIntervalStream.concatenate(shards, outputPath);
+                return;
+            }
+            for ( final GATKPath shard : shards ) {
+                final BlockCompressedIntervalStream.Reader<F> reader =
+                        new BlockCompressedIntervalStream.Reader<>(new FeatureInput<>(shard), bciCodecFactory.get());
+                try ( final CloseableTribbleIterator<F> itr = reader.iterator() ) {
+                    while ( itr.hasNext() ) {
+                        textWriter.write(itr.next());
+                    }
+                }
+            }
+            textWriter.close();
         }
     }
 
@@ -679,6 +1068,7 @@ public class CollectSVEvidence extends ReadWalker {
         private final FeatureSink<SiteDepth> writer;
         private final int minMapQ;
         private final int minQ;
+        private final FeatureDataSource<VariantContext> snpSource;
         private final Iterator<VariantContext> snpSourceItr;
         private final Deque<SiteDepth> siteDepthQueue;
 
@@ -689,33 +1079,57 @@ public class CollectSVEvidence extends ReadWalker {
                                  final GATKPath outputPath,
                                  final int minMapQ,
                                  final int minQ ) {
+            this(dict, sampleName, createWriter(dict, sampleName, compressionLevel, outputPath),
+                    openSNPSource(inputPath), null, minMapQ, minQ);
+        }
+
+        /**
+         * Counts site depths at the SNPs in snpSource, or at those on the specified contig if it's not null.
+         */
+        public SiteDepthCounter( final SAMSequenceDictionary dict,
+                                 final String sampleName,
+                                 final FeatureSink<SiteDepth> writer,
+                                 final FeatureDataSource<VariantContext> snpSource,
+                                 final SAMSequenceRecord contig,
+                                 final int minMapQ,
+                                 final int minQ ) {
             this.lComp = new LocusComparator(dict);
             this.sampleName = sampleName;
+            this.writer = writer;
+            this.minMapQ = minMapQ;
+            this.minQ = minQ;
+            this.snpSource = snpSource;
+            dict.assertSameDictionary(snpSource.getSequenceDictionary());
+            this.snpSourceItr = new BAFSiteIterator(
+                    contig == null ? snpSource.iterator() : getContigIterator(snpSource, contig));
+            this.siteDepthQueue = new ArrayDeque<>(100);
+            readNextLocus();
+        }
+
+        public static FeatureSink<SiteDepth> createWriter( final SAMSequenceDictionary dict,
+                                                           final String sampleName,
+                                                           final int compressionLevel,
+                                                           final GATKPath outputPath ) {
             final String outputFilename = outputPath.toPath().toString();
             final SiteDepthBCICodec bciCodec = new SiteDepthBCICodec();
             final List<String> sampleNames = Collections.singletonList(sampleName);
             if ( bciCodec.canDecode(outputFilename) ) {
-                this.writer = bciCodec.makeSink(outputPath, dict, sampleNames, compressionLevel);
-            } else {
-                final SiteDepthCodec codec = new SiteDepthCodec();
-                if ( !codec.canDecode(outputFilename) ) {
-                    throw new UserException("Attempting to write site depth evidence to a file that " +
-                            "can't be read as site depth evidence: " + outputFilename + ".  The file " +
-                            "name should end with \".sd.txt\", \".sd.txt.gz\", or \".sd.bci\".");
-                }
-                this.writer = codec.makeSink(outputPath, dict, sampleNames, compressionLevel);
+                return bciCodec.makeSink(outputPath, dict, sampleNames, compressionLevel);
             }
-            this.minMapQ = minMapQ;
-            this.minQ = minQ;
-            final FeatureDataSource<VariantContext> snpSource =
-                    new FeatureDataSource<>(inputPath.toPath().toString(),
-                                        null,
+            final SiteDepthCodec codec = new SiteDepthCodec();
+            if ( !codec.canDecode(outputFilename) ) {
+                throw new UserException("Attempting to write site depth evidence to a file that " +
+                        "can't be read as site depth evidence: " + outputFilename + ".  The file " +
+                        "name should end with \".sd.txt\", \".sd.txt.gz\", or \".sd.bci\".");
+            }
+            return codec.makeSink(outputPath, dict, sampleNames, compressionLevel);
+        }
+
+        public static FeatureDataSource<VariantContext> openSNPSource( final GATKPath inputPath ) {
+            return new FeatureDataSource<>(inputPath.toPath().toString(),
+                                            null,
                                             FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES,
                                             VariantContext.class);
-            dict.assertSameDictionary(snpSource.getSequenceDictionary());
-            this.snpSourceItr = new BAFSiteIterator(snpSource.iterator());
-            this.siteDepthQueue = new ArrayDeque<>(100);
-            readNextLocus();
         }
 
         public void apply( final GATKRead read ) {
@@ -808,6 +1222,7 @@ public class CollectSVEvidence extends ReadWalker {
                 }
             } while ( readNextLocus() );
             writer.close();
+            snpSource.close();
         }
 
         private boolean readNextLocus() {
@@ -884,6 +1299,15 @@ public class CollectSVEvidence extends ReadWalker {
             }
         }
 
+        public void merge( final CountCounter other ) {
+            nCounts += other.nCounts;
+            totalCounts += other.totalCounts;
+            for ( int idx = 0; idx != lowCounts.length; ++idx ) {
+                lowCounts[idx] += other.lowCounts[idx];
+            }
+            other.highCounts.forEach((count, n) -> highCounts.merge(count, n, Integer::sum));
+        }
+
         public int getNZeroCounts() {
             return lowCounts[0];
         }
@@ -920,6 +1344,7 @@ public class CollectSVEvidence extends ReadWalker {
         private final LocusComparator lComp;
         private final CountCounter countCounter;
         private final FeatureSink<DepthEvidence> writer;
+        private final FeatureDataSource<Feature> intervalSource;
         private final Iterator<Feature> intervalIterator;
         private final int minMapQ;
         private DepthEvidence depthEvidence;
@@ -932,33 +1357,53 @@ public class CollectSVEvidence extends ReadWalker {
                                        final GATKPath inputIntervalsPath,
                                        final GATKPath outputDepthEvidencePath,
                                        final int minMapQ ) {
+            this(dict, createWriter(dict, sampleName, cmprLevel, outputDepthEvidencePath),
+                    new FeatureDataSource<>(inputIntervalsPath.toPath().toString()), null, minMapQ);
+            if ( depthEvidence == null ) {
+                throw new UserException(inputIntervalsPath + " contains no intervals.");
+            }
+        }
+
+        /**
+         * Collects depth evidence for the intervals in intervalSource, or for those on the specified contig
+         * if it's not null.  (A contig may have no intervals at all.)
+         */
+        public DepthEvidenceCollector( final SAMSequenceDictionary dict,
+                                       final FeatureSink<DepthEvidence> writer,
+                                       final FeatureDataSource<Feature> intervalSource,
+                                       final SAMSequenceRecord contig,
+                                       final int minMapQ ) {
             lComp = new LocusComparator(dict);
             countCounter = new CountCounter();
+            this.writer = writer;
+            this.intervalSource = intervalSource;
+            this.intervalIterator =
+                    contig == null ? intervalSource.iterator() : getContigIterator(intervalSource, contig);
+            this.minMapQ = minMapQ;
+            if ( intervalIterator.hasNext() ) {
+                depthEvidence = new DepthEvidence(intervalIterator.next(), new int[1]);
+                summmedIntervalLengths += depthEvidence.getLengthOnReference();
+                nIntervals += 1;
+            }
+        }
+
+        public static FeatureSink<DepthEvidence> createWriter( final SAMSequenceDictionary dict,
+                                                               final String sampleName,
+                                                               final int cmprLevel,
+                                                               final GATKPath outputDepthEvidencePath ) {
             final String outputFilename = outputDepthEvidencePath.toPath().toString();
             final DepthEvidenceBCICodec bciCodec = new DepthEvidenceBCICodec();
             final List<String> sampleNames = Collections.singletonList(sampleName);
             if ( bciCodec.canDecode(outputFilename) ) {
-                writer = bciCodec.makeSink(outputDepthEvidencePath, dict, sampleNames, cmprLevel);
-            } else {
-                final DepthEvidenceCodec codec = new DepthEvidenceCodec();
-                if ( !codec.canDecode(outputFilename) ) {
-                    throw new UserException("Attempting to write depth evidence to a file that " +
-                            "can't be read as depth evidence: " + outputFilename + ".  The file " +
-                            "name should end with \".rd.txt\", \".rd.txt.gz\", or \".rd.bci\".");
-                }
-                writer = codec.makeSink(outputDepthEvidencePath, dict, sampleNames, cmprLevel);
+                return bciCodec.makeSink(outputDepthEvidencePath, dict, sampleNames, cmprLevel);
             }
-
-            final FeatureDataSource<Feature> intervalSource =
-                    new FeatureDataSource<>(inputIntervalsPath.toPath().toString());
-            this.intervalIterator = intervalSource.iterator();
-            if ( !intervalIterator.hasNext() ) {
-                throw new UserException(inputIntervalsPath + " contains no intervals.");
+            final DepthEvidenceCodec codec = new DepthEvidenceCodec();
+            if ( !codec.canDecode(outputFilename) ) {
+                throw new UserException("Attempting to write depth evidence to a file that " +
+                        "can't be read as depth evidence: " + outputFilename + ".  The file " +
+                        "name should end with \".rd.txt\", \".rd.txt.gz\", or \".rd.bci\".");
             }
-            this.minMapQ = minMapQ;
-            depthEvidence = new DepthEvidence(intervalIterator.next(), new int[1]);
-            summmedIntervalLengths += depthEvidence.getLengthOnReference();
-            nIntervals += 1;
+            return codec.makeSink(outputDepthEvidencePath, dict, sampleNames, cmprLevel);
         }
 
         void apply( final GATKRead read ) {
@@ -999,6 +1444,14 @@ public class CollectSVEvidence extends ReadWalker {
                 }
             }
             writer.close();
+            intervalSource.close();
+        }
+
+        /** Adds the summary statistics of another collector (e.g., one for a different contig) to ours. */
+        void mergeSummaryStats( final DepthEvidenceCollector other ) {
+            countCounter.merge(other.countCounter);
+            summmedIntervalLengths += other.summmedIntervalLengths;
+            nIntervals += other.nIntervals;
         }
 
         void reportSummaryStats( final GATKPath summaryPath, final String sampleName ) {
@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.walkers.sv;
 
+import htsjdk.samtools.reference.ReferenceSequenceFile;
 import htsjdk.variant.vcf.VCFHeader;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
@@ -20,10 +21,13 @@ import org.broadinstitute.hellbender.utils.tsv.TableReader;
 import org.broadinstitute.hellbender.utils.tsv.TableUtils;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 /**
@@ -161,7 +165,7 @@ public final class GroupedSVCluster extends SVClusterWalker {
         stratEngine = SVStratify.loadStratificationConfig(stratArgs.configFile, stratArgs, dictionary);
         Utils.validate(!stratEngine.getStrata().isEmpty(),
                 "No strata defined with --" + SVStratificationEngineArgumentsCollection.STRATIFY_CONFIG_FILE_LONG_NAME);
-        readStrataClusteringConfig();
+        clusterEngineMap.putAll(readStrataClusteringConfig(reference));
         Utils.validate(stratEngine.getStrata().size() == clusterEngineMap.size(),
                 "Stratification and clustering configurations have a different number of groups.");
         for (final SVStratificationEngine.Stratum stratum : stratEngine.getStrata()) {
@@ -177,22 +181,25 @@ public final class GroupedSVCluster extends SVClusterWalker {
         return header;
     }
 
-    private void readStrataClusteringConfig() {
+    private Map<String, SVClusterEngine> readStrataClusteringConfig(final ReferenceSequenceFile reference) {
+        final Map<String, SVClusterEngine> engines = new HashMap<>();
         try (final TableReader<StratifiedClusteringTableParser.StratumParameters> tableReader = TableUtils.reader(strataClusteringConfigFile.toPath(), StratifiedClusteringTableParser::tableParser)) {
             for (final StratifiedClusteringTableParser.StratumParameters parameters : tableReader) {
                 // Identical parameters for each linkage type
                 final ClusteringParameters pesrParams = ClusteringParameters.createPesrParameters(parameters.reciprocalOverlap(), parameters.sizeSimilarity(), parameters.breakendWindow(), parameters.sampleOverlap());
                 final ClusteringParameters mixedParams = ClusteringParameters.createMixedParameters(parameters.reciprocalOverlap(), parameters.sizeSimilarity(), parameters.breakendWindow(), parameters.sampleOverlap());
                 final ClusteringParameters depthParams = ClusteringParameters.createDepthParameters(parameters.reciprocalOverlap(), parameters.sizeSimilarity(), parameters.breakendWindow(), parameters.sampleOverlap());
-                final SVClusterEngine clusterEngine = createClusteringEngine(pesrParams, mixedParams, depthParams);
-                clusterEngineMap.put(parameters.name(), clusterEngine);
+                final SVClusterEngine clusterEngine = createClusteringEngine(pesrParams, mixedParams, depthParams, reference);
+                engines.put(parameters.name(), clusterEngine);
             }
         } catch (final IOException e) {
             throw new GATKException("IO error while reading config table", e);
         }
+        return engines;
     }
 
-    private SVClusterEngine createClusteringEngine(final ClusteringParameters pesrParams, final ClusteringParameters mixedParams, final ClusteringParameters depthParams) {
+    private SVClusterEngine createClusteringEngine(final ClusteringParameters pesrParams, final ClusteringParameters mixedParams, final ClusteringParameters depthParams,
+                                                  final ReferenceSequenceFile reference) {
         if (algorithm == CLUSTER_ALGORITHM.SINGLE_LINKAGE || algorithm == CLUSTER_ALGORITHM.MAX_CLIQUE) {
             final SVClusterEngine.CLUSTERING_TYPE type = algorithm == CLUSTER_ALGORITHM.SINGLE_LINKAGE ?
                     SVClusterEngine.CLUSTERING_TYPE.SINGLE_LINKAGE : SVClusterEngine.CLUSTERING_TYPE.MAX_CLIQUE;
@@ -219,6 +226,23 @@ public final class GroupedSVCluster extends SVClusterWalker {
 
     @Override
     public void applyRecord(final SVCallRecord record) {
+        applyRecord(record, clusterEngineMap, this::write);
+    }
+
+    @Override
+    protected List<SVCallRecord> clusterContig(final List<SVCallRecord> records, final ReferenceSequenceFile contigReference) {
+        final Map<String, SVClusterEngine> contigEngineMap = readStrataClusteringConfig(contigReference);
+        final List<SVCallRecord> output = new ArrayList<>();
+        for (final SVCallRecord record : records) {
+            applyRecord(record, contigEngineMap, output::add);
+        }
+        for (final SVClusterEngine engine : contigEngineMap.values()) {
+            output.addAll(engine.flush());
+        }
+        return output;
+    }
+
+    private void applyRecord(final SVCallRecord record, final Map<String, SVClusterEngine> engines, final Consumer<SVCallRecord> consumer) {
         final Collection<SVStratificationEngine.Stratum> stratifications = stratEngine.getMatches(record,
                 stratArgs.overlapFraction, stratArgs.numBreakpointOverlaps, stratArgs.numBreakpointOverlapsInterchrom);
         if (stratifications.size() > 1) {
@@ -231,17 +255,13 @@ public final class GroupedSVCluster extends SVClusterWalker {
             // no match, don't cluster
             record.getAttributes().put(GATKSVVCFConstants.CLUSTER_MEMBER_IDS_KEY, Collections.singletonList(record.getId()));
             record.getAttributes().put(GATKSVVCFConstants.STRATUM_INFO_KEY, Collections.singletonList(SVStratify.DEFAULT_STRATUM));
-            write(record);
+            consumer.accept(record);
         } else {
             // exactly one match
             final SVStratificationEngine.Stratum stratum = stratifications.iterator().next();
-            Utils.validate(clusterEngineMap.containsKey(stratum.getName()), "Group undefined: " + stratum.getName());
+            Utils.validate(engines.containsKey(stratum.getName()), "Group undefined: " + stratum.getName());
             record.getAttributes().put(GATKSVVCFConstants.STRATUM_INFO_KEY, Collections.singletonList(stratum.getName()));
-            clusterAndWrite(record, clusterEngineMap.get(stratum.getName()));
+            engines.get(stratum.getName()).addAndFlush(record).forEach(consumer);
         }
     }
-
-    private void clusterAndWrite(final SVCallRecord record, final SVClusterEngine clusterEngine) {
-        clusterEngine.addAndFlush(record).stream().forEach(this::write);
-    }
 }
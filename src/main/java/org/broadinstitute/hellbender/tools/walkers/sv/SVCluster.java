@@ -1,5 +1,6 @@
 package org.broadinstitute.hellbender.tools.walkers.sv;
 
+import htsjdk.samtools.reference.ReferenceSequenceFile;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.BetaFeature;
@@ -9,6 +10,9 @@ import org.broadinstitute.hellbender.cmdline.programgroups.StructuralVariantDisc
 import org.broadinstitute.hellbender.tools.sv.SVCallRecord;
 import org.broadinstitute.hellbender.tools.sv.cluster.*;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * <p>Clusters structural variants based on coordinates, event type, and supporting algorithms. Primary use cases include:</p>
  * <ul>
@@ -184,13 +188,17 @@ public final class SVCluster extends SVClusterWalker {
     @Override
     public void onTraversalStart() {
         super.onTraversalStart();
+        clusterEngine = createClusterEngine(reference);
+    }
+
+    private SVClusterEngine createClusterEngine(final ReferenceSequenceFile reference) {
         if (algorithm == CLUSTER_ALGORITHM.DEFRAGMENT_CNV) {
-            clusterEngine = SVClusterEngineFactory.createCNVDefragmenter(dictionary, altAlleleSummaryStrategy,
+            return SVClusterEngineFactory.createCNVDefragmenter(dictionary, altAlleleSummaryStrategy,
                     reference, defragPaddingFraction, defragSampleOverlapFraction);
         } else if (algorithm == CLUSTER_ALGORITHM.SINGLE_LINKAGE || algorithm == CLUSTER_ALGORITHM.MAX_CLIQUE) {
             final SVClusterEngine.CLUSTERING_TYPE type = algorithm == CLUSTER_ALGORITHM.SINGLE_LINKAGE ?
                     SVClusterEngine.CLUSTERING_TYPE.SINGLE_LINKAGE : SVClusterEngine.CLUSTERING_TYPE.MAX_CLIQUE;
-            clusterEngine = SVClusterEngineFactory.createCanonical(type, breakpointSummaryStrategy,
+            return SVClusterEngineFactory.createCanonical(type, breakpointSummaryStrategy,
                     altAlleleSummaryStrategy, dictionary, reference, enableCnv,
                     clusterParameterArgs.getDepthParameters(), clusterParameterArgs.getMixedParameters(),
                     clusterParameterArgs.getPESRParameters());
@@ -214,4 +222,15 @@ public final class SVCluster extends SVClusterWalker {
     public void applyRecord(final SVCallRecord record) {
         clusterEngine.addAndFlush(record).stream().forEach(this::write);
     }
+
+    @Override
+    protected List<SVCallRecord> clusterContig(final List<SVCallRecord> records, final ReferenceSequenceFile contigReference) {
+        final SVClusterEngine contigEngine = createClusterEngine(contigReference);
+        final List<SVCallRecord> output = new ArrayList<>();
+        for (final SVCallRecord record : records) {
+            output.addAll(contigEngine.addAndFlush(record));
+        }
+        output.addAll(contigEngine.flush());
+        return output;
+    }
 }
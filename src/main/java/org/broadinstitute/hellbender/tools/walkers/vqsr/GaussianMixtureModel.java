@@ -10,6 +10,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.IntStream;
 
 import Jama.Matrix;
 
@@ -60,6 +61,15 @@ class GaussianMixtureModel {
     }
 
     public void initializeRandomModel( final List<VariantDatum> data, final int numKMeansIterations ) {
+        initializeRandomModel( data, numKMeansIterations, false );
+    }
+
+    /**
+     * @param parallel if true, the k-means assignment step is split across the fork-join pool running the caller
+     *                 (see {@link Utils#runInParallel}). The assignments do not
+     *                 depend on each other so the resulting model is identical to the single-threaded one.
+     */
+    public void initializeRandomModel( final List<VariantDatum> data, final int numKMeansIterations, final boolean parallel ) {
 
         // initialize random Gaussian means // BUGBUG: this is broken up this way to match the order of calls to rand.nextDouble() in the old code
         for( final MultivariateGaussian gaussian : gaussians ) {
@@ -68,7 +78,7 @@ class GaussianMixtureModel {
 
         // initialize means using K-means algorithm
         logger.info( "Initializing model with " + numKMeansIterations + " k-means iterations..." );
-        initializeMeansUsingKMeans( data, numKMeansIterations );
+        initializeMeansUsingKMeans( data, numKMeansIterations, parallel );
 
         // initialize uniform mixture coefficients, random covariance matrices, and initial hyperparameters
         for( final MultivariateGaussian gaussian : gaussians ) {
@@ -81,23 +91,15 @@ class GaussianMixtureModel {
         }
     }
 
-    private void initializeMeansUsingKMeans( final List<VariantDatum> data, final int numIterations ) {
+    private void initializeMeansUsingKMeans( final List<VariantDatum> data, final int numIterations, final boolean parallel ) {
 
         int ttt = 0;
         while( ttt++ < numIterations ) {
             // E step: assign each variant to the nearest cluster
-            for( final VariantDatum datum : data ) {
-                double minDistance = Double.MAX_VALUE;
-                MultivariateGaussian minGaussian = null;
-                datum.assignment = minGaussian;
-                for( final MultivariateGaussian gaussian : gaussians ) {
-                    final double dist = gaussian.calculateDistanceFromMeanSquared( datum );
-                    if( dist < minDistance ) {
-                        minDistance = dist;
-                        minGaussian = gaussian;
-                    }
-                }
-                datum.assignment = minGaussian;
+            if( parallel ) {
+                data.parallelStream().forEach(this::assignToNearestGaussian);
+            } else {
+                data.forEach(this::assignToNearestGaussian);
             }
 
             // M step: update gaussian means based on assigned variants
@@ -120,6 +122,20 @@ class GaussianMixtureModel {
         }
     }
 
+    private void assignToNearestGaussian( final VariantDatum datum ) {
+        double minDistance = Double.MAX_VALUE;
+        MultivariateGaussian minGaussian = null;
+        datum.assignment = minGaussian;
+        for( final MultivariateGaussian gaussian : gaussians ) {
+            final double dist = gaussian.calculateDistanceFromMeanSquared( datum );
+            if( dist < minDistance ) {
+                minDistance = dist;
+                minGaussian = gaussian;
+            }
+        }
+        datum.assignment = minGaussian;
+    }
+
     public void expectationStep( final List<VariantDatum> data ) {
 
         for( final MultivariateGaussian gaussian : gaussians ) {
@@ -136,10 +152,44 @@ class GaussianMixtureModel {
         }
     }
 
+    /**
+     * Parallel version of {@link #expectationStep(List)} over a packed annotation matrix (one row per datum, see
+     * {@link #packAnnotations(List)}). Rows are independent and their responsibilities are stored by index, so the
+     * result is bit-identical to the sequential expectation step. Like the other matrix overloads, it runs in the
+     * fork-join pool of the caller.
+     */
+    public void expectationStep( final double[][] annotations ) {
+
+        for( final MultivariateGaussian gaussian : gaussians ) {
+            gaussian.precomputeDenominatorForVariationalBayes( getSumHyperParameterLambda() );
+        }
+
+        IntStream.range(0, annotations.length).parallel().forEach(datumIndex -> {
+            final double[] pVarInGaussianLog10 = new double[gaussians.size()];
+            for( int gaussianIndex = 0; gaussianIndex < pVarInGaussianLog10.length; gaussianIndex++ ) {
+                pVarInGaussianLog10[gaussianIndex] = gaussians.get(gaussianIndex).evaluateDatumLog10(annotations[datumIndex]);
+            }
+            final double[] pVarInGaussianNormalized = MathUtils.normalizeLog10DeleteMePlease( pVarInGaussianLog10, false);
+            for( int gaussianIndex = 0; gaussianIndex < pVarInGaussianNormalized.length; gaussianIndex++ ) {
+                gaussians.get(gaussianIndex).assignPVarInGaussian( datumIndex, pVarInGaussianNormalized[gaussianIndex] );
+            }
+        });
+        gaussians.forEach(g -> g.finishAssigningPVarInGaussian(annotations.length));
+    }
+
     public void maximizationStep( final List<VariantDatum> data ) {
         gaussians.forEach(g -> g.maximizeGaussian( data, empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts));
     }
 
+    /**
+     * Parallel version of {@link #maximizationStep(List)}. Each Gaussian is updated from its own responsibilities
+     * only, so the Gaussians are maximized concurrently while each accumulation keeps the sequential data order.
+     */
+    public void maximizationStep( final double[][] annotations ) {
+        gaussians.parallelStream().forEach(g ->
+                g.maximizeGaussian( annotations, empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts));
+    }
+
     private double getSumHyperParameterLambda() {
         return gaussians.stream().mapToDouble(g -> g.hyperParameter_lambda).sum();
     }
@@ -149,6 +199,11 @@ class GaussianMixtureModel {
         normalizePMixtureLog10();
     }
 
+    public void evaluateFinalModelParameters( final double[][] annotations ) {
+        gaussians.parallelStream().forEach(g -> g.evaluateFinalModelParameters(annotations));
+        normalizePMixtureLog10();
+    }
+
     public double normalizePMixtureLog10() {
         double sumDiff = 0.0;
         final double sumPK = gaussians.stream().mapToDouble(g -> g.sumProb).sum();
@@ -191,10 +246,8 @@ class GaussianMixtureModel {
     }
 
     public double evaluateDatum( final VariantDatum datum ) {
-        for( final boolean isNull : datum.isNull ) {
-            if( isNull ) {
-                return evaluateDatumMarginalized( datum );
-            }
+        if( hasNullAnnotation( datum ) ) {
+            return evaluateDatumMarginalized( datum );
         }
         // Fill an array with the log10 probability coming from each Gaussian and then use MathUtils to sum them up correctly
         final double[] pVarInGaussianLog10 = new double[gaussians.size()];
@@ -248,6 +301,32 @@ class GaussianMixtureModel {
         return Math.log10( sumPVarInGaussian / ((double) numRandomDraws) );
     }
 
+    /**
+     * Data with missing annotations are evaluated by marginalization, which consumes random draws and must therefore
+     * happen in input order.
+     */
+    static boolean hasNullAnnotation( final VariantDatum datum ) {
+        for( final boolean isNull : datum.isNull ) {
+            if( isNull ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Packs the annotations of the given data into a matrix with one row per datum, in list order. Rows are shared
+     * with the data, not copied.
+     */
+    static double[][] packAnnotations( final List<VariantDatum> data ) {
+        final double[][] annotations = new double[data.size()][];
+        int datumIndex = 0;
+        for( final VariantDatum datum : data ) {
+            annotations[datumIndex++] = datum.annotations;
+        }
+        return annotations;
+    }
+
     protected List<MultivariateGaussian> getModelGaussians() {return Collections.unmodifiableList(gaussians);}
 
     protected int getNumAnnotations() {return empiricalMu.length;}
@@ -70,16 +70,24 @@ class MultivariateGaussian {
     }
 
     public double calculateDistanceFromMeanSquared( final VariantDatum datum ) {
-        return MathUtils.distanceSquared( datum.annotations, mu );
+        return calculateDistanceFromMeanSquared( datum.annotations );
+    }
+
+    public double calculateDistanceFromMeanSquared( final double[] annotations ) {
+        return MathUtils.distanceSquared( annotations, mu );
     }
 
     public void incrementMu( final VariantDatum datum ) {
-        incrementMu( datum, 1.0 );
+        incrementMu( datum.annotations, 1.0 );
     }
 
     public void incrementMu( final VariantDatum datum, final double prob ) {
+        incrementMu( datum.annotations, prob );
+    }
+
+    public void incrementMu( final double[] annotations, final double prob ) {
         for( int jjj = 0; jjj < mu.length; jjj++ ) {
-            mu[jjj] += prob * datum.annotations[jjj];
+            mu[jjj] += prob * annotations[jjj];
         }
     }
 
@@ -133,6 +141,14 @@ class MultivariateGaussian {
     }
 
     public double evaluateDatumLog10( final VariantDatum datum ) {
+        return evaluateDatumLog10( datum.annotations );
+    }
+
+    /**
+     * Evaluates a single row of annotations against this Gaussian. Only reads the cached model state, so it is safe to
+     * call concurrently once the denominator has been precomputed.
+     */
+    public double evaluateDatumLog10( final double[] annotations ) {
         if (pMixtureLog10 == Double.NEGATIVE_INFINITY) {
             return Double.NEGATIVE_INFINITY;
         }
@@ -141,11 +157,11 @@ class MultivariateGaussian {
         Arrays.fill(crossProdTmp, 0.0);
         for( int iii = 0; iii < mu.length; iii++ ) {
             for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                crossProdTmp[iii] += (datum.annotations[jjj] - mu[jjj]) * cachedSigmaInverse.get(jjj, iii);
+                crossProdTmp[iii] += (annotations[jjj] - mu[jjj]) * cachedSigmaInverse.get(jjj, iii);
             }
         }
         for( int iii = 0; iii < mu.length; iii++ ) {
-            sumKernel += crossProdTmp[iii] * (datum.annotations[iii] - mu[iii]);
+            sumKernel += crossProdTmp[iii] * (annotations[iii] - mu[iii]);
         }
 
         return (( -0.5 * sumKernel ) / Math.log(10.0)) + cachedDenomLog10; // This is the definition of a Gaussian PDF Log10
@@ -155,6 +171,18 @@ class MultivariateGaussian {
         pVarInGaussian[pVarInGaussianIndex++] = pVar;
     }
 
+    /**
+     * Index-addressed counterpart of {@link #assignPVarInGaussian(double)}, used when the expectation step is split
+     * across threads. Callers must invoke {@link #finishAssigningPVarInGaussian(int)} once all values are set.
+     */
+    public void assignPVarInGaussian( final int datumIndex, final double pVar ) {
+        pVarInGaussian[datumIndex] = pVar;
+    }
+
+    public void finishAssigningPVarInGaussian( final int numAssigned ) {
+        pVarInGaussianIndex = numAssigned;
+    }
+
     public void resetPVarInGaussian() {
         Arrays.fill(pVarInGaussian, 0.0);
         pVarInGaussianIndex = 0;
@@ -162,16 +190,20 @@ class MultivariateGaussian {
 
     public void maximizeGaussian(final List<VariantDatum> data, final double[] empiricalMu, final Matrix empiricalSigma,
                                  final double SHRINKAGE, final double DIRICHLET_PARAMETER, final double DEGREES_OF_FREEDOM ) {
+        maximizeGaussian(GaussianMixtureModel.packAnnotations(data), empiricalMu, empiricalSigma, SHRINKAGE, DIRICHLET_PARAMETER, DEGREES_OF_FREEDOM);
+    }
+
+    public void maximizeGaussian(final double[][] annotations, final double[] empiricalMu, final Matrix empiricalSigma,
+                                 final double SHRINKAGE, final double DIRICHLET_PARAMETER, final double DEGREES_OF_FREEDOM ) {
         sumProb = 1E-10;
         final Matrix wishart = new Matrix(mu.length, mu.length);
         zeroOutMu();
         zeroOutSigma();
 
-        int datumIndex = 0;
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
+        for( int datumIndex = 0; datumIndex < annotations.length; datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
             sumProb += prob;
-            incrementMu( datum, prob );
+            incrementMu( annotations[datumIndex], prob );
         }
         divideEqualsMu( sumProb );
 
@@ -183,14 +215,14 @@ class MultivariateGaussian {
             }
         }
 
-        datumIndex = 0;
         final Matrix pVarSigma = new Matrix(mu.length, mu.length);
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
+        for( int datumIndex = 0; datumIndex < annotations.length; datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
+            final double[] datumAnnotations = annotations[datumIndex];
             for( int iii = 0; iii < mu.length; iii++ ) {
                 for( int jjj = 0; jjj < mu.length; jjj++ ) {
                     final double regCovar = iii == jjj ? COVARIANCE_REGULARIZATION_EPSILON : 0.;
-                    pVarSigma.set(iii, jjj, prob * (datum.annotations[iii]-mu[iii]) * (datum.annotations[jjj]-mu[jjj]) + regCovar);
+                    pVarSigma.set(iii, jjj, prob * (datumAnnotations[iii]-mu[iii]) * (datumAnnotations[jjj]-mu[jjj]) + regCovar);
                 }
             }
             sigma.plusEquals( pVarSigma );
@@ -211,26 +243,29 @@ class MultivariateGaussian {
     }
 
     public void evaluateFinalModelParameters( final List<VariantDatum> data ) {
+        evaluateFinalModelParameters( GaussianMixtureModel.packAnnotations(data) );
+    }
+
+    public void evaluateFinalModelParameters( final double[][] annotations ) {
         sumProb = 0.0;
         zeroOutMu();
         zeroOutSigma();
 
-        int datumIndex = 0;
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
+        for( int datumIndex = 0; datumIndex < annotations.length; datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
             sumProb += prob;
-            incrementMu( datum, prob );
+            incrementMu( annotations[datumIndex], prob );
         }
         divideEqualsMu( sumProb );
 
-        datumIndex = 0;
         final Matrix pVarSigma = new Matrix(mu.length, mu.length);
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
+        for( int datumIndex = 0; datumIndex < annotations.length; datumIndex++ ) {
+            final double prob = pVarInGaussian[datumIndex];
+            final double[] datumAnnotations = annotations[datumIndex];
             for( int iii = 0; iii < mu.length; iii++ ) {
                 for( int jjj = 0; jjj < mu.length; jjj++ ) {
                     final double regCovar = iii == jjj ? COVARIANCE_REGULARIZATION_EPSILON : 0.;
-                    pVarSigma.set(iii, jjj, prob * (datum.annotations[iii]-mu[iii]) * (datum.annotations[jjj]-mu[jjj]) + regCovar);
+                    pVarSigma.set(iii, jjj, prob * (datumAnnotations[iii]-mu[iii]) * (datumAnnotations[jjj]-mu[jjj]) + regCovar);
                 }
             }
             sigma.plusEquals( pVarSigma );
@@ -131,6 +131,15 @@ final class VariantRecalibratorArgumentCollection {
     @Argument(fullName="mq-jitter", doc="Amount of jitter (as a multiplier to a Normal(0,1) distribution) to add to the AS_MQ and transformed MQ values", optional = true)
     public double MQ_JITTER = 0.05;
 
+    /**
+     * Number of threads used to train the Gaussian mixture models and to evaluate the data against them. With more
+     * than one thread the training data is packed into an annotation matrix and the expectation and maximization steps
+     * are split across a fork-join pool. Results are identical to the single-threaded run for a fixed random seed.
+     */
+    @Advanced
+    @Argument(fullName = "model-threads", doc = "Number of threads to use for Gaussian mixture model training and evaluation", minValue = 1, optional = true)
+    public int MODEL_THREADS = 1;
+
     @Advanced
     @Argument(fullName = "debug-stdev-thresholding", doc="Output variants that fail standard deviation thresholding to the log for debugging purposes. Redirection of stdout to a file is recommended.", optional = true)
     public boolean debugStdevThresholding = false;
@@ -8,6 +8,7 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.util.List;
+import java.util.stream.IntStream;
 
 public class VariantRecalibratorEngine {
 
@@ -62,8 +63,12 @@ public class VariantRecalibratorEngine {
         }
 
         logger.info("Evaluating full set of " + data.size() + " variants...");
-        for( final VariantDatum datum : data ) {
-            final double thisLod = evaluateDatum( datum, model );
+        final VariantDatum[] datums = data.toArray(new VariantDatum[0]);
+        final double[] precomputedLods = VRAC.MODEL_THREADS > 1 ? precomputeLods( datums, model ) : null;
+        for( int datumIndex = 0; datumIndex < datums.length; datumIndex++ ) {
+            final VariantDatum datum = datums[datumIndex];
+            final double thisLod = precomputedLods == null || GaussianMixtureModel.hasNullAnnotation( datum ) ?
+                    evaluateDatum( datum, model ) : precomputedLods[datumIndex];
             if( Double.isNaN(thisLod) ) {
                 model.failedToConverge = true;
                 return;
@@ -78,21 +83,30 @@ public class VariantRecalibratorEngine {
     }
 
     public void calculateWorstPerformingAnnotation( final List<VariantDatum> data, final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel ) {
-        for( final VariantDatum datum : data ) {
-            int worstAnnotation = -1;
-            double minProb = Double.MAX_VALUE;
-            double worstValue = -1;
-            for( int iii = 0; iii < datum.annotations.length; iii++ ) {
-                final Double goodProbLog10 = goodModel.evaluateDatumInOneDimension(datum, iii);
-                final Double badProbLog10 = badModel.evaluateDatumInOneDimension(datum, iii);
-                if( goodProbLog10 != null && badProbLog10 != null ) {
-                    final double prob = goodProbLog10 - badProbLog10;
-                    if(prob < minProb) { minProb = prob; worstAnnotation = iii; worstValue = datum.annotations[iii];}
-                }
+        if( VRAC.MODEL_THREADS > 1 ) {
+            Utils.runInParallel( VRAC.MODEL_THREADS, () -> {
+                data.parallelStream().forEach(datum -> calculateWorstPerformingAnnotation(datum, goodModel, badModel));
+                return null;
+            });
+        } else {
+            data.forEach(datum -> calculateWorstPerformingAnnotation(datum, goodModel, badModel));
+        }
+    }
+
+    private static void calculateWorstPerformingAnnotation( final VariantDatum datum, final GaussianMixtureModel goodModel, final GaussianMixtureModel badModel ) {
+        int worstAnnotation = -1;
+        double minProb = Double.MAX_VALUE;
+        double worstValue = -1;
+        for( int iii = 0; iii < datum.annotations.length; iii++ ) {
+            final Double goodProbLog10 = goodModel.evaluateDatumInOneDimension(datum, iii);
+            final Double badProbLog10 = badModel.evaluateDatumInOneDimension(datum, iii);
+            if( goodProbLog10 != null && badProbLog10 != null ) {
+                final double prob = goodProbLog10 - badProbLog10;
+                if(prob < minProb) { minProb = prob; worstAnnotation = iii; worstValue = datum.annotations[iii];}
             }
-            datum.worstAnnotation = worstAnnotation;
-            datum.worstValue = worstValue;
         }
+        datum.worstAnnotation = worstAnnotation;
+        datum.worstValue = worstValue;
     }
 
 
@@ -101,6 +115,13 @@ public class VariantRecalibratorEngine {
     /////////////////////////////
 
     private void variationalBayesExpectationMaximization( final GaussianMixtureModel model, final List<VariantDatum> data ) {
+        if( VRAC.MODEL_THREADS > 1 ) {
+            Utils.runInParallel( VRAC.MODEL_THREADS, () -> {
+                parallelVariationalBayesExpectationMaximization( model, data );
+                return null;
+            });
+            return;
+        }
 
         model.initializeRandomModel( data, VRAC.NUM_KMEANS_ITERATIONS );
 
@@ -127,6 +148,39 @@ public class VariantRecalibratorEngine {
         model.evaluateFinalModelParameters( data );
     }
 
+    /**
+     * Same VBEM loop as above, but with the training data packed into an annotation matrix and the E and M steps split
+     * across the fork-join pool it runs in, which is created once per fit. Random draws only happen during
+     * initialization, which runs in the same order as the sequential version, so the trained model is identical for a
+     * fixed seed.
+     */
+    private void parallelVariationalBayesExpectationMaximization( final GaussianMixtureModel model, final List<VariantDatum> data ) {
+
+        model.initializeRandomModel( data, VRAC.NUM_KMEANS_ITERATIONS, true );
+        final double[][] annotations = GaussianMixtureModel.packAnnotations( data );
+
+        model.normalizePMixtureLog10();
+        model.expectationStep( annotations );
+        double currentChangeInMixtureCoefficients;
+        int iteration = 0;
+        logger.info("Finished iteration " + iteration + ".");
+        while( iteration < VRAC.MAX_ITERATIONS ) {
+            iteration++;
+            model.maximizationStep( annotations );
+            currentChangeInMixtureCoefficients = model.normalizePMixtureLog10();
+            model.expectationStep( annotations );
+            if( iteration % 5 == 0 ) {
+                logger.info("Finished iteration " + iteration + ". \tCurrent change in mixture coefficients = " + String.format("%.5f", currentChangeInMixtureCoefficients));
+            }
+            if( iteration > 2 && currentChangeInMixtureCoefficients < MIN_PROB_CONVERGENCE ) {
+                logger.info("Convergence after " + iteration + " iterations!");
+                break;
+            }
+        }
+
+        model.evaluateFinalModelParameters( annotations );
+    }
+
     /////////////////////////////
     // Private Methods used for evaluating data given a GaussianMixtureModel
     /////////////////////////////
@@ -134,4 +188,21 @@ public class VariantRecalibratorEngine {
     private double evaluateDatum( final VariantDatum datum, final GaussianMixtureModel model ) {
         return model.evaluateDatum( datum );
     }
+
+    /**
+     * Evaluates all data without missing annotations in parallel. Data with missing annotations are left for the
+     * sequential pass in {@link #evaluateData}, since their marginalization consumes random draws in input order.
+     */
+    private double[] precomputeLods( final VariantDatum[] datums, final GaussianMixtureModel model ) {
+        final double[] lods = new double[datums.length];
+        Utils.runInParallel( VRAC.MODEL_THREADS, () -> {
+            IntStream.range(0, datums.length).parallel().forEach(datumIndex -> {
+                if( !GaussianMixtureModel.hasNullAnnotation( datums[datumIndex] ) ) {
+                    lods[datumIndex] = model.evaluateDatum( datums[datumIndex] );
+                }
+            });
+            return null;
+        });
+        return lods;
+    }
 }
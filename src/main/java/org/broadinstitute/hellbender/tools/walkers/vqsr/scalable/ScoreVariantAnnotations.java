@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers.vqsr.scalable;
 
 import com.google.common.primitives.Doubles;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.VariantContextBuilder;
@@ -36,15 +37,21 @@ import org.broadinstitute.hellbender.utils.python.PythonScriptExecutor;
 import picard.cmdline.programgroups.VariantFilteringProgramGroup;
 
 import java.io.File;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -69,6 +76,15 @@ import java.util.stream.IntStream;
  * </p>
  *
  * <p>
+ *     Alternatively, setting "--scoring-batch-size" to a positive value enables a streaming mode, in which the tool
+ *     makes a single pass over the input, extracts annotations for batches of that many records, scores each batch
+ *     and writes the corresponding VCF records before moving on. Up to "--scoring-threads" batches are scored
+ *     concurrently, so memory is bounded by the batch size and the number of threads rather than by the size of the
+ *     callset. Since annotations and scores are never held for the entire callset in this mode, the annotations and
+ *     scores HDF5 files are not written; the scored VCF is identical to that produced in the default mode.
+ * </p>
+ *
+ * <p>
  *     Scores and annotations are also output to HDF5 files, which may be viewed using
  *     <a href="https://support.hdfgroup.org/products/java/hdfview/">hdfview</a> or loaded in Python using
  *     <a href="http://www.pytables.org/">PyTables</a> or <a href="http://www.h5py.org/">h5py</a>.
@@ -280,6 +296,8 @@ public class ScoreVariantAnnotations extends LabeledVariantAnnotationsWalker {
     public static final String CALIBRATION_SENSITIVITY_KEY_LONG_NAME = "calibration-sensitivity-key";
     public static final String LOW_SCORE_FILTER_NAME_LONG_NAME = "low-score-filter-name";
     public static final String DOUBLE_FORMAT_LONG_NAME = "double-format";
+    public static final String SCORING_BATCH_SIZE_LONG_NAME = "scoring-batch-size";
+    public static final String SCORING_THREADS_LONG_NAME = "scoring-threads";
 
     public static final String DEFAULT_SNP_KEY = LabeledVariantAnnotationsData.SNP_LABEL;
     public static final String DEFAULT_SCORE_KEY = "SCORE";
@@ -352,6 +370,21 @@ public class ScoreVariantAnnotations extends LabeledVariantAnnotationsWalker {
             doc = "Format string to use for formatting score and calibration-sensitivity values in output.")
     private String doubleFormat = DEFAULT_DOUBLE_FORMAT;
 
+    @Argument(
+            fullName = SCORING_BATCH_SIZE_LONG_NAME,
+            doc = "If positive, score records in a single streaming pass using batches of at most this many records. " +
+                    "Annotations and scores HDF5 files are not written in this mode.",
+            minValue = 0,
+            optional = true)
+    private int scoringBatchSize = 0;
+
+    @Argument(
+            fullName = SCORING_THREADS_LONG_NAME,
+            doc = "Number of batches to score concurrently. Only used if " + SCORING_BATCH_SIZE_LONG_NAME + " is positive.",
+            minValue = 1,
+            optional = true)
+    private int scoringThreads = 1;
+
     private File outputScoresFile;
     private Iterator<Double> scoresIterator;
     private Iterator<Boolean> isSNPIterator;
@@ -362,9 +395,43 @@ public class ScoreVariantAnnotations extends LabeledVariantAnnotationsWalker {
     private Function<Double, Double> snpCalibrationSensitivityConverter;
     private Function<Double, Double> indelCalibrationSensitivityConverter;
 
+    // state for the streaming mode
+    private ScoringBatch currentBatch;
+    private ExecutorService scoringExecutor;
+    private final Deque<Future<ScoredBatch>> pendingBatches = new ArrayDeque<>();
+
+    /**
+     * Records read in streaming mode, along with the annotations of those that were extracted for scoring.
+     */
+    private static final class ScoringBatch {
+        final List<VariantContext> variants = new ArrayList<>();
+        final List<List<Triple<List<Allele>, VariantType, TreeSet<String>>>> metadata = new ArrayList<>();
+        final LabeledVariantAnnotationsData data;
+
+        ScoringBatch(final LabeledVariantAnnotationsData data) {
+            this.data = data;
+        }
+    }
+
+    private static final class ScoredBatch {
+        final ScoringBatch batch;
+        final double[] scores;
+        final List<Boolean> isSNP;
+
+        ScoredBatch(final ScoringBatch batch, final double[] scores, final List<Boolean> isSNP) {
+            this.batch = batch;
+            this.scores = scores;
+            this.isSNP = isSNP;
+        }
+    }
+
+    private boolean isStreamingMode() {
+        return scoringBatchSize > 0;
+    }
+
     @Override
     protected int numberOfPasses() {
-        return 2;
+        return isStreamingMode() ? 1 : 2;
     }
 
     @Override
@@ -440,6 +507,14 @@ public class ScoreVariantAnnotations extends LabeledVariantAnnotationsWalker {
 
         // TODO this validation method should perhaps be moved outside of the CNV code
         CopyNumberArgumentValidationUtils.validateOutputFiles(outputScoresFile);
+
+        if (isStreamingMode()) {
+            logger.info(String.format("Scoring in streaming mode with batches of %d records on %d thread(s)...", scoringBatchSize, scoringThreads));
+            data.clear();
+            currentBatch = createScoringBatch();
+            scoringExecutor = Executors.newFixedThreadPool(scoringThreads,
+                    new ThreadFactoryBuilder().setNameFormat("scoreVariantAnnotations-thread-%d").setDaemon(true).build());
+        }
     }
 
     @Override
@@ -450,6 +525,10 @@ public class ScoreVariantAnnotations extends LabeledVariantAnnotationsWalker {
                                 final int n) {
         final List<Triple<List<Allele>, VariantType, TreeSet<String>>> metadata = extractVariantMetadata(variant, featureContext, true);
         final boolean isVariantExtracted = !metadata.isEmpty();
+        if (isStreamingMode()) {
+            addVariantToCurrentBatch(variant, metadata);
+            return;
+        }
         if (n == 0 && isVariantExtracted) {
             addExtractedVariantToData(data, variant, metadata);
         }
@@ -464,6 +543,17 @@ public class ScoreVariantAnnotations extends LabeledVariantAnnotationsWalker {
 
     @Override
     protected void afterNthPass(final int n) {
+        if (isStreamingMode()) {
+            submitCurrentBatch();
+            while (!pendingBatches.isEmpty()) {
+                writeScoredBatchToVCF(awaitScoredBatch(pendingBatches.removeFirst()));
+            }
+            scoringExecutor.shutdown();
+            if (vcfWriter != null) {
+                vcfWriter.close();
+            }
+            return;
+        }
         if (n == 0) {
             // TODO if BGMM, preprocess annotations and write to HDF5 with BGMMVariantAnnotationsScorer.preprocessAnnotationsWithBGMMAndWriteHDF5
             writeAnnotationsToHDF5();
@@ -537,6 +627,88 @@ public class ScoreVariantAnnotations extends LabeledVariantAnnotationsWalker {
         logger.info(String.format("Scores written to %s.", outputScoresFile.getAbsolutePath()));
     }
 
+    private ScoringBatch createScoringBatch() {
+        return new ScoringBatch(new LabeledVariantAnnotationsData(annotationNames, resourceLabels, useASAnnotations, scoringBatchSize));
+    }
+
+    private void addVariantToCurrentBatch(final VariantContext variant,
+                                          final List<Triple<List<Allele>, VariantType, TreeSet<String>>> metadata) {
+        currentBatch.variants.add(variant);
+        currentBatch.metadata.add(metadata);
+        if (!metadata.isEmpty()) {
+            addExtractedVariantToData(currentBatch.data, variant, metadata);
+        }
+        // records that are not extracted count towards the limit as well, so that long runs of them are flushed
+        if (currentBatch.variants.size() == scoringBatchSize) {
+            submitCurrentBatch();
+            currentBatch = createScoringBatch();
+        }
+    }
+
+    /**
+     * Hands the current batch to the scoring pool. Batches are written in submission order; once the maximum number
+     * of batches are in flight, we block on the oldest one and write it out before reading further records.
+     */
+    private void submitCurrentBatch() {
+        if (currentBatch.variants.isEmpty()) {
+            return;
+        }
+        while (pendingBatches.size() >= scoringThreads) {
+            writeScoredBatchToVCF(awaitScoredBatch(pendingBatches.removeFirst()));
+        }
+        final ScoringBatch batch = currentBatch;
+        pendingBatches.addLast(scoringExecutor.submit(() -> scoreBatch(batch)));
+    }
+
+    private ScoredBatch scoreBatch(final ScoringBatch batch) {
+        final List<Boolean> isSNP = batch.data.getVariantTypeFlat().stream().map(t -> t == VariantType.SNP).collect(Collectors.toList());
+        final int numAll = isSNP.size();
+        final List<Double> allScores = new ArrayList<>(Collections.nCopies(numAll, Double.NaN));
+        if (numAll > 0) {
+            final List<String> annotationNames = batch.data.getSortedAnnotationNames();
+            final double[][] allAnnotations = batch.data.getAnnotationsFlat();
+            if (variantTypesToExtract.contains(VariantType.SNP)) {
+                scoreVariantTypeAndSetElementsOfAllScores(annotationNames, allAnnotations, isSNP, snpScorer, allScores);
+            }
+            if (variantTypesToExtract.contains(VariantType.INDEL)) {
+                final List<Boolean> isIndel = isSNP.stream().map(x -> !x).collect(Collectors.toList());
+                scoreVariantTypeAndSetElementsOfAllScores(annotationNames, allAnnotations, isIndel, indelScorer, allScores);
+            }
+        }
+        return new ScoredBatch(batch, Doubles.toArray(allScores), isSNP);
+    }
+
+    private static ScoredBatch awaitScoredBatch(final Future<ScoredBatch> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            throw new GATKException("Interrupted while scoring a batch of variants.", e);
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new GATKException("Exception encountered while scoring a batch of variants.", cause);
+        }
+    }
+
+    private void writeScoredBatchToVCF(final ScoredBatch scoredBatch) {
+        scoresIterator = Arrays.stream(scoredBatch.scores).iterator();
+        isSNPIterator = scoredBatch.isSNP.iterator();
+        final ScoringBatch batch = scoredBatch.batch;
+        for (int i = 0; i < batch.variants.size(); i++) {
+            if (batch.metadata.get(i).isEmpty()) {
+                vcfWriter.add(batch.variants.get(i));
+            } else {
+                writeExtractedVariantToVCF(batch.variants.get(i), batch.metadata.get(i));
+            }
+        }
+        if (scoresIterator.hasNext()) {
+            throw new IllegalStateException("Scores and variants (or alleles, in allele-specific mode) " +
+                    "within a batch were not correctly synchronized.");
+        }
+    }
+
     private static void scoreVariantTypeAndSetElementsOfAllScores(final List<String> annotationNames,
                                                                   final double[][] allAnnotations,
                                                                   final List<Boolean> isVariantType,
@@ -545,8 +717,15 @@ public class ScoreVariantAnnotations extends LabeledVariantAnnotationsWalker {
         if (isVariantType.stream().anyMatch(x -> x)) {
             final File variantTypeAnnotationsFile = LabeledVariantAnnotationsData.subsetAnnotationsToTemporaryFile(annotationNames, allAnnotations, isVariantType);
             final File variantTypeScoresFile = IOUtils.createTempFile("temp", ".scores.hdf5");
-            variantTypeScorer.score(variantTypeAnnotationsFile, variantTypeScoresFile); // TODO we do not fail until here in the case of mismatched annotation names; we could fail earlier
-            final double[] variantTypeScores = VariantAnnotationsScorer.readScores(variantTypeScoresFile);
+            final double[] variantTypeScores;
+            try {
+                variantTypeScorer.score(variantTypeAnnotationsFile, variantTypeScoresFile); // TODO we do not fail until here in the case of mismatched annotation names; we could fail earlier
+                variantTypeScores = VariantAnnotationsScorer.readScores(variantTypeScoresFile);
+            } finally {
+                // these are created once per batch in streaming mode, so we do not leave them for deletion on exit
+                IOUtils.tryDelete(variantTypeAnnotationsFile);
+                IOUtils.tryDelete(variantTypeScoresFile);
+            }
             final Iterator<Double> variantTypeScoresIterator = Arrays.stream(variantTypeScores).iterator();
             IntStream.range(0, allScores.size()).filter(isVariantType::get).forEach(i -> allScores.set(i, variantTypeScoresIterator.next()));
         }
@@ -154,6 +154,13 @@ public final class LabeledVariantAnnotationsData {
         return streamFlattenedData().map(datum -> datum.labels.contains(label)).collect(Collectors.toList());
     }
 
+    /**
+     * @return  matrix with dimensions (number of sites) x (number of annotations); rows are shared with the underlying data
+     */
+    public double[][] getAnnotationsFlat() {
+        return streamFlattenedData().map(datum -> datum.annotations).toArray(double[][]::new);
+    }
+
     private Stream<LabeledVariantAnnotationsDatum> streamFlattenedData() {
         return data.stream().flatMap(List::stream);
     }
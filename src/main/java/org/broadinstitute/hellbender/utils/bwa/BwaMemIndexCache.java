@@ -1,17 +1,38 @@
 package org.broadinstitute.hellbender.utils.bwa;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.spark.NodeLocalFileCache;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
 
 /**
  * Manage a global collection of {@link BwaMemIndex} instances.
+ *
+ * <p>BWA-MEM memory-maps its index image, so the processes of a node that open the same image file share its pages
+ * through the page cache.  Instances obtained with {@link #acquire} are reference counted, and closed when the last
+ * user releases them.  {@link #acquireShared} first copies the image once per node into the {@link NodeLocalFileCache},
+ * so that all the executors of a node, and successive jobs, map the same file; its instances stay open for the lifetime
+ * of the JVM, so that later tasks don't open the image again, and are closed by {@link #closeInstances} or when the
+ * JVM shuts down.</p>
  */
 public class BwaMemIndexCache {
+    private static final Logger logger = LogManager.getLogger(BwaMemIndexCache.class);
 
     private final static Map<String, BwaMemIndex> instances = new HashMap<>();
+    private final static Map<String, Integer> referenceCounts = new HashMap<>();
+    private final static Set<String> prewarmed = new HashSet<>();
+    // instances opened by acquireShared, which release doesn't close
+    private final static Set<String> shared = new HashSet<>();
+    private static boolean shutdownHookAdded = false;
 
     /**
      * Returns a {@link BwaMemIndex} instance that corresponds to  given index image file.
@@ -21,11 +42,117 @@ public class BwaMemIndexCache {
     public static synchronized BwaMemIndex getInstance( final String indexImageFile ) {
         Utils.nonNull(indexImageFile, "the index image file name provided cannot be null");
         if (!instances.containsKey(indexImageFile)) {
-            instances.put(indexImageFile, new BwaMemIndex(indexImageFile));
+            instances.put(indexImageFile, openIndex(indexImageFile));
         }
         return instances.get(indexImageFile);
     }
 
+    /**
+     * Returns a reference-counted {@link BwaMemIndex} instance for a given index image file.  Each call must be matched
+     * by a call to {@link #release}, which closes the instance when it is no longer used.
+     * @param indexImageFile the target image file.
+     * @param prewarm whether to read the whole image into the page cache before opening it, the first time it is
+     *                opened by this JVM, rather than letting BWA-MEM fault its pages in as it aligns.
+     * @return never {@code null}.
+     */
+    public static synchronized BwaMemIndex acquire( final String indexImageFile, final boolean prewarm ) {
+        Utils.nonNull(indexImageFile, "the index image file name provided cannot be null");
+        if (!instances.containsKey(indexImageFile)) {
+            if (prewarm) {
+                prewarm(indexImageFile);
+            }
+            instances.put(indexImageFile, openIndex(indexImageFile));
+        }
+        referenceCounts.merge(indexImageFile, 1, Integer::sum);
+        return instances.get(indexImageFile);
+    }
+
+    /**
+     * Returns a {@link BwaMemIndex} instance over the copy of the index image in the {@link NodeLocalFileCache}, copying
+     * it there if this is the first use of the image on this node.  The instance is not reference counted and must not
+     * be released: it stays open until {@link #closeInstances} is called or the JVM shuts down.
+     * @param indexImageFile path or URI of the image file, which must be readable from this node.
+     * @param checksum checksum of the image file, as computed by {@link NodeLocalFileCache#checksum} or
+     *                 {@link NodeLocalFileCache#fingerprint}.
+     * @param prewarm as for {@link #acquire}.
+     * @return never {@code null}.
+     */
+    public static BwaMemIndex acquireShared( final String indexImageFile, final String checksum, final boolean prewarm ) {
+        // NodeLocalFileCache does its own locking, so other images can be acquired while this one is copied
+        final String localImage = NodeLocalFileCache.localize(indexImageFile, checksum).toString();
+        synchronized (BwaMemIndexCache.class) {
+            if (!instances.containsKey(localImage)) {
+                if (prewarm) {
+                    prewarm(localImage);
+                }
+                instances.put(localImage, openIndex(localImage));
+            }
+            shared.add(localImage);
+            if (!shutdownHookAdded) {
+                Runtime.getRuntime().addShutdownHook(new Thread(BwaMemIndexCache::closeInstances));
+                shutdownHookAdded = true;
+            }
+            return instances.get(localImage);
+        }
+    }
+
+    /**
+     * Releases an instance obtained from {@link #acquire}, and closes it if it has no other user and was not also
+     * obtained from {@link #acquireShared}.
+     * @param instance the instance to release.
+     */
+    public static synchronized void release( final BwaMemIndex instance ) {
+        Utils.nonNull(instance, "the input index cannot be null");
+        for (final Map.Entry<String, BwaMemIndex> entry : instances.entrySet()) {
+            if (entry.getValue() == instance) {
+                final String indexImageFile = entry.getKey();
+                final int count = referenceCounts.getOrDefault(indexImageFile, 0);
+                Utils.validate(count > 0, () -> "the index " + indexImageFile + " was not acquired");
+                if (count == 1) {
+                    referenceCounts.remove(indexImageFile);
+                    if (!shared.contains(indexImageFile)) {
+                        instances.remove(indexImageFile);
+                        instance.close();
+                    }
+                } else {
+                    referenceCounts.put(indexImageFile, count - 1);
+                }
+                return;
+            }
+        }
+        throw new IllegalArgumentException("the index was not acquired from the cache");
+    }
+
+    private static BwaMemIndex openIndex( final String indexImageFile ) {
+        final long startTime = System.nanoTime();
+        final BwaMemIndex index = new BwaMemIndex(indexImageFile);
+        logger.info(String.format("Opened BWA-MEM index image %s in %.3f seconds", indexImageFile, (System.nanoTime() - startTime) / 1e9));
+        return index;
+    }
+
+    /**
+     * Reads a local index image into the page cache, by mapping it and loading the mapped pages, unless this JVM has
+     * already done so.  This moves the cost of faulting the pages of the image in out of the first alignments.
+     * @param indexImageFile the local image file.
+     */
+    public static synchronized void prewarm( final String indexImageFile ) {
+        Utils.nonNull(indexImageFile, "the index image file name provided cannot be null");
+        if (!prewarmed.add(indexImageFile)) {
+            return;
+        }
+        final Path indexImage = Paths.get(indexImageFile);
+        final long startTime = System.nanoTime();
+        try {
+            final long size = Files.size(indexImage);
+            for (long position = 0; position < size; position += Integer.MAX_VALUE) {
+                NodeLocalFileCache.map(indexImage, position, Math.min(Integer.MAX_VALUE, size - position)).load();
+            }
+            logger.info(String.format("Pre-warmed %d bytes of BWA-MEM index image %s in %.3f seconds", size, indexImage, (System.nanoTime() - startTime) / 1e9));
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(indexImage, "Unable to pre-warm the BWA-MEM index image", e);
+        }
+    }
+
     /**
      * Closes an index instance in the cache given its index file name.
      * <p>
@@ -42,6 +169,8 @@ public class BwaMemIndexCache {
         if (instances.containsKey(indexImageFile)) {
             instances.get(indexImageFile).close();
             instances.remove(indexImageFile);
+            referenceCounts.remove(indexImageFile);
+            shared.remove(indexImageFile);
         }
     }
 
@@ -58,6 +187,8 @@ public class BwaMemIndexCache {
         if (instances.values().contains(instance)) {
             instance.close();
             instances.values().remove(instance);
+            referenceCounts.keySet().retainAll(instances.keySet());
+            shared.retainAll(instances.keySet());
         }
     }
 
@@ -70,6 +201,8 @@ public class BwaMemIndexCache {
             it.next().close();
             it.remove();
         }
+        referenceCounts.clear();
+        shared.clear();
     }
 
     /**
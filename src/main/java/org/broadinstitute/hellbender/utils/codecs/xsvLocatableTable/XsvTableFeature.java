@@ -176,6 +176,27 @@ public class XsvTableFeature implements Feature {
         return dataSourceName;
     }
 
+    /**
+     * @return The column index from which the contig for this {@link XsvTableFeature} is read.
+     */
+    public int getContigColumn() {
+        return contigColumn;
+    }
+
+    /**
+     * @return The column index from which the start position for this {@link XsvTableFeature} is read.
+     */
+    public int getStartColumn() {
+        return startColumn;
+    }
+
+    /**
+     * @return The column index from which the end position for this {@link XsvTableFeature} is read.
+     */
+    public int getEndColumn() {
+        return endColumn;
+    }
+
     /**
      * Get a value from this {@link XsvTableFeature}.
      * @param key The key for the desired value.
@@ -0,0 +1,239 @@
+package org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.sv.SVFeaturesHeader;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.codecs.AbstractBCICodec;
+import org.broadinstitute.hellbender.utils.codecs.FeatureSink;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Reader;
+import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Writer;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Codec to handle {@link XsvTableFeature}s in BlockCompressedInterval files.
+ * These are compiled versions of locatable XSV data sources, which can be queried without parsing any text.
+ *
+ * The table's layout is kept in the place of the header's sample names:  the name of the data source,
+ * the indices of the contig, start, and end columns, the MD5 of the data source's config file,
+ * and then the names of all of the columns.
+ * Each record holds the contig index, start, and end of the feature, followed by the values of the remaining columns.
+ */
+public class XsvTableFeatureBCICodec extends AbstractBCICodec<XsvTableFeature> {
+    public static final String BCI_VERSION = "1.1";
+    public static final String XSV_BCI_FILE_EXTENSION = ".xsv.bci";
+
+    // number of entries in the header layout before the column names
+    private static final int N_LAYOUT_FIELDS = 5;
+
+    private boolean versionChecked = false;
+    private List<String> layoutForDecoding;
+    private TableLayout tableLayout;
+
+    @Override
+    public XsvTableFeature decode( final Reader<XsvTableFeature> reader ) throws IOException {
+        if ( !versionChecked ) {
+            if ( !BCI_VERSION.equals(reader.getVersion()) ) {
+                throw new UserException("xsv.bci file has wrong version: expected " +
+                        BCI_VERSION + " but found " + reader.getVersion());
+            }
+            versionChecked = true;
+        }
+        final List<String> layout = reader.getSampleNames();
+        if ( layout != layoutForDecoding ) {
+            tableLayout = new TableLayout(layout);
+            layoutForDecoding = layout;
+        }
+
+        final DataInputStream dis = reader.getStream();
+        final String contig = reader.getDictionary().getSequence(dis.readInt()).getSequenceName();
+        final int start = dis.readInt();
+        final int end = dis.readInt();
+        final int nColumns = tableLayout.columnNames.size();
+        final List<String> values = new ArrayList<>(nColumns);
+        for ( int idx = 0; idx != nColumns; ++idx ) {
+            if ( idx == tableLayout.contigColumn ) {
+                values.add(contig);
+            } else if ( idx == tableLayout.startColumn ) {
+                values.add(Integer.toString(start));
+            } else if ( idx == tableLayout.endColumn ) {
+                values.add(Integer.toString(end));
+            } else {
+                values.add(readString(dis));
+            }
+        }
+        return new XsvTableFeature(tableLayout.contigColumn, tableLayout.startColumn, tableLayout.endColumn,
+                                   tableLayout.columnNames, values, tableLayout.dataSourceName);
+    }
+
+    @Override
+    public Class<XsvTableFeature> getFeatureType() { return XsvTableFeature.class; }
+
+    @Override
+    public boolean canDecode( final String path ) {
+        return path.toLowerCase().endsWith(XSV_BCI_FILE_EXTENSION);
+    }
+
+    /**
+     * @param feature a feature of the table to be written.
+     * @param configFileMD5 the MD5 of the config file of the table's data source.
+     * @return the layout of the feature's table, to be passed to {@link #makeSink} in the place of sample names.
+     */
+    public static List<String> createLayout( final XsvTableFeature feature, final String configFileMD5 ) {
+        Utils.nonNull(feature);
+        Utils.nonNull(configFileMD5);
+        final List<String> layout = new ArrayList<>(N_LAYOUT_FIELDS + feature.getHeader().size());
+        layout.add(feature.getDataSourceName());
+        layout.add(Integer.toString(feature.getContigColumn()));
+        layout.add(Integer.toString(feature.getStartColumn()));
+        layout.add(Integer.toString(feature.getEndColumn()));
+        layout.add(configFileMD5);
+        layout.addAll(feature.getHeader());
+        return layout;
+    }
+
+    /**
+     * Get the MD5 of the config file from which a compiled table was made.
+     * @param reader a reader for the compiled table.
+     * @return the MD5 recorded in the table's layout.
+     */
+    public static String getConfigFileMD5( final Reader<XsvTableFeature> reader ) {
+        return new TableLayout(reader.getSampleNames()).configFileMD5;
+    }
+
+    /**
+     * Get the names of the columns of a compiled table, excluding its location columns.
+     * @param reader a reader for the compiled table.
+     * @return the column names, in order.
+     */
+    public static List<String> getColumnNamesWithoutLocationColumns( final Reader<XsvTableFeature> reader ) {
+        final TableLayout tableLayout = new TableLayout(reader.getSampleNames());
+        final List<String> columnNames = new ArrayList<>(tableLayout.columnNames.size());
+        for ( int idx = 0; idx != tableLayout.columnNames.size(); ++idx ) {
+            if ( idx != tableLayout.contigColumn && idx != tableLayout.startColumn && idx != tableLayout.endColumn ) {
+                columnNames.add(tableLayout.columnNames.get(idx));
+            }
+        }
+        return columnNames;
+    }
+
+    @Override
+    public Writer<XsvTableFeature> makeSink( final GATKPath path,
+                                             final SAMSequenceDictionary dict,
+                                             final List<String> layout,
+                                             final int compressionLevel ) {
+        final TableLayout tableLayout = new TableLayout(layout);
+        final String className = XsvTableFeature.class.getSimpleName();
+        return new Writer<>(path,
+                            new SVFeaturesHeader(className, BCI_VERSION, dict, layout),
+                            (feature, writer) -> encode(feature, writer, tableLayout),
+                            compressionLevel);
+    }
+
+    @Override
+    public void encode( final XsvTableFeature feature,
+                        final Writer<XsvTableFeature> writer ) throws IOException {
+        encode(feature, writer, new TableLayout(feature));
+    }
+
+    private static void encode( final XsvTableFeature feature,
+                                final Writer<XsvTableFeature> writer,
+                                final TableLayout tableLayout ) throws IOException {
+        if ( feature.getContigColumn() != tableLayout.contigColumn ||
+                feature.getStartColumn() != tableLayout.startColumn ||
+                feature.getEndColumn() != tableLayout.endColumn ||
+                feature.size() != tableLayout.columnNames.size() ) {
+            throw new UserException.BadInput("Feature " + feature + " does not have the same columns as its table.");
+        }
+        final DataOutputStream dos = writer.getStream();
+        dos.writeInt(writer.getContigIndex(feature.getContig()));
+        dos.writeInt(feature.getStart());
+        dos.writeInt(feature.getEnd());
+        final List<String> values = feature.getValues();
+        for ( int idx = 0; idx != values.size(); ++idx ) {
+            if ( idx != tableLayout.contigColumn && idx != tableLayout.startColumn && idx != tableLayout.endColumn ) {
+                writeString(dos, values.get(idx));
+            }
+        }
+    }
+
+    @Override
+    public FeatureSink<XsvTableFeature> makeSortMerger( final GATKPath path,
+                                                        final SAMSequenceDictionary dict,
+                                                        final List<String> layout,
+                                                        final int compressionLevel ) {
+        // rows of a table are never merged
+        return makeSink(path, dict, layout, compressionLevel);
+    }
+
+    // strings are written as a variable-length byte count followed by UTF-8 bytes:  unlike writeUTF, there's
+    //   no limit on the length of a string, and short strings (the usual case) take a single byte of overhead
+    private static void writeString( final DataOutputStream dos, final String value ) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        int length = bytes.length;
+        while ( (length & ~0x7F) != 0 ) {
+            dos.writeByte((length & 0x7F) | 0x80);
+            length >>>= 7;
+        }
+        dos.writeByte(length);
+        dos.write(bytes);
+    }
+
+    private static String readString( final DataInputStream dis ) throws IOException {
+        int length = 0;
+        int shift = 0;
+        int nextByte;
+        do {
+            nextByte = dis.readUnsignedByte();
+            length |= (nextByte & 0x7F) << shift;
+            shift += 7;
+        } while ( (nextByte & 0x80) != 0 );
+        final byte[] bytes = new byte[length];
+        dis.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static final class TableLayout {
+        private final String dataSourceName;
+        private final int contigColumn;
+        private final int startColumn;
+        private final int endColumn;
+        private final String configFileMD5;
+        private final List<String> columnNames;
+
+        TableLayout( final List<String> layout ) {
+            if ( layout.size() <= N_LAYOUT_FIELDS ) {
+                throw new UserException.BadInput("xsv.bci file has no table layout in its header.");
+            }
+            try {
+                dataSourceName = layout.get(0);
+                contigColumn = Integer.parseInt(layout.get(1));
+                startColumn = Integer.parseInt(layout.get(2));
+                endColumn = Integer.parseInt(layout.get(3));
+                configFileMD5 = layout.get(4);
+            } catch ( final NumberFormatException nfe ) {
+                throw new UserException.BadInput("xsv.bci file has a malformed table layout in its header.", nfe);
+            }
+            // shared by all features of the table
+            columnNames = Collections.unmodifiableList(new ArrayList<>(layout.subList(N_LAYOUT_FIELDS, layout.size())));
+        }
+
+        // the layout of a single feature's table, which knows nothing of the config file
+        TableLayout( final XsvTableFeature feature ) {
+            dataSourceName = feature.getDataSourceName();
+            contigColumn = feature.getContigColumn();
+            startColumn = feature.getStartColumn();
+            endColumn = feature.getEndColumn();
+            configFileMD5 = null;
+            columnNames = feature.getHeader();
+        }
+    }
+}
@@ -70,6 +70,10 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
      * <p>
      *     valuesBySampleIndex[s][a][r] == lnLk(R_r | A_a) where R_r comes from Sample s.
      * </p>
+     * <p>
+     *     The per-allele arrays are taken from the {@link LikelihoodBufferPool} of the allocating thread and may be
+     *     longer than the number of evidence in the sample;  they are returned to the pool by {@link #releaseBuffers()}.
+     * </p>
      */
     private final double[][][] valuesBySampleIndex;
 
@@ -199,6 +203,7 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
 
     /*
      * create an object using the private constructor. Unless absolutely required, please use public constructor
+     * Note that the arrays in {@code values} are used (not copied) by the new object.
      */
     @SuppressWarnings({"unchecked", "rawtypes"})
     public static <EVIDENCE extends Locatable, A extends Allele> AlleleLikelihoods createAlleleLikelihoods(final AlleleList alleles,
@@ -238,12 +243,46 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             evidenceBySampleIndex.add(sampleEvidences == null ? new ArrayList<>() : new ArrayList<>(sampleEvidences));
             final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
 
-            final double[][] sampleValues = new double[alleleCount][sampleEvidenceCount];
-            likelihoodsMatrixEvidenceCapacityBySampleIndex[s] = sampleEvidenceCount;
+            final double[][] sampleValues = new double[alleleCount][];
+            for (int a = 0; a < alleleCount; a++) {
+                sampleValues[a] = acquireAlleleValues(sampleEvidenceCount, sampleEvidenceCount, 0.0);
+            }
+            likelihoodsMatrixEvidenceCapacityBySampleIndex[s] = alleleCount == 0 ? sampleEvidenceCount : sampleValues[0].length;
             valuesBySampleIndex[s] = sampleValues;
         }
     }
 
+    // Takes an array for the likelihoods of an allele from the buffer pool, with room for at least {@code capacity} evidence,
+    // the first {@code evidenceCount} entries set to {@code initialLikelihood} and the remaining ones set to NaN.
+    private static double[] acquireAlleleValues(final int capacity, final int evidenceCount, final double initialLikelihood) {
+        final double[] alleleValues = LikelihoodBufferPool.acquire(Math.max(capacity, evidenceCount));
+        Arrays.fill(alleleValues, 0, evidenceCount, initialLikelihood);
+        Arrays.fill(alleleValues, evidenceCount, alleleValues.length, Double.NaN);
+        return alleleValues;
+    }
+
+    /**
+     * Returns the arrays holding the likelihood values to the buffer pool of the current thread, so that they can be
+     * reused by the next evidence-likelihood collection created by that thread.
+     *
+     * <p>
+     *     This collection (and any {@link LikelihoodMatrix} obtained from it) must not be used afterwards.  Collections
+     *     derived from this one (e.g. by {@link #marginalize}) have their own arrays and are not affected.
+     * </p>
+     */
+    public void releaseBuffers() {
+        for (int s = 0; s < valuesBySampleIndex.length; s++) {
+            final double[][] sampleValues = valuesBySampleIndex[s];
+            if (sampleValues == null) {
+                continue;
+            }
+            for (final double[] alleleValues : sampleValues) {
+                LikelihoodBufferPool.release(alleleValues);
+            }
+            valuesBySampleIndex[s] = null;
+        }
+    }
+
     // Search for the reference allele, if not found the index is {@link MISSING_REF}.
     private static int findReferenceAllele(final AlleleList<?> alleles) {
         return IntStream.range(0, alleles.numberOfAlleles()).filter(i -> alleles.getAllele(i).isReference()).findAny().orElse(MISSING_INDEX);
@@ -634,12 +673,8 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
             final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
             final double[][] newValuesBySampleIndex = Arrays.copyOf(valuesBySampleIndex[s], newAlleleCount);
             for (int a = oldAlleleCount; a < newAlleleCount; a++) {
-                newValuesBySampleIndex[a] = new double[likelihoodsMatrixEvidenceCapacityBySampleIndex[s]];
-                if (defaultLikelihood != 0.0) {
-                    Arrays.fill(newValuesBySampleIndex[a], 0, sampleEvidenceCount, defaultLikelihood);
-                }
-                // Fill the rest with NaNs
-                Arrays.fill(newValuesBySampleIndex[a], sampleEvidenceCount, newValuesBySampleIndex[a].length, Double.NaN);
+                // the rest is filled with NaNs
+                newValuesBySampleIndex[a] = acquireAlleleValues(likelihoodsMatrixEvidenceCapacityBySampleIndex[s], sampleEvidenceCount, defaultLikelihood);
             }
             valuesBySampleIndex[s] = newValuesBySampleIndex;
         }
@@ -788,17 +823,17 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         for (int s = 0; s < sampleCount; s++) {
             final int sampleEvidenceCount = evidenceBySampleIndex.get(s).size();
             final double[][] oldSampleValues = valuesBySampleIndex[s];
-            final double[][] newSampleValues = result[s] = new double[newAlleleCount][sampleEvidenceCount];
+            final double[][] newSampleValues = result[s] = new double[newAlleleCount][];
 
             // For each old allele and unit of evidence we update the new table keeping the maximum likelihood.
             for (int newAllele = 0; newAllele < newAlleleCount; newAllele++) {
                 final BitSet oldAlleleSet = newToOldAlleleIndexMap.get(newAllele);
-                for (int r = 0; r < sampleEvidenceCount; r++) {
-                    final int finalR = r;
-                    newSampleValues[newAllele][finalR] = oldAlleleSet.stream()
-                            .mapToDouble(oldA -> oldSampleValues[oldA][finalR])
-                            .max()
-                            .orElse(Double.NEGATIVE_INFINITY);
+                final double[] newAlleleValues = newSampleValues[newAllele] = acquireAlleleValues(sampleEvidenceCount, sampleEvidenceCount, Double.NEGATIVE_INFINITY);
+                for (int oldA = oldAlleleSet.nextSetBit(0); oldA >= 0; oldA = oldAlleleSet.nextSetBit(oldA + 1)) {
+                    final double[] oldAlleleValues = oldSampleValues[oldA];
+                    for (int r = 0; r < sampleEvidenceCount; r++) {
+                        newAlleleValues[r] = Math.max(newAlleleValues[r], oldAlleleValues[r]);
+                    }
                 }
             }
         }
@@ -905,11 +940,14 @@ public class AlleleLikelihoods<EVIDENCE extends Locatable, A extends Allele> imp
         if (currentCapacity < x) {
             final int newCapacity = Math.max(currentCapacity, x) << 1; // we double it to avoid repetitive 1-element extensions resizing.
             for (int a  = 0; a < numberOfAlleles; a++) {
-                sampleValues[a] = Arrays.copyOf(sampleValues[a], newCapacity);
+                final double[] newAlleleValues = LikelihoodBufferPool.acquire(newCapacity);
+                System.arraycopy(sampleValues[a], 0, newAlleleValues, 0, currentCapacity);
                 // We don't need the following fill for this to work as intended but
                 // with NaN we ensure some clear failure output in case there is a bug that
                 // uses "zombie" likelihoods (e.g. github issue {@link https://github.com/broadinstitute/gatk/pull/7153 #7153).
-                Arrays.fill(sampleValues[a], currentCapacity, newCapacity, Double.NaN);
+                Arrays.fill(newAlleleValues, currentCapacity, newAlleleValues.length, Double.NaN);
+                LikelihoodBufferPool.release(sampleValues[a]);
+                sampleValues[a] = newAlleleValues;
             }
             likelihoodsMatrixEvidenceCapacityBySampleIndex[sampleIndex] = newCapacity;
         }
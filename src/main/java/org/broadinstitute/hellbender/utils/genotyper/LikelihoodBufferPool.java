@@ -0,0 +1,118 @@
+package org.broadinstitute.hellbender.utils.genotyper;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayDeque;
+
+/**
+ * Per-thread pool of the {@code double[]} buffers that back the likelihood values of {@link AlleleLikelihoods}.
+ *
+ * <p>
+ *     Genotyping an assembly region creates and discards several likelihood collections (one per event, plus its
+ *     marginalizations), each with one buffer per sample and allele.  Rather than allocating fresh arrays for every
+ *     one of them, buffers are taken from and returned to an arena owned by the current thread, so that a thread
+ *     that processes region after region reuses the same memory.
+ * </p>
+ *
+ * <p>
+ *     Buffers are pooled by size class:  {@link #acquire} returns a buffer whose length is the smallest power of two
+ *     that is at least the requested length (and at least {@link #MIN_BUFFER_LENGTH}).  Buffers come with
+ *     arbitrary content;  callers must initialize whatever they use.  Each thread's arena holds at most
+ *     {@link #MAX_POOLED_BYTES_PER_THREAD} bytes;  buffers released beyond that are left to the garbage collector.
+ * </p>
+ */
+final class LikelihoodBufferPool {
+
+    /**
+     * Length of the smallest buffer handed out.
+     */
+    static final int MIN_BUFFER_LENGTH = 16;
+
+    /**
+     * Maximum number of bytes held in the arena of each thread.
+     */
+    static final long MAX_POOLED_BYTES_PER_THREAD = 64L * 1024L * 1024L;
+
+    private static final int MIN_SIZE_CLASS = Integer.numberOfTrailingZeros(MIN_BUFFER_LENGTH);
+    private static final int MAX_SIZE_CLASS = 30;
+
+    private static final ThreadLocal<Arena> ARENA = ThreadLocal.withInitial(Arena::new);
+
+    private LikelihoodBufferPool() {}
+
+    /**
+     * @param minLength the minimum length of the buffer.  Must be >= 0.
+     * @return a buffer of at least {@code minLength} values, with arbitrary content.
+     */
+    static double[] acquire(final int minLength) {
+        Utils.validateArg(minLength >= 0, "the buffer length cannot be negative");
+        final int sizeClass = sizeClass(minLength);
+        if (sizeClass > MAX_SIZE_CLASS) {
+            return new double[minLength];
+        }
+        final Arena arena = ARENA.get();
+        final double[] pooled = arena.buffers[sizeClass].pollLast();
+        if (pooled == null) {
+            return new double[1 << sizeClass];
+        }
+        arena.pooledBytes -= Double.BYTES * (long) pooled.length;
+        return pooled;
+    }
+
+    /**
+     * Returns a buffer to the arena of the current thread.  The caller must not use the buffer afterwards.
+     * Buffers that were not handed out by {@link #acquire} are accepted, but only pooled if their length is one of
+     * the pooled sizes.
+     * @param buffer the buffer to return.  May be {@code null}, in which case nothing happens.
+     */
+    static void release(final double[] buffer) {
+        if (buffer == null || buffer.length < MIN_BUFFER_LENGTH || Integer.bitCount(buffer.length) != 1) {
+            return;
+        }
+        final int sizeClass = Integer.numberOfTrailingZeros(buffer.length);
+        if (sizeClass > MAX_SIZE_CLASS) {
+            return;
+        }
+        final Arena arena = ARENA.get();
+        final long bytes = Double.BYTES * (long) buffer.length;
+        if (arena.pooledBytes + bytes > MAX_POOLED_BYTES_PER_THREAD) {
+            return;
+        }
+        arena.buffers[sizeClass].addLast(buffer);
+        arena.pooledBytes += bytes;
+    }
+
+    /**
+     * @return the number of bytes held in the arena of the current thread.
+     */
+    @VisibleForTesting
+    static long pooledBytes() {
+        return ARENA.get().pooledBytes;
+    }
+
+    /**
+     * Drops all the buffers held in the arena of the current thread.
+     */
+    @VisibleForTesting
+    static void clear() {
+        ARENA.remove();
+    }
+
+    // the base-2 logarithm of the length of the buffers able to hold {@code minLength} values.
+    private static int sizeClass(final int minLength) {
+        return minLength <= MIN_BUFFER_LENGTH ? MIN_SIZE_CLASS : 32 - Integer.numberOfLeadingZeros(minLength - 1);
+    }
+
+    private static final class Arena {
+        @SuppressWarnings("unchecked")
+        private final ArrayDeque<double[]>[] buffers = new ArrayDeque[MAX_SIZE_CLASS + 1];
+        private long pooledBytes = 0;
+
+        private Arena() {
+            for (int i = MIN_SIZE_CLASS; i <= MAX_SIZE_CLASS; i++) {
+                buffers[i] = new ArrayDeque<>();
+            }
+        }
+    }
+}
@@ -6,9 +6,11 @@ import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.seekablestream.SeekableBufferedStream;
 import htsjdk.samtools.seekablestream.SeekableStream;
 import htsjdk.samtools.seekablestream.SeekableStreamFactory;
+import htsjdk.samtools.util.BlockCompressedFilePointerUtil;
 import htsjdk.samtools.util.BlockCompressedInputStream;
 import htsjdk.samtools.util.BlockCompressedOutputStream;
 import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import htsjdk.samtools.util.Locatable;
 import htsjdk.tribble.*;
 import org.broadinstitute.hellbender.engine.FeatureInput;
 import org.broadinstitute.hellbender.engine.GATKPath;
@@ -16,13 +18,17 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SVInterval;
 import org.broadinstitute.hellbender.utils.SVIntervalTree;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.codecs.FeatureSink;
 import org.broadinstitute.hellbender.tools.sv.SVFeaturesHeader;
 
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -253,7 +259,7 @@ public class BlockCompressedIntervalStream {
             try {
                 dos.flush(); // complete the data block
 
-                long indexPosition = bcos.getPosition(); // current position is the start of the index
+                final long indexPosition = bcos.getPosition(); // current position is the start of the index
 
                 // write the index entries
                 dos.writeInt(indexEntries.size());
@@ -263,14 +269,7 @@ public class BlockCompressedIntervalStream {
                 dos.flush(); // and complete the block
 
                 // write a 0-length terminator block at the end that captures the index position
-                final byte[] emptyBlockWithIndexPointer =
-                        Arrays.copyOf(EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER,
-                                EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER.length);
-                for ( int idx = FILE_POINTER_OFFSET; idx != FILE_POINTER_OFFSET + 8; ++idx ) {
-                    emptyBlockWithIndexPointer[idx] = (byte)indexPosition;
-                    indexPosition >>>= 8;
-                }
-                os.write(emptyBlockWithIndexPointer);
+                writeIndexPointerBlock(os, indexPosition);
 
                 bcos.close(false); // we've already handled the terminator block
             } catch ( final IOException ioe ) {
@@ -300,7 +299,9 @@ public class BlockCompressedIntervalStream {
         final String path;
         final FeatureCodec<T, Reader<T>> codec;
         final long indexFilePointer;
-        final BlockCompressedInputStream bcis;
+        final MappedBlockCompressedInputStream.MappedFile mappedFile;
+        final InflatedBlockCache blockCache;
+        final SeekableBlockInputStream bcis;
         final DataInputStream dis;
         final SVFeaturesHeader header;
         final long dataFilePointer;
@@ -308,16 +309,40 @@ public class BlockCompressedIntervalStream {
         boolean usedByIterator;
 
         public Reader( final FeatureInput<T> inputDescriptor, final FeatureCodec<T, Reader<T>> codec ) {
+            this(inputDescriptor, codec, null);
+        }
+
+        /**
+         * If a block cache is supplied, and the input is a local file, the file is memory-mapped, and
+         * blocks are inflated through the (typically shared) cache.  Otherwise, the file is read as a stream.
+         */
+        public Reader( final FeatureInput<T> inputDescriptor,
+                       final FeatureCodec<T, Reader<T>> codec,
+                       final InflatedBlockCache blockCache ) {
             this.path = inputDescriptor.getRawInputString();
             this.codec = codec;
-            final SeekableStream ss;
-            try {
-                ss = SeekableStreamFactory.getInstance().getStreamFor(path);
-            } catch ( final IOException ioe ) {
-                throw new UserException("unable to open " + path, ioe);
+            final Path localPath = blockCache == null ? null : getMappablePath(inputDescriptor);
+            if ( localPath != null ) {
+                try {
+                    this.mappedFile = new MappedBlockCompressedInputStream.MappedFile(localPath);
+                } catch ( final IOException ioe ) {
+                    throw new UserException("unable to map " + path, ioe);
+                }
+                this.blockCache = blockCache;
+                this.indexFilePointer = readIndexFilePointer(mappedFile, path);
+                this.bcis = openMappedStream(mappedFile, blockCache, path);
+            } else {
+                final SeekableStream ss;
+                try {
+                    ss = SeekableStreamFactory.getInstance().getStreamFor(path);
+                } catch ( final IOException ioe ) {
+                    throw new UserException("unable to open " + path, ioe);
+                }
+                this.mappedFile = null;
+                this.blockCache = null;
+                this.indexFilePointer = readIndexFilePointer(ss, path);
+                this.bcis = new HtsjdkBlockInputStream(new BlockCompressedInputStream(new SeekableBufferedStream(ss)));
             }
-            this.indexFilePointer = findIndexFilePointer(ss);
-            this.bcis = new BlockCompressedInputStream(new SeekableBufferedStream(ss));
             this.dis = new DataInputStream(bcis);
             this.header = readHeader();
             this.dataFilePointer = bcis.getPosition(); // having read header, we're pointing at the data
@@ -334,12 +359,19 @@ public class BlockCompressedIntervalStream {
             this.path = reader.path;
             this.codec = reader.codec;
             this.indexFilePointer = reader.indexFilePointer;
-            try {
-                this.bcis = new BlockCompressedInputStream(
-                        new SeekableBufferedStream(
-                                SeekableStreamFactory.getInstance().getStreamFor(path)));
-            } catch ( final IOException ioe ) {
-                throw new UserException("unable to clone stream for " + path, ioe);
+            this.mappedFile = reader.mappedFile;
+            this.blockCache = reader.blockCache;
+            if ( mappedFile != null ) {
+                // clones of a mapped reader share the mapping and the block cache
+                this.bcis = openMappedStream(mappedFile, blockCache, path);
+            } else {
+                try {
+                    this.bcis = new HtsjdkBlockInputStream(new BlockCompressedInputStream(
+                            new SeekableBufferedStream(
+                                    SeekableStreamFactory.getInstance().getStreamFor(path))));
+                } catch ( final IOException ioe ) {
+                    throw new UserException("unable to clone stream for " + path, ioe);
+                }
             }
             this.dis = new DataInputStream(bcis);
             this.header = reader.header;
@@ -354,8 +386,10 @@ public class BlockCompressedIntervalStream {
                        final FeatureCodec<T, Reader<T>> codec ) {
             this.path = inputStreamName;
             this.codec = codec;
-            this.indexFilePointer = findIndexFilePointer(ss);
-            this.bcis = new BlockCompressedInputStream(new SeekableBufferedStream(ss));
+            this.indexFilePointer = readIndexFilePointer(ss, path);
+            this.mappedFile = null;
+            this.blockCache = null;
+            this.bcis = new HtsjdkBlockInputStream(new BlockCompressedInputStream(new SeekableBufferedStream(ss)));
             this.dis = new DataInputStream(bcis);
             this.header = readHeader();
             this.dataFilePointer = bcis.getPosition();
@@ -381,7 +415,7 @@ public class BlockCompressedIntervalStream {
         public CloseableTribbleIterator<T> query( final String chr, final int start, final int end )
                 throws IOException {
             if ( index == null ) {
-                loadIndex(bcis);
+                loadIndex();
             }
             final SVInterval interval =
                     new SVInterval(getDictionary().getSequenceIndex(chr), start, end);
@@ -431,70 +465,64 @@ public class BlockCompressedIntervalStream {
             }
         }
 
-        private long findIndexFilePointer( final SeekableStream ss ) {
-            final int finalBlockLen = EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER.length;
-            final byte[] finalBlock = new byte[finalBlockLen];
-            try {
-                ss.seek(ss.length() - finalBlockLen);
-                ss.readFully(finalBlock);
-                ss.seek(0);
-            } catch ( final IOException ioe ) {
-                throw new UserException("unable to read final bgzip block from " + path, ioe);
+        /**
+         * Returns all the features that overlap any of the intervals, in file order, and without duplicates.
+         * The intervals are sorted and merged, and the file is searched in a single pass, so each relevant block
+         * is visited once.  Intervals on contigs absent from this file's dictionary are ignored.
+         * The search uses a clone of this reader, so it doesn't disturb any iteration in progress.
+         */
+        public List<T> queryAll( final List<? extends Locatable> intervals ) {
+            final SAMSequenceDictionary dict = getDictionary();
+            final List<SVInterval> mergedIntervals = mergeIntervals(intervals, dict);
+            final List<T> overlappers = new ArrayList<>();
+            if ( mergedIntervals.isEmpty() ) {
+                return overlappers;
             }
-            for ( int idx = 0; idx != FILE_POINTER_OFFSET; ++idx ) {
-                if ( EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER[idx] != finalBlock[idx] ) {
-                    throw new UserException(
-                            "unable to recover index pointer from final block of " + path);
+            final Reader<T> reader = new Reader<>(this);
+            try {
+                if ( reader.index == null ) {
+                    reader.loadIndex();
+                    index = reader.index;
                 }
-            }
-            for ( int idx = FILE_POINTER_OFFSET + 8; idx != finalBlockLen; ++idx ) {
-                if ( EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER[idx] != finalBlock[idx] ) {
-                    throw new UserException(
-                            "unable to recover index pointer from final block of " + path);
+                long lastPosition = -1L;
+                for ( final SVInterval interval : mergedIntervals ) {
+                    final Iterator<SVIntervalTree.Entry<Long>> indexEntryIterator =
+                            reader.index.overlappers(interval);
+                    long blockStartPosition = -1L;
+                    while ( true ) {
+                        if ( isNewBlock(blockStartPosition, reader.getPosition()) ) {
+                            if ( !indexEntryIterator.hasNext() ) {
+                                break;
+                            }
+                            blockStartPosition = indexEntryIterator.next().getValue();
+                            reader.seekStream(blockStartPosition);
+                        }
+                        final long position = reader.getPosition();
+                        final T feature = reader.readStream();
+                        if ( interval.getContig() != dict.getSequenceIndex(feature.getContig()) ||
+                                interval.getEnd() < feature.getStart() ) {
+                            break;
+                        }
+                        // features that overlap more than one interval are reported just once
+                        if ( feature.getEnd() >= interval.getStart() && position > lastPosition ) {
+                            overlappers.add(feature);
+                            lastPosition = position;
+                        }
+                    }
                 }
+            } finally {
+                reader.close();
             }
-            long indexFilePointer = 0;
-            int idx = FILE_POINTER_OFFSET + 8;
-            while ( --idx >= FILE_POINTER_OFFSET ) {
-                indexFilePointer <<= 8;
-                indexFilePointer |= finalBlock[idx] & 0xFFL;
-            }
-            return indexFilePointer;
+            return overlappers;
         }
 
         private SVFeaturesHeader readHeader() {
-            try {
-                final String className = dis.readUTF();
-                final String version = dis.readUTF();
-                final List<String> sampleNames = readSampleNames(dis);
-                final SAMSequenceDictionary dictionary = readDictionary(dis);
-                return new SVFeaturesHeader(className, version, dictionary, sampleNames);
-            } catch ( final IOException ioe ) {
-                throw new UserException("can't read header from " + path, ioe);
-            }
-        }
-
-        private List<String> readSampleNames( final DataInputStream dis ) throws IOException {
-            final int nSamples = dis.readInt();
-            final List<String> sampleNames = new ArrayList<>(nSamples);
-            for ( int sampleId = 0; sampleId < nSamples; ++sampleId ) {
-                sampleNames.add(dis.readUTF());
-            }
-            return sampleNames;
+            return BlockCompressedIntervalStream.readHeader(dis, path);
         }
 
-        private SAMSequenceDictionary readDictionary( final DataInputStream dis ) throws IOException {
-            final int nRecs = dis.readInt();
-            final List<SAMSequenceRecord> seqRecs = new ArrayList<>(nRecs);
-            for ( int idx = 0; idx != nRecs; ++idx ) {
-                final int contigSize = dis.readInt();
-                final String contigName = dis.readUTF();
-                seqRecs.add(new SAMSequenceRecord(contigName, contigSize));
-            }
-            return new SAMSequenceDictionary(seqRecs);
-        }
+        public boolean isMemoryMapped() { return mappedFile != null; }
 
-        private void loadIndex( final BlockCompressedInputStream bcis ) {
+        private void loadIndex() {
             final SVIntervalTree<Long> intervalTree = new SVIntervalTree<>();
             try {
                 bcis.seek(indexFilePointer);
@@ -600,6 +628,283 @@ public class BlockCompressedIntervalStream {
         }
     }
 
+    /**
+     * A stream of inflated data from a bgzip file that can be positioned using virtual file pointers.
+     * Allows a reader to run either on htsjdk's BlockCompressedInputStream, or on a memory-mapped file.
+     */
+    public static abstract class SeekableBlockInputStream extends InputStream {
+        /** The virtual file pointer of the next byte to be read, or 0 if the stream has been closed. */
+        public abstract long getPosition();
+        public abstract void seek( long virtualFilePointer ) throws IOException;
+    }
+
+    private static final class HtsjdkBlockInputStream extends SeekableBlockInputStream {
+        private final BlockCompressedInputStream bcis;
+
+        public HtsjdkBlockInputStream( final BlockCompressedInputStream bcis ) { this.bcis = bcis; }
+
+        @Override public int read() throws IOException { return bcis.read(); }
+        @Override public int read( final byte[] buffer, final int offset, final int length ) throws IOException {
+            return bcis.read(buffer, offset, length);
+        }
+        @Override public int available() throws IOException { return bcis.available(); }
+        @Override public void close() throws IOException { bcis.close(); }
+        @Override public long getPosition() { return bcis.getPosition(); }
+        @Override public void seek( final long virtualFilePointer ) throws IOException { bcis.seek(virtualFilePointer); }
+    }
+
+    /**
+     * Concatenates files that share a header, and whose features are in order with respect to each other
+     * (e.g., one file per contig, listed in dictionary order), into a single file.
+     * The compressed data blocks are copied without being decompressed: only the index is rewritten
+     * to account for the new location of each block.
+     */
+    public static void concatenate( final List<GATKPath> inputPaths, final GATKPath outputPath ) {
+        Utils.nonEmpty(inputPaths, "there must be at least one file to concatenate");
+        final String outputName = outputPath.toString();
+        final List<IndexEntry> indexEntries = new ArrayList<>();
+        final byte[] buffer = new byte[BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE];
+        SVFeaturesHeader firstHeader = null;
+        long outputPosition = 0L; // byte offset in the output of the next block we'll write
+        try ( final OutputStream os = outputPath.getOutputStream() ) {
+            for ( final GATKPath inputPath : inputPaths ) {
+                final String path = inputPath.toString();
+                try ( final SeekableStream ss = SeekableStreamFactory.getInstance().getStreamFor(path) ) {
+                    final long indexFilePointer = readIndexFilePointer(ss, path);
+                    final BlockCompressedInputStream bcis =
+                            new BlockCompressedInputStream(new SeekableBufferedStream(ss));
+                    final DataInputStream dis = new DataInputStream(bcis);
+                    final SVFeaturesHeader header = readHeader(dis, path);
+                    final long dataFilePointer = bcis.getPosition();
+                    if ( firstHeader == null ) {
+                        firstHeader = header;
+                    } else {
+                        checkHeadersMatch(firstHeader, header, path);
+                    }
+
+                    // the writer completes a block after the header and before the index, so the data
+                    //   is a contiguous run of whole blocks that we can transplant into the output
+                    final long dataStart = getBlockAlignedAddress(dataFilePointer, path);
+                    final long dataEnd = getBlockAlignedAddress(indexFilePointer, path);
+                    if ( outputPosition == 0L ) {
+                        // first file: copy the header blocks, too
+                        ss.seek(0L);
+                        copyBytes(ss, os, dataStart, buffer, path);
+                        outputPosition = dataStart;
+                    }
+
+                    bcis.seek(indexFilePointer);
+                    final long blockShift = outputPosition - dataStart;
+                    int nEntries = dis.readInt();
+                    while ( nEntries-- > 0 ) {
+                        final IndexEntry entry = new IndexEntry(dis);
+                        final long filePosition = BlockCompressedFilePointerUtil.makeFilePointer(
+                                BlockCompressedFilePointerUtil.getBlockAddress(entry.getFilePosition()) + blockShift,
+                                BlockCompressedFilePointerUtil.getBlockOffset(entry.getFilePosition()));
+                        indexEntries.add(new IndexEntry(entry.getInterval(), filePosition));
+                    }
+
+                    ss.seek(dataStart);
+                    copyBytes(ss, os, dataEnd - dataStart, buffer, path);
+                    outputPosition += dataEnd - dataStart;
+                }
+            }
+
+            // write the merged index in its own block(s), then the terminator that points to it
+            final BlockCompressedOutputStream bcos = new BlockCompressedOutputStream(os, (Path)null);
+            final DataOutputStream dos = new DataOutputStream(bcos);
+            dos.writeInt(indexEntries.size());
+            for ( final IndexEntry indexEntry : indexEntries ) {
+                indexEntry.write(dos);
+            }
+            dos.flush();
+            writeIndexPointerBlock(os, BlockCompressedFilePointerUtil.makeFilePointer(outputPosition, 0));
+            bcos.close(false);
+        } catch ( final IOException ioe ) {
+            throw new UserException("unable to concatenate block-compressed interval files into " + outputName, ioe);
+        }
+    }
+
+    private static long getBlockAlignedAddress( final long filePointer, final String path ) {
+        if ( BlockCompressedFilePointerUtil.getBlockOffset(filePointer) != 0 ) {
+            throw new GATKException("expected a block boundary at virtual file offset " + filePointer +
+                    " in " + path);
+        }
+        return BlockCompressedFilePointerUtil.getBlockAddress(filePointer);
+    }
+
+    private static void copyBytes( final SeekableStream ss,
+                                   final OutputStream os,
+                                   long nBytes,
+                                   final byte[] buffer,
+                                   final String path ) throws IOException {
+        while ( nBytes > 0 ) {
+            final int nRead = ss.read(buffer, 0, (int)Math.min(buffer.length, nBytes));
+            if ( nRead < 0 ) {
+                throw new UserException("unexpected end of file while copying " + path);
+            }
+            os.write(buffer, 0, nRead);
+            nBytes -= nRead;
+        }
+    }
+
+    private static void checkHeadersMatch( final SVFeaturesHeader header1,
+                                           final SVFeaturesHeader header2,
+                                           final String path ) {
+        if ( !header1.getClassName().equals(header2.getClassName()) ||
+                !header1.getVersion().equals(header2.getVersion()) ||
+                !header1.getSampleNames().equals(header2.getSampleNames()) ||
+                !header1.getDictionary().isSameDictionary(header2.getDictionary()) ) {
+            throw new UserException("can't concatenate " + path +
+                    " -- its header doesn't match that of the preceding files");
+        }
+    }
+
+    // write a 0-length terminator block that captures the (virtual) position of the index
+    private static void writeIndexPointerBlock( final OutputStream os, long indexPosition ) throws IOException {
+        final byte[] emptyBlockWithIndexPointer =
+                Arrays.copyOf(EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER,
+                        EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER.length);
+        for ( int idx = FILE_POINTER_OFFSET; idx != FILE_POINTER_OFFSET + 8; ++idx ) {
+            emptyBlockWithIndexPointer[idx] = (byte)indexPosition;
+            indexPosition >>>= 8;
+        }
+        os.write(emptyBlockWithIndexPointer);
+    }
+
+    private static long readIndexFilePointer( final SeekableStream ss, final String path ) {
+        final int finalBlockLen = EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER.length;
+        final byte[] finalBlock = new byte[finalBlockLen];
+        try {
+            ss.seek(ss.length() - finalBlockLen);
+            ss.readFully(finalBlock);
+            ss.seek(0);
+        } catch ( final IOException ioe ) {
+            throw new UserException("unable to read final bgzip block from " + path, ioe);
+        }
+        return parseIndexFilePointer(finalBlock, path);
+    }
+
+    private static long readIndexFilePointer( final MappedBlockCompressedInputStream.MappedFile mappedFile,
+                                              final String path ) {
+        final int finalBlockLen = EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER.length;
+        if ( mappedFile.getLength() < finalBlockLen ) {
+            throw new UserException("unable to read final bgzip block from " + path);
+        }
+        final byte[] finalBlock = new byte[finalBlockLen];
+        mappedFile.readFully(mappedFile.getLength() - finalBlockLen, finalBlock);
+        return parseIndexFilePointer(finalBlock, path);
+    }
+
+    private static long parseIndexFilePointer( final byte[] finalBlock, final String path ) {
+        final int finalBlockLen = finalBlock.length;
+        for ( int idx = 0; idx != FILE_POINTER_OFFSET; ++idx ) {
+            if ( EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER[idx] != finalBlock[idx] ) {
+                throw new UserException(
+                        "unable to recover index pointer from final block of " + path);
+            }
+        }
+        for ( int idx = FILE_POINTER_OFFSET + 8; idx != finalBlockLen; ++idx ) {
+            if ( EMPTY_GZIP_BLOCK_WITH_INDEX_POINTER[idx] != finalBlock[idx] ) {
+                throw new UserException(
+                        "unable to recover index pointer from final block of " + path);
+            }
+        }
+        long indexFilePointer = 0;
+        int idx = FILE_POINTER_OFFSET + 8;
+        while ( --idx >= FILE_POINTER_OFFSET ) {
+            indexFilePointer <<= 8;
+            indexFilePointer |= finalBlock[idx] & 0xFFL;
+        }
+        return indexFilePointer;
+    }
+
+    private static SVFeaturesHeader readHeader( final DataInputStream dis, final String path ) {
+        try {
+            final String className = dis.readUTF();
+            final String version = dis.readUTF();
+            final List<String> sampleNames = readSampleNames(dis);
+            final SAMSequenceDictionary dictionary = readDictionary(dis);
+            return new SVFeaturesHeader(className, version, dictionary, sampleNames);
+        } catch ( final IOException ioe ) {
+            throw new UserException("can't read header from " + path, ioe);
+        }
+    }
+
+    private static List<String> readSampleNames( final DataInputStream dis ) throws IOException {
+        final int nSamples = dis.readInt();
+        final List<String> sampleNames = new ArrayList<>(nSamples);
+        for ( int sampleId = 0; sampleId < nSamples; ++sampleId ) {
+            sampleNames.add(dis.readUTF());
+        }
+        return sampleNames;
+    }
+
+    private static SAMSequenceDictionary readDictionary( final DataInputStream dis ) throws IOException {
+        final int nRecs = dis.readInt();
+        final List<SAMSequenceRecord> seqRecs = new ArrayList<>(nRecs);
+        for ( int idx = 0; idx != nRecs; ++idx ) {
+            final int contigSize = dis.readInt();
+            final String contigName = dis.readUTF();
+            seqRecs.add(new SAMSequenceRecord(contigName, contigSize));
+        }
+        return new SAMSequenceDictionary(seqRecs);
+    }
+
+    // returns null if the input isn't a local file that we can map
+    private static Path getMappablePath( final FeatureInput<?> inputDescriptor ) {
+        try {
+            final Path path = inputDescriptor.toPath();
+            if ( path.getFileSystem() == FileSystems.getDefault() && Files.isRegularFile(path) ) {
+                return path;
+            }
+        } catch ( final RuntimeException re ) {
+            // not something that can be resolved to a local path -- we'll just read it as a stream
+        }
+        return null;
+    }
+
+    private static SeekableBlockInputStream openMappedStream(
+                                        final MappedBlockCompressedInputStream.MappedFile mappedFile,
+                                        final InflatedBlockCache blockCache,
+                                        final String path ) {
+        try {
+            return new MappedBlockCompressedInputStream(mappedFile, blockCache);
+        } catch ( final IOException ioe ) {
+            throw new UserException("unable to read " + path, ioe);
+        }
+    }
+
+    private static List<SVInterval> mergeIntervals( final List<? extends Locatable> intervals,
+                                                    final SAMSequenceDictionary dict ) {
+        final List<SVInterval> svIntervals = new ArrayList<>(intervals.size());
+        for ( final Locatable interval : intervals ) {
+            final int contigId = dict.getSequenceIndex(interval.getContig());
+            if ( contigId >= 0 ) {
+                svIntervals.add(new SVInterval(contigId, interval.getStart(), interval.getEnd()));
+            }
+        }
+        Collections.sort(svIntervals);
+        final List<SVInterval> mergedIntervals = new ArrayList<>(svIntervals.size());
+        SVInterval current = null;
+        for ( final SVInterval interval : svIntervals ) {
+            if ( current != null && current.getContig() == interval.getContig() &&
+                    interval.getStart() <= current.getEnd() ) {
+                current = new SVInterval(current.getContig(), current.getStart(),
+                                        Math.max(current.getEnd(), interval.getEnd()));
+            } else {
+                if ( current != null ) {
+                    mergedIntervals.add(current);
+                }
+                current = interval;
+            }
+        }
+        if ( current != null ) {
+            mergedIntervals.add(current);
+        }
+        return mergedIntervals;
+    }
+
     public static boolean isNewBlock( final long filePosition1, final long filePosition2 ) {
         // upper 48 bits contain the block offset
         // check to see if there are any bit differences in those upper 48 bits
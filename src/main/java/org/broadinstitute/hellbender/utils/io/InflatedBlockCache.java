@@ -0,0 +1,75 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A thread-safe, least-recently-used cache of inflated (decompressed) bgzip blocks.
+ * Blocks are keyed by an identifier for the file they came from and by the block's address within that file.
+ * The cache is bounded by the total number of bytes of inflated data it holds, and may be shared by any
+ * number of readers of any number of files.
+ */
+public final class InflatedBlockCache {
+    public static final long DEFAULT_CAPACITY_BYTES = 256L * 1024L * 1024L;
+
+    // rough per-entry cost of the key, the block wrapper, and the map's linkage
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final long capacityBytes;
+    private final LinkedHashMap<BlockKey, InflatedBlock> blocks;
+    private long sizeBytes;
+    private long nHits;
+    private long nMisses;
+
+    public record BlockKey( String fileId, long blockAddress ) {}
+
+    /** The inflated contents of a block, and the size of the compressed block on disk. */
+    public record InflatedBlock( byte[] data, int compressedSize ) {}
+
+    public InflatedBlockCache( final long capacityBytes ) {
+        Utils.validateArg(capacityBytes > 0, "cache capacity must be positive");
+        this.capacityBytes = capacityBytes;
+        this.blocks = new LinkedHashMap<>(1024, .75f, true);
+    }
+
+    public synchronized InflatedBlock get( final String fileId, final long blockAddress ) {
+        final InflatedBlock block = blocks.get(new BlockKey(fileId, blockAddress));
+        if ( block == null ) {
+            nMisses += 1;
+        } else {
+            nHits += 1;
+        }
+        return block;
+    }
+
+    public synchronized void put( final String fileId, final long blockAddress, final InflatedBlock block ) {
+        final InflatedBlock oldBlock = blocks.put(new BlockKey(fileId, blockAddress), block);
+        if ( oldBlock != null ) {
+            sizeBytes -= entrySize(oldBlock);
+        }
+        sizeBytes += entrySize(block);
+        final Iterator<Map.Entry<BlockKey, InflatedBlock>> itr = blocks.entrySet().iterator();
+        while ( sizeBytes > capacityBytes && itr.hasNext() ) {
+            sizeBytes -= entrySize(itr.next().getValue());
+            itr.remove();
+        }
+    }
+
+    public synchronized void clear() {
+        blocks.clear();
+        sizeBytes = 0;
+    }
+
+    public long getCapacityBytes() { return capacityBytes; }
+    public synchronized long getSizeBytes() { return sizeBytes; }
+    public synchronized int getNBlocks() { return blocks.size(); }
+    public synchronized long getNHits() { return nHits; }
+    public synchronized long getNMisses() { return nMisses; }
+
+    private static long entrySize( final InflatedBlock block ) {
+        return block.data().length + ENTRY_OVERHEAD_BYTES;
+    }
+}
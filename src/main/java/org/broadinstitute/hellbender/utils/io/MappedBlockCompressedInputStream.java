@@ -0,0 +1,248 @@
+package org.broadinstitute.hellbender.utils.io;
+
+import htsjdk.samtools.util.BlockCompressedStreamConstants;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * A seekable stream of the decompressed contents of a memory-mapped, local, bgzip file.
+ * Positions are virtual file pointers, just as for htsjdk's BlockCompressedInputStream, which this class mimics.
+ * Inflated blocks are shared with all other streams through an {@link InflatedBlockCache}, so repeated queries
+ * over the same region of a file (from this stream, or from any other stream on the same file) inflate each block
+ * just once.
+ */
+public final class MappedBlockCompressedInputStream extends BlockCompressedIntervalStream.SeekableBlockInputStream {
+    private static final byte[] EMPTY_DATA = new byte[0];
+
+    private final MappedFile file;
+    private final InflatedBlockCache cache;
+    private final Inflater inflater;
+    private long blockAddress;
+    private byte[] blockData;
+    private int compressedBlockSize;
+    private int offsetInBlock;
+    private boolean closed;
+
+    public MappedBlockCompressedInputStream( final MappedFile file, final InflatedBlockCache cache )
+            throws IOException {
+        this.file = Utils.nonNull(file);
+        this.cache = Utils.nonNull(cache);
+        this.inflater = new Inflater(true);
+        this.closed = false;
+        loadBlock(0L);
+    }
+
+    @Override
+    public int read() throws IOException {
+        if ( !ensureData() ) {
+            return -1;
+        }
+        return blockData[offsetInBlock++] & 0xFF;
+    }
+
+    @Override
+    public int read( final byte[] buffer, int offset, int length ) throws IOException {
+        if ( length == 0 ) {
+            return 0;
+        }
+        int nRead = 0;
+        while ( length > 0 && ensureData() ) {
+            final int nBytes = Math.min(length, blockData.length - offsetInBlock);
+            System.arraycopy(blockData, offsetInBlock, buffer, offset, nBytes);
+            offsetInBlock += nBytes;
+            offset += nBytes;
+            length -= nBytes;
+            nRead += nBytes;
+        }
+        return nRead == 0 ? -1 : nRead;
+    }
+
+    @Override
+    public int available() throws IOException {
+        if ( !ensureData() ) {
+            return 0;
+        }
+        return blockData.length - offsetInBlock;
+    }
+
+    /**
+     * Like BlockCompressedInputStream, returns a 0 position when closed, and returns the virtual file pointer
+     * of the next block when the current block has been exhausted.
+     */
+    @Override
+    public long getPosition() {
+        if ( closed ) {
+            return 0L;
+        }
+        if ( offsetInBlock == blockData.length && blockAddress < file.getLength() ) {
+            return (blockAddress + compressedBlockSize) << 16;
+        }
+        return (blockAddress << 16) | offsetInBlock;
+    }
+
+    @Override
+    public void seek( final long virtualFilePointer ) throws IOException {
+        if ( closed ) {
+            throw new IOException("stream is closed: " + file.getFileId());
+        }
+        final long address = virtualFilePointer >>> 16;
+        final int offset = (int)(virtualFilePointer & 0xFFFFL);
+        if ( address != blockAddress || blockData == null ) {
+            loadBlock(address);
+        }
+        if ( offset > blockData.length ) {
+            throw new IOException("invalid virtual file pointer " + virtualFilePointer + " for " + file.getFileId());
+        }
+        offsetInBlock = offset;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        blockData = null;
+        inflater.end();
+    }
+
+    // make sure there's data available in the current block, moving on to subsequent blocks as necessary
+    private boolean ensureData() throws IOException {
+        if ( closed ) {
+            throw new IOException("stream is closed: " + file.getFileId());
+        }
+        while ( offsetInBlock == blockData.length ) {
+            final long nextAddress = blockAddress + compressedBlockSize;
+            if ( nextAddress >= file.getLength() ) {
+                return false;
+            }
+            loadBlock(nextAddress);
+        }
+        return true;
+    }
+
+    private void loadBlock( final long address ) throws IOException {
+        blockAddress = address;
+        offsetInBlock = 0;
+        if ( address >= file.getLength() ) {
+            blockData = EMPTY_DATA;
+            compressedBlockSize = 0;
+            return;
+        }
+        InflatedBlockCache.InflatedBlock block = cache.get(file.getFileId(), address);
+        if ( block == null ) {
+            block = inflateBlock(address);
+            cache.put(file.getFileId(), address, block);
+        }
+        blockData = block.data();
+        compressedBlockSize = block.compressedSize();
+    }
+
+    private InflatedBlockCache.InflatedBlock inflateBlock( final long address ) throws IOException {
+        final ByteBuffer buf = file.getBlockBuffer(address);
+        final int available = buf.remaining();
+        if ( available < BlockCompressedStreamConstants.BLOCK_HEADER_LENGTH ||
+                (buf.get(0) & 0xFF) != BlockCompressedStreamConstants.GZIP_ID1 ||
+                (buf.get(1) & 0xFF) != BlockCompressedStreamConstants.GZIP_ID2 ||
+                (buf.get(3) & BlockCompressedStreamConstants.GZIP_FLG) == 0 ) {
+            throw new IOException("invalid bgzip block header at " + address + " in " + file.getFileId());
+        }
+
+        // look through the gzip "extra" subfields for the one that gives us the block size
+        final int extraLength = buf.getShort(10) & 0xFFFF;
+        final int extraEnd = 12 + extraLength;
+        int blockSize = -1;
+        int subfieldOffset = 12;
+        while ( subfieldOffset + 4 <= extraEnd && extraEnd <= available ) {
+            final int subfieldLength = buf.getShort(subfieldOffset + 2) & 0xFFFF;
+            if ( buf.get(subfieldOffset) == BlockCompressedStreamConstants.BGZF_ID1 &&
+                    buf.get(subfieldOffset + 1) == BlockCompressedStreamConstants.BGZF_ID2 &&
+                    subfieldLength == BlockCompressedStreamConstants.BGZF_LEN ) {
+                blockSize = (buf.getShort(subfieldOffset + 4) & 0xFFFF) + 1;
+                break;
+            }
+            subfieldOffset += 4 + subfieldLength;
+        }
+        if ( blockSize < extraEnd + BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH || blockSize > available ) {
+            throw new IOException("invalid bgzip block size at " + address + " in " + file.getFileId());
+        }
+
+        final int uncompressedSize = buf.getInt(blockSize - 4);
+        final byte[] data = uncompressedSize == 0 ? EMPTY_DATA : new byte[uncompressedSize];
+        if ( uncompressedSize > 0 ) {
+            final int compressedDataLength = blockSize - extraEnd - BlockCompressedStreamConstants.BLOCK_FOOTER_LENGTH;
+            inflater.reset();
+            inflater.setInput(buf.slice(extraEnd, compressedDataLength));
+            try {
+                if ( inflater.inflate(data) != uncompressedSize ) {
+                    throw new IOException("truncated bgzip block at " + address + " in " + file.getFileId());
+                }
+            } catch ( final DataFormatException dfe ) {
+                throw new IOException("corrupt bgzip block at " + address + " in " + file.getFileId(), dfe);
+            }
+        }
+        return new InflatedBlockCache.InflatedBlock(data, blockSize);
+    }
+
+    /**
+     * A read-only mapping of a local file.  Files larger than 2GB are mapped in overlapping chunks, arranged so
+     * that every bgzip block lies entirely within a single chunk.  A MappedFile is immutable after construction,
+     * and may be shared among any number of streams (and threads).
+     */
+    public static final class MappedFile {
+        private static final long CHUNK_SIZE = 1L << 30;
+
+        private final String fileId;
+        private final long length;
+        private final MappedByteBuffer[] chunks;
+
+        public MappedFile( final Path path ) throws IOException {
+            this.fileId = makeFileId(path);
+            try ( final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ) ) {
+                this.length = channel.size();
+                final int nChunks = (int)Math.max(1L, (length + CHUNK_SIZE - 1) / CHUNK_SIZE);
+                this.chunks = new MappedByteBuffer[nChunks];
+                for ( int idx = 0; idx != nChunks; ++idx ) {
+                    final long start = idx * CHUNK_SIZE;
+                    final long size = Math.min(length - start,
+                                            CHUNK_SIZE + BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE);
+                    chunks[idx] = channel.map(FileChannel.MapMode.READ_ONLY, start, size);
+                }
+            }
+        }
+
+        /** Identifies the file's contents:  cached blocks from a file that has since been rewritten won't be used. */
+        public String getFileId() { return fileId; }
+
+        public long getLength() { return length; }
+
+        /**
+         * Returns a little-endian buffer positioned at 0 that begins at the specified file address and holds
+         * (at most) the maximum size of a bgzip block.
+         */
+        public ByteBuffer getBlockBuffer( final long address ) {
+            final int chunkIdx = (int)(address / CHUNK_SIZE);
+            final ByteBuffer chunk = chunks[chunkIdx];
+            final int offset = (int)(address - chunkIdx * CHUNK_SIZE);
+            final int size = Math.min(chunk.limit() - offset, BlockCompressedStreamConstants.MAX_COMPRESSED_BLOCK_SIZE);
+            return chunk.slice(offset, size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        public void readFully( final long address, final byte[] dest ) {
+            Utils.validateArg(address >= 0 && address + dest.length <= length, "read extends beyond end of file");
+            getBlockBuffer(address).get(0, dest);
+        }
+
+        private static String makeFileId( final Path path ) throws IOException {
+            return path.toAbsolutePath().normalize() + ":" + Files.size(path) + ":" +
+                    Files.getLastModifiedTime(path).toMillis();
+        }
+    }
+}
@@ -17,6 +17,22 @@ import java.util.Objects;
  */
 public abstract class ReadsKey {
 
+    /**
+     * @return whether this is a key for a pair (as opposed to a key for a fragment or a passthrough read).
+     */
+    public abstract boolean isPairKey();
+
+    /**
+     * @return the first long encoding this key.  Two keys are equal if and only if they have the same {@link #isPairKey()},
+     *         {@link #getFirstKeyValue()} and {@link #getSecondKeyValue()}, so keys can be stored in primitive arrays.
+     */
+    public abstract long getFirstKeyValue();
+
+    /**
+     * @return the second long encoding this key (0 for keys that are not pair keys).
+     */
+    public abstract long getSecondKeyValue();
+
     /**
      * Makes a unique key for the read.
      */
@@ -61,6 +77,21 @@ public abstract class ReadsKey {
             this.keyValue = key;
         }
 
+        @Override
+        public boolean isPairKey() {
+            return false;
+        }
+
+        @Override
+        public long getFirstKeyValue() {
+            return keyValue;
+        }
+
+        @Override
+        public long getSecondKeyValue() {
+            return 0;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -96,6 +127,21 @@ public abstract class ReadsKey {
             this.secondReadKeyValue = secondReadKeyValue;
         }
 
+        @Override
+        public boolean isPairKey() {
+            return true;
+        }
+
+        @Override
+        public long getFirstKeyValue() {
+            return firstReadKeyValue;
+        }
+
+        @Override
+        public long getSecondKeyValue() {
+            return secondReadKeyValue;
+        }
+
         @Override
         public boolean equals(Object o) {
             if (this == o) return true;
@@ -36,6 +36,12 @@ public final class EmptyFragment extends PairedEnds {
                 headerLibraryMap.get(MarkDuplicatesSparkUtils.getLibraryForRead(read, header, LibraryIdGenerator.UNKNOWN_LIBRARY)));
     }
 
+    // Constructor for MarkDuplicatesSparkRecordCodec
+    EmptyFragment(final boolean R1R) {
+        super(0, null);
+        this.R1R = R1R;
+    }
+
     @Override
     public Type getType() {
         return Type.EMPTY_FRAGMENT;
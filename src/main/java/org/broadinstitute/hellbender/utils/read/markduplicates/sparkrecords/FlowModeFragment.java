@@ -49,6 +49,15 @@ public class FlowModeFragment extends TransientFieldPhysicalLocation {
                 : -1;
     }
 
+    // Constructor for MarkDuplicatesSparkRecordCodec
+    FlowModeFragment(final int partitionIndex, final String name, final short readGroupIndex, final short score, final boolean R1R, final int end) {
+        super(partitionIndex, name);
+        this.readGroupIndex = readGroupIndex;
+        this.score = score;
+        this.R1R = R1R;
+        this.end = end;
+    }
+
     // compute fragment score using a flow-based specific method - cache in transient attribute
     private short computeFlowDuplicateScore(GATKRead rec, int start, int end) {
 
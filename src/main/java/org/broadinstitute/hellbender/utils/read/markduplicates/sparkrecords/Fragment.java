@@ -37,6 +37,14 @@ public class Fragment extends TransientFieldPhysicalLocation {
                 headerLibraryMap.get(MarkDuplicatesSparkUtils.getLibraryForRead(first, header, LibraryIdGenerator.UNKNOWN_LIBRARY)));
     }
 
+    // Constructor for MarkDuplicatesSparkRecordCodec
+    Fragment(final int partitionIndex, final String name, final short readGroupIndex, final short score, final boolean R1R) {
+        super(partitionIndex, name);
+        this.readGroupIndex = readGroupIndex;
+        this.score = score;
+        this.R1R = R1R;
+    }
+
     @Override
     public Type getType() {
       return Type.FRAGMENT;
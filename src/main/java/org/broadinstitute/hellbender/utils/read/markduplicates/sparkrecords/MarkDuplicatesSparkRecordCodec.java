@@ -0,0 +1,167 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords;
+
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Compact binary encoding of {@link MarkDuplicatesSparkRecord}s and of their {@link ReadsKey}s, used by MarkDuplicatesSpark
+ * to shuffle plain byte arrays instead of Kryo-serialized object graphs.
+ *
+ * <p>Keys are encoded in {@link #KEY_LENGTH} bytes: a byte telling pair keys from fragment keys, followed by the two longs
+ * of the key (which pack the library index, reference index, stranded unclipped 5' position and orientation of each end)
+ * in big-endian order.  Two keys are equal if and only if their encodings are, so encoded keys can be grouped by sorting
+ * them with {@link #compareKeys}.</p>
+ *
+ * <p>Records are encoded as a type byte, the fixed-width fields of the record (partition index, read group index, score
+ * and strand flags) and, last, the read name, whose length is implied by the length of the array.  As with Kryo
+ * serialization, the transient fields of the records (their key and their optical duplicate location) are not encoded.</p>
+ */
+public final class MarkDuplicatesSparkRecordCodec {
+
+    /**
+     * Length of the encoding of a key.
+     */
+    public static final int KEY_LENGTH = 1 + 2 * Long.BYTES;
+
+    private static final byte FRAGMENT = 0;
+    private static final byte FLOW_MODE_FRAGMENT = 1;
+    private static final byte PAIR = 2;
+    private static final byte EMPTY_FRAGMENT = 3;
+    private static final byte PASSTHROUGH = 4;
+
+    private static final int READ1_REVERSE_STRAND_FLAG = 1;
+    private static final int READ2_REVERSE_STRAND_FLAG = 2;
+    private static final int WAS_FLIPPED_FLAG = 4;
+
+    private MarkDuplicatesSparkRecordCodec() {}
+
+    /**
+     * @return the encoding of {@code key}, of length {@link #KEY_LENGTH}.
+     */
+    public static byte[] encodeKey(final ReadsKey key) {
+        Utils.nonNull(key);
+        final byte[] bytes = new byte[KEY_LENGTH];
+        ByteBuffer.wrap(bytes)
+                .put((byte) (key.isPairKey() ? 1 : 0))
+                .putLong(key.getFirstKeyValue())
+                .putLong(key.getSecondKeyValue());
+        return bytes;
+    }
+
+    /**
+     * Compares encoded keys lexicographically as unsigned bytes.
+     */
+    public static int compareKeys(final byte[] key1, final byte[] key2) {
+        return Arrays.compareUnsigned(key1, key2);
+    }
+
+    /**
+     * @return a hash of an encoded key, consistent with {@link #compareKeys}.
+     */
+    public static int hashKey(final byte[] key) {
+        final ByteBuffer buffer = ByteBuffer.wrap(key);
+        final long hash = buffer.get(0) * 0x9E3779B97F4A7C15L + buffer.getLong(1) * 31 + buffer.getLong(1 + Long.BYTES);
+        return (int) (hash ^ (hash >>> 32));
+    }
+
+    /**
+     * @return the encoding of {@code record}.
+     */
+    public static byte[] encode(final MarkDuplicatesSparkRecord record) {
+        Utils.nonNull(record);
+        switch (record.getType()) {
+            case FRAGMENT: {
+                final TransientFieldPhysicalLocation fragment = (TransientFieldPhysicalLocation) record;
+                final boolean flowMode = fragment instanceof FlowModeFragment;
+                final byte[] name = fragment.getName().getBytes(StandardCharsets.UTF_8);
+                final ByteBuffer buffer = ByteBuffer.allocate(1 + Integer.BYTES + 2 * Short.BYTES + 1 + (flowMode ? Integer.BYTES : 0) + name.length)
+                        .put(flowMode ? FLOW_MODE_FRAGMENT : FRAGMENT)
+                        .putInt(fragment.getPartitionIndex())
+                        .putShort(fragment.getReadGroup())
+                        .putShort(fragment.getScore())
+                        .put((byte) (fragment.isRead1ReverseStrand() ? READ1_REVERSE_STRAND_FLAG : 0));
+                if (flowMode) {
+                    buffer.putInt(((FlowModeFragment) fragment).getEnd());
+                }
+                return buffer.put(name).array();
+            }
+            case PAIR: {
+                final Pair pair = (Pair) record;
+                final byte[] name = pair.getName().getBytes(StandardCharsets.UTF_8);
+                return ByteBuffer.allocate(1 + Integer.BYTES + 2 * Short.BYTES + 1 + name.length)
+                        .put(PAIR)
+                        .putInt(pair.getPartitionIndex())
+                        .putShort(pair.getReadGroup())
+                        .putShort(pair.getScore())
+                        .put((byte) ((pair.isRead1ReverseStrand() ? READ1_REVERSE_STRAND_FLAG : 0) |
+                                (pair.isRead2ReverseStrand() ? READ2_REVERSE_STRAND_FLAG : 0) |
+                                (pair.wasFlipped() ? WAS_FLIPPED_FLAG : 0)))
+                        .put(name)
+                        .array();
+            }
+            case EMPTY_FRAGMENT:
+                return new byte[] {EMPTY_FRAGMENT, (byte) (((EmptyFragment) record).isRead1ReverseStrand() ? READ1_REVERSE_STRAND_FLAG : 0)};
+            case PASSTHROUGH: {
+                final byte[] name = record.getName().getBytes(StandardCharsets.UTF_8);
+                return ByteBuffer.allocate(1 + Integer.BYTES + name.length)
+                        .put(PASSTHROUGH)
+                        .putInt(record.getPartitionIndex())
+                        .put(name)
+                        .array();
+            }
+            default:
+                throw new GATKException.ShouldNeverReachHereException("Unexpected record type " + record.getType());
+        }
+    }
+
+    /**
+     * @return the record encoded in {@code bytes} by {@link #encode}, without its key.
+     */
+    public static MarkDuplicatesSparkRecord decode(final byte[] bytes) {
+        Utils.nonNull(bytes);
+        final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        final byte type = buffer.get();
+        switch (type) {
+            case FRAGMENT:
+            case FLOW_MODE_FRAGMENT: {
+                final int partitionIndex = buffer.getInt();
+                final short readGroupIndex = buffer.getShort();
+                final short score = buffer.getShort();
+                final boolean read1ReverseStrand = (buffer.get() & READ1_REVERSE_STRAND_FLAG) != 0;
+                if (type == FRAGMENT) {
+                    return new Fragment(partitionIndex, readName(buffer), readGroupIndex, score, read1ReverseStrand);
+                }
+                final int end = buffer.getInt();
+                return new FlowModeFragment(partitionIndex, readName(buffer), readGroupIndex, score, read1ReverseStrand, end);
+            }
+            case PAIR: {
+                final int partitionIndex = buffer.getInt();
+                final short readGroupIndex = buffer.getShort();
+                final short score = buffer.getShort();
+                final byte flags = buffer.get();
+                return new Pair(partitionIndex, readName(buffer), readGroupIndex, score,
+                        (flags & READ1_REVERSE_STRAND_FLAG) != 0,
+                        (flags & READ2_REVERSE_STRAND_FLAG) != 0,
+                        (flags & WAS_FLIPPED_FLAG) != 0);
+            }
+            case EMPTY_FRAGMENT:
+                return new EmptyFragment((buffer.get() & READ1_REVERSE_STRAND_FLAG) != 0);
+            case PASSTHROUGH: {
+                final int partitionIndex = buffer.getInt();
+                return new Passthrough(partitionIndex, readName(buffer));
+            }
+            default:
+                throw new GATKException("Invalid encoded MarkDuplicatesSparkRecord type " + type);
+        }
+    }
+
+    // the read name takes the remainder of the buffer
+    private static String readName(final ByteBuffer buffer) {
+        return new String(buffer.array(), buffer.position(), buffer.remaining(), StandardCharsets.UTF_8);
+    }
+}
@@ -82,6 +82,17 @@ public final class Pair extends TransientFieldPhysicalLocation {
         this.key = ReadsKey.getKeyForPair(header, first, second, headerLibraryMap);
     }
 
+    // Constructor for MarkDuplicatesSparkRecordCodec
+    Pair(final int partitionIndex, final String name, final short readGroupIndex, final short score,
+         final boolean isRead1ReverseStrand, final boolean isRead2ReverseStrand, final boolean wasFlipped) {
+        super(partitionIndex, name);
+        this.readGroupIndex = readGroupIndex;
+        this.score = score;
+        this.isRead1ReverseStrand = isRead1ReverseStrand;
+        this.isRead2ReverseStrand = isRead2ReverseStrand;
+        this.wasFlipped = wasFlipped;
+    }
+
     // Constructor for serialization purposes
     private Pair(Kryo kryo, Input input){
         super(input.readInt(true), input.readString());
@@ -134,6 +145,15 @@ public final class Pair extends TransientFieldPhysicalLocation {
     public boolean isRead1ReverseStrand() {
         return isRead1ReverseStrand;
     }
+
+    boolean isRead2ReverseStrand() {
+        return isRead2ReverseStrand;
+    }
+
+    boolean wasFlipped() {
+        return wasFlipped;
+    }
+
     @Override
     public String toString() {
         return name + " score:" + score;
@@ -26,7 +26,7 @@ import java.util.*;
  *     http://genome.ucsc.edu/FAQ/FAQformat.html#format7
  *
  * Note that this class stores the entire .2bit reference in memory (in packed form) to facilitate
- * Spark broadcasts.
+ * Spark broadcasts, or accesses it through a buffer supplied by the caller, such as a memory-mapped file.
  *
  * Supported public operations are:
  * {@link #getSequenceDictionary}
@@ -56,7 +56,7 @@ public class TwoBitReference implements Serializable, AutoCloseable {
     // If true, preserve lowercase (masked) bases, otherwise uppercase all bases
     private final boolean preserveCase;
 
-    // The complete in-memory contents of the 2bit file. Initialized as read-only in the constructor
+    // The complete in-memory (or memory-mapped) contents of the 2bit file. Initialized as read-only in the constructor
     private final ByteBuffer rawBytes;
 
     // Byte order to use, as defined in the 2bit header
@@ -86,6 +86,38 @@ public class TwoBitReference implements Serializable, AutoCloseable {
      * @param preserveCase if true, preserve lowercase (masked) bases, otherwise uppercase all bases
      */
     public TwoBitReference( final GATKPath referencePath, final boolean preserveCase ) {
+        this(referencePath, loadRawBytes(referencePath), preserveCase);
+    }
+
+    /**
+     * Creates a TwoBitReference over contents of a 2bit file that have already been loaded or mapped into memory,
+     * such as a {@link java.nio.MappedByteBuffer} over a node-local copy of the file. The buffer is shared, not copied.
+     *
+     * @param referencePath path to the 2bit reference, used in error messages
+     * @param contents the complete contents of the 2bit file, from position 0 to the capacity of the buffer
+     * @param preserveCase if true, preserve lowercase (masked) bases, otherwise uppercase all bases
+     */
+    public TwoBitReference( final GATKPath referencePath, final ByteBuffer contents, final boolean preserveCase ) {
+        Utils.nonNull(referencePath);
+        Utils.nonNull(contents);
+        this.referencePath = referencePath;
+        this.preserveCase = preserveCase;
+        this.rawBytes = contents.asReadOnlyBuffer();
+        rawBytes.clear();
+
+        sequenceRecords = new LinkedHashMap<>();
+
+        readHeader();
+        readSequenceRecordIndexAndMetadata();
+
+        sequenceDictionary = new SAMSequenceDictionary();
+        for ( final TwoBitSequenceRecord twoBitSequenceRecord : sequenceRecords.values() ) {
+            sequenceDictionary.addSequence(new SAMSequenceRecord(twoBitSequenceRecord.getSequenceName(), twoBitSequenceRecord.getDNASize()));
+        }
+    }
+
+    // Loads the raw contents of the 2bit file into a read-only in-memory ByteBuffer
+    private static ByteBuffer loadRawBytes( final GATKPath referencePath ) {
         Utils.nonNull(referencePath);
         Utils.validateArg(referencePath.getURI().getPath().endsWith(TWO_BIT_EXTENSION), "Twobit reference must end with a " + TWO_BIT_EXTENSION + " extension");
 
@@ -104,25 +136,11 @@ public class TwoBitReference implements Serializable, AutoCloseable {
             throw new UserException.CouldNotReadInputFile(referencePath, "Error while checking the size of the 2bit reference file", e);
         }
 
-        this.referencePath = referencePath;
-        this.preserveCase = preserveCase;
-
         try {
-            // Load the raw contents of the 2bit file into a read-only in-memory ByteBuffer
-            rawBytes = ByteBuffer.wrap(ByteStreams.toByteArray(referencePath.getInputStream())).asReadOnlyBuffer();
+            return ByteBuffer.wrap(ByteStreams.toByteArray(referencePath.getInputStream())).asReadOnlyBuffer();
         } catch ( IOException e ) {
             throw new UserException.CouldNotReadInputFile(referencePath, "Unable to load bytes from 2bit input file", e);
         }
-
-        sequenceRecords = new LinkedHashMap<>();
-
-        readHeader();
-        readSequenceRecordIndexAndMetadata();
-
-        sequenceDictionary = new SAMSequenceDictionary();
-        for ( final TwoBitSequenceRecord twoBitSequenceRecord : sequenceRecords.values() ) {
-            sequenceDictionary.addSequence(new SAMSequenceRecord(twoBitSequenceRecord.getSequenceName(), twoBitSequenceRecord.getDNASize()));
-        }
     }
 
     /**
@@ -47,8 +47,8 @@ public interface SmithWatermanAligner extends Closeable {
                 logger.info("Using AVX accelerated SmithWaterman implementation");
                 return aligner;
             } catch (UserException.HardwareFeatureException exception) {
-                logger.info("AVX accelerated SmithWaterman implementation is not supported, falling back to the Java implementation");
-                return SmithWatermanJavaAligner.getInstance();
+                logger.info("AVX accelerated SmithWaterman implementation is not supported, falling back to the buffered Java implementation");
+                return SmithWatermanBufferedJavaAligner.getInstance();
             }
         }),
 
@@ -65,7 +65,13 @@ public interface SmithWatermanAligner extends Closeable {
         /**
          * use the pure java implementation of Smith-Waterman, works on all hardware
          */
-        JAVA(SmithWatermanJavaAligner::getInstance);
+        JAVA(SmithWatermanJavaAligner::getInstance),
+
+        /**
+         * use the pure java implementation of Smith-Waterman that reuses per-thread buffers instead of allocating the
+         * alignment matrices for every alignment; produces the same alignments as {@link #JAVA}, works on all hardware
+         */
+        JAVA_BUFFERED(SmithWatermanBufferedJavaAligner::getInstance);
 
         private final Supplier<SmithWatermanAligner> alignerSupplier;
 
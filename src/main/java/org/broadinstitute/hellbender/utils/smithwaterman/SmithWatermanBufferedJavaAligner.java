@@ -0,0 +1,358 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import com.google.common.collect.Lists;
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanJavaAligner.State;
+import org.broadinstitute.hellbender.utils.smithwaterman.SmithWatermanJavaAligner.SWPairwiseAlignmentResult;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pairwise discrete smith-waterman alignment implemented in pure java, without allocating the alignment matrices on each call.
+ *
+ * This aligner produces exactly the same alignments as {@link SmithWatermanJavaAligner}, but:
+ * <ul>
+ *     <li>only keeps two rows of the score matrix, plus its last column and last row, which are all that the backtrack needs;</li>
+ *     <li>keeps the backtrack matrix in a single flat array;</li>
+ *     <li>reuses these arrays from one alignment to the next through per-thread scratch buffers, so that callers
+ *     performing many alignments (e.g. haplotype-to-reference and read-to-haplotype realignments) do not create garbage
+ *     proportional to the product of the sequence lengths on every call.</li>
+ * </ul>
+ *
+ * Scratch buffers larger than {@link #MAX_RETAINED_MATRIX_CELLS} cells are allocated for a single alignment and not retained.
+ *
+ * ************************************************************************
+ * ****                    IMPORTANT NOTE:                             ****
+ * ****  This class assumes that all bytes come from UPPERCASED chars! ****
+ * ************************************************************************
+ */
+public final class SmithWatermanBufferedJavaAligner implements SmithWatermanAligner {
+    private static final SmithWatermanBufferedJavaAligner ALIGNER = new SmithWatermanBufferedJavaAligner();
+
+    /**
+     * Largest backtrack matrix (in cells) kept in the scratch buffers of each thread.
+     */
+    static final int MAX_RETAINED_MATRIX_CELLS = 1 << 22;
+
+    private static final int MATRIX_MIN_CUTOFF = (int) -1.0e8;   // never let matrix elements drop below this cutoff
+    private static final int LOW_INIT_VALUE = Integer.MIN_VALUE / 2;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final AtomicLong totalComputeTime = new AtomicLong();
+
+    /**
+     * return the singleton instance of SmithWatermanBufferedJavaAligner; its scratch buffers are per thread, so it may be
+     * shared by multiple threads
+     */
+    public static SmithWatermanBufferedJavaAligner getInstance() {
+        return ALIGNER;
+    }
+
+    private SmithWatermanBufferedJavaAligner(){}
+
+    /**
+     * Aligns the alternate sequence to the reference sequence
+     *
+     * @param reference  ref sequence
+     * @param alternate  alt sequence
+     */
+    @Override
+    public SmithWatermanAlignment align(final byte[] reference, final byte[] alternate, final SWParameters parameters, final SWOverhangStrategy overhangStrategy) {
+        final long startTime = System.nanoTime();
+
+        if ( reference == null || reference.length == 0 || alternate == null || alternate.length == 0 ) {
+            throw new IllegalArgumentException("Non-null, non-empty sequences are required for the Smith-Waterman calculation");
+        }
+        Utils.nonNull(parameters);
+        Utils.nonNull(overhangStrategy);
+
+        // avoid running full Smith-Waterman if there is an exact match of alternate in reference
+        int matchIndex = -1;
+        if (overhangStrategy == SWOverhangStrategy.SOFTCLIP || overhangStrategy == SWOverhangStrategy.IGNORE) {
+            matchIndex = Utils.lastIndexOf(reference, alternate);
+        }
+
+        final SmithWatermanAlignment alignmentResult;
+        if (matchIndex != -1) {
+            alignmentResult = new SWPairwiseAlignmentResult(new Cigar(Collections.singletonList(new CigarElement(alternate.length, CigarOperator.M))), matchIndex);
+        } else {
+            final Scratch scratch = SCRATCH.get();
+            scratch.prepare(reference.length + 1, alternate.length + 1);
+            calculateMatrix(reference, alternate, scratch, overhangStrategy, parameters);
+            alignmentResult = calculateCigar(scratch, overhangStrategy);
+        }
+
+        totalComputeTime.addAndGet(System.nanoTime() - startTime);
+        return alignmentResult;
+    }
+
+    /**
+     * Per-thread buffers holding the part of the Smith-Waterman matrices needed to compute an alignment.
+     */
+    private static final class Scratch {
+        private int nrow;
+        private int ncol;
+
+        // backtrack matrix, with cell (i, j) at i * ncol + j
+        private int[] btrack = new int[0];
+        private int[] previousRow = new int[0];
+        private int[] currentRow = new int[0];
+        // last column of the score matrix; the last row is currentRow once the matrix has been computed
+        private int[] lastColumn = new int[0];
+        private int[] bestGapV = new int[0];
+        private int[] gapSizeV = new int[0];
+
+        private void prepare(final int nrow, final int ncol) {
+            this.nrow = nrow;
+            this.ncol = ncol;
+            final long cells = (long) nrow * ncol;
+            if (cells > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Sequences are too long for the Smith-Waterman calculation: " + (nrow - 1) + " x " + (ncol - 1));
+            }
+            if (btrack.length < cells) {
+                btrack = new int[(int) cells];
+            }
+            if (currentRow.length < ncol) {
+                previousRow = new int[ncol];
+                currentRow = new int[ncol];
+                bestGapV = new int[ncol];
+                gapSizeV = new int[ncol];
+            }
+            if (lastColumn.length < nrow) {
+                lastColumn = new int[nrow];
+            }
+        }
+
+        // drops the buffers that are too large to be kept around after an alignment
+        private void trim() {
+            if (btrack.length > MAX_RETAINED_MATRIX_CELLS) {
+                btrack = new int[0];
+            }
+        }
+    }
+
+    /**
+     * Calculates the SW matrices for the given sequences, as in {@link SmithWatermanJavaAligner}, keeping only the rows
+     * of the score matrix needed to compute the next one.
+     */
+    private static void calculateMatrix(final byte[] reference, final byte[] alternate, final Scratch scratch,
+                                        final SWOverhangStrategy overhangStrategy, final SWParameters parameters) {
+        final int nrow = scratch.nrow;
+        final int ncol = scratch.ncol;
+        final int[] btrack = scratch.btrack;
+        final int[] lastColumn = scratch.lastColumn;
+        final int[] best_gap_v = scratch.bestGapV;
+        final int[] gap_size_v = scratch.gapSizeV;
+        Arrays.fill(best_gap_v, 0, ncol, LOW_INIT_VALUE);
+        Arrays.fill(gap_size_v, 0, ncol, 0);
+
+        //access is pricey if done enough times so we extract those out
+        final int w_open = parameters.getGapOpenPenalty();
+        final int w_extend = parameters.getGapExtendPenalty();
+        final int w_match = parameters.getMatchValue();
+        final int w_mismatch = parameters.getMismatchPenalty();
+
+        // we need to initialize the SW matrix with gap penalties if we want to keep track of indels at the edges of alignments
+        final boolean penalizeEdges = overhangStrategy == SWOverhangStrategy.INDEL || overhangStrategy == SWOverhangStrategy.LEADING_INDEL;
+        int[] curRow = scratch.currentRow;
+        int[] lastRow = scratch.previousRow;
+        curRow[0] = 0;
+        if ( penalizeEdges ) {
+            int currentValue = w_open;
+            curRow[1] = currentValue;
+            for ( int j = 2; j < ncol; j++ ) {
+                currentValue += w_extend;
+                curRow[j] = currentValue;
+            }
+        } else {
+            Arrays.fill(curRow, 0, ncol, 0);
+        }
+        lastColumn[0] = curRow[ncol - 1];
+
+        int firstColumnValue = 0;
+        for ( int i = 1; i < nrow; i++ ) {
+            final byte a_base = reference[i-1]; // letter in a at the current pos
+            final int[] swap = lastRow;
+            lastRow = curRow;
+            curRow = swap;
+            if ( penalizeEdges ) {
+                firstColumnValue = i == 1 ? w_open : firstColumnValue + w_extend;
+            }
+            curRow[0] = firstColumnValue;
+            final int rowOffset = i * ncol;
+
+            // the best horizontal gap only depends on the current row, so unlike the vertical gaps it needs no array
+            int best_gap_h = LOW_INIT_VALUE;
+            int gap_size_h = 0;
+
+            for ( int j = 1; j < ncol; j++ ) {
+                final byte b_base = alternate[j-1]; // letter in b at the current pos
+                final int step_diag = lastRow[j-1] + (a_base == b_base ? w_match : w_mismatch);
+
+                // see SmithWatermanJavaAligner for the derivation of the gap updates, which only holds for
+                // linear w(k)=wopen+(k-1)*wextend
+                int prev_gap = lastRow[j] + w_open;
+                best_gap_v[j] += w_extend;
+                if ( prev_gap > best_gap_v[j] ) {
+                    best_gap_v[j] = prev_gap;
+                    gap_size_v[j] = 1;
+                } else {
+                    gap_size_v[j]++;
+                }
+
+                final int step_down = best_gap_v[j];
+                final int kd = gap_size_v[j];
+
+                prev_gap = curRow[j-1] + w_open;
+                best_gap_h += w_extend;
+                if ( prev_gap > best_gap_h ) {
+                    best_gap_h = prev_gap;
+                    gap_size_h = 1;
+                } else {
+                    gap_size_h++;
+                }
+
+                final int step_right = best_gap_h;
+                final int ki = gap_size_h;
+
+                //priority here will be step diagonal, step right, step down
+                if ( step_diag >= step_down && step_diag >= step_right ) {
+                    curRow[j] = Math.max(MATRIX_MIN_CUTOFF, step_diag);
+                    btrack[rowOffset + j] = 0;
+                } else if ( step_right >= step_down ) { //moving right is the highest
+                    curRow[j] = Math.max(MATRIX_MIN_CUTOFF, step_right);
+                    btrack[rowOffset + j] = -ki; // negative = horizontal
+                } else {
+                    curRow[j] = Math.max(MATRIX_MIN_CUTOFF, step_down);
+                    btrack[rowOffset + j] = kd; // positive=vertical
+                }
+            }
+            lastColumn[i] = curRow[ncol - 1];
+        }
+        // leave the last row of the score matrix in currentRow
+        scratch.currentRow = curRow;
+        scratch.previousRow = lastRow;
+    }
+
+    /**
+     * Calculates the CIGAR for the alignment from the back track matrix, as in {@link SmithWatermanJavaAligner}.
+     */
+    private static SWPairwiseAlignmentResult calculateCigar(final Scratch scratch, final SWOverhangStrategy overhangStrategy) {
+        // p holds the position we start backtracking from; we will be assembling a cigar in the backwards order
+        int p1 = 0, p2 = 0;
+
+        final int ncol = scratch.ncol;
+        final int refLength = scratch.nrow - 1;
+        final int altLength = ncol - 1;
+        final int[] lastColumn = scratch.lastColumn;
+        final int[] bottomRow = scratch.currentRow;
+        final int[] btrack = scratch.btrack;
+
+        int maxscore = Integer.MIN_VALUE; // sw scores are allowed to be negative
+        int segment_length = 0; // length of the segment (continuous matches, insertions or deletions)
+
+        // if we want to consider overhangs as legitimate operators, then just start from the corner of the matrix
+        if ( overhangStrategy == SWOverhangStrategy.INDEL ) {
+            p1 = refLength;
+            p2 = altLength;
+        } else {
+            // look for the largest score on the rightmost column. we use >= combined with the traversal direction
+            // to ensure that if two scores are equal, the one closer to diagonal gets picked
+            p2 = altLength;
+            for ( int i = 1; i <= refLength; i++ ) {
+                final int curScore = lastColumn[i];
+                if ( curScore >= maxscore ) {
+                    p1 = i;
+                    maxscore = curScore;
+                }
+            }
+            // now look for a larger score on the bottom-most row
+            if ( overhangStrategy != SWOverhangStrategy.LEADING_INDEL ) {
+                for ( int j = 1; j < ncol; j++ ) {
+                    final int curScore = bottomRow[j];
+                    if ( curScore > maxscore ||
+                            (curScore == maxscore && Math.abs(refLength - j) < Math.abs(p1 - p2)) ) {
+                        p1 = refLength;
+                        p2 = j;
+                        maxscore = curScore;
+                        segment_length = altLength - j; // end of sequence 2 is overhanging; we will just record it as 'M' segment
+                    }
+                }
+            }
+        }
+        final List<CigarElement> lce = new ArrayList<>(5);
+        if ( segment_length > 0 && overhangStrategy == SWOverhangStrategy.SOFTCLIP ) {
+            lce.add(SmithWatermanJavaAligner.makeElement(State.CLIP, segment_length));
+            segment_length = 0;
+        }
+
+        State state = State.MATCH;
+        do {
+            final int btr = btrack[p1 * ncol + p2];
+            final State new_state;
+            int step_length = 1;
+            if ( btr > 0 ) {
+                new_state = State.DELETION;
+                step_length = btr;
+            } else if ( btr < 0 ) {
+                new_state = State.INSERTION;
+                step_length = (-btr);
+            } else new_state = State.MATCH; // and step_length =1, already set above
+
+            // move to next best location in the sw matrix:
+            switch( new_state ) {
+                case MATCH:  p1--; p2--; break; // move back along the diag in the sw matrix
+                case INSERTION: p2 -= step_length; break; // move left
+                case DELETION:  p1 -= step_length; break; // move up
+            }
+
+            // now let's see if the state actually changed:
+            if ( new_state == state ) segment_length+=step_length;
+            else {
+                // state changed, lets emit previous segment, whatever it was (Insertion Deletion, or (Mis)Match).
+                if (segment_length > 0) {
+                    lce.add(SmithWatermanJavaAligner.makeElement(state, segment_length));
+                }
+                segment_length = step_length;
+                state = new_state;
+            }
+        } while ( p1 > 0 && p2 > 0 );
+        scratch.trim();
+
+        // see SmithWatermanJavaAligner for the treatment of overhangs at the beginning of the alignment
+        final int alignment_offset;
+        if ( overhangStrategy == SWOverhangStrategy.SOFTCLIP ) {
+            lce.add(SmithWatermanJavaAligner.makeElement(state, segment_length));
+            if ( p2 > 0 ) lce.add(SmithWatermanJavaAligner.makeElement(State.CLIP, p2));
+            alignment_offset = p1;
+        } else if ( overhangStrategy == SWOverhangStrategy.IGNORE ) {
+            lce.add(SmithWatermanJavaAligner.makeElement(state, segment_length + p2));
+            alignment_offset = p1 - p2;
+        } else {  // overhangStrategy == OverhangStrategy.INDEL || overhangStrategy == OverhangStrategy.LEADING_INDEL
+            lce.add(SmithWatermanJavaAligner.makeElement(state, segment_length));
+            if ( p1 > 0 ) {
+                lce.add(SmithWatermanJavaAligner.makeElement(State.DELETION, p1));
+            } else if ( p2 > 0 ) {
+                lce.add(SmithWatermanJavaAligner.makeElement(State.INSERTION, p2));
+            }
+            alignment_offset = 0;
+        }
+
+        return new SWPairwiseAlignmentResult(new Cigar(Lists.reverse(lce)), alignment_offset);
+    }
+
+    @Override
+    public void close() {
+        logger.info(String.format("Total compute time in buffered java Smith-Waterman : %.2f sec", totalComputeTime.get() * 1e-9));
+    }
+}
@@ -0,0 +1,386 @@
+package org.broadinstitute.hellbender.utils.spark;
+
+import com.google.common.io.CountingInputStream;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.spark.SparkFiles;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.variant.GATKVariant;
+import org.broadinstitute.hellbender.utils.variant.MinimalVariant;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.MappedByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A compact, memory-mapped index of the positions of known variant sites, which is all that BQSR needs from its
+ * known sites files.  The index is built once on the driver from the variants files, and queried on the executors
+ * without parsing any VCF.
+ *
+ * <p>Each site is stored in a single long that packs its start, its length on the reference minus one and whether it is a
+ * SNP or an indel.  The sites of each contig are sorted by start, and are found by a binary search bounded by the longest
+ * site of the contig.  The file starts with a header giving, for each contig of the dictionary, the index of its first
+ * site, its number of sites and the length of its longest site.</p>
+ *
+ * <p>On Spark, {@link #addForSpark} builds the index and adds it to the files copied to every node, and the returned
+ * {@link SparkSource} opens it through the {@link NodeLocalFileCache}, so that the executors of a node share its pages.</p>
+ */
+public final class KnownSitesIndex {
+    private static final Logger logger = LogManager.getLogger(KnownSitesIndex.class);
+
+    private static final int MAGIC = 0x4B534958;    // "KSIX"
+    private static final int VERSION = 1;
+
+    public static final String KNOWN_SITES_INDEX_EXTENSION = ".ksi";
+
+    private static final int SPAN_BITS = 30;
+    private static final long MAX_SPAN = (1L << SPAN_BITS) - 1;
+    private static final long SNP_FLAG = 1L << SPAN_BITS;
+    private static final long INDEL_FLAG = 1L << (SPAN_BITS + 1);
+
+    // sites are mapped in chunks of 1GB, which is a multiple of the size of a site, so no site straddles two chunks
+    private static final int CHUNK_SHIFT = 30;
+    private static final long CHUNK_MASK = (1L << CHUNK_SHIFT) - 1;
+
+    private final Map<String, ContigSites> contigs;
+    private final MappedByteBuffer[] chunks;
+
+    private KnownSitesIndex(final Map<String, ContigSites> contigs, final MappedByteBuffer[] chunks) {
+        this.contigs = contigs;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Writes the index of the sites of some variants files.  Sites on contigs absent from {@code dictionary} are skipped.
+     * Each variants file must be sorted, but not necessarily in the order of {@code dictionary}.
+     *
+     * @param variantsFiles paths of the variants files
+     * @param dictionary dictionary of the contigs to index, usually that of the reads
+     * @param output where to write the index
+     */
+    public static void write(final List<String> variantsFiles, final SAMSequenceDictionary dictionary, final Path output) {
+        Utils.nonNull(variantsFiles);
+        Utils.nonNull(dictionary);
+        Utils.nonNull(output);
+        final int numContigs = dictionary.size();
+        final long[] counts = new long[numContigs];
+        final int[] maxSpans = new int[numContigs];
+        final Path tempDir = IOUtils.createTempDir("known-sites-index").toPath();
+        try {
+            // first pass: split the sites of each file by contig
+            for (int f = 0; f < variantsFiles.size(); f++) {
+                splitByContig(variantsFiles.get(f), f, dictionary, tempDir, counts, maxSpans);
+            }
+
+            // second pass: merge the sites of each contig across files, in the order of the dictionary
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(numContigs);
+                long firstSite = 0;
+                for (int contig = 0; contig < numContigs; contig++) {
+                    out.writeUTF(dictionary.getSequence(contig).getSequenceName());
+                    out.writeLong(firstSite);
+                    out.writeLong(counts[contig]);
+                    out.writeInt(maxSpans[contig]);
+                    firstSite += counts[contig];
+                }
+                for (int contig = 0; contig < numContigs; contig++) {
+                    mergeContig(tempDir, contig, variantsFiles.size(), out);
+                }
+            }
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(output.toString(), "Unable to write the known sites index", e);
+        } finally {
+            IOUtils.deleteRecursively(tempDir);
+        }
+    }
+
+    private static void splitByContig(final String variantsFile, final int fileIndex, final SAMSequenceDictionary dictionary, final Path tempDir,
+                                      final long[] counts, final int[] maxSpans) throws IOException {
+        final boolean[] seen = new boolean[dictionary.size()];
+        long skipped = 0;
+        DataOutputStream out = null;
+        String currentContig = null;
+        int currentContigIndex = -1;
+        int previousStart = 0;
+        try (final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(variantsFile)) {
+            for (final VariantContext vc : source) {
+                if (!vc.getContig().equals(currentContig)) {
+                    if (out != null) {
+                        out.close();
+                        out = null;
+                    }
+                    currentContig = vc.getContig();
+                    currentContigIndex = dictionary.getSequenceIndex(currentContig);
+                    if (currentContigIndex >= 0) {
+                        if (seen[currentContigIndex]) {
+                            throw new UserException.BadInput("The known sites file " + variantsFile + " is not sorted: the records of contig " + currentContig + " are not contiguous");
+                        }
+                        seen[currentContigIndex] = true;
+                        out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(contigFile(tempDir, currentContigIndex, fileIndex))));
+                    }
+                    previousStart = 0;
+                }
+                if (out == null) {
+                    skipped++;
+                    continue;
+                }
+                if (vc.getStart() < previousStart) {
+                    throw new UserException.BadInput("The known sites file " + variantsFile + " is not sorted: " +
+                            vc.getContig() + ":" + vc.getStart() + " comes after position " + previousStart);
+                }
+                previousStart = vc.getStart();
+                final long span = vc.getEnd() - vc.getStart();
+                if (span < 0 || span > MAX_SPAN) {
+                    throw new UserException.BadInput("The known site " + vc.getContig() + ":" + vc.getStart() + "-" + vc.getEnd() +
+                            " in " + variantsFile + " cannot be indexed");
+                }
+                out.writeLong(encode(vc.getStart(), (int) span, vc.isSNP(), vc.isIndel()));
+                counts[currentContigIndex]++;
+                maxSpans[currentContigIndex] = Math.max(maxSpans[currentContigIndex], (int) span);
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        if (skipped > 0) {
+            logger.info("Skipped " + skipped + " known sites of " + variantsFile + " on contigs absent from the sequence dictionary");
+        }
+    }
+
+    // merges the sorted sites of one contig from every file
+    private static void mergeContig(final Path tempDir, final int contig, final int numFiles, final DataOutputStream out) throws IOException {
+        final List<DataInputStream> inputs = new ArrayList<>();
+        try {
+            for (int f = 0; f < numFiles; f++) {
+                final Path file = contigFile(tempDir, contig, f);
+                if (Files.exists(file)) {
+                    inputs.add(new DataInputStream(new BufferedInputStream(Files.newInputStream(file))));
+                }
+            }
+            final long[] heads = new long[inputs.size()];
+            final boolean[] hasHead = new boolean[inputs.size()];
+            for (int i = 0; i < inputs.size(); i++) {
+                hasHead[i] = advance(inputs.get(i), heads, i);
+            }
+            while (true) {
+                int min = -1;
+                for (int i = 0; i < heads.length; i++) {
+                    if (hasHead[i] && (min < 0 || heads[i] < heads[min])) {
+                        min = i;
+                    }
+                }
+                if (min < 0) {
+                    return;
+                }
+                out.writeLong(heads[min]);
+                hasHead[min] = advance(inputs.get(min), heads, min);
+            }
+        } finally {
+            for (final DataInputStream input : inputs) {
+                input.close();
+            }
+        }
+    }
+
+    private static boolean advance(final DataInputStream input, final long[] heads, final int i) throws IOException {
+        try {
+            heads[i] = input.readLong();
+            return true;
+        } catch (final EOFException e) {
+            return false;
+        }
+    }
+
+    private static Path contigFile(final Path tempDir, final int contig, final int fileIndex) {
+        return tempDir.resolve(contig + "." + fileIndex);
+    }
+
+    // sites sort by start first, since the start takes the high bits
+    private static long encode(final int start, final int span, final boolean snp, final boolean indel) {
+        return ((long) start << 32) | (indel ? INDEL_FLAG : 0) | (snp ? SNP_FLAG : 0) | span;
+    }
+
+    private static int start(final long site) {
+        return (int) (site >>> 32);
+    }
+
+    private static int span(final long site) {
+        return (int) (site & MAX_SPAN);
+    }
+
+    /**
+     * Memory-maps an index written by {@link #write}.
+     */
+    public static KnownSitesIndex open(final Path indexFile) {
+        Utils.nonNull(indexFile);
+        final Map<String, ContigSites> contigs = new HashMap<>();
+        final long dataOffset;
+        long numSites = 0;
+        try (final CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Files.newInputStream(indexFile)));
+             final DataInputStream in = new DataInputStream(counting)) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new UserException.CouldNotReadInputFile(indexFile, "Not a known sites index, or an index of an unsupported version");
+            }
+            final int numContigs = in.readInt();
+            for (int i = 0; i < numContigs; i++) {
+                final String name = in.readUTF();
+                final ContigSites sites = new ContigSites(name, in.readLong(), in.readLong(), in.readInt());
+                contigs.put(name, sites);
+                numSites += sites.count;
+            }
+            dataOffset = counting.getCount();
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(indexFile, "Unable to read the known sites index", e);
+        }
+
+        final long dataLength = numSites * Long.BYTES;
+        try {
+            if (Files.size(indexFile) != dataOffset + dataLength) {
+                throw new UserException.CouldNotReadInputFile(indexFile, "The known sites index is truncated or corrupt");
+            }
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(indexFile, "Unable to read the known sites index", e);
+        }
+        final MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((dataLength + CHUNK_MASK) >>> CHUNK_SHIFT)];
+        for (int i = 0; i < chunks.length; i++) {
+            final long position = (long) i << CHUNK_SHIFT;
+            chunks[i] = NodeLocalFileCache.map(indexFile, dataOffset + position, Math.min(CHUNK_MASK + 1, dataLength - position));
+        }
+        return new KnownSitesIndex(contigs, chunks);
+    }
+
+    private long getSite(final long index) {
+        final long offset = index * Long.BYTES;
+        return chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) (offset & CHUNK_MASK));
+    }
+
+    /**
+     * @return the known sites overlapping {@code interval}, in order of start
+     */
+    public List<GATKVariant> getOverlapping(final SimpleInterval interval) {
+        Utils.nonNull(interval);
+        final ContigSites sites = contigs.get(interval.getContig());
+        if (sites == null || sites.count == 0) {
+            return Collections.emptyList();
+        }
+
+        // find the first site that starts late enough to possibly overlap the interval
+        final long minStart = (long) interval.getStart() - sites.maxSpan;
+        long lo = sites.firstSite;
+        long hi = sites.firstSite + sites.count;
+        while (lo < hi) {
+            final long mid = (lo + hi) >>> 1;
+            if (start(getSite(mid)) < minStart) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+
+        List<GATKVariant> result = Collections.emptyList();
+        for (long i = lo; i < sites.firstSite + sites.count; i++) {
+            final long site = getSite(i);
+            final int start = start(site);
+            if (start > interval.getEnd()) {
+                break;
+            }
+            final int end = start + span(site);
+            if (end >= interval.getStart()) {
+                if (result.isEmpty()) {
+                    result = new ArrayList<>(2);
+                }
+                result.add(new MinimalVariant(new SimpleInterval(interval.getContig(), start, end),
+                        (site & SNP_FLAG) != 0, (site & INDEL_FLAG) != 0));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Builds the index of some variants files on the driver, and adds it to the files copied to every node.
+     *
+     * @param ctx the Spark context
+     * @param variantsFiles paths of the variants files
+     * @param dictionary dictionary of the contigs to index, usually that of the reads
+     * @return a small serializable handle with which executors open the index
+     */
+    public static SparkSource addForSpark(final JavaSparkContext ctx, final List<String> variantsFiles, final SAMSequenceDictionary dictionary) {
+        Utils.nonNull(ctx);
+        final Path built = IOUtils.createTempPath("known-sites", KNOWN_SITES_INDEX_EXTENSION);
+        write(variantsFiles, dictionary, built);
+        final String checksum = NodeLocalFileCache.checksum(built.toUri().toString());
+        // name the index after its content, so that every run over the same known sites shares one copy in the
+        // node-local cache rather than leaving another one behind
+        final Path index = built.resolveSibling("known-sites-" + checksum + KNOWN_SITES_INDEX_EXTENSION);
+        try {
+            Files.move(built, index, StandardCopyOption.REPLACE_EXISTING);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotCreateOutputFile(index.toUri().toString(), "Could not write the known sites index", e);
+        }
+        IOUtils.deleteOnExit(index);
+        ctx.addFile(index.toUri().toString());
+        return new SparkSource(index.getFileName().toString(), checksum);
+    }
+
+    /**
+     * Handle on an index added to the files copied to every node by {@link #addForSpark}, which tasks use to open the
+     * index from the {@link NodeLocalFileCache}.
+     */
+    public static final class SparkSource implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final String fileName;
+        private final String checksum;
+
+        private SparkSource(final String fileName, final String checksum) {
+            this.fileName = fileName;
+            this.checksum = checksum;
+        }
+
+        /**
+         * @return the index, opened once per executor JVM and mapped from the node-local cache
+         */
+        public KnownSitesIndex get() {
+            return NodeLocalFileCache.open(SparkFiles.get(fileName), checksum, KnownSitesIndex::open);
+        }
+    }
+
+    private static final class ContigSites {
+        private final long firstSite;
+        private final long count;
+        private final int maxSpan;
+
+        private ContigSites(final String name, final long firstSite, final long count, final int maxSpan) {
+            if (firstSite < 0 || count < 0 || maxSpan < 0) {
+                throw new GATKException("Corrupt known sites index entry for contig " + name);
+            }
+            this.firstSite = firstSite;
+            this.count = count;
+            this.maxSpan = maxSpan;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.broadinstitute.hellbender.utils.spark;
+
+import com.google.common.annotations.VisibleForTesting;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.zip.CRC32C;
+
+/**
+ * Copies read-only input files (such as a 2bit reference or a {@link KnownSitesIndex}) once per node into a local
+ * cache directory, so that Spark executors can memory-map them instead of each deserializing its own on-heap copy of a
+ * broadcast.  The pages of a mapped file are shared through the page cache by all the executor JVMs of a node.
+ *
+ * <p>Files are identified by a checksum of their contents, computed on the driver by {@link #checksum}: tasks only need
+ * to be sent the path of a file and its checksum.  Very large files can instead be identified by their size and
+ * modification time with {@link #fingerprint}, which doesn't read them.  The first task on a node to ask for a file
+ * copies it into the cache, holding a file lock so that concurrent executors wait for it rather than copy it again, and
+ * verifies that the copy matches its checksum or fingerprint.  Within a JVM, the object opened over a cached file by
+ * {@link #open} is shared by all tasks.</p>
+ *
+ * <p>The cache directory is given by the {@value #CACHE_DIRECTORY_PROPERTY} system property, and defaults to a
+ * subdirectory of java.io.tmpdir.  Cached files are not deleted, so that later jobs on the same inputs can reuse them.</p>
+ */
+public final class NodeLocalFileCache {
+    private static final Logger logger = LogManager.getLogger(NodeLocalFileCache.class);
+
+    /**
+     * System property giving the directory used to cache files on each node.
+     */
+    public static final String CACHE_DIRECTORY_PROPERTY = "gatk.node.local.cache.dir";
+
+    private static final String DEFAULT_CACHE_DIRECTORY_NAME = "gatk-node-local-cache";
+    private static final String LOCK_EXTENSION = ".lock";
+    private static final int COPY_BUFFER_SIZE = 1 << 20;
+    // distinguishes fingerprints from checksums, which start with a hexadecimal digit
+    private static final String FINGERPRINT_PREFIX = "t";
+
+    // objects opened over cached files, by checksum
+    private static final Map<String, Object> OPENED = new ConcurrentHashMap<>();
+
+    private NodeLocalFileCache() {}
+
+    /**
+     * Computes the checksum identifying the contents of a file: its size and the CRC32C of its contents.
+     *
+     * @param source path or URI of the file
+     */
+    public static String checksum(final String source) {
+        Utils.nonNull(source);
+        final Path path = IOUtils.getPath(source);
+        try (final InputStream in = Files.newInputStream(path)) {
+            return copyAndChecksum(in, OutputStream.nullOutputStream());
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(path, "Unable to compute the checksum of the file", e);
+        }
+    }
+
+    /**
+     * Computes a fingerprint identifying a version of a file from its metadata: its size and last modification time.
+     * Unlike {@link #checksum}, this doesn't read the file, so it suits files of several gigabytes that the driver
+     * would otherwise stream in full on every job.  It can be used wherever a checksum is expected.
+     *
+     * @param source path or URI of the file
+     */
+    public static String fingerprint(final String source) {
+        Utils.nonNull(source);
+        final Path path = IOUtils.getPath(source);
+        try {
+            return fingerprint(path);
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile(path, "Unable to read the size and modification time of the file", e);
+        }
+    }
+
+    private static String fingerprint(final Path path) throws IOException {
+        return String.format("%s%x-%x", FINGERPRINT_PREFIX, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+    }
+
+    /**
+     * Returns the object opened by {@code opener} over the node-local copy of a file, copying the file into the cache
+     * if needed.  The object is opened once per JVM and shared, so it must be thread-safe, and a file must always be
+     * opened the same way.
+     *
+     * @param source path or URI of the file, which must be readable from this node
+     * @param checksum checksum of the file, as computed by {@link #checksum} or {@link #fingerprint}
+     * @param opener opens the object over the local copy of the file
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T open(final String source, final String checksum, final Function<Path, T> opener) {
+        Utils.nonNull(source);
+        Utils.nonNull(checksum);
+        Utils.nonNull(opener);
+        return (T) OPENED.computeIfAbsent(checksum, k -> opener.apply(localize(source, checksum)));
+    }
+
+    /**
+     * Returns the path of the node-local copy of a file, copying the file into the cache if needed.
+     *
+     * @param source path or URI of the file, which must be readable from this node
+     * @param checksum checksum of the file, as computed by {@link #checksum} or {@link #fingerprint}
+     */
+    public static Path localize(final String source, final String checksum) {
+        return localize(source, checksum, getCacheDirectory());
+    }
+
+    @VisibleForTesting
+    static Path localize(final String source, final String checksum, final Path cacheDirectory) {
+        Utils.nonNull(source);
+        Utils.nonNull(checksum);
+        final Path sourcePath = IOUtils.getPath(source);
+        final Path target = cacheDirectory.resolve(checksum + "-" + sourcePath.getFileName());
+        if (Files.exists(target)) {
+            return target;
+        }
+        // the lock on the file keeps out the other JVMs of the node, but is held on behalf of the whole JVM,
+        // so the threads of this JVM also synchronize on the cache
+        synchronized (NodeLocalFileCache.class) {
+            try {
+                Files.createDirectories(cacheDirectory);
+                try (final FileChannel lockChannel = FileChannel.open(cacheDirectory.resolve(checksum + LOCK_EXTENSION),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+                     final FileLock lock = lockChannel.lock()) {
+                    if (Files.exists(target)) {
+                        return target;
+                    }
+                    logger.info("Copying " + source + " to the node-local cache " + cacheDirectory);
+                    final Path temporary = Files.createTempFile(cacheDirectory, checksum, ".tmp");
+                    try {
+                        final String actualChecksum;
+                        if (checksum.startsWith(FINGERPRINT_PREFIX)) {
+                            // the size and modification time only identify the copy if the file didn't change during it
+                            final String before = fingerprint(sourcePath);
+                            copy(sourcePath, temporary);
+                            final String after = fingerprint(sourcePath);
+                            actualChecksum = before.equals(after) && Files.size(temporary) == Files.size(sourcePath) ?
+                                    after : after + " (changed while copying)";
+                        } else {
+                            actualChecksum = copy(sourcePath, temporary);
+                        }
+                        if (!actualChecksum.equals(checksum)) {
+                            throw new UserException.CouldNotReadInputFile(sourcePath,
+                                    "The file has changed since the job started: expected checksum " + checksum + " but found " + actualChecksum);
+                        }
+                        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+                    } finally {
+                        Files.deleteIfExists(temporary);
+                    }
+                }
+            } catch (final IOException e) {
+                throw new UserException.CouldNotReadInputFile(sourcePath, "Unable to copy the file to the node-local cache " + cacheDirectory, e);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Maps a region of a local file read-only into memory.
+     *
+     * @param localFile the local file, usually returned by {@link #localize}
+     * @param position offset of the region in the file
+     * @param size size of the region, at most {@link Integer#MAX_VALUE}
+     */
+    public static MappedByteBuffer map(final Path localFile, final long position, final long size) {
+        Utils.nonNull(localFile);
+        Utils.validateArg(size <= Integer.MAX_VALUE, () -> "cannot map more than " + Integer.MAX_VALUE + " bytes at once");
+        try (final FileChannel channel = FileChannel.open(localFile, StandardOpenOption.READ)) {
+            // the mapping remains valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        } catch (final IOException e) {
+            throw new GATKException("Unable to memory-map " + localFile, e);
+        }
+    }
+
+    private static Path getCacheDirectory() {
+        final String directory = System.getProperty(CACHE_DIRECTORY_PROPERTY);
+        return directory != null ? Paths.get(directory) : Paths.get(System.getProperty("java.io.tmpdir"), DEFAULT_CACHE_DIRECTORY_NAME);
+    }
+
+    private static String copy(final Path source, final Path target) throws IOException {
+        try (final InputStream in = Files.newInputStream(source);
+             final OutputStream out = Files.newOutputStream(target)) {
+            return copyAndChecksum(in, out);
+        }
+    }
+
+    private static String copyAndChecksum(final InputStream in, final OutputStream out) throws IOException {
+        final CRC32C crc = new CRC32C();
+        final byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long size = 0;
+        int n;
+        while ((n = in.read(buffer)) >= 0) {
+            crc.update(buffer, 0, n);
+            out.write(buffer, 0, n);
+            size += n;
+        }
+        return String.format("%x-%08x", size, crc.getValue());
+    }
+}
@@ -435,6 +435,57 @@ public class SparkSharderUnitTest extends GATKBaseTest implements Serializable {
                 ));
     }
 
+    @Test
+    public void testAdaptiveShardBoundaries() {
+        // 50 reads start in bases 41-45 of contig 1 (bin 8 with bins of 5 bases), none elsewhere
+        final Map<Long, Long> binCounts = ImmutableMap.of(SparkSharder.adaptiveShardBinKey(0, 41, 5), 50L);
+        final List<ShardBoundary> shards = SparkSharder.adaptiveShardBoundaries(binCounts, 5,
+                ImmutableList.of(new SimpleInterval("1", 1, 100), new SimpleInterval("2", 1, 50)), 20, 3, sequenceDictionary);
+        // the dense bin gets a shard of its own, and the empty space around it is merged (up to 16 shards of 20 bases)
+        assertEquals(shards.stream().map(ShardBoundary::getInterval).collect(Collectors.toList()), ImmutableList.of(
+                new SimpleInterval("1", 1, 40), new SimpleInterval("1", 41, 45), new SimpleInterval("1", 46, 100),
+                new SimpleInterval("2", 1, 50)));
+        assertEquals(shards.get(1).getPaddedInterval(), new SimpleInterval("1", 38, 48));
+        assertEquals(shards.get(3).getPaddedInterval(), new SimpleInterval("2", 1, 50));
+
+        // with no reads at all, shards are merged up to the maximum length
+        final List<ShardBoundary> emptyShards = SparkSharder.adaptiveShardBoundaries(Collections.emptyMap(), 1,
+                ImmutableList.of(new SimpleInterval("1", 1, 100)), 5, 0, sequenceDictionary);
+        assertEquals(emptyShards.stream().map(ShardBoundary::getInterval).collect(Collectors.toList()), ImmutableList.of(
+                new SimpleInterval("1", 1, 80), new SimpleInterval("1", 81, 100)));
+    }
+
+    @Test
+    public void testAdaptiveShardingAndRebalancing() {
+        JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+
+        // many reads in the first few bases, a few elsewhere
+        List<TestRead> readList = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            readList.add(new TestRead(1 + i % 4, 3 + i % 4));
+        }
+        readList.add(new TestRead(50, 52));
+        readList.add(new TestRead(90, 92));
+        JavaRDD<TestRead> reads = ctx.parallelize(readList, 2);
+        List<SimpleInterval> intervals = ImmutableList.of(new SimpleInterval("1", 1, 100));
+
+        List<ShardBoundary> shards = SparkSharder.adaptiveShardBoundaries(reads, intervals, 20, 0, 1.0, sequenceDictionary);
+        assertTrue(shards.size() > 1);
+        assertEquals(shards.get(0).getStart(), 1);
+        assertEquals(shards.get(shards.size() - 1).getEnd(), 100);
+        for (int i = 1; i < shards.size(); i++) {
+            assertEquals(shards.get(i).getStart(), shards.get(i - 1).getEnd() + 1);
+        }
+
+        JavaRDD<Shard<TestRead>> shardedReads = SparkSharder.shard(ctx, reads, TestRead.class, sequenceDictionary, shards, STANDARD_READ_LENGTH);
+        JavaRDD<Shard<TestRead>> rebalanced = SparkSharder.rebalanceShards(ctx, shardedReads, shards, sequenceDictionary);
+        assertEquals(rebalanced.getNumPartitions(), shardedReads.getNumPartitions());
+        // all the shards are still there, in coordinate order
+        assertEquals(rebalanced.map(Shard::getInterval).collect(), shards.stream().map(ShardBoundary::getInterval).collect(Collectors.toList()));
+        assertEquals(rebalanced.map(shard -> Iterators.size(shard.iterator())).collect(),
+                shardedReads.map(shard -> Iterators.size(shard.iterator())).collect());
+    }
+
     private static class TestRead implements Locatable {
         private static final long serialVersionUID = 1L;
         private final String contig;
@@ -4,6 +4,7 @@ import org.broadinstitute.hellbender.engine.GATKPath;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.testutils.SparkTestUtils;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -58,6 +59,15 @@ public class ReferenceTwoBitSparkSourceUnitTest extends GATKBaseTest {
         Assert.assertEquals(bases.getInterval().size(), expectedNumBases, "Wrong interval in ReferenceBases object returned from query");
     }
 
+    @Test
+    public void testSerializedSourceMapsReference() throws IOException, ClassNotFoundException {
+        final ReferenceTwoBitSparkSource twoBitRef = new ReferenceTwoBitSparkSource(new GATKPath(twoBitRefURL));
+        final ReferenceTwoBitSparkSource roundTripped = SparkTestUtils.roundTripThroughJavaSerialization(twoBitRef);
+        final SimpleInterval interval = new SimpleInterval("21", 10_000_000, 10_001_000);
+        Assert.assertEquals(roundTripped.getReferenceBases(interval), twoBitRef.getReferenceBases(interval));
+        Assert.assertEquals(roundTripped.getReferenceSequenceDictionary(null).getSequences(), twoBitRef.getReferenceSequenceDictionary(null).getSequences());
+    }
+
     @DataProvider(name="referenceTestCases")
     public Object[][] getReferenceTestCases() {
         return new Object[][] {
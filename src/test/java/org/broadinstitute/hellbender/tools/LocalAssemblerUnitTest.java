@@ -517,6 +517,132 @@ public class LocalAssemblerUnitTest {
         Assert.assertEquals(scaffolds.size(), 2);
     }
 
+    @Test
+    public void testParallelKmerization() {
+        final SAMFileHeader header =
+                ArtificialReadUtils.createArtificialSamHeader(1, 1, 100000000);
+        final List<GATKRead> reads = new ArrayList<>();
+        final Random random = new Random(47L);
+        final String source = randomSequence(random, 2000);
+        for ( int readNo = 0; readNo != 500; ++readNo ) {
+            final int start = random.nextInt(source.length() - 100);
+            String seq = source.substring(start, start + 100);
+            if ( random.nextBoolean() ) {
+                seq = SequenceUtil.reverseComplement(seq);
+            }
+            final byte[] quals = new byte[seq.length()];
+            Arrays.fill(quals, QMIN);
+            quals[random.nextInt(quals.length)] = 0; // a low-quality call breaks the kmers
+            reads.add(ArtificialReadUtils.createArtificialRead(header,
+                    "read" + readNo, 0, 1, seq.getBytes(), quals));
+        }
+        for ( final String seq : SEQS_FOR_DOGBONE_GRAPH ) {
+            final byte[] quals = new byte[seq.length()];
+            Arrays.fill(quals, QMIN);
+            reads.add(ArtificialReadUtils.createArtificialRead(header,
+                    "dogbone", 0, 1, seq.getBytes(), quals));
+        }
+
+        // kmerize the reads one at a time into KmerAdjacencies, as a reference
+        final KmerSet<KmerAdjacency> expectedKmers = new KmerSet<>(10000);
+        for ( final GATKRead read : reads ) {
+            KmerAdjacency.kmerize(read.getBasesNoCopy(), read.getBaseQualitiesNoCopy(), QMIN, expectedKmers);
+        }
+
+        for ( final int nThreads : new int[] {1, 3} ) {
+            final KmerSet<KmerAdjacency> kmers = new KmerSet<>(10000);
+            LocalAssembler.kmerizeReads(reads, QMIN, nThreads, kmers);
+            Assert.assertEquals(kmers.size(), expectedKmers.size());
+            for ( final KmerAdjacency expected : expectedKmers ) {
+                final KmerAdjacency kmer = KmerAdjacency.find(expected.getKVal(), kmers);
+                Assert.assertNotNull(kmer);
+                Assert.assertEquals(kmer.getNObservations(), expected.getNObservations());
+                Assert.assertEquals(kmer.getPredecessorMask(), expected.getPredecessorMask());
+                Assert.assertEquals(kmer.getSuccessorMask(), expected.getSuccessorMask());
+                final KmerAdjacency expectedPredecessor = expected.getSolePredecessor();
+                if ( expectedPredecessor == null ) {
+                    Assert.assertNull(kmer.getSolePredecessor());
+                } else {
+                    Assert.assertSame(kmer.getSolePredecessor(),
+                            KmerAdjacency.find(expectedPredecessor.getKVal(), kmers));
+                }
+                final KmerAdjacency expectedSuccessor = expected.getSoleSuccessor();
+                if ( expectedSuccessor == null ) {
+                    Assert.assertNull(kmer.getSoleSuccessor());
+                } else {
+                    Assert.assertSame(kmer.getSoleSuccessor(),
+                            KmerAdjacency.find(expectedSuccessor.getKVal(), kmers));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testParallelTraversal() {
+        final SAMFileHeader header =
+                ArtificialReadUtils.createArtificialSamHeader(1, 1, 100000000);
+        // two dogbones that share no kmers make a graph with two connected components
+        final String seq = randomSequence(new Random(11L), 80);
+        final String[] seqs = {
+                SEQS_FOR_DOGBONE_GRAPH[0], SEQS_FOR_DOGBONE_GRAPH[1],
+                "A" + seq + "C", "G" + seq + "T"
+        };
+        final List<GATKRead> reads = new ArrayList<>(seqs.length);
+        for ( final String readSeq : seqs ) {
+            final byte[] quals = new byte[readSeq.length()];
+            Arrays.fill(quals, QMIN);
+            reads.add(ArtificialReadUtils.createArtificialRead(header,
+                    "read", 0, 1, readSeq.getBytes(), quals));
+        }
+        final KmerSet<KmerAdjacency> kmers = new KmerSet<>(KMER_SET_CAPACITY);
+        LocalAssembler.kmerizeReads(reads, QMIN, kmers);
+        final List<ContigImpl> contigs = LocalAssembler.buildContigs(kmers);
+        Assert.assertEquals(contigs.size(), 10);
+        LocalAssembler.connectContigs(contigs);
+        final List<Path> readPaths = LocalAssembler.pathReads(kmers, reads);
+
+        final Set<String> expectedSeqs =
+                traversalSeqs(LocalAssembler.traverseAllPaths(contigs, readPaths, TOO_MANY_TRAVERSALS,
+                        LocalAssembler.collectTransitPairCounts(contigs, readPaths)));
+        Assert.assertEquals(expectedSeqs.size(), 4);
+        for ( final String readSeq : seqs ) {
+            Assert.assertTrue(expectedSeqs.contains(canonicalSeq(readSeq)));
+        }
+        final Set<String> parallelSeqs =
+                traversalSeqs(LocalAssembler.traverseAllPaths(contigs, readPaths, TOO_MANY_TRAVERSALS,
+                        LocalAssembler.collectTransitPairCounts(contigs, readPaths), 3));
+        Assert.assertEquals(parallelSeqs, expectedSeqs);
+
+        // the parallel traversals come out in the same order every time
+        final List<Traversal> parallelTraversals = new ArrayList<>(LocalAssembler.traverseAllPaths(contigs, readPaths,
+                TOO_MANY_TRAVERSALS, LocalAssembler.collectTransitPairCounts(contigs, readPaths), 3));
+        for ( int repeat = 0; repeat != 5; ++repeat ) {
+            Assert.assertEquals(new ArrayList<>(LocalAssembler.traverseAllPaths(contigs, readPaths,
+                    TOO_MANY_TRAVERSALS, LocalAssembler.collectTransitPairCounts(contigs, readPaths), 3)),
+                    parallelTraversals);
+        }
+    }
+
+    // the traversals' sequences, each oriented the way that sorts first
+    private static Set<String> traversalSeqs( final Set<Traversal> traversals ) {
+        return traversals.stream()
+                .map(traversal -> canonicalSeq(traversal.getSequence()))
+                .collect(Collectors.toSet());
+    }
+
+    private static String canonicalSeq( final String seq ) {
+        final String seqRC = SequenceUtil.reverseComplement(seq);
+        return seq.compareTo(seqRC) <= 0 ? seq : seqRC;
+    }
+
+    private static String randomSequence( final Random random, final int length ) {
+        final StringBuilder sb = new StringBuilder(length);
+        for ( int idx = 0; idx != length; ++idx ) {
+            sb.append("ACGT".charAt(random.nextInt(4)));
+        }
+        return sb.toString();
+    }
+
     @Test
     public void testTrimOverruns() {
         final SAMFileHeader header =
@@ -0,0 +1,75 @@
+package org.broadinstitute.hellbender.tools.funcotator;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable.XsvTableFeature;
+import org.broadinstitute.hellbender.utils.codecs.xsvLocatableTable.XsvTableFeatureBCICodec;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for {@link CompileFuncotatorDataSources}.
+ */
+public class CompileFuncotatorDataSourcesUnitTest extends GATKBaseTest {
+
+    private static List<XsvTableFeature> readFeatures(final String path) {
+        final List<XsvTableFeature> features = new ArrayList<>();
+        try ( final FeatureDataSource<XsvTableFeature> dataSource = new FeatureDataSource<>(path) ) {
+            dataSource.forEach(features::add);
+        }
+        return features;
+    }
+
+    @Test
+    public void testCompiledTableMatchesTextTable() {
+        final Path configFilePath = IOUtils.getPath(FuncotatorTestConstants.XSV_LOCATABLE_TEST_FILE1_CONFIG_PATH);
+        final File compiledFile = createTempFile("xsv_locatable_test", XsvTableFeatureBCICodec.XSV_BCI_FILE_EXTENSION);
+
+        Assert.assertTrue(CompileFuncotatorDataSources.compileLocatableXsvDataSource(configFilePath, compiledFile.toPath()));
+        Assert.assertFalse(new File(compiledFile.getAbsolutePath() + ".tmp").exists());
+
+        final List<XsvTableFeature> expectedFeatures = readFeatures(configFilePath.toUri().toString());
+        final List<XsvTableFeature> compiledFeatures = readFeatures(compiledFile.getAbsolutePath());
+
+        Assert.assertFalse(expectedFeatures.isEmpty());
+        Assert.assertEquals(compiledFeatures.size(), expectedFeatures.size());
+        for ( int i = 0; i < expectedFeatures.size(); ++i ) {
+            final XsvTableFeature expected = expectedFeatures.get(i);
+            final XsvTableFeature compiled = compiledFeatures.get(i);
+            Assert.assertEquals(compiled.getContig(), expected.getContig());
+            Assert.assertEquals(compiled.getStart(), expected.getStart());
+            Assert.assertEquals(compiled.getEnd(), expected.getEnd());
+            Assert.assertEquals(compiled.getDataSourceName(), expected.getDataSourceName());
+            Assert.assertEquals(compiled.getHeader(), expected.getHeader());
+            Assert.assertEquals(compiled.getValues(), expected.getValues());
+            Assert.assertEquals(compiled.getHeaderWithoutLocationColumns(), expected.getHeaderWithoutLocationColumns());
+            Assert.assertEquals(compiled.getValuesWithoutLocationColumns(), expected.getValuesWithoutLocationColumns());
+        }
+    }
+
+    @Test
+    public void testCompiledTableQuery() {
+        final Path configFilePath = IOUtils.getPath(FuncotatorTestConstants.XSV_LOCATABLE_TEST_FILE1_CONFIG_PATH);
+        final File compiledFile = createTempFile("xsv_locatable_test", XsvTableFeatureBCICodec.XSV_BCI_FILE_EXTENSION);
+        CompileFuncotatorDataSources.compileLocatableXsvDataSource(configFilePath, compiledFile.toPath());
+
+        final List<XsvTableFeature> expectedFeatures = readFeatures(configFilePath.toUri().toString());
+        final XsvTableFeature target = expectedFeatures.get(expectedFeatures.size() - 1);
+        final SimpleInterval interval = new SimpleInterval(target.getContig(), target.getStart(), target.getEnd());
+
+        try ( final FeatureDataSource<XsvTableFeature> dataSource = new FeatureDataSource<>(compiledFile.getAbsolutePath()) ) {
+            final List<XsvTableFeature> overlapping = dataSource.queryAndPrefetch(interval);
+            Assert.assertTrue(overlapping.stream().anyMatch(f -> f.getValues().equals(target.getValues())));
+            for ( final XsvTableFeature feature : overlapping ) {
+                Assert.assertTrue(feature.overlaps(interval));
+            }
+        }
+    }
+}
@@ -1796,6 +1796,68 @@ public class FuncotatorIntegrationTest extends CommandLineProgramTest {
         assertEqualVariantFiles(outputFile, E_COLI_EXPECTED_OUT);
     }
 
+    @Test
+    public void testMultithreadedEColiFuncotations() {
+        // Annotating on multiple threads must give the same results, in the same order, as annotating on one:
+        final FuncotatorArgumentDefinitions.OutputFormatType outputFormatType = FuncotatorArgumentDefinitions.OutputFormatType.VCF;
+        final File outputFile = getOutputFile(outputFormatType);
+
+        final ArgumentsBuilder arguments = new ArgumentsBuilder();
+
+        arguments.addVCF(new File(FuncotatorTestConstants.ECOLI_VCF_FILE_NAME));
+        arguments.addOutput(outputFile);
+        arguments.addReference(new File(eColiRef));
+        arguments.add(FuncotatorArgumentDefinitions.DATA_SOURCES_PATH_LONG_NAME, DS_ECOLI_DIR);
+        arguments.add(FuncotatorArgumentDefinitions.REFERENCE_VERSION_LONG_NAME, FuncotatorTestConstants.REFERENCE_VERSION_ECOLI);
+        arguments.add(FuncotatorArgumentDefinitions.OUTPUT_FORMAT_LONG_NAME, outputFormatType.toString());
+        arguments.add(FuncotatorArgumentDefinitions.TRANSCRIPT_SELECTION_MODE_LONG_NAME, TranscriptSelectionMode.CANONICAL.toString());
+        arguments.add(FuncotatorArgumentDefinitions.ANNOTATION_THREADS_LONG_NAME, 4);
+        arguments.add(FuncotatorArgumentDefinitions.ANNOTATION_BATCH_SIZE_LONG_NAME, 3);
+        runCommandLine(arguments);
+        assertEqualVariantFiles(outputFile, E_COLI_EXPECTED_OUT);
+    }
+
+    @Test
+    public void testCompiledLocatableXsvDataSource() throws IOException {
+        // Make a data sources folder with a locatable XSV data source that overlaps PIK3CA:
+        final File dataSourcesDir = createTempDir("compiledDataSources");
+        final File gencodeDir = new File(dataSourcesDir, "gencode_pik3ca" + File.separator + FuncotatorTestConstants.REFERENCE_VERSION_HG19);
+        final File xsvDir = new File(dataSourcesDir, "xsv_locatable_test" + File.separator + FuncotatorTestConstants.REFERENCE_VERSION_HG19);
+        Assert.assertTrue(gencodeDir.mkdirs());
+        Assert.assertTrue(xsvDir.mkdirs());
+        final File[] gencodeFiles = new File(DS_PIK3CA_DIR, "gencode_pik3ca" + File.separator + FuncotatorTestConstants.REFERENCE_VERSION_HG19).listFiles();
+        Assert.assertNotNull(gencodeFiles);
+        for ( final File gencodeFile : gencodeFiles ) {
+            Files.copy(gencodeFile.toPath(), new File(gencodeDir, gencodeFile.getName()).toPath());
+        }
+        Files.copy(Paths.get(FuncotatorTestConstants.XSV_LOCATABLE_TEST_FILE1_CONFIG_PATH), new File(xsvDir, "xsv_locatable_test.config").toPath());
+        Files.copy(Paths.get(FuncotatorTestConstants.XSV_LOCATABLE_TEST_FILE1_DATA_PATH), new File(xsvDir, "xsv_locatable_test.csv").toPath());
+
+        final FuncotatorArgumentDefinitions.OutputFormatType outputFormatType = FuncotatorArgumentDefinitions.OutputFormatType.VCF;
+        final File textOutputFile = getOutputFile(outputFormatType);
+        runCommandLine(createBaselineArgumentsForFuncotator(PIK3CA_VCF_HG19_SNPS, textOutputFile, b37Chr3Ref,
+                dataSourcesDir.getAbsolutePath(), FuncotatorTestConstants.REFERENCE_VERSION_HG19, outputFormatType, false));
+
+        final ArgumentsBuilder compileArguments = new ArgumentsBuilder();
+        compileArguments.add(FuncotatorArgumentDefinitions.DATA_SOURCES_PATH_LONG_NAME, dataSourcesDir.getAbsolutePath());
+        compileArguments.add(FuncotatorArgumentDefinitions.REFERENCE_VERSION_LONG_NAME, FuncotatorTestConstants.REFERENCE_VERSION_HG19);
+        Assert.assertEquals(runCommandLine(compileArguments, CompileFuncotatorDataSources.class.getSimpleName()), 1);
+        final File compiledDataFile = DataSourceUtils.getCompiledDataFilePath(new File(xsvDir, "xsv_locatable_test.csv").toPath()).toFile();
+        Assert.assertTrue(compiledDataFile.exists());
+
+        // Annotating from the compiled data file must give the same results as annotating from the text file:
+        final File compiledOutputFile = getOutputFile(outputFormatType);
+        runCommandLine(createBaselineArgumentsForFuncotator(PIK3CA_VCF_HG19_SNPS, compiledOutputFile, b37Chr3Ref,
+                dataSourcesDir.getAbsolutePath(), FuncotatorTestConstants.REFERENCE_VERSION_HG19, outputFormatType, false));
+        assertEqualVariantFiles(compiledOutputFile, textOutputFile.getAbsolutePath());
+
+        // Make sure the XSV data source actually annotated something:
+        final List<VariantContext> variantContexts = VariantContextTestUtils.readEntireVCFIntoMemory(compiledOutputFile.getAbsolutePath()).getRight();
+        Assert.assertFalse(variantContexts.isEmpty());
+        Assert.assertTrue(variantContexts.stream()
+                .anyMatch(vc -> StringUtils.contains(vc.getAttributeAsString(VcfOutputRenderer.FUNCOTATOR_VCF_FIELD_NAME, ""), "test_val_chr3")));
+    }
+
     private void assertEqualVariantFiles(final File outputFile, final String eColiExpectedOut) {
         // Get the actual data:
         final Pair<VCFHeader, List<VariantContext>> actualVcfInfo               = VariantContextTestUtils.readEntireVCFIntoMemory(outputFile.getAbsolutePath());
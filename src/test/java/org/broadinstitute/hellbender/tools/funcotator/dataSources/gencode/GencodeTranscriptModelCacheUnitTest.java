@@ -0,0 +1,105 @@
+package org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode;
+
+import htsjdk.samtools.util.Locatable;
+import htsjdk.tribble.annotation.Strand;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.tools.funcotator.FuncotatorUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.codecs.gtf.GencodeGtfTranscriptFeature;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for {@link GencodeTranscriptModelCache}.
+ */
+public class GencodeTranscriptModelCacheUnitTest extends GATKBaseTest {
+
+    @DataProvider
+    Object[][] provideTranscripts() {
+        final List<Object[]> transcripts = new ArrayList<>();
+        for ( final GencodeGtfTranscriptFeature transcript : DataProviderForExampleGencodeGtfGene.createGencodeGtfGeneFeature().getTranscripts() ) {
+            transcripts.add(new Object[] { transcript });
+        }
+        for ( final Strand strand : new Strand[] { Strand.POSITIVE, Strand.NEGATIVE } ) {
+            transcripts.add(new Object[] {
+                    DataProviderForExampleGencodeGtfGene.dynamicallyCreateTestGencodeGtfGeneFeature("chr3", 100, "GENE_" + strand, strand, 5, 20, 30, 51, 40).getTranscripts().get(0)
+            });
+        }
+        return transcripts.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "provideTranscripts")
+    public void testTranscriptModel(final GencodeGtfTranscriptFeature transcript) {
+        final GencodeTranscriptModelCache cache = new GencodeTranscriptModelCache(GencodeTranscriptModelCache.DEFAULT_MAX_BYTES);
+        final GencodeTranscriptModelCache.TranscriptModel model = cache.get(transcript, tx -> "ACGT");
+
+        final List<? extends Locatable> expectedRegions = GencodeFuncotationFactory.getSortedCdsAndStartStopPositions(transcript);
+        Assert.assertEquals(model.getSortedCodingRegions(), expectedRegions);
+        Assert.assertEquals(model.getCodingSequence(), "ACGT");
+
+        // Every position in and around the transcript must be located exactly as FuncotatorUtils would locate it:
+        for ( int start = Math.max(1, transcript.getStart() - 5); start <= transcript.getEnd() + 5; ++start ) {
+            for ( final int length : new int[] { 1, 3 } ) {
+                final SimpleInterval variant = new SimpleInterval(transcript.getContig(), start, start + length - 1);
+                Assert.assertEquals(model.getStartPositionInCodingSequence(variant),
+                        FuncotatorUtils.getStartPositionInTranscript(variant, expectedRegions, transcript.getGenomicStrand()),
+                        "Mismatch at " + variant);
+            }
+        }
+    }
+
+    @Test
+    public void testContigMismatch() {
+        final GencodeGtfTranscriptFeature transcript = DataProviderForExampleGencodeGtfGene.createGencodeGtfGeneFeature().getTranscripts().get(0);
+        final GencodeTranscriptModelCache.TranscriptModel model =
+                new GencodeTranscriptModelCache(GencodeTranscriptModelCache.DEFAULT_MAX_BYTES).get(transcript, tx -> null);
+        Assert.assertNull(model.getCodingSequence());
+        Assert.assertThrows(GATKException.class, () -> model.getStartPositionInCodingSequence(new SimpleInterval("chr2", 150, 150)));
+    }
+
+    @Test
+    public void testCachingAndEviction() {
+        final List<GencodeGtfTranscriptFeature> transcripts = DataProviderForExampleGencodeGtfGene.createGencodeGtfGeneFeature().getTranscripts();
+        final AtomicInteger numLoads = new AtomicInteger(0);
+        final String codingSequence = new String(new char[1000]).replace('\0', 'A');
+
+        // Room for two transcripts with their sequences, but not three:
+        final GencodeTranscriptModelCache cache = new GencodeTranscriptModelCache(3000);
+
+        final GencodeTranscriptModelCache.TranscriptModel model0 = cache.get(transcripts.get(0), tx -> { numLoads.incrementAndGet(); return codingSequence; });
+        Assert.assertSame(cache.get(transcripts.get(0), tx -> { numLoads.incrementAndGet(); return codingSequence; }), model0);
+        Assert.assertEquals(numLoads.get(), 1);
+        Assert.assertEquals(cache.getNumHits(), 1);
+        Assert.assertEquals(cache.getNumMisses(), 1);
+
+        cache.get(transcripts.get(1), tx -> { numLoads.incrementAndGet(); return codingSequence; });
+        Assert.assertEquals(cache.size(), 2);
+
+        // Touch transcript 0 so that transcript 1 is the least recently used, then add a third:
+        cache.get(transcripts.get(0), tx -> { numLoads.incrementAndGet(); return codingSequence; });
+        cache.get(transcripts.get(2), tx -> { numLoads.incrementAndGet(); return codingSequence; });
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertTrue(cache.getEstimatedBytes() <= 3000);
+        Assert.assertEquals(numLoads.get(), 3);
+
+        Assert.assertSame(cache.get(transcripts.get(0), tx -> { numLoads.incrementAndGet(); return codingSequence; }), model0);
+        Assert.assertEquals(numLoads.get(), 3);
+        cache.get(transcripts.get(1), tx -> { numLoads.incrementAndGet(); return codingSequence; });
+        Assert.assertEquals(numLoads.get(), 4);
+    }
+
+    @Test
+    public void testOversizedTranscriptIsStillReturned() {
+        final GencodeGtfTranscriptFeature transcript = DataProviderForExampleGencodeGtfGene.createGencodeGtfGeneFeature().getTranscripts().get(0);
+        final GencodeTranscriptModelCache cache = new GencodeTranscriptModelCache(10);
+        final GencodeTranscriptModelCache.TranscriptModel model = cache.get(transcript, tx -> "ACGTACGTACGTACGTACGT");
+        Assert.assertEquals(model.getCodingSequence(), "ACGTACGTACGTACGTACGT");
+        Assert.assertEquals(cache.size(), 1);
+    }
+}
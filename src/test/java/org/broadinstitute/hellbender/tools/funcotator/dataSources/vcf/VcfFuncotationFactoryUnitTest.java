@@ -20,6 +20,7 @@ import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
 import org.broadinstitute.hellbender.tools.funcotator.Funcotation;
 import org.broadinstitute.hellbender.tools.funcotator.FuncotatorArgumentDefinitions;
 import org.broadinstitute.hellbender.tools.funcotator.FuncotatorTestConstants;
+import org.broadinstitute.hellbender.tools.funcotator.FuncotatorUtils;
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.TableFuncotation;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
@@ -403,42 +404,68 @@ public class VcfFuncotationFactoryUnitTest extends GATKBaseTest {
     }
 
     @Test
-    public void testCacheOnObjectReference(){
-        // This code is a bit complex, since the cache is based exclusively on object references.  That works great in Funcotator,
-        //  but not as great in the general case (incl. autotests)
-        // We do not care so much about the content of each variant context.  We change the position to control whether
-        //  there is a cache hit or not.
-        // Please note that this test does not actually test the content of the funcotations.  Just whether the cache
-        //  was set to the appropriate size and that the hit/miss counters are being maintained properly.
-
-        // Create dummy data.  Remember that since the cache is based on reference, we always have to index into this list.
+    public void testCacheOnPosition(){
+        // The cache is keyed on the position and alleles of a variant, so variants at the same site hit the cache
+        //  even when they are different objects.
+        // Please note that this test does not actually test the content of the funcotations.  Just whether the
+        //  hit/miss counters are being maintained properly.
+        final int numSites = 20;
         final List<String> alleles = Arrays.asList("G", "C", "T");
-        final List<Triple<VariantContext, ReferenceContext, List<Feature>>> dummyTriples = IntStream.range(0, VcfFuncotationFactory.LRUCache.MAX_ENTRIES + 1)
-                .boxed().map(i -> createDummyCacheTriples(alleles, i)).collect(Collectors.toList());
 
         // Create our funcotation factory to test
         final VcfFuncotationFactory vcfFuncotationFactory =
                 createVcfFuncotationFactory(FACTORY_NAME, FACTORY_VERSION, IOUtils.getPath(EXAC_SNIPPET));
 
-        for (int i = 0; i < VcfFuncotationFactory.LRUCache.MAX_ENTRIES; i++) {
-            funcotateForCacheTest(vcfFuncotationFactory, dummyTriples.get(i));
+        for (int i = 0; i < numSites; i++) {
+            funcotateForCacheTest(vcfFuncotationFactory, createDummyCacheTriples(alleles, i));
             Assert.assertEquals(vcfFuncotationFactory.cacheHits, 0);
             Assert.assertEquals(vcfFuncotationFactory.cacheMisses, i+1);  // Should match the number of times createFuncotationOnVariant was called.
         }
-        // We will get one more miss in this loop, since [0] will have been purged from the cache.  We will test this below.
-        for (int i = 0; i < (VcfFuncotationFactory.LRUCache.MAX_ENTRIES + 1); i++) {
-            funcotateForCacheTest(vcfFuncotationFactory, dummyTriples.get(i));
+
+        // New variant objects at the same sites should all hit the cache:
+        for (int i = 0; i < numSites; i++) {
+            funcotateForCacheTest(vcfFuncotationFactory, createDummyCacheTriples(alleles, i));
         }
-        Assert.assertEquals(vcfFuncotationFactory.cacheHits, VcfFuncotationFactory.LRUCache.MAX_ENTRIES);
+        Assert.assertEquals(vcfFuncotationFactory.cacheHits, numSites);
+        Assert.assertEquals(vcfFuncotationFactory.cacheMisses, numSites);
+
+        // Different alleles at the same site should not:
+        funcotateForCacheTest(vcfFuncotationFactory, createDummyCacheTriples(Arrays.asList("G", "C"), 0));
+        Assert.assertEquals(vcfFuncotationFactory.cacheMisses, numSites + 1);
+    }
 
-        // This should be another miss, since the variant at index = 0 should no longer be in the cache.
-        funcotateForCacheTest(vcfFuncotationFactory, dummyTriples.get(0));
-        Assert.assertEquals(vcfFuncotationFactory.cacheMisses, (VcfFuncotationFactory.LRUCache.MAX_ENTRIES + 2));
+    @Test
+    public void testCacheEvictionAndSharing(){
+        final List<String> alleles = Arrays.asList("G", "C", "T");
+        final Path sourceFilePath = IOUtils.getPath(EXAC_SNIPPET);
+
+        // A cache this small can only hold the most recent entry:
+        final VcfFuncotationCache tinyCache = new VcfFuncotationCache(1);
+        final VcfFuncotationFactory vcfFuncotationFactory = createVcfFuncotationFactory(FACTORY_NAME, FACTORY_VERSION, sourceFilePath, tinyCache);
+        funcotateForCacheTest(vcfFuncotationFactory, createDummyCacheTriples(alleles, 0));
+        funcotateForCacheTest(vcfFuncotationFactory, createDummyCacheTriples(alleles, 0));
+        funcotateForCacheTest(vcfFuncotationFactory, createDummyCacheTriples(alleles, 1));
+        funcotateForCacheTest(vcfFuncotationFactory, createDummyCacheTriples(alleles, 0));
+        Assert.assertEquals(vcfFuncotationFactory.cacheHits, 1);
+        Assert.assertEquals(vcfFuncotationFactory.cacheMisses, 3);
+        Assert.assertEquals(tinyCache.size(), 1);
+
+        // Data sources sharing a cache must not get each other's funcotations:
+        final VcfFuncotationCache sharedCache = new VcfFuncotationCache();
+        final VcfFuncotationFactory factory1 = createVcfFuncotationFactory("ds1", FACTORY_VERSION, sourceFilePath, sharedCache);
+        final VcfFuncotationFactory factory2 = createVcfFuncotationFactory("ds2", FACTORY_VERSION, sourceFilePath, sharedCache);
+        final Triple<VariantContext, ReferenceContext, List<Feature>> cacheTriple = createDummyCacheTriples(alleles, 0);
+        final List<Funcotation> funcotations1 = funcotateForCacheTest(factory1, cacheTriple);
+        final List<Funcotation> funcotations2 = funcotateForCacheTest(factory2, cacheTriple);
+        Assert.assertEquals(factory2.cacheMisses, 1);
+        Assert.assertEquals(sharedCache.size(), 2);
+        funcotations1.forEach(f -> Assert.assertEquals(f.getDataSourceName(), "ds1"));
+        funcotations2.forEach(f -> Assert.assertEquals(f.getDataSourceName(), "ds2"));
     }
 
     // Performs a dummy funcotation with an offset for controlling the cache.
-    private void funcotateForCacheTest(final VcfFuncotationFactory vcfFuncotationFactory, final Triple<VariantContext, ReferenceContext, List<Feature>> cacheTriple) {
-        vcfFuncotationFactory.createFuncotationsOnVariant(
+    private List<Funcotation> funcotateForCacheTest(final VcfFuncotationFactory vcfFuncotationFactory, final Triple<VariantContext, ReferenceContext, List<Feature>> cacheTriple) {
+        return vcfFuncotationFactory.createFuncotationsOnVariant(
                 cacheTriple.getLeft(),
                 cacheTriple.getMiddle(),
                 cacheTriple.getRight(),
@@ -472,6 +499,14 @@ public class VcfFuncotationFactoryUnitTest extends GATKBaseTest {
         return new VcfFuncotationFactory(name, version, sourceFilePath, new LinkedHashMap<>(), new FeatureInput<VariantContext>(sourceFilePath.toString(), name, new HashMap<>()));
     }
 
+    private VcfFuncotationFactory createVcfFuncotationFactory(final String name,
+                                                              final String version,
+                                                              final Path sourceFilePath,
+                                                              final VcfFuncotationCache cache) {
+        return new VcfFuncotationFactory(name, version, sourceFilePath, new LinkedHashMap<>(), new FeatureInput<VariantContext>(sourceFilePath.toString(), name, new HashMap<>()),
+                false, FuncotatorUtils.DEFAULT_MIN_NUM_BASES_FOR_VALID_SEGMENT, cache);
+    }
+
     @Test
     public void testNoSupportOfSegments() {
         final VcfFuncotationFactory factory = createVcfFuncotationFactory("FAKE", "MOCK1", IOUtils.getPath(EXAC_SNIPPET));
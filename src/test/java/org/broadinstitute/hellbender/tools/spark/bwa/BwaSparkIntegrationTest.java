@@ -39,6 +39,26 @@ public final class BwaSparkIntegrationTest extends CommandLineProgramTest {
         SamAssertionUtils.assertSamsEqual(new File(output, "part-r-00000.bam"), expectedSam);
     }
 
+    @Test
+    public void testPairedEndWithSharedIndexImage() throws Exception {
+        final File expectedSam = getTestFile("bwa.sam");
+
+        final File output = createTempFile("bwa", ".bam");
+        Assert.assertTrue(output.delete());
+
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add(StandardArgumentDefinitions.REFERENCE_LONG_NAME, getTestFile("ref.fa"));
+        args.add(StandardArgumentDefinitions.INPUT_LONG_NAME, getTestFile("R.bam"));
+        args.add(GATKSparkTool.SHARDED_OUTPUT_LONG_NAME, true);
+        args.add(GATKSparkTool.NUM_REDUCERS_LONG_NAME,"1");
+        args.addOutput(output);
+        args.addRaw("--" + BwaArgumentCollection.SHARE_BWA_MEM_INDEX_IMAGE_FULL_NAME);
+        args.addRaw("--" + BwaArgumentCollection.PREWARM_BWA_MEM_INDEX_IMAGE_FULL_NAME);
+        this.runCommandLine(args.getArgsArray());
+
+        SamAssertionUtils.assertSamsEqual(new File(output, "part-r-00000.bam"), expectedSam);
+    }
+
     @Test
     public void testSingleEnd() throws Exception {
         final File expectedSam = getTestFile("seBwa.bam");
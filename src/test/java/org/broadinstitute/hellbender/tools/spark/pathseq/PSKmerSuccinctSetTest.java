@@ -0,0 +1,158 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerizer;
+import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
+import org.broadinstitute.hellbender.tools.spark.utils.LongIterator;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+public class PSKmerSuccinctSetTest extends GATKBaseTest {
+
+    private static final int KMER_SIZE = 31;
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    @DataProvider(name = "masks")
+    public Object[][] getMasks() {
+        return new Object[][]{
+                {new byte[]{}},
+                {new byte[]{15}},
+                {new byte[]{0, 4, 15, 30}}
+        };
+    }
+
+    @Test(dataProvider = "masks")
+    public void testContains(final byte[] maskPositions) {
+        final SVKmerShort mask = SVKmerShort.getMask(maskPositions, KMER_SIZE);
+        final Random rand = new Random(48393943L);
+        final long[] kmers = new long[5000];
+        final Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < kmers.length; i++) {
+            kmers[i] = PSKmerCollection.canonicalizeAndMask(new SVKmerShort(rand.nextLong() >>> 2), KMER_SIZE, mask);
+            expected.add(kmers[i]);
+        }
+        // repeated kmers are stored once
+        final List<long[]> collection = Arrays.asList(kmers, Arrays.copyOf(kmers, 1000));
+        final PSKmerSuccinctSet set = writeAndOpen(collection, mask);
+
+        Assert.assertEquals(set.kmerSize(), KMER_SIZE);
+        Assert.assertEquals(set.getMask(), mask);
+        Assert.assertEquals(set.setSize(), expected.size());
+        for (final long kmer : kmers) {
+            Assert.assertTrue(set.contains(new SVKmerShort(kmer)));
+        }
+        final Set<Long> actual = new HashSet<>();
+        final LongIterator iterator = set.iterator();
+        while (iterator.hasNext()) {
+            actual.add(iterator.next());
+        }
+        Assert.assertEquals(actual, expected);
+
+        for (int i = 0; i < 10000; i++) {
+            final SVKmerShort kmer = new SVKmerShort(rand.nextLong() >>> 2);
+            Assert.assertEquals(set.contains(kmer), expected.contains(PSKmerCollection.canonicalizeAndMask(kmer, KMER_SIZE, mask)));
+        }
+    }
+
+    @Test
+    public void testContainsAtLeast() {
+        final SVKmerShort mask = SVKmerShort.getMask(new byte[]{15}, KMER_SIZE);
+        final Random rand = new Random(7393L);
+        final byte[] host = randomBases(rand, 2000);
+        final long[] hostKmers = SVKmerizer.stream(host, KMER_SIZE, 1, new SVKmerShort(KMER_SIZE))
+                .mapToLong(kmer -> PSKmerCollection.canonicalizeAndMask((SVKmerShort) kmer, KMER_SIZE, mask))
+                .toArray();
+        final PSKmerSuccinctSet set = writeAndOpen(Collections.singletonList(hostKmers), mask);
+        final LargeLongHopscotchSet hopscotchSet = new LargeLongHopscotchSet(hostKmers.length);
+        hopscotchSet.addAll(hostKmers);
+        final PSKmerSet expectedSet = new PSKmerSet(hopscotchSet, KMER_SIZE, mask);
+
+        for (int i = 0; i < 200; i++) {
+            // reads taken from the host, with a few mismatches, or random
+            final byte[] read;
+            if (i % 4 == 0) {
+                read = randomBases(rand, 150);
+            } else {
+                final int start = rand.nextInt(host.length - 150);
+                read = Arrays.copyOfRange(host, start, start + 150);
+                for (int j = 0; j < i % 10; j++) {
+                    read[rand.nextInt(read.length)] = BASES[rand.nextInt(BASES.length)];
+                }
+            }
+            for (final int minCount : new int[]{1, 2, 50, 120}) {
+                Assert.assertEquals(set.containsAtLeast(read, minCount), expectedSet.containsAtLeast(read, minCount));
+            }
+        }
+    }
+
+    @Test
+    public void testKmerEncoding() {
+        final SVKmerShort mask = SVKmerShort.getMask(new byte[]{3, 15}, KMER_SIZE);
+        final int numBases = PSKmerSuccinctSet.KmerEncoding.getUnmaskedBaseShifts(KMER_SIZE, mask).length;
+        Assert.assertEquals(numBases, KMER_SIZE - 2);
+        final Random rand = new Random(1234L);
+        for (int minimizerSize = PSKmerSuccinctSet.KmerEncoding.chooseMinimizerSize(1, numBases); minimizerSize <= 13; minimizerSize++) {
+            final PSKmerSuccinctSet.KmerEncoding encoding = new PSKmerSuccinctSet.KmerEncoding(KMER_SIZE, mask, minimizerSize);
+            for (int i = 0; i < 1000; i++) {
+                final long kmer = new SVKmerShort(rand.nextLong() >>> 2).mask(mask).getLong();
+                final long compacted = encoding.compact(kmer);
+                Assert.assertEquals(encoding.expand(compacted), kmer);
+                final int offset = encoding.minimizerOffset(compacted);
+                final int bucket = encoding.bucket(compacted, offset);
+                final long packed = encoding.pack(compacted, offset);
+                Assert.assertTrue(bucket >= 0 && bucket < encoding.numBuckets);
+                Assert.assertEquals(packed & ~encoding.packedMask, 0L);
+                Assert.assertEquals(encoding.unpack(bucket, packed), compacted);
+            }
+        }
+    }
+
+    @Test
+    public void testMinimizerSize() {
+        Assert.assertEquals(PSKmerSuccinctSet.KmerEncoding.chooseMinimizerSize(10, 5), 1);
+        Assert.assertEquals(PSKmerSuccinctSet.KmerEncoding.chooseMinimizerSize(10, 31), 5);
+        Assert.assertEquals(PSKmerSuccinctSet.KmerEncoding.chooseMinimizerSize(3_000_000_000L, 30), 13);
+    }
+
+    @Test
+    public void testEmptySet() {
+        final SVKmerShort mask = SVKmerShort.getMask(new byte[]{15}, KMER_SIZE);
+        final PSKmerSuccinctSet set = writeAndOpen(Collections.singletonList(new long[0]), mask);
+        Assert.assertEquals(set.setSize(), 0);
+        Assert.assertFalse(set.contains(new SVKmerShort(12345L)));
+        Assert.assertFalse(set.iterator().hasNext());
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testNotASuccinctSet() throws Exception {
+        final File file = createTempFile("not-a-set", PSKmerUtils.SUCCINCT_SET_EXTENSION);
+        Files.write(file.toPath(), new byte[100]);
+        PSKmerSuccinctSet.open(file.toPath());
+    }
+
+    private PSKmerSuccinctSet writeAndOpen(final List<long[]> kmers, final SVKmerShort mask) {
+        final File file = createTempFile("kmers", PSKmerUtils.SUCCINCT_SET_EXTENSION);
+        PSKmerSuccinctSet.write(kmers, KMER_SIZE, mask, file.getAbsolutePath());
+        return PSKmerSuccinctSet.open(file.toPath());
+    }
+
+    private static byte[] randomBases(final Random rand, final int length) {
+        final byte[] bases = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bases[i] = BASES[rand.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+}
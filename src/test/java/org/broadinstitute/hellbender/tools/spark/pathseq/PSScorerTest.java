@@ -353,24 +353,22 @@ public class PSScorerTest extends CommandLineProgramTest {
         Assert.assertEquals(infoSA.numMates, 1);
     }
 
-    private static Map<Integer,PSPathogenTaxonScore> scoreIteratorToMap(final Iterator<Tuple2<Integer, PSPathogenTaxonScore>> iter) {
-        final Map<Integer,PSPathogenTaxonScore> map = new HashMap<>();
-        iter.forEachRemaining(pair -> map.put(pair._1, pair._2));
-        return map;
+    private static Map<Integer,PSPathogenTaxonScore> accumulateScores(final List<PSPathogenAlignmentHit> readTaxHits, final PSTree tree,
+                                                                      final boolean divideByGenomeLength) {
+        final PSTreeIndex treeIndex = new PSTreeIndex(tree);
+        return PSScorer.accumulateTaxScores(readTaxHits.iterator(), treeIndex, divideByGenomeLength).getTaxonScores(treeIndex);
     }
 
     @Test
-    public void testComputeTaxScores() {
+    public void testAccumulateTaxScoresAsTreeGrows() {
 
         PSTree tree = new PSTree(1);
         List<PSPathogenAlignmentHit> readTaxHits = new ArrayList<>(1);
         readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(4), 2));
         boolean divideByGenomeLength = true;
         boolean notNormalizedByKingdom = true;
-        final PSTaxonomyDatabase testDatabase = new PSTaxonomyDatabase(tree, null);
         try {
-            final Iterator<Tuple2<Integer, PSPathogenTaxonScore>> resultIter = PSScorer.computeTaxScores(readTaxHits.iterator(), testDatabase, divideByGenomeLength);
-            Map<Integer,PSPathogenTaxonScore> resultMap = PSScorer.computeNormalizedScores(scoreIteratorToMap(resultIter), testDatabase.tree, notNormalizedByKingdom);
+            Map<Integer,PSPathogenTaxonScore> resultMap = PSScorer.computeNormalizedScores(accumulateScores(readTaxHits, tree, divideByGenomeLength), tree, notNormalizedByKingdom);
             Assert.assertTrue(resultMap.isEmpty(), "Result should be empty since the hit does not exist in the tree");
         } catch (Exception e) {
             Assert.fail("Threw an exception when a HitInfo references a tax ID not in the tree, or vice versa", e);
@@ -380,8 +378,7 @@ public class PSScorerTest extends CommandLineProgramTest {
         tree.addNode(3, "n3", 2, 100, "species");
         readTaxHits.clear();
         readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(3), 2));
-        Iterator<Tuple2<Integer, PSPathogenTaxonScore>> resultIter = PSScorer.computeTaxScores(readTaxHits.iterator(), testDatabase, divideByGenomeLength);
-        Map<Integer,PSPathogenTaxonScore> resultMap = PSScorer.computeNormalizedScores(scoreIteratorToMap(resultIter), testDatabase.tree, notNormalizedByKingdom);
+        Map<Integer,PSPathogenTaxonScore> resultMap = PSScorer.computeNormalizedScores(accumulateScores(readTaxHits, tree, divideByGenomeLength), tree, notNormalizedByKingdom);
         Assert.assertEquals(resultMap.size(), 3);
         Assert.assertEquals(resultMap.get(1).getSelfScore(), resultMap.get(2).getSelfScore());
         Assert.assertEquals(resultMap.get(1).getDescendentScore(), resultMap.get(2).getDescendentScore());
@@ -406,18 +403,66 @@ public class PSScorerTest extends CommandLineProgramTest {
         readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(5), 2));
         readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(6), 1));
         readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(8), 2)); //Invalid hit, not in tree
-        resultIter = PSScorer.computeTaxScores(readTaxHits.iterator(), testDatabase, divideByGenomeLength);
-        resultMap = PSScorer.computeNormalizedScores(scoreIteratorToMap(resultIter), tree, notNormalizedByKingdom);
+        resultMap = PSScorer.computeNormalizedScores(accumulateScores(readTaxHits, tree, divideByGenomeLength), tree, notNormalizedByKingdom);
         checkComputedScores(resultMap, divideByGenomeLength, notNormalizedByKingdom);
 
         //Test after switching genome length and kingdom normalization
         divideByGenomeLength = false;
         notNormalizedByKingdom = false;
-        resultIter = PSScorer.computeTaxScores(readTaxHits.iterator(), testDatabase, divideByGenomeLength);
-        resultMap = PSScorer.computeNormalizedScores(scoreIteratorToMap(resultIter), tree, notNormalizedByKingdom);
+        resultMap = PSScorer.computeNormalizedScores(accumulateScores(readTaxHits, tree, divideByGenomeLength), tree, notNormalizedByKingdom);
         checkComputedScores(resultMap, divideByGenomeLength, notNormalizedByKingdom);
     }
 
+    @Test
+    public void testAccumulateTaxScores() {
+        final PSTree tree = new PSTree(1);
+        tree.addNode(2, "n2", 1, 0, PSTaxonomyConstants.KINGDOM_RANK_NAME);
+        tree.addNode(3, "n3", 2, 100, "species");
+        tree.addNode(4, "n4", 1, 0, PSTaxonomyConstants.SUPERKINGDOM_RANK_NAME);
+        tree.addNode(5, "n5", 2, 100, "species");
+        tree.addNode(6, "n6", 4, 100, "species");
+        tree.addNode(7, "n7", 4, 100, "species");
+        final PSTreeIndex treeIndex = new PSTreeIndex(tree);
+        Assert.assertEquals(treeIndex.size(), 7);
+        Assert.assertEquals(treeIndex.getTaxIdOf(treeIndex.getLCA(new int[]{treeIndex.indexOf(3), treeIndex.indexOf(5)})), 2);
+        Assert.assertEquals(treeIndex.getTaxIdOf(treeIndex.getLCA(new int[]{treeIndex.indexOf(3), treeIndex.indexOf(6)})), 1);
+        Assert.assertEquals(treeIndex.indexOf(8), PSTreeIndex.NO_NODE);
+
+        // the hit set {3, 6} is split across two reads and a repeated tax ID, and scored once
+        final List<PSPathogenAlignmentHit> readTaxHits = new ArrayList<>();
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(4), 2)); //Invalid hit, ref length 0
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(3), 2));
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(6, 3), 1));
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(5), 2));
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(3, 6, 3), 1));
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(6), 1));
+        readTaxHits.add(new PSPathogenAlignmentHit(Arrays.asList(8), 2)); //Invalid hit, not in tree
+
+        for (final boolean divideByGenomeLength : new boolean[]{true, false}) {
+            // split the hits between two partitions
+            final PSScoreAccumulator scores = PSScorer.accumulateTaxScores(readTaxHits.subList(0, 3).iterator(), treeIndex, divideByGenomeLength)
+                    .merge(PSScorer.accumulateTaxScores(readTaxHits.subList(3, readTaxHits.size()).iterator(), treeIndex, divideByGenomeLength));
+            final boolean notNormalizedByKingdom = !divideByGenomeLength;
+            final Map<Integer,PSPathogenTaxonScore> resultMap = PSScorer.computeNormalizedScores(scores.getTaxonScores(treeIndex), tree, notNormalizedByKingdom);
+            checkComputedScores(resultMap, divideByGenomeLength, notNormalizedByKingdom);
+        }
+    }
+
+    @Test
+    public void testAccumulateReadCountsBeyondIntRange() {
+        final PSTree tree = new PSTree(1);
+        tree.addNode(2, "n2", 1, 100, "species");
+        final PSTreeIndex treeIndex = new PSTreeIndex(tree);
+        final long numMates = Integer.MAX_VALUE + 10L;
+        final PSScoreAccumulator scores = new PSScoreAccumulator(treeIndex.size());
+        scores.addHits(new int[]{treeIndex.indexOf(2)}, numMates, treeIndex, false);
+        scores.addHits(new int[]{treeIndex.indexOf(2)}, numMates, treeIndex, false);
+        final PSPathogenTaxonScore score = scores.getTaxonScores(treeIndex).get(2);
+        Assert.assertEquals(score.getTotalReads(), 2 * numMates);
+        Assert.assertEquals(score.getUnambiguousReads(), 2 * numMates);
+        Assert.assertEquals(scores.getTaxonScores(treeIndex).get(1).getTotalReads(), 2 * numMates);
+    }
+
     private static void checkComputedScores(final Map<Integer,PSPathogenTaxonScore> resultMap, final boolean divideByGenomeLength,
                                            final boolean notNormalizeByKingdom) {
         double score3 = 0.5 * 2.0 + 2.0;
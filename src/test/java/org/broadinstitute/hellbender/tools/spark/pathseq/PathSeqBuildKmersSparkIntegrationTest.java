@@ -115,6 +115,40 @@ public class PathSeqBuildKmersSparkIntegrationTest extends CommandLineProgramTes
         Assert.assertEquals(testKmerLib, expectedKmerLib);
     }
 
+    @Test
+    public void testSuccinctSetFromFasta() throws Exception {
+        final File expectedFile = getTestFile("hg19mini.mask_4_15.hss");
+        final File ref = new File(hg19MiniReference);
+        final File output = createTempFile("test", PSKmerUtils.SUCCINCT_SET_EXTENSION);
+        if (!output.delete()) {
+            Assert.fail();
+        }
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add(PathSeqBuildKmers.REFERENCE_LONG_NAME, ref);
+        args.add(PathSeqBuildKmers.KMER_MASK_LONG_NAME, "4,15");
+        args.add(PathSeqBuildKmers.SUCCINCT_SET_LONG_NAME, true);
+        args.addOutput(output);
+        this.runCommandLine(args.getArgsArray());
+
+        final Input inputExpected = new Input(FileUtils.openInputStream(expectedFile));
+        final PSKmerSet expectedKmerLib = new Kryo().readObject(inputExpected, PSKmerSet.class);
+        final PSKmerCollection testKmerLib = PSKmerUtils.readKmerFilter(output.getAbsolutePath());
+        Assert.assertTrue(testKmerLib instanceof PSKmerSuccinctSet);
+        Assert.assertEquals(testKmerLib.kmerSize(), expectedKmerLib.kmerSize());
+        Assert.assertEquals(testKmerLib.getMask(), expectedKmerLib.getMask());
+        Assert.assertEquals(((PSKmerSuccinctSet) testKmerLib).setSize(), expectedKmerLib.setSize());
+
+        final LongIterator itr = ((PSKmerSuccinctSet) testKmerLib).iterator();
+        while (itr.hasNext()) {
+            Assert.assertTrue(expectedKmerLib.contains(new SVKmerShort(itr.next())));
+        }
+        final Random rand = new Random(72939);
+        for (int i = 0; i < NUM_FPP_TRIALS; i++) {
+            final SVKmerShort kmer = new SVKmerShort(rand.nextLong() >>> 2);
+            Assert.assertEquals(testKmerLib.contains(kmer), expectedKmerLib.contains(kmer));
+        }
+    }
+
     @DataProvider(name = "badArgs")
     public Object[][] getBadArguments() {
         return new Object[][]{
@@ -0,0 +1,171 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public final class LongKeyHopscotchCollectionTest extends GATKBaseTest {
+    private static final int RAND_SEED = 0xdeadf00;
+    private static final int N_OPERATIONS = 100000;
+
+    // a small range of keys gives lots of collisions and repeated keys
+    @DataProvider(name = "keyRanges")
+    public Object[][] getKeyRanges() {
+        return new Object[][]{ {50L}, {5000L}, {Long.MAX_VALUE} };
+    }
+
+    private static long randomKey( final Random rng, final long keyRange ) {
+        return keyRange == Long.MAX_VALUE ? rng.nextLong() >>> 1 : (long)(rng.nextDouble() * keyRange);
+    }
+
+    @Test(dataProvider = "keyRanges")
+    void longIntMapTest( final long keyRange ) {
+        final Random rng = new Random(RAND_SEED);
+        final LongIntHopscotchMap map = new LongIntHopscotchMap(10);
+        final Map<Long, Integer> expected = new HashMap<>();
+        for ( int opNo = 0; opNo != N_OPERATIONS; ++opNo ) {
+            final long key = randomKey(rng, keyRange);
+            final int op = rng.nextInt(10);
+            if ( op < 5 ) {
+                final int value = rng.nextInt();
+                Assert.assertEquals(map.put(key, value), expected.put(key, value) == null);
+            } else if ( op < 7 ) {
+                Assert.assertEquals(map.increment(key, 3), (int)expected.merge(key, 3, Integer::sum));
+            } else if ( op < 8 ) {
+                Assert.assertEquals(map.remove(key), expected.remove(key) != null);
+            } else {
+                Assert.assertEquals(map.get(key, -7), (int)expected.getOrDefault(key, -7));
+                Assert.assertEquals(map.containsKey(key), expected.containsKey(key));
+            }
+        }
+        Assert.assertEquals(map.size(), expected.size());
+
+        // remove the entries with odd values while iterating
+        final Map<Long, Integer> iterated = new HashMap<>();
+        final LongIntHopscotchMap.EntryIterator itr = map.iterator();
+        while ( itr.hasNext() ) {
+            final long key = itr.next();
+            final int value = itr.getValue();
+            Assert.assertNull(iterated.put(key, value));
+            if ( (value & 1) != 0 ) {
+                itr.remove();
+                expected.remove(key);
+            }
+        }
+        Assert.assertEquals(map.size(), expected.size());
+        expected.forEach((key, value) -> Assert.assertEquals(map.get(key, -1), (int)value));
+
+        final LongIntHopscotchMap map2 = kryoRoundTrip(map, LongIntHopscotchMap.class);
+        Assert.assertEquals(map2.size(), expected.size());
+        expected.forEach((key, value) -> Assert.assertEquals(map2.get(key, -1), (int)value));
+
+        map.clear();
+        Assert.assertTrue(map.isEmpty());
+        Assert.assertEquals(SVUtils.iteratorSize(map.keyIterator()), 0);
+    }
+
+    @Test
+    void longLongMapTest() {
+        final Random rng = new Random(RAND_SEED);
+        final LongLongHopscotchMap map = new LongLongHopscotchMap();
+        final Map<Long, Long> expected = new HashMap<>();
+        for ( int opNo = 0; opNo != N_OPERATIONS; ++opNo ) {
+            final long key = randomKey(rng, 20000);
+            final long value = rng.nextLong();
+            Assert.assertEquals(map.put(key, value), expected.put(key, value) == null);
+        }
+        Assert.assertEquals(map.increment(20001L, Long.MAX_VALUE), Long.MAX_VALUE);
+        expected.put(20001L, Long.MAX_VALUE);
+
+        final LongLongHopscotchMap map2 = kryoRoundTrip(map, LongLongHopscotchMap.class);
+        Assert.assertEquals(map2.size(), expected.size());
+        final LongLongHopscotchMap.EntryIterator itr = map2.iterator();
+        while ( itr.hasNext() ) {
+            final long key = itr.next();
+            Assert.assertEquals(itr.getValue(), (long)expected.get(key));
+        }
+    }
+
+    @Test
+    void longObjMapTest() {
+        final LongObjHopscotchMap<String> map = new LongObjHopscotchMap<>(5);
+        for ( long key = 0; key != 1000; ++key ) {
+            Assert.assertNull(map.put(7 * key, "a" + key));
+        }
+        Assert.assertEquals(map.put(21L, "b"), "a3");
+        Assert.assertEquals(map.get(21L), "b");
+        Assert.assertNull(map.get(22L));
+        Assert.assertTrue(map.remove(21L));
+        Assert.assertFalse(map.remove(21L));
+
+        @SuppressWarnings("unchecked")
+        final LongObjHopscotchMap<String> map2 = kryoRoundTrip(map, LongObjHopscotchMap.class);
+        Assert.assertEquals(map2.size(), 999);
+        for ( long key = 0; key != 1000; ++key ) {
+            Assert.assertEquals(map2.get(7 * key), key == 3 ? null : "a" + key);
+        }
+    }
+
+    @Test(dataProvider = "keyRanges")
+    void multiMapTest( final long keyRange ) {
+        final Random rng = new Random(RAND_SEED);
+        final LongHopscotchMultiMap<Integer> multiMap = new LongHopscotchMultiMap<>(10);
+        final Map<Long, List<Integer>> expected = new HashMap<>();
+        for ( int opNo = 0; opNo != N_OPERATIONS; ++opNo ) {
+            final long key = randomKey(rng, keyRange);
+            final int op = rng.nextInt(10);
+            if ( op < 6 ) {
+                multiMap.add(key, opNo);
+                expected.computeIfAbsent(key, k -> new ArrayList<>()).add(opNo);
+            } else if ( op < 7 ) {
+                Assert.assertEquals(multiMap.removeEach(key), expected.remove(key) != null);
+            } else {
+                Assert.assertEquals(sortedValues(multiMap, key), expected.getOrDefault(key, Collections.emptyList()));
+            }
+        }
+        final int nValues = expected.values().stream().mapToInt(List::size).sum();
+        Assert.assertEquals(multiMap.size(), nValues);
+
+        @SuppressWarnings("unchecked")
+        final LongHopscotchMultiMap<Integer> multiMap2 = kryoRoundTrip(multiMap, LongHopscotchMultiMap.class);
+        Assert.assertEquals(multiMap2.size(), nValues);
+        expected.forEach((key, values) -> Assert.assertEquals(sortedValues(multiMap2, key), values));
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    void negativeKeyTest() {
+        new LongIntHopscotchMap().put(-1L, 0);
+    }
+
+    private static List<Integer> sortedValues( final LongHopscotchMultiMap<Integer> multiMap, final long key ) {
+        final List<Integer> values = new ArrayList<>();
+        multiMap.findEach(key).forEachRemaining(values::add);
+        Collections.sort(values);
+        return values;
+    }
+
+    private static <T> T kryoRoundTrip( final T collection, final Class<T> klass ) {
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final Output out = new Output(bos);
+        final Kryo kryo = new Kryo();
+        kryo.writeObject(out, collection);
+        out.flush();
+
+        final Input in = new Input(new ByteArrayInputStream(bos.toByteArray()));
+        return kryo.readObject(in, klass);
+    }
+}
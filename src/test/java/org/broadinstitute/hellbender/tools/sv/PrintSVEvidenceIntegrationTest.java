@@ -5,6 +5,7 @@ import htsjdk.samtools.SAMSequenceRecord;
 import htsjdk.samtools.util.FileExtensions;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.MultiFeatureWalker;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
 import org.broadinstitute.hellbender.utils.codecs.*;
@@ -93,6 +94,18 @@ public class PrintSVEvidenceIntegrationTest extends CommandLineProgramTest {
         testSpec.executeTest("matching input and output types", this);
     }
 
+    @Test
+    public void testMemoryMappedBciInput() throws IOException {
+        final IntegrationTestSpec testSpec = new IntegrationTestSpec(
+                " -" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME + " %s" +
+                        " -" + StandardArgumentDefinitions.FEATURE_SHORT_NAME + " " +
+                        packageRootTestDir + "engine/tiny_hg38.baf.bci" +
+                        " --" + MultiFeatureWalker.BCI_BLOCK_CACHE_SIZE_LONG_NAME + " 1",
+                Collections.singletonList(packageRootTestDir + "engine/tiny_hg38.baf.txt"));
+        testSpec.setOutputFileExtension("baf.txt");
+        testSpec.executeTest("memory-mapped bci input", this);
+    }
+
     @Test
     public void testIncorrectFeatureTypes() throws IOException {
         final IntegrationTestSpec testSpec = new IntegrationTestSpec(
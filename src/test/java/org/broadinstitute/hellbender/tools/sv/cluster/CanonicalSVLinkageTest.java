@@ -230,6 +230,18 @@ public class CanonicalSVLinkageTest extends GATKBaseTest {
         Assert.assertFalse(linkage.areClusterable(call1, call3Depth).getResult() || linkage.areClusterable(call1, call3Pesr).getResult());
     }
 
+    @Test
+    public void testGetClusterableSecondBreakpointWindow() {
+        final SVCallRecord call1 = SVTestUtils.newCallRecordWithContigsIntervalAndType("chr1", 1000, "chr2", 5000, GATKSVVCFConstants.StructuralVariantAnnotationType.BND);
+        final int window = Math.max(linkage.getEvidenceParams().getWindow(), linkage.getMixedParams().getWindow());
+        final SimpleInterval secondBreakpointWindow = linkage.getClusterableSecondBreakpointWindow(call1);
+        Assert.assertEquals(secondBreakpointWindow, new SimpleInterval("chr2", 5000 - window, 5000 + window));
+
+        final SVCallRecord call2 = SVTestUtils.newCallRecordWithContigsIntervalAndType("chr1", 1000, "chr2", 5000 + window + 1, GATKSVVCFConstants.StructuralVariantAnnotationType.BND);
+        Assert.assertFalse(linkage.areClusterable(call1, call2).getResult());
+        Assert.assertFalse(linkage.areClusterable(call2, call1).getResult());
+    }
+
     @Test
     public void testGetClusteringIntervalLists() {
         //test overloaded function with List
@@ -174,6 +174,24 @@ public class SVClusterEngineTest {
         Assert.assertEquals(output3.get(0).getPositionB(), SVTestUtils.sameBoundsSampleMismatch.getPositionB());
     }
 
+    @Test
+    public void testAddInterchromosomalBreakends() {
+        final SVClusterEngine engine = SVTestUtils.getNewDefaultSingleLinkageEngine();
+        final List<SVCallRecord> output = new ArrayList<>();
+        output.addAll(engine.addAndFlush(SVTestUtils.newCallRecordWithContigsIntervalAndType("chr1", 1000, "chr2", 5000, GATKSVVCFConstants.StructuralVariantAnnotationType.BND)));
+        // second breakpoint on a different contig
+        output.addAll(engine.addAndFlush(SVTestUtils.newCallRecordWithContigsIntervalAndType("chr1", 1010, "chr3", 5000, GATKSVVCFConstants.StructuralVariantAnnotationType.BND)));
+        // second breakpoint outside the window
+        output.addAll(engine.addAndFlush(SVTestUtils.newCallRecordWithContigsIntervalAndType("chr1", 1020, "chr2", 5600, GATKSVVCFConstants.StructuralVariantAnnotationType.BND)));
+        // clusters with the first record
+        output.addAll(engine.addAndFlush(SVTestUtils.newCallRecordWithContigsIntervalAndType("chr1", 1030, "chr2", 5100, GATKSVVCFConstants.StructuralVariantAnnotationType.BND)));
+        output.addAll(engine.flush());
+        Assert.assertTrue(engine.isEmpty());
+        Assert.assertEquals(output.size(), 3);
+        Assert.assertEquals(output.stream().filter(r -> r.getContigB().equals("chr2")).count(), 2);
+        Assert.assertEquals(output.stream().filter(r -> r.getContigB().equals("chr3")).count(), 1);
+    }
+
     @Test
     public void testAddMaxCliqueLarge() {
         final int numRecords = 100;
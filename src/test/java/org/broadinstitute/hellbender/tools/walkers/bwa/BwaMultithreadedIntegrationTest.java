@@ -0,0 +1,186 @@
+package org.broadinstitute.hellbender.tools.walkers.bwa;
+
+import htsjdk.samtools.SAMUtils;
+import htsjdk.samtools.fastq.FastqRecord;
+import htsjdk.samtools.fastq.FastqWriter;
+import htsjdk.samtools.fastq.FastqWriterFactory;
+import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.ReadFilterArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
+import org.broadinstitute.hellbender.engine.filters.ReadNameReadFilter;
+import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
+import org.broadinstitute.hellbender.testutils.SamAssertionUtils;
+import org.broadinstitute.hellbender.tools.spark.bwa.BwaArgumentCollection;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+public final class BwaMultithreadedIntegrationTest extends CommandLineProgramTest {
+    // same inputs and expected outputs as BwaSpark
+    private static final File TEST_DATA_DIR = new File(toolsTestDir, "spark/bwa/BwaSpark/");
+
+    @Test
+    public void testPairedEnd() throws Exception {
+        final File output = createTempFile("bwa", ".bam");
+
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add(StandardArgumentDefinitions.REFERENCE_LONG_NAME, new File(TEST_DATA_DIR, "ref.fa"));
+        args.add(StandardArgumentDefinitions.INPUT_LONG_NAME, new File(TEST_DATA_DIR, "R.bam")); // queryname sorted, paired, and unaligned
+        args.add(StandardArgumentDefinitions.ADD_OUTPUT_SAM_PROGRAM_RECORD, false);
+        args.add(BwaArgumentCollection.BWA_MEM_INDEX_IMAGE_FULL_NAME, new File(TEST_DATA_DIR, "ref.fa.img"));
+        args.add(BwaMultithreaded.THREADS_LONG_NAME, 2);
+        args.addOutput(output);
+        runCommandLine(args);
+
+        SamAssertionUtils.assertSamsEqual(output, new File(TEST_DATA_DIR, "bwa.sam"));
+    }
+
+    @Test
+    public void testSingleEndInSmallBatches() throws Exception {
+        final File output = createTempFile("bwa", ".bam");
+
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add(StandardArgumentDefinitions.REFERENCE_LONG_NAME, new File(TEST_DATA_DIR, "ref.fa"));
+        args.add(StandardArgumentDefinitions.INPUT_LONG_NAME, new File(TEST_DATA_DIR, "seR.bam"));
+        args.add(StandardArgumentDefinitions.ADD_OUTPUT_SAM_PROGRAM_RECORD, false);
+        args.add(BwaMultithreaded.THREADS_LONG_NAME, 2);
+        args.add(BwaMultithreaded.CONVERSION_THREADS_LONG_NAME, 3);
+        args.add(BwaMultithreaded.READS_PER_BATCH_LONG_NAME, 4);
+        args.add(BwaMultithreaded.QUEUED_BATCHES_LONG_NAME, 1);
+        args.addRaw("--" + BwaArgumentCollection.SINGLE_END_ALIGNMENT_FULL_NAME);
+        args.addOutput(output);
+        runCommandLine(args);
+
+        SamAssertionUtils.assertSamsEqual(output, new File(TEST_DATA_DIR, "seBwa.bam"));
+    }
+
+    @Test
+    public void testSingleEndWithPrewarmedIndexImage() throws Exception {
+        final File output = createTempFile("bwa", ".bam");
+
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add(StandardArgumentDefinitions.REFERENCE_LONG_NAME, new File(TEST_DATA_DIR, "ref.fa"));
+        args.add(StandardArgumentDefinitions.INPUT_LONG_NAME, new File(TEST_DATA_DIR, "seR.bam"));
+        args.add(StandardArgumentDefinitions.ADD_OUTPUT_SAM_PROGRAM_RECORD, false);
+        args.addRaw("--" + BwaArgumentCollection.PREWARM_BWA_MEM_INDEX_IMAGE_FULL_NAME);
+        args.addRaw("--" + BwaArgumentCollection.SINGLE_END_ALIGNMENT_FULL_NAME);
+        args.addOutput(output);
+        runCommandLine(args);
+
+        SamAssertionUtils.assertSamsEqual(output, new File(TEST_DATA_DIR, "seBwa.bam"));
+    }
+
+    @Test
+    public void testPairedEndFastqsMatchBam() throws Exception {
+        final File fastq1 = createTempFile("bwa_1", ".fastq");
+        final File fastq2 = createTempFile("bwa_2", ".fastq");
+        writeFastqs(new File(TEST_DATA_DIR, "R.bam"), fastq1, fastq2);
+
+        final File bamOutput = runPairedEnd(args -> args.add(StandardArgumentDefinitions.INPUT_LONG_NAME, new File(TEST_DATA_DIR, "R.bam")));
+        final File fastqOutput = runPairedEnd(args -> {
+            args.add(BwaMultithreaded.FASTQ_LONG_NAME, fastq1);
+            args.add(BwaMultithreaded.FASTQ2_LONG_NAME, fastq2);
+        });
+
+        Assert.assertEquals(alignments(fastqOutput), alignments(bamOutput));
+    }
+
+    @Test
+    public void testSingleEndFastqMatchesBam() throws Exception {
+        final File fastq = createTempFile("bwa", ".fastq");
+        writeFastqs(new File(TEST_DATA_DIR, "seR.bam"), fastq, null);
+
+        final File output = createTempFile("bwa", ".bam");
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add(StandardArgumentDefinitions.REFERENCE_LONG_NAME, new File(TEST_DATA_DIR, "ref.fa"));
+        args.add(BwaMultithreaded.FASTQ_LONG_NAME, fastq);
+        args.add(BwaArgumentCollection.BWA_MEM_INDEX_IMAGE_FULL_NAME, new File(TEST_DATA_DIR, "ref.fa.img"));
+        args.add(BwaMultithreaded.THREADS_LONG_NAME, 2);
+        args.addRaw("--" + BwaArgumentCollection.SINGLE_END_ALIGNMENT_FULL_NAME);
+        args.addOutput(output);
+        runCommandLine(args);
+
+        Assert.assertEquals(alignments(output), alignments(new File(TEST_DATA_DIR, "seBwa.bam")));
+    }
+
+    @Test
+    public void testSingleEndFastqIsFiltered() throws Exception {
+        final File fastq = createTempFile("bwa", ".fastq");
+        writeFastqs(new File(TEST_DATA_DIR, "seR.bam"), fastq, null);
+        final String readName = readAll(new File(TEST_DATA_DIR, "seR.bam")).get(0).getName();
+
+        final File output = createTempFile("bwa", ".bam");
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add(StandardArgumentDefinitions.REFERENCE_LONG_NAME, new File(TEST_DATA_DIR, "ref.fa"));
+        args.add(BwaMultithreaded.FASTQ_LONG_NAME, fastq);
+        args.add(BwaArgumentCollection.BWA_MEM_INDEX_IMAGE_FULL_NAME, new File(TEST_DATA_DIR, "ref.fa.img"));
+        args.add(ReadFilterArgumentDefinitions.READ_FILTER_LONG_NAME, ReadNameReadFilter.class.getSimpleName());
+        args.add(ReadFilterArgumentDefinitions.READ_NAME_LONG_NAME, readName);
+        args.addRaw("--" + BwaArgumentCollection.SINGLE_END_ALIGNMENT_FULL_NAME);
+        args.addOutput(output);
+        runCommandLine(args);
+
+        final List<GATKRead> reads = readAll(output);
+        Assert.assertFalse(reads.isEmpty());
+        for (final GATKRead read : reads) {
+            Assert.assertEquals(read.getName(), readName);
+        }
+    }
+
+    private File runPairedEnd(final Consumer<ArgumentsBuilder> input) {
+        final File output = createTempFile("bwa", ".bam");
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add(StandardArgumentDefinitions.REFERENCE_LONG_NAME, new File(TEST_DATA_DIR, "ref.fa"));
+        input.accept(args);
+        args.add(BwaArgumentCollection.BWA_MEM_INDEX_IMAGE_FULL_NAME, new File(TEST_DATA_DIR, "ref.fa.img"));
+        args.add(BwaMultithreaded.THREADS_LONG_NAME, 2);
+        args.addOutput(output);
+        runCommandLine(args);
+        return output;
+    }
+
+    // writes the reads of an unaligned bam to a FASTQ file, or the first and second mates to two FASTQ files
+    private static void writeFastqs(final File bam, final File fastq1, final File fastq2) {
+        final FastqWriterFactory factory = new FastqWriterFactory();
+        try (final FastqWriter writer1 = factory.newWriter(fastq1);
+             final FastqWriter writer2 = fastq2 == null ? null : factory.newWriter(fastq2)) {
+            for (final GATKRead read : readAll(bam)) {
+                final FastqRecord record = new FastqRecord(read.getName(), read.getBasesString(), "", SAMUtils.phredToFastq(read.getBaseQualities()));
+                if (writer2 != null && read.isSecondOfPair()) {
+                    writer2.write(record);
+                } else {
+                    writer1.write(record);
+                }
+            }
+        }
+    }
+
+    private static List<GATKRead> readAll(final File bam) {
+        final List<GATKRead> reads = new ArrayList<>();
+        try (final ReadsPathDataSource source = new ReadsPathDataSource(bam.toPath())) {
+            source.forEach(reads::add);
+        }
+        return reads;
+    }
+
+    // the alignments of the reads, regardless of their order and of their read groups
+    private static List<String> alignments(final File bam) {
+        final List<String> alignments = new ArrayList<>();
+        for (final GATKRead read : readAll(bam)) {
+            alignments.add(String.join("\t", read.getName(), Boolean.toString(read.isFirstOfPair()),
+                    Boolean.toString(read.isSecondOfPair()), Boolean.toString(read.isUnmapped()),
+                    Boolean.toString(read.isReverseStrand()), Boolean.toString(read.isSupplementaryAlignment()),
+                    read.getContig(), Integer.toString(read.getStart()), read.getCigar().toString(),
+                    Integer.toString(read.getMappingQuality()), read.getBasesString()));
+        }
+        Collections.sort(alignments);
+        return alignments;
+    }
+}
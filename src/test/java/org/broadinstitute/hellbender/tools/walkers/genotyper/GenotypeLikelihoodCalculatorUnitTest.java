@@ -48,6 +48,19 @@ public final class GenotypeLikelihoodCalculatorUnitTest {
         }
     }
 
+    @Test(dataProvider = "ploidyAndMaximumAlleleAndReadCountsData")
+    public void testEnumerationMatchesGenotypeAlleleCounts(final int ploidy, final int alleleCount, final int[] readCount) {
+        final AlleleLikelihoods<GATKRead, Allele> readLikelihoods = ReadLikelihoodsUnitTester.readLikelihoods(alleleCount, readCount);
+        for (int s = 0; s < readCount.length; s++) {
+            final LikelihoodMatrix<GATKRead, Allele> sampleLikelihoods = readLikelihoods.sampleMatrix(s);
+            final double[] expected = GenotypeLikelihoodCalculator.computeLog10GenotypeLikelihoodsByGenotypeAlleleCounts(ploidy, sampleLikelihoods);
+            final double[] actual = GenotypeLikelihoodCalculator.computeLog10GenotypeLikelihoodsByEnumeration(ploidy, sampleLikelihoods);
+            Assert.assertEquals(actual.length, expected.length);
+            for (int g = 0; g < expected.length; g++) {
+                Assert.assertEquals(actual[g], expected[g], 1e-8 * Math.max(1, Math.abs(expected[g])));
+            }
+        }
+    }
 
     private static final int[] MAXIMUM_ALLELE = { 1, 2, 5, 6};
 
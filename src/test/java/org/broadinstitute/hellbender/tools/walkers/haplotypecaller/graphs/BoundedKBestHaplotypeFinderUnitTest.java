@@ -0,0 +1,109 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+public final class BoundedKBestHaplotypeFinderUnitTest extends GATKBaseTest {
+    private static final String[] BASES = {"A", "C", "G", "T"};
+
+    @DataProvider(name = "randomGraphs")
+    public Object[][] randomGraphs() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final long seed : new long[] {1L, 2L, 3L, 4L, 5L} ) {
+            for ( final int maxHaplotypes : new int[] {1, 8, 128, Integer.MAX_VALUE} ) {
+                tests.add(new Object[] {seed, maxHaplotypes});
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "randomGraphs")
+    public void testSameHaplotypesAsGraphBasedFinder( final long seed, final int maxHaplotypes ) {
+        final SeqGraph graph = makeLayeredGraph(new Random(seed), 10, 3);
+        final List<KBestHaplotype<SeqVertex, BaseEdge>> expected =
+                new GraphBasedKBestHaplotypeFinder<>(graph).findBestHaplotypes(maxHaplotypes);
+        final BoundedKBestHaplotypeFinder<SeqVertex, BaseEdge> finder = new BoundedKBestHaplotypeFinder<>(graph);
+        final List<KBestHaplotype<SeqVertex, BaseEdge>> actual = finder.findBestHaplotypes(maxHaplotypes);
+
+        Assert.assertFalse(finder.exceededBudget());
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int idx = 0; idx != actual.size(); ++idx ) {
+            Assert.assertEquals(actual.get(idx).score(), expected.get(idx).score(), 1e-10);
+            Assert.assertEquals(new String(actual.get(idx).getBases()), new String(expected.get(idx).getBases()));
+            Assert.assertEquals(actual.get(idx).getVertices(), expected.get(idx).getVertices());
+        }
+    }
+
+    @Test
+    public void testDeadEndsAreNotExplored() {
+        final SeqGraph graph = new SeqGraph(3);
+        final SeqVertex source = new SeqVertex("A");
+        final SeqVertex middle = new SeqVertex("C");
+        final SeqVertex deadEnd = new SeqVertex("G");
+        final SeqVertex sink = new SeqVertex("T");
+        graph.addVertices(source, middle, deadEnd, sink);
+        graph.addEdge(source, middle, new BaseEdge(false, 1));
+        graph.addEdge(source, deadEnd, new BaseEdge(false, 10));
+        graph.addEdge(middle, sink, new BaseEdge(false, 1));
+
+        final BoundedKBestHaplotypeFinder<SeqVertex, BaseEdge> finder =
+                new BoundedKBestHaplotypeFinder<>(graph, source, sink, BoundedKBestHaplotypeFinder.NO_LIMIT, BoundedKBestHaplotypeFinder.NO_LIMIT);
+        final List<KBestHaplotype<SeqVertex, BaseEdge>> haplotypes = finder.findBestHaplotypes(10);
+        Assert.assertEquals(haplotypes.size(), 1);
+        Assert.assertEquals(new String(haplotypes.get(0).getBases()), "ACT");
+        Assert.assertEquals(finder.getNPartialPaths(), 3);
+    }
+
+    @Test
+    public void testBudget() {
+        final SeqGraph graph = makeLayeredGraph(new Random(7L), 20, 4);
+        final List<KBestHaplotype<SeqVertex, BaseEdge>> unbounded = new BoundedKBestHaplotypeFinder<>(graph).findBestHaplotypes(1000);
+        // each haplotype found requires a partial path of its own, so a smaller budget must run out
+        Assert.assertTrue(unbounded.size() > 200);
+
+        final BoundedKBestHaplotypeFinder<SeqVertex, BaseEdge> finder =
+                new BoundedKBestHaplotypeFinder<>(graph, graph.getSources(), graph.getSinks(), 200, BoundedKBestHaplotypeFinder.NO_LIMIT);
+        final List<KBestHaplotype<SeqVertex, BaseEdge>> bounded = finder.findBestHaplotypes(1000);
+        Assert.assertTrue(finder.exceededBudget());
+        Assert.assertTrue(bounded.size() < unbounded.size());
+        // what we do find are the best haplotypes
+        Assert.assertEquals(bounded.stream().map(h -> new String(h.getBases())).collect(Collectors.toList()),
+                unbounded.subList(0, bounded.size()).stream().map(h -> new String(h.getBases())).collect(Collectors.toList()));
+    }
+
+    // a graph with a single source and sink, and layers of up to maxWidth vertices, each connected to some of the next
+    private static SeqGraph makeLayeredGraph( final Random random, final int nLayers, final int maxWidth ) {
+        final SeqGraph graph = new SeqGraph(3);
+        List<SeqVertex> previousLayer = Collections.singletonList(new SeqVertex("ACGT"));
+        graph.addVertex(previousLayer.get(0));
+        for ( int layer = 0; layer <= nLayers; ++layer ) {
+            final List<SeqVertex> currentLayer = new ArrayList<>();
+            final int width = layer == nLayers ? 1 : 1 + random.nextInt(maxWidth);
+            for ( int idx = 0; idx != width; ++idx ) {
+                final StringBuilder sequence = new StringBuilder();
+                for ( int len = 1 + random.nextInt(3); len > 0; --len ) {
+                    sequence.append(BASES[random.nextInt(BASES.length)]);
+                }
+                final SeqVertex vertex = new SeqVertex(sequence.toString());
+                graph.addVertex(vertex);
+                currentLayer.add(vertex);
+            }
+            for ( final SeqVertex target : currentLayer ) {
+                // make sure every vertex is reachable, and add other edges at random
+                final SeqVertex requiredSource = previousLayer.get(random.nextInt(previousLayer.size()));
+                for ( final SeqVertex source : previousLayer ) {
+                    if ( source == requiredSource || random.nextBoolean() ) {
+                        graph.addEdge(source, target, new BaseEdge(false, 1 + random.nextInt(1000)));
+                    }
+                }
+            }
+            previousLayer = currentLayer;
+        }
+        return graph;
+    }
+}
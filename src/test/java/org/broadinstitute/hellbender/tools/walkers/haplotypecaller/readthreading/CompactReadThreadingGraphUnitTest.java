@@ -0,0 +1,176 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.LowWeightChainPruner;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.MultiSampleEdge;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public final class CompactReadThreadingGraphUnitTest extends GATKBaseTest {
+    private static final byte MIN_BASE_QUAL = 10;
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    @DataProvider(name = "graphParameters")
+    public Object[][] graphParameters() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final int kmerSize : new int[] {5, 10, 25, 31} ) {
+            for ( final int numPruningSamples : new int[] {1, 2} ) {
+                for ( final boolean startOnlyAtExistingVertex : new boolean[] {false, true} ) {
+                    tests.add(new Object[] {kmerSize, numPruningSamples, startOnlyAtExistingVertex});
+                }
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "graphParameters")
+    public void testEquivalenceToReadThreadingGraph( final int kmerSize, final int numPruningSamples,
+                                                     final boolean startOnlyAtExistingVertex ) {
+        final Random random = new Random(kmerSize * 47 + numPruningSamples);
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final List<SAMReadGroupRecord> readGroups = new ArrayList<>();
+        for ( int idx = 0; idx != 3; ++idx ) {
+            final SAMReadGroupRecord readGroup = new SAMReadGroupRecord("RG" + idx);
+            readGroup.setSample("sample" + idx);
+            readGroups.add(readGroup);
+        }
+        header.setReadGroups(readGroups);
+
+        // a reference with a short tandem repeat, so that there are some non-unique kmers
+        final byte[] ref = randomBases(random, 300);
+        System.arraycopy("ACGTTACGTTACGTTACGTT".getBytes(), 0, ref, 150, 20);
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int idx = 0; idx != 300; ++idx ) {
+            final int start = random.nextInt(ref.length - 100);
+            final byte[] bases = Arrays.copyOfRange(ref, start, start + 100);
+            final byte[] quals = Utils.dupBytes((byte)30, bases.length);
+            for ( int errIdx = 0; errIdx != 2; ++errIdx ) {
+                final int pos = random.nextInt(bases.length);
+                bases[pos] = BASES[random.nextInt(BASES.length)];
+            }
+            if ( random.nextInt(10) == 0 ) {
+                bases[random.nextInt(bases.length)] = 'N';
+            }
+            if ( random.nextInt(10) == 0 ) {
+                quals[random.nextInt(quals.length)] = 2;
+            }
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(bases, quals, bases.length + "M");
+            read.setName("read" + idx);
+            read.setReadGroup(readGroups.get(random.nextInt(readGroups.size())).getId());
+            reads.add(read);
+        }
+
+        final ReadThreadingGraph expected =
+                new ReadThreadingGraph(kmerSize, false, MIN_BASE_QUAL, numPruningSamples, -1);
+        expected.setThreadingStartOnlyAtExistingVertex(startOnlyAtExistingVertex);
+        expected.addSequence("ref", ref, 1, true);
+        reads.forEach(read -> expected.addRead(read, header));
+        expected.buildGraphIfNecessary();
+
+        final CompactReadThreadingGraph compact =
+                new CompactReadThreadingGraph(kmerSize, MIN_BASE_QUAL, numPruningSamples, -1);
+        compact.setThreadingStartOnlyAtExistingVertex(startOnlyAtExistingVertex);
+        compact.addSequence("ref", ref, 1, true);
+        reads.forEach(read -> compact.addRead(read, header));
+        Assert.assertTrue(compact.isPackable());
+        compact.buildGraph();
+        Assert.assertEquals(compact.getNVertices(), expected.vertexSet().size());
+        Assert.assertEquals(compact.getNEdges(), expected.edgeSet().size());
+        Assert.assertEquals(compact.getNNonUniqueKmers(), expected.getNonUniqueKmers().size());
+        assertGraphsEqual(compact.toReadThreadingGraph(), expected);
+
+        for ( final int pruneFactor : new int[] {2, 3} ) {
+            new LowWeightChainPruner<MultiDeBruijnVertex, MultiSampleEdge>(pruneFactor).pruneLowWeightChains(expected);
+            compact.pruneLowWeightChains(pruneFactor);
+            final ReadThreadingGraph actual = compact.toReadThreadingGraph();
+            assertGraphsEqual(actual, expected);
+            Assert.assertEquals(actual.hasCycles(), expected.hasCycles());
+            Assert.assertEquals(actual.isLowQualityGraph(), expected.isLowQualityGraph());
+            Assert.assertEquals(actual.getReferenceSourceVertex().getSequenceString(),
+                                expected.getReferenceSourceVertex().getSequenceString());
+        }
+    }
+
+    @Test
+    public void testUnpackableSequences() {
+        final CompactReadThreadingGraph graph = new CompactReadThreadingGraph(10, MIN_BASE_QUAL, 1, -1);
+        graph.addSequence("ref", "ACGTACGTTTGACCAGT".getBytes(), 1, true);
+        Assert.assertTrue(graph.isPackable());
+        graph.addSequence("alt", "ACGTACGTTTGRCCAGT".getBytes(), 1, false);
+        Assert.assertFalse(graph.isPackable());
+        Assert.assertThrows(IllegalStateException.class, graph::buildGraph);
+    }
+
+    @Test
+    public void testPackedKmerMap() {
+        final CompactReadThreadingGraph.PackedKmerMap map = new CompactReadThreadingGraph.PackedKmerMap(4);
+        final Random random = new Random(17L);
+        final Map<Long, Integer> expected = new HashMap<>();
+        for ( int idx = 0; idx != 10000; ++idx ) {
+            // a small key space, so there are lots of collisions, replacements, and removals of absent keys
+            final long kmer = random.nextInt(4000);
+            if ( random.nextInt(3) == 0 ) {
+                map.remove(kmer);
+                expected.remove(kmer);
+            } else {
+                map.put(kmer, idx);
+                expected.put(kmer, idx);
+            }
+        }
+        Assert.assertEquals(map.size(), expected.size());
+        for ( long kmer = 0; kmer != 4000; ++kmer ) {
+            Assert.assertEquals(map.get(kmer), (int)expected.getOrDefault(kmer, -1));
+        }
+    }
+
+    private static void assertGraphsEqual( final ReadThreadingGraph actual, final ReadThreadingGraph expected ) {
+        final List<MultiDeBruijnVertex> actualVertices = new ArrayList<>(actual.vertexSet());
+        final List<MultiDeBruijnVertex> expectedVertices = new ArrayList<>(expected.vertexSet());
+        Assert.assertEquals(actualVertices.size(), expectedVertices.size());
+        for ( int idx = 0; idx != actualVertices.size(); ++idx ) {
+            Assert.assertEquals(actualVertices.get(idx).getSequenceString(), expectedVertices.get(idx).getSequenceString());
+            Assert.assertEquals(actualVertices.get(idx).getAdditionalInfo(), expectedVertices.get(idx).getAdditionalInfo());
+        }
+
+        final List<MultiSampleEdge> actualEdges = new ArrayList<>(actual.edgeSet());
+        final List<MultiSampleEdge> expectedEdges = new ArrayList<>(expected.edgeSet());
+        Assert.assertEquals(actualEdges.size(), expectedEdges.size());
+        for ( int idx = 0; idx != actualEdges.size(); ++idx ) {
+            final MultiSampleEdge actualEdge = actualEdges.get(idx);
+            final MultiSampleEdge expectedEdge = expectedEdges.get(idx);
+            Assert.assertEquals(actualVertices.indexOf(actual.getEdgeSource(actualEdge)),
+                                expectedVertices.indexOf(expected.getEdgeSource(expectedEdge)));
+            Assert.assertEquals(actualVertices.indexOf(actual.getEdgeTarget(actualEdge)),
+                                expectedVertices.indexOf(expected.getEdgeTarget(expectedEdge)));
+            Assert.assertEquals(actualEdge.isRef(), expectedEdge.isRef());
+            Assert.assertEquals(actualEdge.getMultiplicity(), expectedEdge.getMultiplicity());
+            Assert.assertEquals(actualEdge.getPruningMultiplicity(), expectedEdge.getPruningMultiplicity());
+        }
+
+        final List<Kmer> actualKmers = new ArrayList<>(actual.kmerToVertexMap.keySet());
+        final List<Kmer> expectedKmers = new ArrayList<>(expected.kmerToVertexMap.keySet());
+        Assert.assertEquals(actualKmers, expectedKmers);
+        for ( final Kmer kmer : expectedKmers ) {
+            Assert.assertEquals(actualVertices.indexOf(actual.kmerToVertexMap.get(kmer)),
+                                expectedVertices.indexOf(expected.kmerToVertexMap.get(kmer)));
+        }
+        Assert.assertEquals(actual.getNonUniqueKmers(), expected.getNonUniqueKmers());
+    }
+
+    private static byte[] randomBases( final Random random, final int length ) {
+        final byte[] bases = new byte[length];
+        for ( int idx = 0; idx != length; ++idx ) {
+            bases[idx] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+}
@@ -64,6 +64,68 @@ public final class ReadThreadingAssemblerUnitTest extends GATKBaseTest {
 
     }
 
+    @DataProvider(name = "ParallelAndCompactAssemblyData")
+    public Object[][] makeParallelAndCompactAssemblyData() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final int start : new int[] {100000, 100400, 100800} ) {
+            for ( final boolean withRepeat : new boolean[] {false, true} ) {
+                tests.add(new Object[] {new SimpleInterval("1", start, start + 199), withRepeat});
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    // serial assembly, assembly of all kmer sizes in parallel, and assembly with compact graphs must agree exactly
+    @Test(dataProvider = "ParallelAndCompactAssemblyData")
+    public void testParallelAndCompactAssemblyMatchSerial(final SimpleInterval loc, final boolean withRepeat) {
+        final byte[] refBases = seq.getSubsequenceAt(loc.getContig(), loc.getStart(), loc.getEnd()).getBases();
+        if ( withRepeat ) {
+            // a 60bp tandem repeat makes the reference kmers non-unique for all but the largest kmer sizes
+            for ( int i = 70; i < 130; i++ ) {
+                refBases[i] = (byte)((i % 2 == 0) ? 'A' : 'C');
+            }
+        }
+        final byte[] altBases = refBases.clone();
+        altBases[40] = altBases[40] == 'A' ? (byte)'C' : (byte)'A';
+        altBases[160] = altBases[160] == 'G' ? (byte)'T' : (byte)'G';
+
+        final List<GATKRead> reads = new LinkedList<>();
+        for ( int i = 0; i < 20; i++ ) {
+            final byte[] bases = (i % 2 == 0 ? refBases : altBases).clone();
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + i, loc.getContig(), loc.getStart(),
+                    bases, Utils.dupBytes((byte) 30, bases.length), bases.length + "M");
+            reads.add(read);
+        }
+
+        final List<Haplotype> expected = assemble(makeExpandingAssembler(), refBases, loc, reads);
+        Assert.assertFalse(expected.isEmpty());
+
+        final ReadThreadingAssembler parallelAssembler = makeExpandingAssembler();
+        parallelAssembler.setAssemblyThreads(3);
+        final ReadThreadingAssembler compactAssembler = makeExpandingAssembler();
+        compactAssembler.setUseCompactGraph(true);
+        final ReadThreadingAssembler parallelCompactAssembler = makeExpandingAssembler();
+        parallelCompactAssembler.setAssemblyThreads(3);
+        parallelCompactAssembler.setUseCompactGraph(true);
+        for ( final ReadThreadingAssembler assembler : Arrays.asList(parallelAssembler, compactAssembler, parallelCompactAssembler) ) {
+            try {
+                final List<Haplotype> actual = assemble(assembler, refBases, loc, reads);
+                Assert.assertEquals(actual, expected);
+                for ( int i = 0; i < actual.size(); i++ ) {
+                    Assert.assertEquals(actual.get(i).getCigar(), expected.get(i).getCigar());
+                }
+            } finally {
+                assembler.shutdown();
+            }
+        }
+    }
+
+    // an assembler that falls back on larger kmer sizes when the requested ones don't work
+    private static ReadThreadingAssembler makeExpandingAssembler() {
+        return new ReadThreadingAssembler(ReadThreadingAssembler.DEFAULT_NUM_PATHS_PER_GRAPH, Arrays.asList(10, 25),
+                false, false, 1, 2, false, 0.001, 2, 2, Integer.MAX_VALUE, false, false, 3);
+    }
+
     @DataProvider(name = "AssembleIntervalsData")
     public Object[][] makeAssembleIntervalsData() {
         List<Object[]> tests = new ArrayList<>();
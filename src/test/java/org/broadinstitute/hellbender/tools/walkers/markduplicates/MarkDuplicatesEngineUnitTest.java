@@ -0,0 +1,118 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFlag;
+import org.apache.spark.api.java.JavaRDD;
+import org.apache.spark.api.java.JavaSparkContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.OpticalDuplicatesArgumentCollection;
+import org.broadinstitute.hellbender.engine.GATKPath;
+import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
+import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
+import org.broadinstitute.hellbender.engine.spark.datasources.ReadsSparkSource;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSpark;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.markduplicates.GATKDuplicationMetrics;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import picard.sam.markduplicates.MarkDuplicates;
+import picard.sam.markduplicates.util.OpticalDuplicateFinder;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MarkDuplicatesEngineUnitTest extends GATKBaseTest {
+    private static final String TEST_DATA_DIR = new File(toolsTestDir, "walkers/MarkDuplicatesGATK/").getAbsolutePath();
+
+    @DataProvider(name = "md")
+    public Object[][] loadReads() {
+        return new Object[][]{
+                {TEST_DATA_DIR + "/example.chr1.1-1K.markedDups.querygrouped.bam", 1, 1},
+                {TEST_DATA_DIR + "/example.chr1.1-1K.markedDups.querygrouped.bam", 7, 3},
+                {TEST_DATA_DIR + "/example.chr1.1-1K.markedDups.queryname.bam", 64, 4},
+                {TEST_DATA_DIR + "/optical_dupes.queryname.bam", 2, 2},
+        };
+    }
+
+    @Test(dataProvider = "md", groups = "spark")
+    public void testMatchesMarkDuplicatesSpark(final String input, final int numBuckets, final int numThreads) {
+        final OpticalDuplicatesArgumentCollection opticalArgs = new OpticalDuplicatesArgumentCollection();
+        final MarkDuplicatesSparkArgumentCollection mdArgs = new MarkDuplicatesSparkArgumentCollection();
+        mdArgs.taggingPolicy = MarkDuplicates.DuplicateTaggingPolicy.All;
+
+        final List<GATKRead> reads = new ArrayList<>();
+        final SAMFileHeader header;
+        try (final ReadsPathDataSource source = new ReadsPathDataSource(new GATKPath(input).toPath())) {
+            header = source.getHeader();
+            source.forEach(reads::add);
+        }
+
+        final List<GATKRead> marked = new ArrayList<>();
+        final Map<String, GATKDuplicationMetrics> metrics;
+        try (final MarkDuplicatesEngine engine = new MarkDuplicatesEngine(header,
+                () -> new OpticalDuplicateFinder(opticalArgs.READ_NAME_REGEX, opticalArgs.OPTICAL_DUPLICATE_PIXEL_DISTANCE, null),
+                mdArgs, numBuckets, numThreads)) {
+            engine.findDuplicates(reads.iterator());
+            engine.markDuplicates(reads.iterator(), marked::add);
+            metrics = engine.getMetricsByLibrary();
+        }
+        Assert.assertEquals(marked.size(), reads.size());
+
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+        final ReadsSparkSource readSource = new ReadsSparkSource(ctx);
+        final JavaRDD<GATKRead> sparkReads = readSource.getParallelReads(new GATKPath(input), null);
+        final OpticalDuplicateFinder finder = new OpticalDuplicateFinder(opticalArgs.READ_NAME_REGEX, opticalArgs.OPTICAL_DUPLICATE_PIXEL_DISTANCE, null);
+        final JavaRDD<GATKRead> sparkMarked = MarkDuplicatesSpark.mark(sparkReads, header, finder, mdArgs, 1);
+        final Map<String, GATKRead> expectedByKey = new HashMap<>();
+        for (final GATKRead read : sparkMarked.collect()) {
+            expectedByKey.put(key(read, header), read);
+        }
+        Assert.assertEquals(expectedByKey.size(), marked.size());
+        assertMetricsEqual(metrics, MarkDuplicatesSparkUtils.generateMetrics(header, sparkMarked).collectAsMap());
+
+        int duplicates = 0;
+        for (int i = 0; i < marked.size(); i++) {
+            final GATKRead read = marked.get(i);
+            Assert.assertEquals(read.getName(), reads.get(i).getName(), "the output must be in input order");
+            final GATKRead expected = expectedByKey.get(key(read, header));
+            Assert.assertNotNull(expected, read.toString());
+            Assert.assertEquals(read.isDuplicate(), expected.isDuplicate(), read.toString());
+            Assert.assertEquals(read.getAttributeAsString(MarkDuplicates.DUPLICATE_TYPE_TAG),
+                    expected.getAttributeAsString(MarkDuplicates.DUPLICATE_TYPE_TAG), read.toString());
+            duplicates += read.isDuplicate() ? 1 : 0;
+        }
+        Assert.assertTrue(duplicates > 0);
+    }
+
+    private static void assertMetricsEqual(final Map<String, GATKDuplicationMetrics> actual,
+                                           final Map<String, GATKDuplicationMetrics> expected) {
+        Assert.assertEquals(actual.keySet(), expected.keySet());
+        for (final Map.Entry<String, GATKDuplicationMetrics> entry : expected.entrySet()) {
+            final GATKDuplicationMetrics actualMetrics = actual.get(entry.getKey());
+            for (final Field field : GATKDuplicationMetrics.class.getFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                try {
+                    Assert.assertEquals(field.get(actualMetrics), field.get(entry.getValue()), entry.getKey() + " " + field.getName());
+                } catch (final IllegalAccessException e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }
+    }
+
+    // identifies a record independently of its duplicate flag
+    private static String key(final GATKRead read, final SAMFileHeader header) {
+        final int flags = read.convertToSAMRecord(header).getFlags() & ~SAMFlag.DUPLICATE_READ.intValue();
+        return read.getName() + '\t' + flags + '\t' + read.getContig() + '\t' + read.getStart();
+    }
+}
@@ -0,0 +1,97 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.ReadsPathDataSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
+import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSpark;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import picard.sam.markduplicates.MarkDuplicates;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class MarkDuplicatesMultithreadedIntegrationTest extends CommandLineProgramTest {
+    private static final File TEST_DATA_DIR = new File(getTestDataDir(), "walkers/MarkDuplicatesGATK/");
+
+    @DataProvider(name = "md")
+    public Object[][] md() {
+        return new Object[][]{
+                {new File(TEST_DATA_DIR, "example.chr1.1-1K.markedDups.querygrouped.bam"), 4},
+                {new File(TEST_DATA_DIR, "example.chr1.1-1K.markedDups.queryname.bam"), 1},
+                {new File(TEST_DATA_DIR, "optical_dupes.queryname.bam"), 2},
+        };
+    }
+
+    @Test(dataProvider = "md", groups = "spark")
+    public void testMatchesMarkDuplicatesSpark(final File input, final int threads) throws IOException {
+        final File output = createTempFile("markdups", ".bam");
+        final File metrics = createTempFile("markdups_metrics", ".txt");
+        final ArgumentsBuilder args = new ArgumentsBuilder()
+                .addInput(input)
+                .addOutput(output)
+                .add(StandardArgumentDefinitions.METRICS_FILE_LONG_NAME, metrics.getAbsolutePath())
+                .add(MarkDuplicatesMultithreaded.THREADS_LONG_NAME, threads)
+                .add(MarkDuplicatesMultithreaded.NUM_BUCKETS_LONG_NAME, 3);
+        runCommandLine(args);
+
+        final File sparkOutput = createTempFile("markdups_spark", ".bam");
+        final File sparkMetrics = createTempFile("markdups_spark_metrics", ".txt");
+        final ArgumentsBuilder sparkArgs = new ArgumentsBuilder()
+                .addInput(input)
+                .addOutput(sparkOutput)
+                .add(StandardArgumentDefinitions.METRICS_FILE_LONG_NAME, sparkMetrics.getAbsolutePath());
+        runCommandLine(sparkArgs, MarkDuplicatesSpark.class.getSimpleName());
+
+        IntegrationTestSpec.assertEqualTextFiles(metrics, sparkMetrics, "#");
+
+        final List<GATKRead> inputReads = readAll(input);
+        final List<GATKRead> reads = readAll(output);
+        final Map<String, GATKRead> expectedByKey = new HashMap<>();
+        for (final GATKRead read : readAll(sparkOutput)) {
+            expectedByKey.put(key(read), read);
+        }
+        Assert.assertEquals(reads.size(), inputReads.size());
+        Assert.assertEquals(expectedByKey.size(), reads.size());
+        for (int i = 0; i < reads.size(); i++) {
+            final GATKRead read = reads.get(i);
+            Assert.assertEquals(read.getName(), inputReads.get(i).getName(), "the output must be in input order");
+            final GATKRead expected = expectedByKey.get(key(read));
+            Assert.assertNotNull(expected, read.toString());
+            Assert.assertEquals(read.isDuplicate(), expected.isDuplicate(), read.toString());
+            Assert.assertEquals(read.getAttributeAsString(MarkDuplicates.DUPLICATE_TYPE_TAG),
+                    expected.getAttributeAsString(MarkDuplicates.DUPLICATE_TYPE_TAG), read.toString());
+        }
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testRequiresReadNameGroupedInput() {
+        final ArgumentsBuilder args = new ArgumentsBuilder()
+                .addInput(new File(TEST_DATA_DIR, "example.chr1.1-1K.unmarkedDups.bam"))
+                .addOutput(createTempFile("markdups", ".bam"));
+        runCommandLine(args);
+    }
+
+    private static List<GATKRead> readAll(final File bam) {
+        final List<GATKRead> reads = new ArrayList<>();
+        try (final ReadsPathDataSource source = new ReadsPathDataSource(bam.toPath())) {
+            source.forEach(reads::add);
+        }
+        return reads;
+    }
+
+    // identifies a record independently of its duplicate flag
+    private static String key(final GATKRead read) {
+        return read.getName() + '\t' + read.isFirstOfPair() + '\t' + read.isSecondaryAlignment() + '\t' +
+                read.isSupplementaryAlignment() + '\t' + read.getContig() + '\t' + read.getStart();
+    }
+}
@@ -1,58 +1,108 @@
 package org.broadinstitute.hellbender.tools.walkers.sv;
 
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
+import org.broadinstitute.hellbender.tools.sv.DiscordantPairEvidence;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.codecs.DepthEvidenceCodec;
 import org.broadinstitute.hellbender.utils.codecs.DiscordantPairEvidenceCodec;
 import org.broadinstitute.hellbender.utils.codecs.SiteDepthCodec;
 import org.broadinstitute.hellbender.utils.codecs.SplitReadEvidenceCodec;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.File;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class CollectSVEvidenceIntegrationTest extends CommandLineProgramTest {
 
     public static final String pesrTestDir = toolsTestDir + "walkers/sv/pesr";
 
-    @Test
-    public void testPECollection() throws Exception {
+    @DataProvider(name = "contigThreads")
+    public Object[][] getContigThreads() {
+        return new Object[][] { {1}, {3} };
+    }
+
+    @Test(dataProvider = "contigThreads")
+    public void testPECollection( final int contigThreads ) throws Exception {
         // these test files were generated by svtk collect-pesr
         final IntegrationTestSpec spec = new IntegrationTestSpec(
-                "-I " + NA12878_20_21_WGS_bam + " --sample-name NA12878 -PE %s",
+                "-I " + NA12878_20_21_WGS_bam + " --sample-name NA12878 -PE %s" +
+                        " --" + CollectSVEvidence.CONTIG_THREADS_ARGUMENT_LONG_NAME + " " + contigThreads,
                 Collections.singletonList(pesrTestDir + "/NA12878" + DiscordantPairEvidenceCodec.FORMAT_SUFFIX + ".gz"));
         spec.setOutputFileExtension(DiscordantPairEvidenceCodec.FORMAT_SUFFIX + ".gz");
         spec.executeTest("PE collection", this);
     }
 
-    @Test
-    public void testSRCollection() throws Exception {
+    @Test(dataProvider = "contigThreads")
+    public void testSRCollection( final int contigThreads ) throws Exception {
         final IntegrationTestSpec spec = new IntegrationTestSpec(
-                "-I " + NA12878_20_21_WGS_bam + " --sample-name NA12878 -SR %s",
+                "-I " + NA12878_20_21_WGS_bam + " --sample-name NA12878 -SR %s" +
+                        " --" + CollectSVEvidence.CONTIG_THREADS_ARGUMENT_LONG_NAME + " " + contigThreads,
                 Collections.singletonList(pesrTestDir + "/NA12878" + SplitReadEvidenceCodec.FORMAT_SUFFIX + ".gz"));
         spec.setOutputFileExtension(SplitReadEvidenceCodec.FORMAT_SUFFIX + ".gz");
         spec.executeTest("SR collection", this);
     }
 
-    @Test
-    public void testSDCollection() throws Exception {
+    @Test(dataProvider = "contigThreads")
+    public void testSDCollection( final int contigThreads ) throws Exception {
         final IntegrationTestSpec spec = new IntegrationTestSpec(
-                "-I " + NA12878_20_21_WGS_bam + " --sample-name NA12878 -F " + pesrTestDir + "/snpSites.vcf -SD %s",
+                "-I " + NA12878_20_21_WGS_bam + " --sample-name NA12878 -F " + pesrTestDir + "/snpSites.vcf -SD %s" +
+                        " --" + CollectSVEvidence.CONTIG_THREADS_ARGUMENT_LONG_NAME + " " + contigThreads,
                 Collections.singletonList(pesrTestDir + "/NA12878" + SiteDepthCodec.FORMAT_SUFFIX + ".gz"));
         spec.setOutputFileExtension(SiteDepthCodec.FORMAT_SUFFIX + ".gz");
         spec.executeTest("SD collection", this);
     }
 
-    @Test
-    public void testRDCollection() throws Exception {
+    @Test(dataProvider = "contigThreads")
+    public void testRDCollection( final int contigThreads ) throws Exception {
         final IntegrationTestSpec spec = new IntegrationTestSpec(
                 "-I " + NA12878_20_21_WGS_bam +
                         " --sample-name NA12878" +
                         " -DI " + pesrTestDir + "/intervals.bed" +
                         " --" + CollectSVEvidence.MIN_DEPTH_EVIDENCE_MAPQ_ARGUMENT_NAME + " 30" +
-                        " -RD %s",
+                        " -RD %s" +
+                        " --" + CollectSVEvidence.CONTIG_THREADS_ARGUMENT_LONG_NAME + " " + contigThreads,
                 Collections.singletonList(pesrTestDir + "/NA12878" + DepthEvidenceCodec.FORMAT_SUFFIX + ".gz"));
         spec.setOutputFileExtension(DepthEvidenceCodec.FORMAT_SUFFIX + ".gz");
         spec.executeTest("RD collection", this);
     }
+
+    @Test
+    public void testContigParallelBCIOutput() {
+        final File output = createTempFile("NA12878", ".pe.bci");
+        final ArgumentsBuilder args = new ArgumentsBuilder()
+                .addInput(NA12878_20_21_WGS_bam)
+                .add(CollectSVEvidence.SAMPLE_NAME_ARGUMENT_LONG_NAME, "NA12878")
+                .add(CollectSVEvidence.PAIRED_END_FILE_ARGUMENT_LONG_NAME, output.getAbsolutePath())
+                .add(CollectSVEvidence.CONTIG_THREADS_ARGUMENT_LONG_NAME, 3);
+        runCommandLine(args);
+
+        final List<DiscordantPairEvidence> expected;
+        try ( final FeatureDataSource<DiscordantPairEvidence> source =
+                      new FeatureDataSource<>(pesrTestDir + "/NA12878" + DiscordantPairEvidenceCodec.FORMAT_SUFFIX + ".gz") ) {
+            expected = Utils.stream(source.iterator()).collect(Collectors.toList());
+        }
+        try ( final FeatureDataSource<DiscordantPairEvidence> source =
+                      new FeatureDataSource<>(output.getAbsolutePath()) ) {
+            Assert.assertEquals(Utils.stream(source.iterator()).collect(Collectors.toList()), expected);
+
+            // the rewritten index must locate the data from every shard
+            for ( final String contig : Arrays.asList("20", "21") ) {
+                final SimpleInterval interval = new SimpleInterval(contig, 1, 100000000);
+                final List<DiscordantPairEvidence> expectedOnContig = expected.stream()
+                        .filter(evidence -> evidence.getContig().equals(contig))
+                        .collect(Collectors.toList());
+                Assert.assertFalse(expectedOnContig.isEmpty());
+                Assert.assertEquals(source.queryAndPrefetch(interval), expectedOnContig);
+            }
+        }
+    }
 }
@@ -151,22 +151,23 @@ public class CollectSVEvidenceUnitTest extends GATKBaseTest {
         CollectSVEvidence tool = new CollectSVEvidence();
         final PriorityQueue<SplitPos> splitCounts = new PriorityQueue<>(new SplitPosComparator());
         tool.sampleName = "sample";
+        final CollectSVEvidence.EvidenceCollector collector = tool.new EvidenceCollector(null, mockSrWriter, null, null);
 
-        tool.countSplitRead(rightClip, splitCounts, mockSrWriter);
+        collector.countSplitRead(rightClip, splitCounts, mockSrWriter);
         Map<SplitPos, Long> counts = splitCounts.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
         Assert.assertEquals(counts.get(new SplitPos(1100, POSITION.RIGHT)).intValue(), 1);
         Mockito.verifyZeroInteractions(mockSrWriter);
 
         final GATKRead rightClip2 = ArtificialReadUtils.createArtificialRead(header, "rightClip2", 0, 1050, ArtificialReadUtils.createRandomReadBases(151, false),
                 ArtificialReadUtils.createRandomReadQuals(151), "50M101S");
-        tool.countSplitRead(rightClip2, splitCounts, mockSrWriter);
+        collector.countSplitRead(rightClip2, splitCounts, mockSrWriter);
         counts = splitCounts.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
         Assert.assertEquals(counts.get(new SplitPos(1100, POSITION.RIGHT)).intValue(), 2);
         Mockito.verifyZeroInteractions(mockSrWriter);
 
         final GATKRead leftClip = ArtificialReadUtils.createArtificialRead(header, "leftClip", 0, 1100, ArtificialReadUtils.createRandomReadBases(151, false),
                 ArtificialReadUtils.createRandomReadQuals(151), "20S131M");
-        tool.countSplitRead(leftClip, splitCounts, mockSrWriter);
+        collector.countSplitRead(leftClip, splitCounts, mockSrWriter);
         counts = splitCounts.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
         Assert.assertEquals(counts.get(new SplitPos(1100, POSITION.RIGHT)).intValue(), 2);
         Assert.assertEquals(counts.get(new SplitPos(1100, POSITION.LEFT)).intValue(), 1);
@@ -174,7 +175,7 @@ public class CollectSVEvidenceUnitTest extends GATKBaseTest {
 
         final GATKRead leftClipDownstream = ArtificialReadUtils.createArtificialRead(header, "leftClipDownstream", 0, 1600, ArtificialReadUtils.createRandomReadBases(151, false),
                 ArtificialReadUtils.createRandomReadQuals(151), "20S131M");
-        tool.countSplitRead(leftClipDownstream, splitCounts, mockSrWriter);
+        collector.countSplitRead(leftClipDownstream, splitCounts, mockSrWriter);
         counts = splitCounts.stream().collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
         Assert.assertFalse(counts.containsKey(new SplitPos(1100, POSITION.RIGHT)));
         Assert.assertFalse(counts.containsKey(new SplitPos(1100, POSITION.LEFT)));
@@ -9,6 +9,7 @@ import org.broadinstitute.hellbender.GATKBaseTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.GATKPath;
 import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
+import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
 import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.GATKSVVCFConstants;
 import org.broadinstitute.hellbender.tools.sv.SVCallRecord;
@@ -23,6 +24,7 @@ import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -242,12 +244,21 @@ public class SVClusterIntegrationTest extends CommandLineProgramTest {
     }
 
 
-    // Ensure the output buffer works correctly
-    @Test
-    public void testAgainstSimpleImplementation() {
+    @DataProvider(name = "testAgainstSimpleImplementationData")
+    public Object[][] testAgainstSimpleImplementationData() {
+        return new Object[][]{
+                {1},
+                {2}
+        };
+    }
+
+    // Ensure the output buffer works correctly, including when clustering contigs in parallel
+    @Test(dataProvider = "testAgainstSimpleImplementationData")
+    public void testAgainstSimpleImplementation(final int contigThreads) {
         final File output = createTempFile("single_linkage_cluster", ".vcf");
         final ArgumentsBuilder args = new ArgumentsBuilder()
                 .addOutput(output)
+                .add(SVCluster.CONTIG_THREADS_LONG_NAME, contigThreads)
                 .add(SVCluster.PLOIDY_TABLE_LONG_NAME, getToolTestDataDir() + "1kgp.batch1.ploidy.tsv")
                 .add(SVCluster.VARIANT_PREFIX_LONG_NAME, "SVx")
                 .add(SVCluster.ALGORITHM_LONG_NAME, SVCluster.CLUSTER_ALGORITHM.SINGLE_LINKAGE)
@@ -328,6 +339,45 @@ public class SVClusterIntegrationTest extends CommandLineProgramTest {
         }
     }
 
+    // Each contig worker reads reference bases from its own reader, so results must match the single-threaded run
+    @Test
+    public void testContigThreadsMatchSingleThreaded() throws IOException {
+        final File singleThreadedOutput = runClusterMaxCliqueWithContigThreads(1);
+        final File multiThreadedOutput = runClusterMaxCliqueWithContigThreads(4);
+        IntegrationTestSpec.assertEqualTextFiles(multiThreadedOutput, singleThreadedOutput, "#");
+    }
+
+    private File runClusterMaxCliqueWithContigThreads(final int contigThreads) {
+        final File output = createTempFile("max_clique_cluster_threads_" + contigThreads, ".vcf");
+        final ArgumentsBuilder args = new ArgumentsBuilder()
+                .addOutput(output)
+                .add(SVCluster.CONTIG_THREADS_LONG_NAME, contigThreads)
+                .add(SVCluster.PLOIDY_TABLE_LONG_NAME, getToolTestDataDir() + "1kgp.batch1.ploidy.tsv")
+                .add(SVCluster.VARIANT_PREFIX_LONG_NAME, "SVx")
+                .add(StandardArgumentDefinitions.REFERENCE_LONG_NAME, REFERENCE_PATH)
+                .add(SVCluster.ALGORITHM_LONG_NAME, SVCluster.CLUSTER_ALGORITHM.MAX_CLIQUE)
+                .add(SVClusterEngineArgumentsCollection.DEPTH_SAMPLE_OVERLAP_FRACTION_NAME, 0)
+                .add(SVClusterEngineArgumentsCollection.DEPTH_INTERVAL_OVERLAP_FRACTION_NAME, 0.5)
+                .add(SVClusterEngineArgumentsCollection.DEPTH_BREAKEND_WINDOW_NAME, 10000000)
+                .add(SVClusterEngineArgumentsCollection.MIXED_SAMPLE_OVERLAP_FRACTION_NAME, 0)
+                .add(SVClusterEngineArgumentsCollection.MIXED_INTERVAL_OVERLAP_FRACTION_NAME, 0.1)
+                .add(SVClusterEngineArgumentsCollection.MIXED_BREAKEND_WINDOW_NAME, 2000)
+                .add(SVClusterEngineArgumentsCollection.PESR_SAMPLE_OVERLAP_FRACTION_NAME, 0)
+                .add(SVClusterEngineArgumentsCollection.PESR_INTERVAL_OVERLAP_FRACTION_NAME, 0.1)
+                .add(SVClusterEngineArgumentsCollection.PESR_BREAKEND_WINDOW_NAME, 500);
+        Arrays.asList(
+                "1kgp_test.cnvs.vcf.gz",
+                "HG00096.manta.vcf.gz",
+                "HG00096.wham.vcf.gz",
+                "HG00129.manta.vcf.gz",
+                "HG00129.wham.vcf.gz",
+                "HG00140.manta.vcf.gz",
+                "HG00140.wham.vcf.gz"
+        ).forEach(v -> args.addVCF(getToolTestDataDir() + v));
+        runCommandLine(args, SVCluster.class.getSimpleName());
+        return output;
+    }
+
     @DataProvider(name = "testClusterMaxCliqueData")
     public Object[][] testClusterMaxCliqueData() {
         return new Object[][]{
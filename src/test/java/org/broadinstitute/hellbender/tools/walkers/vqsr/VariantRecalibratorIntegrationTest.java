@@ -224,6 +224,12 @@ public class VariantRecalibratorIntegrationTest extends CommandLineProgramTest {
                 alleleSpecificVQSRParams,
                 getToolTestDataDir() + "expected.AS.tranches",
                 getLargeVQSRTestDataDir() + "expected/expected.AS.recal.vcf"
+            },
+            {
+                // the parallel EM implementation must reproduce the single-threaded results exactly
+                Stream.concat(Arrays.stream(VQSRSNPParamsWithResources), Stream.of("--model-threads", "4")).toArray(String[]::new),
+                getLargeVQSRTestDataDir() + "expected/SNPDefaultTranches.txt",
+                getLargeVQSRTestDataDir() + "snpRecal.vcf"
             }
 
         };
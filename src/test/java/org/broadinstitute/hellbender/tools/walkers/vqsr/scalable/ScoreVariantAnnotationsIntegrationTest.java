@@ -177,6 +177,40 @@ public final class ScoreVariantAnnotationsIntegrationTest extends CommandLinePro
                 String.format("%s.scores.hdf5", outputPrefix));
     }
 
+    /**
+     * Scoring in streaming mode should produce a VCF identical to that produced when scoring all variants at once,
+     * but should not produce the annotations and scores HDF5 files.
+     */
+    @Test(groups = {"python"}) // python environment is required to run tool
+    public void testStreamingMode() {
+        final String tag = "extract.nonAS.snpIndel.posUn.train.snpIndel.posOnly.IF.score.snpIndel";
+        final File outputDir = createTempDir("score");
+        final String outputPrefix = String.format("%s/%s", outputDir, tag);
+        final ArgumentsBuilder argsBuilder = BASE_ARGUMENTS_BUILDER_SUPPLIER.get();
+        argsBuilder.add(ScoreVariantAnnotations.SCORING_BATCH_SIZE_LONG_NAME, 1000)
+                .add(ScoreVariantAnnotations.SCORING_THREADS_LONG_NAME, 2)
+                .addOutput(outputPrefix);
+        final String modelPrefix = new File(INPUT_FROM_TRAIN_EXPECTED_TEST_FILES_DIR,
+                "extract.nonAS.snpIndel.posUn.train.snpIndel.posOnly.IF").toString();
+        final Function<ArgumentsBuilder, ArgumentsBuilder> addModelPrefix = ab ->
+                ADD_MODEL_PREFIX.apply(ab, modelPrefix);
+        final Function<ArgumentsBuilder, ArgumentsBuilder> addCalibrationSensitivityThreshold = ab ->
+                ADD_CALIBRATION_SENSITIVITY_THRESHOLD.apply(ab, CALIBRATION_SENSITIVITY_THRESHOLD);
+        addModelPrefix
+                .andThen(addCalibrationSensitivityThreshold)
+                .andThen(ExtractVariantAnnotationsIntegrationTest.ADD_NON_ALLELE_SPECIFIC_ANNOTATIONS)
+                .andThen(ExtractVariantAnnotationsIntegrationTest.ADD_SNP_MODE_AND_RESOURCES)
+                .andThen(ExtractVariantAnnotationsIntegrationTest.ADD_INDEL_MODE_AND_RESOURCES)
+                .apply(argsBuilder);
+        runCommandLine(argsBuilder);
+
+        SystemCommandUtilsTest.runDiff(
+                String.format("%s/%s.vcf", EXPECTED_TEST_FILES_DIR, tag),
+                String.format("%s.vcf", outputPrefix));
+        Assert.assertFalse(new File(outputPrefix + ScoreVariantAnnotations.ANNOTATIONS_HDF5_SUFFIX).exists());
+        Assert.assertFalse(new File(outputPrefix + ScoreVariantAnnotations.SCORES_HDF5_SUFFIX).exists());
+    }
+
     /**
      * In contrast to {@link ExtractVariantAnnotationsIntegrationTest#testNoResources}, the non-presence of
      * resources here does not really affect the output.
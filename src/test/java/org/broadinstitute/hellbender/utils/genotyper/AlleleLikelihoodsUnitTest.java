@@ -84,6 +84,34 @@ public final class AlleleLikelihoodsUnitTest {
         return fillWithRandomLikelihoods(samples, alleles, result);
     }
 
+    @Test(dataProvider = "dataSets")
+    public void testReleaseAndReuseBuffers(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
+        LikelihoodBufferPool.clear();
+        final AlleleLikelihoods<GATKRead, Allele> original = new AlleleLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
+        final double[][][] likelihoods = fillWithRandomLikelihoods(samples, alleles, original);
+
+        // a marginalization has its own buffers, so it is unaffected by releasing the original's:
+        final Map<Allele, List<Allele>> identity = new LinkedHashMap<>();
+        Arrays.stream(alleles).forEach(a -> identity.put(a, Collections.singletonList(a)));
+        final AlleleLikelihoods<GATKRead, Allele> marginalized = original.marginalize(identity);
+        original.releaseBuffers();
+        testLikelihoodMatrixQueries(samples, marginalized, likelihoods);
+
+        // recycled buffers must not leak values into a new collection:
+        final AlleleLikelihoods<GATKRead, Allele> reused = new AlleleLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
+        for (int s = 0; s < samples.length; s++) {
+            final LikelihoodMatrix<GATKRead, Allele> sampleMatrix = reused.sampleMatrix(s);
+            for (int a = 0; a < alleles.length; a++) {
+                for (int r = 0; r < sampleMatrix.evidenceCount(); r++) {
+                    Assert.assertEquals(sampleMatrix.get(a, r), 0.0);
+                }
+            }
+        }
+        reused.releaseBuffers();
+        marginalized.releaseBuffers();
+        LikelihoodBufferPool.clear();
+    }
+
     @Test(dataProvider = "dataSets")
     public void testBestAlleles(final String[] samples, final Allele[] alleles, final Map<String,List<GATKRead>> reads) {
         final AlleleLikelihoods<GATKRead, Allele> original = new AlleleLikelihoods<>(new IndexedSampleList(samples), new IndexedAlleleList<>(alleles), reads);
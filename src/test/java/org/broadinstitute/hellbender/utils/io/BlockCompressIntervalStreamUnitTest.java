@@ -6,14 +6,21 @@ import htsjdk.samtools.seekablestream.ByteArraySeekableStream;
 import htsjdk.samtools.util.LocationAware;
 import htsjdk.tribble.*;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.FeatureInput;
+import org.broadinstitute.hellbender.engine.GATKPath;
 import org.broadinstitute.hellbender.tools.sv.SVFeaturesHeader;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Reader;
 import org.broadinstitute.hellbender.utils.io.BlockCompressedIntervalStream.Writer;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.*;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.List;
 
 public class BlockCompressIntervalStreamUnitTest extends GATKBaseTest {
     private static int POS_START = 1000;
@@ -55,7 +62,7 @@ public class BlockCompressIntervalStreamUnitTest extends GATKBaseTest {
 
         @Override
         public Class<SimpleFeature> getFeatureType() {
-            return null;
+            return SimpleFeature.class;
         }
 
         @Override
@@ -175,4 +182,132 @@ public class BlockCompressIntervalStreamUnitTest extends GATKBaseTest {
         itr2.close();
         reader2.close();
     }
+
+    @Test
+    public void testConcatenate() throws IOException {
+        final SVFeaturesHeader header =
+                new SVFeaturesHeader(SimpleFeature.class.getSimpleName(), "1", dict, Collections.singletonList("sample"));
+        final List<GATKPath> shards = new ArrayList<>();
+        for ( final SAMSequenceRecord rec : dict.getSequences() ) {
+            final GATKPath shard = new GATKPath(createTempFile("shard" + rec.getSequenceIndex(), ".bci").getAbsolutePath());
+            final Writer<SimpleFeature> writer = new Writer<>(shard, header, BlockCompressIntervalStreamUnitTest::write);
+            final String contig = rec.getSequenceName();
+            for ( int start = POS_START; start < POS_END; start += POS_INC ) {
+                writer.write(new SimpleFeature(contig, start, start + FEATURE_LENGTH));
+            }
+            writer.close();
+            shards.add(shard);
+        }
+        // an empty shard shouldn't disturb anything
+        final GATKPath emptyShard = new GATKPath(createTempFile("emptyShard", ".bci").getAbsolutePath());
+        new Writer<>(emptyShard, header, BlockCompressIntervalStreamUnitTest::write).close();
+        shards.add(1, emptyShard);
+
+        final File output = createTempFile("concatenated", ".bci");
+        BlockCompressedIntervalStream.concatenate(shards, new GATKPath(output.getAbsolutePath()));
+        final byte[] bytes = Files.readAllBytes(output.toPath());
+
+        final SimpleFeatureCodec codec = new SimpleFeatureCodec();
+        final Reader<SimpleFeature> reader =
+                new Reader<>("concatenated stream", new ByteArraySeekableStream(bytes), codec);
+        Assert.assertEquals(reader.getSampleNames(), header.getSampleNames());
+        Assert.assertTrue(reader.getDictionary().isSameDictionary(dict));
+        for ( final SAMSequenceRecord rec : dict.getSequences() ) {
+            final String contig = rec.getSequenceName();
+            for ( int start = POS_START; start < POS_END; start += POS_INC ) {
+                final SimpleFeature recoveredFeature = reader.readStream();
+                Assert.assertEquals(recoveredFeature.getContig(), contig);
+                Assert.assertEquals(recoveredFeature.getStart(), start);
+                Assert.assertEquals(recoveredFeature.getEnd(), start + FEATURE_LENGTH);
+            }
+        }
+        Assert.assertFalse(reader.hasNext());
+        reader.close();
+
+        // query each contig to make sure the rewritten index points to the right blocks
+        for ( final SAMSequenceRecord rec : dict.getSequences() ) {
+            final String contig = rec.getSequenceName();
+            final int start = POS_START + 100 * POS_INC;
+            final Reader<SimpleFeature> queryReader =
+                    new Reader<>("concatenated stream", new ByteArraySeekableStream(bytes), codec);
+            final CloseableTribbleIterator<SimpleFeature> itr = queryReader.query(contig, start + 10, start + 20);
+            Assert.assertTrue(itr.hasNext());
+            final SimpleFeature recoveredFeature = itr.next();
+            Assert.assertEquals(recoveredFeature.getContig(), contig);
+            Assert.assertEquals(recoveredFeature.getStart(), start - POS_INC);
+            itr.close();
+            queryReader.close();
+        }
+    }
+
+    @Test
+    public void testMappedReaderAndBatchedQuery() throws IOException {
+        final SVFeaturesHeader header =
+                new SVFeaturesHeader(SimpleFeature.class.getSimpleName(), "1", dict, Collections.singletonList("sample"));
+        final File file = createTempFile("mapped", ".bci");
+        final GATKPath path = new GATKPath(file.getAbsolutePath());
+        final Writer<SimpleFeature> writer = new Writer<>(path, header, BlockCompressIntervalStreamUnitTest::write);
+        final List<SimpleFeature> features = new ArrayList<>();
+        final String contig0 = dict.getSequence(0).getSequenceName();
+        features.add(new SimpleFeature(contig0, POS_START - 10, POS_START + 20 * POS_INC));
+        for ( final SAMSequenceRecord rec : dict.getSequences() ) {
+            final String contig = rec.getSequenceName();
+            for ( int start = POS_START; start < POS_END; start += POS_INC ) {
+                features.add(new SimpleFeature(contig, start, start + FEATURE_LENGTH));
+            }
+        }
+        for ( final SimpleFeature feature : features ) {
+            writer.write(feature);
+        }
+        writer.close();
+
+        // the mapped reader must produce the same stream of features as the streaming reader
+        final SimpleFeatureCodec codec = new SimpleFeatureCodec();
+        final InflatedBlockCache cache = new InflatedBlockCache(InflatedBlockCache.DEFAULT_CAPACITY_BYTES);
+        final Reader<SimpleFeature> mappedReader = new Reader<>(new FeatureInput<>(path), codec, cache);
+        Assert.assertTrue(mappedReader.isMemoryMapped());
+        Assert.assertTrue(mappedReader.getDictionary().isSameDictionary(dict));
+        for ( final SimpleFeature feature : features ) {
+            Assert.assertTrue(mappedReader.hasNext());
+            final SimpleFeature recoveredFeature = mappedReader.readStream();
+            Assert.assertEquals(recoveredFeature.getContig(), feature.getContig());
+            Assert.assertEquals(recoveredFeature.getStart(), feature.getStart());
+            Assert.assertEquals(recoveredFeature.getEnd(), feature.getEnd());
+        }
+        Assert.assertFalse(mappedReader.hasNext());
+
+        final String contig1 = dict.getSequence(1).getSequenceName();
+        final List<SimpleInterval> intervals = Arrays.asList(
+                new SimpleInterval(contig1, POS_START + 500 * POS_INC + 10, POS_START + 520 * POS_INC),
+                new SimpleInterval(contig0, POS_START + 10 * POS_INC + 10, POS_START + 12 * POS_INC + 20),
+                new SimpleInterval(contig0, POS_START + 12 * POS_INC + 10, POS_START + 30 * POS_INC + 20),
+                new SimpleInterval(contig0, POS_START + 2000 * POS_INC + 10, POS_START + 2000 * POS_INC + 20),
+                new SimpleInterval("absentContig", 1, 1000));
+        final List<SimpleFeature> expected = new ArrayList<>();
+        for ( final SimpleFeature feature : features ) {
+            for ( final SimpleInterval interval : intervals ) {
+                if ( interval.overlaps(feature) ) {
+                    expected.add(feature);
+                    break;
+                }
+            }
+        }
+
+        final Reader<SimpleFeature> mappedReader2 = new Reader<>(new FeatureInput<>(path), codec, cache);
+        final Reader<SimpleFeature> streamingReader = new Reader<>(new FeatureInput<>(path), codec);
+        Assert.assertFalse(streamingReader.isMemoryMapped());
+        for ( final Reader<SimpleFeature> reader : Arrays.asList(mappedReader, mappedReader2, streamingReader) ) {
+            final List<SimpleFeature> result = reader.queryAll(intervals);
+            Assert.assertEquals(result.size(), expected.size());
+            for ( int idx = 0; idx != expected.size(); ++idx ) {
+                Assert.assertEquals(result.get(idx).getContig(), expected.get(idx).getContig());
+                Assert.assertEquals(result.get(idx).getStart(), expected.get(idx).getStart());
+                Assert.assertEquals(result.get(idx).getEnd(), expected.get(idx).getEnd());
+            }
+        }
+        Assert.assertTrue(cache.getNHits() > 0);
+        mappedReader.close();
+        mappedReader2.close();
+        streamingReader.close();
+    }
 }
@@ -0,0 +1,142 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.markduplicates.LibraryIdGenerator;
+import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
+import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+public class MarkDuplicatesSparkRecordCodecUnitTest extends GATKBaseTest {
+
+    private static SAMFileHeader header() {
+        final SAMFileHeader header = hg19Header.clone();
+        header.setReadGroups(Arrays.asList(new SAMReadGroupRecord("1")));
+        return header;
+    }
+
+    private static GATKRead read(final String name, final int start, final boolean reverseStrand, final boolean firstOfPair) {
+        final GATKRead read = ArtificialReadUtils.createSamBackedRead(name, "1", start, 100);
+        read.setReadGroup("1");
+        read.setIsPaired(true);
+        read.setIsReverseStrand(reverseStrand);
+        if (firstOfPair) {
+            read.setIsFirstOfPair();
+        } else {
+            read.setIsSecondOfPair();
+        }
+        return read;
+    }
+
+    private static Map<String, Byte> libraryMap(final GATKRead read, final SAMFileHeader header) {
+        return Collections.singletonMap(MarkDuplicatesSparkUtils.getLibraryForRead(read, header, LibraryIdGenerator.UNKNOWN_LIBRARY), (byte) 0);
+    }
+
+    @DataProvider
+    public Object[][] strands() {
+        return new Object[][]{{false, false}, {false, true}, {true, false}, {true, true}};
+    }
+
+    @Test(dataProvider = "strands")
+    public void testPairRoundTrip(final boolean firstReverse, final boolean secondReverse) {
+        final SAMFileHeader header = header();
+        // the second read comes first in coordinate order, so the pair is flipped
+        final GATKRead first = read("pair", 1000, firstReverse, true);
+        final GATKRead second = read("pair", 500, secondReverse, false);
+        final Pair pair = MarkDuplicatesSparkRecord.newPair(first, second, header, 17, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, libraryMap(first, header));
+        pair.setReadGroup((short) 3);
+
+        final Pair decoded = (Pair) MarkDuplicatesSparkRecordCodec.decode(MarkDuplicatesSparkRecordCodec.encode(pair));
+        Assert.assertEquals(decoded.getType(), MarkDuplicatesSparkRecord.Type.PAIR);
+        Assert.assertEquals(decoded.getName(), pair.getName());
+        Assert.assertEquals(decoded.getPartitionIndex(), 17);
+        Assert.assertEquals(decoded.getReadGroup(), 3);
+        Assert.assertEquals(decoded.getScore(), pair.getScore());
+        Assert.assertEquals(decoded.isRead1ReverseStrand(), pair.isRead1ReverseStrand());
+        Assert.assertEquals(decoded.getOrientationForPCRDuplicates(), pair.getOrientationForPCRDuplicates());
+        Assert.assertEquals(decoded.getOrientationForOpticalDuplicates(), pair.getOrientationForOpticalDuplicates());
+    }
+
+    @DataProvider
+    public Object[][] strand() {
+        return new Object[][]{{false}, {true}};
+    }
+
+    @Test(dataProvider = "strand")
+    public void testFragmentRoundTrip(final boolean reverse) {
+        final SAMFileHeader header = header();
+        final GATKRead read = read("fragment:1:2", 1000, reverse, true);
+        final MarkDuplicatesSparkArgumentCollection mdArgs = new MarkDuplicatesSparkArgumentCollection();
+        final PairedEnds fragment = MarkDuplicatesSparkRecord.newFragment(read, header, 5, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, libraryMap(read, header), mdArgs);
+
+        final PairedEnds decoded = (PairedEnds) MarkDuplicatesSparkRecordCodec.decode(MarkDuplicatesSparkRecordCodec.encode(fragment));
+        Assert.assertEquals(decoded.getClass(), Fragment.class);
+        Assert.assertEquals(decoded.getType(), MarkDuplicatesSparkRecord.Type.FRAGMENT);
+        Assert.assertEquals(decoded.getName(), "fragment:1:2");
+        Assert.assertEquals(decoded.getPartitionIndex(), 5);
+        Assert.assertEquals(decoded.getScore(), fragment.getScore());
+        Assert.assertEquals(decoded.isRead1ReverseStrand(), reverse);
+
+        final EmptyFragment empty = MarkDuplicatesSparkRecord.newEmptyFragment(read, header, libraryMap(read, header), mdArgs);
+        final EmptyFragment decodedEmpty = (EmptyFragment) MarkDuplicatesSparkRecordCodec.decode(MarkDuplicatesSparkRecordCodec.encode(empty));
+        Assert.assertEquals(decodedEmpty.isRead1ReverseStrand(), reverse);
+    }
+
+    @Test
+    public void testFlowModeFragmentRoundTrip() {
+        final FlowModeFragment fragment = new FlowModeFragment(9, "flow", (short) 2, (short) 300, true, 12345);
+        final FlowModeFragment decoded = (FlowModeFragment) MarkDuplicatesSparkRecordCodec.decode(MarkDuplicatesSparkRecordCodec.encode(fragment));
+        Assert.assertEquals(decoded.getName(), "flow");
+        Assert.assertEquals(decoded.getPartitionIndex(), 9);
+        Assert.assertEquals(decoded.getReadGroup(), 2);
+        Assert.assertEquals(decoded.getScore(), 300);
+        Assert.assertTrue(decoded.isRead1ReverseStrand());
+        Assert.assertEquals(decoded.getEnd(), 12345);
+    }
+
+    @Test
+    public void testPassthroughRoundTrip() {
+        final GATKRead read = read("unmapped", 1000, false, true);
+        final MarkDuplicatesSparkRecord passthrough = MarkDuplicatesSparkRecord.getPassthrough(read, 42);
+        final MarkDuplicatesSparkRecord decoded = MarkDuplicatesSparkRecordCodec.decode(MarkDuplicatesSparkRecordCodec.encode(passthrough));
+        Assert.assertEquals(decoded.getType(), MarkDuplicatesSparkRecord.Type.PASSTHROUGH);
+        Assert.assertEquals(decoded.getName(), "unmapped");
+        Assert.assertEquals(decoded.getPartitionIndex(), 42);
+    }
+
+    @Test
+    public void testKeyEncoding() {
+        final ReadsKey[] keys = {
+                ReadsKey.getKeyForFragment(100, false, 0, (byte) 0),
+                ReadsKey.getKeyForFragment(100, true, 0, (byte) 0),
+                ReadsKey.getKeyForFragment(100, false, 1, (byte) 0),
+                ReadsKey.getKeyForFragment(100, false, 0, (byte) 1),
+                ReadsKey.getKeyForFragment(-5, false, 0, (byte) 0),
+                ReadsKey.getKeyForFragment(100, false, 0, (byte) 0),
+        };
+        for (final ReadsKey key1 : keys) {
+            final byte[] encoded1 = MarkDuplicatesSparkRecordCodec.encodeKey(key1);
+            Assert.assertEquals(encoded1.length, MarkDuplicatesSparkRecordCodec.KEY_LENGTH);
+            for (final ReadsKey key2 : keys) {
+                final byte[] encoded2 = MarkDuplicatesSparkRecordCodec.encodeKey(key2);
+                Assert.assertEquals(MarkDuplicatesSparkRecordCodec.compareKeys(encoded1, encoded2) == 0, key1.equals(key2));
+                Assert.assertEquals(Integer.signum(MarkDuplicatesSparkRecordCodec.compareKeys(encoded1, encoded2)),
+                        -Integer.signum(MarkDuplicatesSparkRecordCodec.compareKeys(encoded2, encoded1)));
+                if (key1.equals(key2)) {
+                    Assert.assertEquals(MarkDuplicatesSparkRecordCodec.hashKey(encoded1), MarkDuplicatesSparkRecordCodec.hashKey(encoded2));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.Random;
+
+public final class SmithWatermanBufferedJavaAlignerUnitTest extends SmithWatermanAlignerAbstractUnitTest {
+
+    @Override
+    protected SmithWatermanBufferedJavaAligner getAligner() {
+        return SmithWatermanBufferedJavaAligner.getInstance();
+    }
+
+    @DataProvider
+    public Object[][] getOverhangStrategies() {
+        final SWOverhangStrategy[] strategies = SWOverhangStrategy.values();
+        final Object[][] result = new Object[strategies.length][];
+        for (int i = 0; i < strategies.length; i++) {
+            result[i] = new Object[] { strategies[i] };
+        }
+        return result;
+    }
+
+    // alignments of varying sizes, so that the scratch buffers are reused and regrown between alignments
+    @Test(dataProvider = "getOverhangStrategies")
+    public void testMatchesJavaAligner(final SWOverhangStrategy strategy) {
+        final Random random = new Random(13);
+        final SWParameters parameters = new SWParameters(200, -150, -260, -11);
+        for (int i = 0; i < 200; i++) {
+            final byte[] ref = randomBases(random, 1 + random.nextInt(300));
+            final byte[] alt = mutate(random, ref, 1 + random.nextInt(10));
+            final SmithWatermanAlignment expected = SmithWatermanJavaAligner.getInstance().align(ref, alt, parameters, strategy);
+            final SmithWatermanAlignment actual = getAligner().align(ref, alt, parameters, strategy);
+            Assert.assertEquals(actual.getCigar(), expected.getCigar());
+            Assert.assertEquals(actual.getAlignmentOffset(), expected.getAlignmentOffset());
+        }
+    }
+
+    private static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bases[i] = (byte) "ACGT".charAt(random.nextInt(4));
+        }
+        return bases;
+    }
+
+    // a random substring of the sequence with a few random substitutions, insertions and deletions
+    private static byte[] mutate(final Random random, final byte[] sequence, final int mutationCount) {
+        final int start = random.nextInt(sequence.length);
+        final int end = start + 1 + random.nextInt(sequence.length - start);
+        final StringBuilder builder = new StringBuilder(new String(sequence, start, end - start));
+        for (int i = 0; i < mutationCount && builder.length() > 1; i++) {
+            final int position = random.nextInt(builder.length());
+            switch (random.nextInt(3)) {
+                case 0: builder.setCharAt(position, "ACGT".charAt(random.nextInt(4))); break;
+                case 1: builder.insert(position, new String(randomBases(random, 1 + random.nextInt(5)))); break;
+                default: builder.delete(position, Math.min(builder.length() - 1, position + 1 + random.nextInt(5))); break;
+            }
+        }
+        return builder.toString().getBytes();
+    }
+}
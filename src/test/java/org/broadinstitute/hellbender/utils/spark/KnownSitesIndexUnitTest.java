@@ -0,0 +1,76 @@
+package org.broadinstitute.hellbender.utils.spark;
+
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.variant.GATKVariant;
+import org.broadinstitute.hellbender.utils.variant.VariantContextVariantAdapter;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class KnownSitesIndexUnitTest extends GATKBaseTest {
+    private static final String BQSR_DIR = toolsTestDir + "BQSR/";
+    private static final List<String> KNOWN_SITES = Arrays.asList(
+            BQSR_DIR + "dbsnp_138.b37.excluding_sites_after_129.ch20.1m-1m1k.vcf",
+            BQSR_DIR + "bqsr.fakeSitesForTesting.b37.chr20.vcf",
+            BQSR_DIR + "dbsnp_132.b37.excluding_sites_after_129.chr17_69k_70k.vcf");
+
+    // not in the order of the files, and without some contigs of their headers
+    private static final SAMSequenceDictionary DICTIONARY = new SAMSequenceDictionary(Arrays.asList(
+            new SAMSequenceRecord("20", 63025520),
+            new SAMSequenceRecord("17", 81195210)));
+
+    @Test
+    public void testMatchesFeatureDataSource() {
+        final Path indexFile = createTempPath("known-sites", KnownSitesIndex.KNOWN_SITES_INDEX_EXTENSION);
+        KnownSitesIndex.write(KNOWN_SITES, DICTIONARY, indexFile);
+        final KnownSitesIndex index = KnownSitesIndex.open(indexFile);
+
+        final List<SimpleInterval> queries = new ArrayList<>();
+        for (int start = 999_900; start < 1_001_000; start += 37) {
+            queries.add(new SimpleInterval("20", start, start + 101));
+        }
+        for (int start = 69_000; start < 70_000; start += 37) {
+            queries.add(new SimpleInterval("17", start, start + 101));
+        }
+        queries.add(new SimpleInterval("20", 1, 63025520));
+        queries.add(new SimpleInterval("1", 1, 1_000_000));
+
+        int totalOverlaps = 0;
+        for (final SimpleInterval query : queries) {
+            final List<String> expected = new ArrayList<>();
+            for (final String file : KNOWN_SITES) {
+                try (final FeatureDataSource<VariantContext> source = new FeatureDataSource<>(file)) {
+                    Utils.stream(source.query(query)).map(VariantContextVariantAdapter::sparkVariantAdapter).map(KnownSitesIndexUnitTest::describe).forEach(expected::add);
+                }
+            }
+            final List<String> actual = index.getOverlapping(query).stream().map(KnownSitesIndexUnitTest::describe).collect(Collectors.toList());
+            Assert.assertEquals(actual.stream().sorted().collect(Collectors.toList()), expected.stream().sorted().collect(Collectors.toList()), query.toString());
+            totalOverlaps += actual.size();
+        }
+        Assert.assertTrue(totalOverlaps > 0);
+    }
+
+    @Test(expectedExceptions = UserException.class)
+    public void testNotAnIndex() throws Exception {
+        final Path notAnIndex = createTempPath("not-an-index", KnownSitesIndex.KNOWN_SITES_INDEX_EXTENSION);
+        Files.write(notAnIndex, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        KnownSitesIndex.open(notAnIndex);
+    }
+
+    private static String describe(final GATKVariant variant) {
+        return variant.getContig() + ":" + variant.getStart() + "-" + variant.getEnd() + " snp=" + variant.isSnp() + " indel=" + variant.isIndel();
+    }
+}
@@ -0,0 +1,68 @@
+package org.broadinstitute.hellbender.utils.spark;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class NodeLocalFileCacheUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testLocalizeAndMap() throws Exception {
+        final byte[] contents = new byte[100_000];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = (byte) (i * 31);
+        }
+        final Path source = createTempPath("node-local-cache-source", ".bin");
+        Files.write(source, contents);
+        final Path cacheDirectory = createTempDir("node-local-cache").toPath();
+
+        final String checksum = NodeLocalFileCache.checksum(source.toString());
+        Assert.assertEquals(NodeLocalFileCache.checksum(source.toString()), checksum);
+        final Path local = NodeLocalFileCache.localize(source.toString(), checksum, cacheDirectory);
+        Assert.assertEquals(local.getParent(), cacheDirectory);
+        Assert.assertEquals(Files.readAllBytes(local), contents);
+        Assert.assertEquals(NodeLocalFileCache.localize(source.toString(), checksum, cacheDirectory), local);
+
+        final ByteBuffer mapped = NodeLocalFileCache.map(local, 1000, 500);
+        for (int i = 0; i < 500; i++) {
+            Assert.assertEquals(mapped.get(i), contents[1000 + i]);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.CouldNotReadInputFile.class)
+    public void testChangedFile() throws Exception {
+        final Path source = createTempPath("node-local-cache-source", ".bin");
+        Files.write(source, new byte[]{1, 2, 3});
+        final String checksum = NodeLocalFileCache.checksum(source.toString());
+        Files.write(source, new byte[]{1, 2, 4});
+        NodeLocalFileCache.localize(source.toString(), checksum, createTempDir("node-local-cache").toPath());
+    }
+
+    @Test
+    public void testLocalizeByFingerprint() throws Exception {
+        final Path source = createTempPath("node-local-cache-source", ".bin");
+        Files.write(source, new byte[]{1, 2, 3});
+        final Path cacheDirectory = createTempDir("node-local-cache").toPath();
+
+        final String fingerprint = NodeLocalFileCache.fingerprint(source.toString());
+        Assert.assertEquals(NodeLocalFileCache.fingerprint(source.toString()), fingerprint);
+        Assert.assertNotEquals(fingerprint, NodeLocalFileCache.checksum(source.toString()));
+        final Path local = NodeLocalFileCache.localize(source.toString(), fingerprint, cacheDirectory);
+        Assert.assertEquals(Files.readAllBytes(local), new byte[]{1, 2, 3});
+        Assert.assertEquals(NodeLocalFileCache.localize(source.toString(), fingerprint, cacheDirectory), local);
+    }
+
+    @Test(expectedExceptions = UserException.CouldNotReadInputFile.class)
+    public void testChangedFileByFingerprint() throws Exception {
+        final Path source = createTempPath("node-local-cache-source", ".bin");
+        Files.write(source, new byte[]{1, 2, 3});
+        final String fingerprint = NodeLocalFileCache.fingerprint(source.toString());
+        Files.write(source, new byte[]{1, 2, 3, 4});
+        NodeLocalFileCache.localize(source.toString(), fingerprint, createTempDir("node-local-cache").toPath());
+    }
+}